@@ -0,0 +1,38 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import domain.CompactGraph;
+import domain.DirectedGraph;
+
+/**
+ * Cost of building a graph from a generated network, through DirectedGraph.add and then into a CompactGraph.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConstructionBenchmark {
+
+	@Benchmark
+	public DirectedGraph<String> directedGraph(NetworkState state) {
+		return state.network.toDirectedGraph();
+	}
+
+	@Benchmark
+	public CompactGraph<String> compactGraph(NetworkState state) {
+		return new CompactGraph<String>(state.directedGraph);
+	}
+}
@@ -0,0 +1,179 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import domain.DirectedGraph;
+
+/**
+ * Generators of synthetic railway networks for benchmarks. Stations are named S0, S1, ... and distances
+ * are drawn uniformly from 1 to 10. A network is generated as a plain edge list, so construction of the
+ * graph itself can be measured separately from generation.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class GraphGenerators {
+
+	public enum Topology {
+		/* Every station has a few lines to uniformly random stations */
+		RANDOM,
+		/* Stations on a square grid, lines both ways to right and lower neighbour */
+		GRID,
+		/* Hubs linked in a ring and to a few random hubs, every other station on a branch line of one hub */
+		HUB_AND_SPOKE
+	}
+
+	private static final int MAX_DISTANCE = 10;
+	private static final int RANDOM_DEGREE = 3;
+	private static final int HUB_LINKS = 3;
+
+	private GraphGenerators() {
+	}
+
+	/**
+	 * Generates network of given topology with given number of stations.
+	 *
+	 * @param topology
+	 * @param stations
+	 * @param seed
+	 * @return
+	 */
+	public static Network generate(Topology topology, int stations, long seed) {
+		switch (topology) {
+		case RANDOM:
+			return random(stations, seed);
+		case GRID:
+			return grid(stations, seed);
+		default:
+			return hubAndSpoke(stations, seed);
+		}
+	}
+
+	public static Network random(int stations, long seed) {
+		Random random = new Random(seed);
+		Network network = new Network(stations);
+		for (int from = 0; from < stations; from++) {
+			for (int i = 0; i < RANDOM_DEGREE; i++) {
+				int to = random.nextInt(stations);
+				if (to != from) {
+					network.add(from, to, distance(random));
+				}
+			}
+		}
+		return network;
+	}
+
+	public static Network grid(int stations, long seed) {
+		Random random = new Random(seed);
+		Network network = new Network(stations);
+		int width = (int) Math.ceil(Math.sqrt(stations));
+		for (int v = 0; v < stations; v++) {
+			if ((v + 1) % width != 0 && v + 1 < stations) {
+				network.add(v, v + 1, distance(random));
+				network.add(v + 1, v, distance(random));
+			}
+			if (v + width < stations) {
+				network.add(v, v + width, distance(random));
+				network.add(v + width, v, distance(random));
+			}
+		}
+		return network;
+	}
+
+	public static Network hubAndSpoke(int stations, long seed) {
+		Random random = new Random(seed);
+		Network network = new Network(stations);
+		int hubs = Math.max(1, (int) Math.sqrt(stations));
+		for (int hub = 0; hub < hubs && hubs > 1; hub++) {
+			int next = (hub + 1) % hubs;
+			network.add(hub, next, distance(random));
+			network.add(next, hub, distance(random));
+			for (int i = 0; i < HUB_LINKS; i++) {
+				int other = random.nextInt(hubs);
+				if (other != hub) {
+					network.add(hub, other, distance(random));
+				}
+			}
+		}
+		// Every station past the hubs extends the branch line of its hub, in both directions.
+		for (int v = hubs; v < stations; v++) {
+			int previous = v - hubs >= hubs ? v - hubs : v % hubs;
+			network.add(previous, v, distance(random));
+			network.add(v, previous, distance(random));
+		}
+		return network;
+	}
+
+	private static int distance(Random random) {
+		return 1 + random.nextInt(MAX_DISTANCE);
+	}
+
+	/**
+	 * Generated network as an edge list over station indices.
+	 */
+	public static final class Network {
+		private final String[] stations;
+		private int[] from = new int[16];
+		private int[] to = new int[16];
+		private int[] weight = new int[16];
+		private int edgeCount;
+
+		Network(int stationCount) {
+			this.stations = new String[stationCount];
+			for (int i = 0; i < stationCount; i++) {
+				stations[i] = "S" + i;
+			}
+		}
+
+		void add(int source, int target, int distance) {
+			if (edgeCount == from.length) {
+				from = Arrays.copyOf(from, edgeCount * 2);
+				to = Arrays.copyOf(to, edgeCount * 2);
+				weight = Arrays.copyOf(weight, edgeCount * 2);
+			}
+			from[edgeCount] = source;
+			to[edgeCount] = target;
+			weight[edgeCount] = distance;
+			edgeCount++;
+		}
+
+		/**
+		 * Builds the network through DirectedGraph.add, one call per line.
+		 */
+		public DirectedGraph<String> toDirectedGraph() {
+			DirectedGraph<String> graph = new DirectedGraph<String>();
+			for (String station : stations) {
+				graph.add(station);
+			}
+			for (int i = 0; i < edgeCount; i++) {
+				graph.add(stations[from[i]], stations[to[i]], weight[i]);
+			}
+			return graph;
+		}
+
+		public String getStation(int index) {
+			return stations[index];
+		}
+
+		public int getStationCount() {
+			return stations.length;
+		}
+
+		public int getEdgeCount() {
+			return edgeCount;
+		}
+
+		public int getFrom(int edge) {
+			return from[edge];
+		}
+
+		public int getTo(int edge) {
+			return to[edge];
+		}
+
+		public int getWeight(int edge) {
+			return weight[edge];
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package benchmark;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import benchmark.GraphGenerators.Network;
+import benchmark.GraphGenerators.Topology;
+import domain.CompactGraph;
+import domain.DirectedGraph;
+import domain.IndexedGraph;
+import service.GraphService;
+
+/**
+ * Generated network shared by all benchmark threads, with a pool of random queries on it. Queries are
+ * picked round robin so the JIT can not fold a constant query away.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+@State(Scope.Benchmark)
+public class NetworkState {
+
+	private static final int QUERIES = 1024;
+	private static final int MAX_HOPS = 6;
+	private static final long SEED = 42;
+
+	@Param({ "RANDOM", "GRID", "HUB_AND_SPOKE" })
+	public Topology topology;
+
+	@Param({ "100", "10000", "1000000" })
+	public int stations;
+
+	public Network network;
+	public DirectedGraph<String> directedGraph;
+	public IndexedGraph<String> compactGraph;
+	public GraphService service;
+
+	/* Journeys like S1-S7-S3 along existing lines, and random source, destination pairs */
+	public String[] journeys;
+	public String[] sources;
+	public String[] destinations;
+
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		network = GraphGenerators.generate(topology, stations, SEED);
+		directedGraph = network.toDirectedGraph();
+		compactGraph = new CompactGraph<String>(directedGraph);
+		service = new GraphService();
+		Random random = new Random(SEED);
+		journeys = new String[QUERIES];
+		sources = new String[QUERIES];
+		destinations = new String[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			journeys[i] = randomJourney(random);
+			sources[i] = network.getStation(random.nextInt(stations));
+			destinations[i] = network.getStation(random.nextInt(stations));
+		}
+	}
+
+	/**
+	 * Returns index of the next query of the pool.
+	 */
+	public int next() {
+		next = (next + 1) & (QUERIES - 1);
+		return next;
+	}
+
+	private String randomJourney(Random random) {
+		int station = compactGraph.indexOf(network.getStation(random.nextInt(stations)));
+		StringBuilder journey = new StringBuilder(compactGraph.getVertex(station));
+		int hops = 1 + random.nextInt(MAX_HOPS);
+		for (int i = 0; i < hops && compactGraph.getDegree(station) > 0; i++) {
+			station = compactGraph.getTarget(station, random.nextInt(compactGraph.getDegree(station)));
+			journey.append(GraphService.SEPARATOR).append(compactGraph.getVertex(station));
+		}
+		return journey.toString();
+	}
+}
@@ -0,0 +1,72 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import domain.CompactGraph;
+import domain.IndexedGraph;
+import service.ParallelPathEnumerator;
+
+/**
+ * Scaling of the parallel distinct path enumeration with the number of worker threads, on all corner
+ * to corner routes of a 6 x 6 grid (1,262,816 routes).
+ *
+ * @author Rushikesh Teli
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathEnumerationBenchmark {
+
+	private static final int STATIONS = 36;
+
+	@Param({ "1", "2", "4", "8", "16", "32" })
+	public int threads;
+
+	private IndexedGraph<String> graph;
+	private ForkJoinPool pool;
+	private int source;
+	private int destination;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		graph = new CompactGraph<String>(GraphGenerators.grid(STATIONS, 1).toDirectedGraph());
+		pool = new ForkJoinPool(threads);
+		source = graph.indexOf("S0");
+		destination = graph.indexOf("S" + (STATIONS - 1));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public long countPaths() {
+		return ParallelPathEnumerator.countPaths(graph, source, destination, pool);
+	}
+
+	@Benchmark
+	public List<int[]> findPaths() {
+		return ParallelPathEnumerator.findPaths(graph, source, destination, pool);
+	}
+}
@@ -0,0 +1,84 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import service.Route;
+
+/**
+ * Throughput and latency of the GraphService queries on generated networks. Queries on the
+ * DirectedGraph overloads include converting the graph, the CompactGraph ones do not.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+	private static final int STOPS = 3;
+	private static final int EXACT_STOPS = 4;
+	private static final int MAX_WEIGHT = 30;
+	private static final int ALTERNATIVES = 5;
+
+	@Benchmark
+	public String routeDistance(NetworkState state) {
+		return state.service.getRouteDistance(state.journeys[state.next()], state.compactGraph);
+	}
+
+	@Benchmark
+	public String routeDistanceDirected(NetworkState state) {
+		return state.service.getRouteDistance(state.journeys[state.next()], state.directedGraph);
+	}
+
+	@Benchmark
+	public String shortestRoute(NetworkState state) {
+		int query = state.next();
+		return state.service.getShortestRoute(state.compactGraph, state.sources[query], state.destinations[query]);
+	}
+
+	@Benchmark
+	public String shortestRouteDirected(NetworkState state) {
+		int query = state.next();
+		return state.service.getShortestRoute(state.directedGraph, state.sources[query], state.destinations[query]);
+	}
+
+	@Benchmark
+	public List<Route> shortestRoutes(NetworkState state) {
+		int query = state.next();
+		return state.service.findShortestRoutes(state.compactGraph, state.sources[query], state.destinations[query],
+				ALTERNATIVES);
+	}
+
+	@Benchmark
+	public long tripsWithMaxNStops(NetworkState state) {
+		int query = state.next();
+		return state.service.findTripsWithMaxNStops(state.compactGraph, state.sources[query],
+				state.destinations[query], STOPS);
+	}
+
+	@Benchmark
+	public long tripsWithExactlyNStops(NetworkState state) {
+		int query = state.next();
+		return state.service.findTripsWithExactlyNStops(state.compactGraph, state.sources[query],
+				state.destinations[query], EXACT_STOPS);
+	}
+
+	@Benchmark
+	public long tripsWithMaxWeight(NetworkState state) {
+		int query = state.next();
+		return state.service.findTripsWithMaxWeight(state.compactGraph, state.sources[query],
+				state.destinations[query], MAX_WEIGHT);
+	}
+}
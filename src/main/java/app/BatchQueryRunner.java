@@ -0,0 +1,179 @@
+package app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import domain.IndexedGraph;
+import service.GraphService;
+
+/**
+ * Answers a batch of queries (see {@link Query}) in parallel against one shared read only graph.
+ * Queries are read in blocks, each block is evaluated by a fork join pool while the results of the
+ * previous block are written, so results come out in input order while the pool stays busy.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public class BatchQueryRunner {
+
+	/* Queries per block and per fork join leaf task */
+	private static final int BLOCK_SIZE = 1 << 14;
+	private static final int TASK_SIZE = 64;
+
+	private final GraphService graphService;
+	private final IndexedGraph<String> graph;
+	private final int parallelism;
+
+	/**
+	 * Creates runner with given number of worker threads.
+	 *
+	 * @param graphService
+	 * @param graph
+	 * @param parallelism
+	 */
+	public BatchQueryRunner(GraphService graphService, IndexedGraph<String> graph, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be positive :: " + parallelism);
+		}
+		this.graphService = graphService;
+		this.graph = graph;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Creates runner with one worker thread per available processor.
+	 *
+	 * @param graphService
+	 * @param graph
+	 */
+	public BatchQueryRunner(GraphService graphService, IndexedGraph<String> graph) {
+		this(graphService, graph, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Reads one query per line and writes one result line per query in the same order.
+	 * Blank lines and lines starting with # are skipped.
+	 *
+	 * @param in
+	 * @param out
+	 * @throws IOException
+	 */
+	public void run(BufferedReader in, Writer out) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			ForkJoinTask<?> pending = null;
+			String[] pendingResults = null;
+			List<String> lines = readBlock(in);
+			while (!lines.isEmpty() || pending != null) {
+				ForkJoinTask<?> task = null;
+				String[] results = null;
+				if (!lines.isEmpty()) {
+					results = new String[lines.size()];
+					task = pool.submit(new EvaluateTask(lines, results, 0, results.length));
+				}
+				if (pending != null) {
+					pending.join();
+					write(pendingResults, out);
+				}
+				pending = task;
+				pendingResults = results;
+				lines = task == null ? lines : readBlock(in);
+			}
+			out.flush();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Answers given query lines, result i belongs to query line i.
+	 *
+	 * @param lines
+	 * @return
+	 */
+	public String[] run(List<String> lines) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			String[] results = new String[lines.size()];
+			pool.invoke(new EvaluateTask(lines, results, 0, results.length));
+			return results;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Answers a single query line.
+	 *
+	 * @param line
+	 * @return
+	 */
+	public String evaluate(String line) {
+		Query query = Query.parse(line);
+		if (query == null) {
+			return Query.INVALID_QUERY + " :: " + line;
+		}
+		try {
+			return query.evaluate(graphService, graph);
+		} catch (RuntimeException ex) {
+			return Query.ERROR + " :: " + ex.getMessage();
+		}
+	}
+
+	private static List<String> readBlock(BufferedReader in) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		String line;
+		while (lines.size() < BLOCK_SIZE && (line = in.readLine()) != null) {
+			String query = line.trim();
+			if (!query.isEmpty() && !query.startsWith("#")) {
+				lines.add(query);
+			}
+		}
+		return lines;
+	}
+
+	private static void write(String[] results, Writer out) throws IOException {
+		for (String result : results) {
+			out.write(result);
+			out.write('\n');
+		}
+	}
+
+	/**
+	 * Evaluates queries [from, to) by splitting the range in halves down to TASK_SIZE queries.
+	 */
+	private final class EvaluateTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<String> lines;
+		private final String[] results;
+		private final int from;
+		private final int to;
+
+		EvaluateTask(List<String> lines, String[] results, int from, int to) {
+			this.lines = lines;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= TASK_SIZE) {
+				for (int i = from; i < to; i++) {
+					results[i] = evaluate(lines.get(i));
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new EvaluateTask(lines, results, from, middle), new EvaluateTask(lines, results, middle, to));
+		}
+	}
+}
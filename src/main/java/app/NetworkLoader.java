@@ -0,0 +1,342 @@
+package app;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import domain.CompactGraph;
+import domain.DirectedGraph;
+import domain.OffHeapGraphBuilder;
+import domain.SnapshotGraph;
+
+/**
+ * Streams a railroad network file from disk through memory mapped buffers.
+ * The file holds one FROM,TO,DISTANCE record per line, e.g. "Kaitaia,Invercargill,1250".
+ * Station names are of any length, blank lines and lines starting with # are skipped.
+ * Only one String is created per distinct station, records are parsed straight from the mapped bytes.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class NetworkLoader {
+
+	/* Size of file region mapped at once and of the block copied out of it for parsing */
+	private static final long CHUNK_SIZE = 1L << 30;
+	private static final int BLOCK_SIZE = 1 << 16;
+
+	private static final byte SEPARATOR = ',';
+
+	private NetworkLoader() {
+	}
+
+	/**
+	 * Loads network file into a compact graph snapshot.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static CompactGraph<String> load(Path file) throws IOException {
+		Parser parser = parse(file);
+		return new CompactGraph<String>(parser.stations(), parser.from, parser.to, parser.weight, parser.edgeCount);
+	}
+
+	/**
+	 * Loads network file into a graph held in direct memory, see domain.OffHeapGraphBuilder. Stations and
+	 * edges go straight to the builder, so heap use does not grow with the size of the network.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static SnapshotGraph loadOffHeap(Path file) throws IOException {
+		Parser parser = new Parser(new OffHeapGraphBuilder());
+		parse(file, parser);
+		return parser.builder.build();
+	}
+
+	/**
+	 * Loads network file into given directed graph.
+	 *
+	 * @param file
+	 * @param graph
+	 * @return
+	 * @throws IOException
+	 */
+	public static DirectedGraph<String> load(Path file, DirectedGraph<String> graph) throws IOException {
+		Parser parser = parse(file);
+		String[] stations = parser.stations();
+		for (int i = 0; i < parser.edgeCount; i++) {
+			graph.add(stations[parser.from[i]], stations[parser.to[i]], parser.weight[i]);
+		}
+		return graph;
+	}
+
+	/**
+	 * Helper method which maps the file chunk by chunk and feeds it to the parser.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	private static Parser parse(Path file) throws IOException {
+		return parse(file, new Parser(null));
+	}
+
+	private static Parser parse(Path file, Parser parser) throws IOException {
+		byte[] block = new byte[BLOCK_SIZE];
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			for (long position = 0; position < size; position += CHUNK_SIZE) {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+						Math.min(CHUNK_SIZE, size - position));
+				while (buffer.hasRemaining()) {
+					int length = Math.min(block.length, buffer.remaining());
+					buffer.get(block, 0, length);
+					for (int i = 0; i < length; i++) {
+						parser.accept(block[i]);
+					}
+				}
+			}
+		}
+		parser.endOfInput();
+		return parser;
+	}
+
+	/**
+	 * Byte at a time record parser, keeps its state across mapped chunks.
+	 * Station names are interned in an open addressing table keyed by their bytes, or by the off heap
+	 * builder records go to when there is one.
+	 */
+	private static final class Parser {
+
+		/* Receiver of stations and edges, null to keep them in the arrays below */
+		private final OffHeapGraphBuilder builder;
+
+		/* Record being parsed */
+		private int line = 1;
+		private int field;
+		private boolean comment;
+		private boolean lineEmpty = true;
+		private byte[] name = new byte[64];
+		private int nameLength;
+		private int source;
+		private int destination;
+		private long distance;
+		private boolean hasDistance;
+		private boolean distanceEnded;
+
+		/* Station dictionary, bytes of station i are pool[nameOffsets[i]..nameOffsets[i]+nameLengths[i]) */
+		private byte[] pool = new byte[1024];
+		private int poolSize;
+		private int[] nameOffsets = new int[64];
+		private int[] nameLengths = new int[64];
+		private int[] nameHashes = new int[64];
+		private int stationCount;
+		/* Open addressing table, a slot holds hash in high and station + 1 in low 32 bits, 0 when empty */
+		private long[] table = new long[128];
+
+		/* Edge list */
+		private int[] from = new int[1024];
+		private int[] to = new int[1024];
+		private int[] weight = new int[1024];
+		private int edgeCount;
+
+		Parser(OffHeapGraphBuilder builder) {
+			this.builder = builder;
+		}
+
+		void accept(byte b) {
+			if (b == '\n') {
+				endOfLine();
+				return;
+			}
+			if (comment || b == '\r') {
+				return;
+			}
+			if (lineEmpty) {
+				if (b == ' ' || b == '\t') {
+					return;
+				}
+				lineEmpty = false;
+				if (b == '#') {
+					comment = true;
+					return;
+				}
+			}
+			if (b == SEPARATOR) {
+				endOfField();
+			} else if (field < 2) {
+				if (nameLength == 0 && (b == ' ' || b == '\t')) {
+					return;
+				}
+				if (nameLength == name.length) {
+					name = Arrays.copyOf(name, nameLength * 2);
+				}
+				name[nameLength++] = b;
+			} else if (b >= '0' && b <= '9') {
+				if (distanceEnded) {
+					invalid();
+				}
+				distance = distance * 10 + (b - '0');
+				hasDistance = true;
+				if (distance > Integer.MAX_VALUE) {
+					invalid();
+				}
+			} else if (b == ' ' || b == '\t') {
+				distanceEnded = hasDistance;
+			} else {
+				invalid();
+			}
+		}
+
+		void endOfInput() {
+			endOfLine();
+		}
+
+		String[] stations() {
+			String[] stations = new String[stationCount];
+			for (int i = 0; i < stationCount; i++) {
+				stations[i] = new String(pool, nameOffsets[i], nameLengths[i], StandardCharsets.UTF_8);
+			}
+			return stations;
+		}
+
+		private void endOfField() {
+			if (field == 0) {
+				source = intern();
+			} else if (field == 1) {
+				destination = intern();
+			} else {
+				invalid();
+			}
+			field++;
+		}
+
+		private void endOfLine() {
+			if (!lineEmpty && !comment) {
+				if (field != 2 || !hasDistance || source == destination) {
+					invalid();
+				}
+				addEdge();
+			}
+			line++;
+			field = 0;
+			comment = false;
+			lineEmpty = true;
+			nameLength = 0;
+			distance = 0;
+			hasDistance = false;
+			distanceEnded = false;
+		}
+
+		private void addEdge() {
+			if (builder != null) {
+				builder.addEdge(source, destination, (int) distance);
+				return;
+			}
+			if (edgeCount == from.length) {
+				from = Arrays.copyOf(from, edgeCount * 2);
+				to = Arrays.copyOf(to, edgeCount * 2);
+				weight = Arrays.copyOf(weight, edgeCount * 2);
+			}
+			from[edgeCount] = source;
+			to[edgeCount] = destination;
+			weight[edgeCount] = (int) distance;
+			edgeCount++;
+		}
+
+		/**
+		 * Returns index of the station in name buffer, adding it to the dictionary if it is new.
+		 */
+		private int intern() {
+			while (nameLength > 0 && (name[nameLength - 1] == ' ' || name[nameLength - 1] == '\t')) {
+				nameLength--;
+			}
+			if (nameLength == 0) {
+				invalid();
+			}
+			if (builder != null) {
+				int station = builder.addStation(name, 0, nameLength);
+				nameLength = 0;
+				return station;
+			}
+			int hash = 1;
+			for (int i = 0; i < nameLength; i++) {
+				hash = 31 * hash + name[i];
+			}
+			int mask = table.length - 1;
+			int slot = mix(hash) & mask;
+			for (long entry = table[slot]; entry != 0; entry = table[slot]) {
+				int station = (int) entry - 1;
+				if ((int) (entry >>> 32) == hash && sameName(station)) {
+					nameLength = 0;
+					return station;
+				}
+				slot = (slot + 1) & mask;
+			}
+			int station = addStation(hash);
+			table[slot] = ((long) hash << 32) | (station + 1);
+			if (stationCount * 2 > table.length) {
+				rehash();
+			}
+			nameLength = 0;
+			return station;
+		}
+
+		private boolean sameName(int station) {
+			if (nameLengths[station] != nameLength) {
+				return false;
+			}
+			int offset = nameOffsets[station];
+			for (int i = 0; i < nameLength; i++) {
+				if (pool[offset + i] != name[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private int addStation(int hash) {
+			if (stationCount == nameOffsets.length) {
+				nameOffsets = Arrays.copyOf(nameOffsets, stationCount * 2);
+				nameLengths = Arrays.copyOf(nameLengths, stationCount * 2);
+				nameHashes = Arrays.copyOf(nameHashes, stationCount * 2);
+			}
+			if (poolSize + nameLength > pool.length) {
+				pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + nameLength));
+			}
+			System.arraycopy(name, 0, pool, poolSize, nameLength);
+			nameOffsets[stationCount] = poolSize;
+			nameLengths[stationCount] = nameLength;
+			nameHashes[stationCount] = hash;
+			poolSize += nameLength;
+			return stationCount++;
+		}
+
+		private void rehash() {
+			table = new long[table.length * 2];
+			int mask = table.length - 1;
+			for (int station = 0; station < stationCount; station++) {
+				int slot = mix(nameHashes[station]) & mask;
+				while (table[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = ((long) nameHashes[station] << 32) | (station + 1);
+			}
+		}
+
+		private void invalid() {
+			throw new IllegalArgumentException("Invalid Input at line " + line);
+		}
+
+		private static int mix(int hash) {
+			hash *= 0x9E3779B9;
+			return hash ^ (hash >>> 16);
+		}
+	}
+}
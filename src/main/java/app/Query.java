@@ -0,0 +1,201 @@
+package app;
+
+import java.util.List;
+
+import domain.IndexedGraph;
+import service.GraphService;
+import service.Route;
+
+/**
+ * A single railroad query parsed from a line of text. Supported queries are
+ * <pre>
+ * distance A-B-C          route distance
+ * shortest A C            length of shortest route
+ * maxstops C C 3          number of trips with maximum 3 stops
+ * exactstops A C 4        number of trips with exactly 4 stops
+ * maxdistance C C 30      number of trips with distance less than 30
+ * routes A C 3            3 shortest routes with their distances, e.g. A-B-C 9, A-D-C 13, A-E-B-C 14
+ * </pre>
+ * Arguments are separated by whitespace, or by commas as in a network file when a line has one, so
+ * station names with spaces can be queried, e.g. "shortest New Plymouth,Wellington".
+ * A distance query takes the rest of the line as its route, e.g. "distance New Plymouth-Wellington".
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class Query {
+
+	/* Result text for a line which is not a valid query */
+	public static final String INVALID_QUERY = "INVALID QUERY";
+
+	/* Separator of arguments holding whitespace, same as between fields of a network file */
+	public static final char SEPARATOR = ',';
+
+	/* Result text for a valid query the service rejected, e.g. a trip over an edge of distance 0 */
+	public static final String ERROR = "ERROR";
+
+	public enum Type {
+		DISTANCE("distance", 1), SHORTEST("shortest", 2), MAX_STOPS("maxstops", 3), EXACT_STOPS("exactstops", 3),
+		MAX_DISTANCE("maxdistance", 3), ROUTES("routes", 3);
+
+		private final String keyword;
+		private final int arguments;
+
+		Type(String keyword, int arguments) {
+			this.keyword = keyword;
+			this.arguments = arguments;
+		}
+
+		public String getKeyword() {
+			return keyword;
+		}
+	}
+
+	private final Type type;
+	private final String source;
+	private final String destination;
+	private final int limit;
+
+	private Query(Type type, String source, String destination, int limit) {
+		this.type = type;
+		this.source = source;
+		this.destination = destination;
+		this.limit = limit;
+	}
+
+	/**
+	 * Parses a query line, returns null if line is not a valid query.
+	 *
+	 * @param line
+	 * @return
+	 */
+	public static Query parse(String line) {
+		String trimmed = line.trim();
+		int end = 0;
+		while (end < trimmed.length() && !Character.isWhitespace(trimmed.charAt(end))) {
+			end++;
+		}
+		String keyword = trimmed.substring(0, end);
+		String rest = trimmed.substring(end).trim();
+		for (Type type : Type.values()) {
+			if (!type.keyword.equalsIgnoreCase(keyword)) {
+				continue;
+			}
+			String[] tokens = arguments(rest, type.arguments);
+			if (tokens == null) {
+				return null;
+			}
+			if (type == Type.DISTANCE) {
+				return new Query(type, tokens[0], null, 0);
+			}
+			if (type == Type.SHORTEST) {
+				return new Query(type, tokens[0], tokens[1], 0);
+			}
+			try {
+				return new Query(type, tokens[0], tokens[1], Integer.parseInt(tokens[2]));
+			} catch (NumberFormatException nfex) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Splits arguments of a query, returns null if they are not as many as expected or one is empty.
+	 */
+	private static String[] arguments(String rest, int count) {
+		if (rest.isEmpty()) {
+			return null;
+		}
+		String[] tokens;
+		if (count == 1) {
+			tokens = new String[] { rest };
+		} else if (rest.indexOf(SEPARATOR) >= 0) {
+			tokens = rest.split(String.valueOf(SEPARATOR), -1);
+			for (int i = 0; i < tokens.length; i++) {
+				tokens[i] = tokens[i].trim();
+				if (tokens[i].isEmpty()) {
+					return null;
+				}
+			}
+		} else {
+			tokens = rest.split("\\s+");
+		}
+		return tokens.length == count ? tokens : null;
+	}
+
+	/**
+	 * Runs the query and returns its result text, same as the matching GraphService call.
+	 *
+	 * @param graphService
+	 * @param graph
+	 * @return
+	 */
+	public String evaluate(GraphService graphService, IndexedGraph<String> graph) {
+		switch (type) {
+		case DISTANCE:
+			return graphService.getRouteDistance(source, graph);
+		case SHORTEST:
+			return graphService.getShortestRoute(graph, source, destination);
+		case MAX_STOPS:
+			return String.valueOf(graphService.findTripsWithMaxNStops(graph, source, destination, limit));
+		case EXACT_STOPS:
+			return String.valueOf(graphService.findTripsWithExactlyNStops(graph, source, destination, limit));
+		case MAX_DISTANCE:
+			return String.valueOf(graphService.findTripsWithMaxWeight(graph, source, destination, limit));
+		default:
+			return describe(graphService.findShortestRoutes(graph, source, destination, limit), graph);
+		}
+	}
+
+	private static String describe(List<Route> routes, IndexedGraph<String> graph) {
+		if (routes.isEmpty()) {
+			return GraphService.NO_SUCH_ROUTE;
+		}
+		StringBuilder sb = new StringBuilder();
+		for (Route route : routes) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(route.toString(graph)).append(' ').append(route.getDistance());
+		}
+		return sb.toString();
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public String getSource() {
+		return source;
+	}
+
+	public String getDestination() {
+		return destination;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	@Override
+	public String toString() {
+		if (type == Type.DISTANCE) {
+			return type.keyword + " " + source;
+		}
+		String separator = hasWhitespace(source) || hasWhitespace(destination) ? String.valueOf(SEPARATOR) : " ";
+		if (type == Type.SHORTEST) {
+			return type.keyword + " " + source + separator + destination;
+		}
+		return type.keyword + " " + source + separator + destination + separator + limit;
+	}
+
+	private static boolean hasWhitespace(String name) {
+		for (int i = 0; i < name.length(); i++) {
+			if (Character.isWhitespace(name.charAt(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,81 @@
+package app;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Micro-batches concurrent identical queries: while a query is being computed, every other request for
+ * the same key waits for that computation instead of starting its own, and all of them get its result.
+ * Nothing is cached, a request arriving after the computation finished computes again.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class QueryCoalescer {
+
+	private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<String, CompletableFuture<String>>();
+
+	/* Statistics */
+	private final AtomicLong computed = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+
+	/**
+	 * Returns result of computation for key, shared with all concurrent callers for the same key.
+	 *
+	 * @param key
+	 * @param computation
+	 * @return
+	 */
+	public String evaluate(String key, Supplier<String> computation) {
+		CompletableFuture<String> future = new CompletableFuture<String>();
+		CompletableFuture<String> running = inFlight.putIfAbsent(key, future);
+		if (running != null) {
+			coalesced.incrementAndGet();
+			return await(running);
+		}
+		try {
+			computed.incrementAndGet();
+			future.complete(computation.get());
+		} catch (RuntimeException ex) {
+			future.completeExceptionally(ex);
+		} finally {
+			if (!future.isDone()) {
+				future.completeExceptionally(new IllegalStateException("Query failed :: " + key));
+			}
+			inFlight.remove(key, future);
+		}
+		return await(future);
+	}
+
+	/**
+	 * Number of computations run.
+	 */
+	public long getComputedCount() {
+		return computed.get();
+	}
+
+	/**
+	 * Number of requests answered by a computation run for another request.
+	 */
+	public long getCoalescedCount() {
+		return coalesced.get();
+	}
+
+	private static String await(CompletableFuture<String> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for query result", ex);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw new IllegalStateException(ex.getCause());
+		}
+	}
+}
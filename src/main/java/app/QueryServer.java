@@ -0,0 +1,257 @@
+package app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import domain.IndexedGraph;
+import service.GraphService;
+import service.QueryMetrics;
+
+/**
+ * Long running query server on the JDK built-in HttpServer, the graph is loaded once and stays warm.
+ * Queries use the syntax of {@link Query}:
+ * <pre>
+ * GET  /query?q=shortest+A+C     one query, result as text, status 400 if the query is invalid or rejected
+ * POST /query                    one query per line in the body, one result line per query
+ * GET  /health                   OK
+ * GET  /metrics                  query latencies and search effort, when the service has query metrics
+ * </pre>
+ * Requests run on a bounded executor, virtual threads when the JDK has them and a fixed pool otherwise.
+ * At most a few requests per thread are admitted at once, the server stops accepting while it is full.
+ * Concurrent identical queries are computed once, see {@link QueryCoalescer}.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public class QueryServer {
+
+	public static final String QUERY_PATH = "/query";
+	public static final String HEALTH_PATH = "/health";
+	public static final String METRICS_PATH = "/metrics";
+
+	/* Requests admitted per thread, running or waiting */
+	private static final int PENDING_PER_THREAD = 4;
+
+	private static final int OK = 200;
+	private static final int BAD_REQUEST = 400;
+	private static final int NOT_FOUND = 404;
+	private static final int METHOD_NOT_ALLOWED = 405;
+
+	private final GraphService graphService;
+	private final IndexedGraph<String> graph;
+	private final int threads;
+	private final QueryCoalescer coalescer = new QueryCoalescer();
+
+	private HttpServer server;
+	private ExecutorService executor;
+
+	/**
+	 * Creates server answering queries on given graph with given number of threads.
+	 *
+	 * @param graphService
+	 * @param graph
+	 * @param threads
+	 */
+	public QueryServer(GraphService graphService, IndexedGraph<String> graph, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Threads must be positive :: " + threads);
+		}
+		this.graphService = graphService;
+		this.graph = graph;
+		this.threads = threads;
+	}
+
+	/**
+	 * Starts serving on given port of the loopback interface, port 0 picks a free port.
+	 *
+	 * @param port
+	 * @throws IOException
+	 */
+	public void start(int port) throws IOException {
+		start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+	}
+
+	/**
+	 * Starts serving on given address.
+	 *
+	 * @param address
+	 * @throws IOException
+	 */
+	public synchronized void start(InetSocketAddress address) throws IOException {
+		if (server != null) {
+			throw new IllegalStateException("Server already started");
+		}
+		executor = newExecutor(threads);
+		server = HttpServer.create(address, 0);
+		server.setExecutor(new BoundedExecutor(executor, threads * PENDING_PER_THREAD));
+		server.createContext(QUERY_PATH, this::handleQuery);
+		server.createContext(HEALTH_PATH, exchange -> respond(exchange, OK, "OK"));
+		server.createContext(METRICS_PATH, this::handleMetrics);
+		server.start();
+	}
+
+	/**
+	 * Stops serving, waiting at most delay seconds for running requests.
+	 *
+	 * @param delay
+	 */
+	public synchronized void stop(int delay) {
+		if (server != null) {
+			server.stop(delay);
+			executor.shutdown();
+			server = null;
+		}
+	}
+
+	/**
+	 * Port the server listens on.
+	 */
+	public synchronized int getPort() {
+		if (server == null) {
+			throw new IllegalStateException("Server not started");
+		}
+		return server.getAddress().getPort();
+	}
+
+	public QueryCoalescer getCoalescer() {
+		return coalescer;
+	}
+
+	/**
+	 * Answers a single query line, concurrent identical queries are computed once.
+	 *
+	 * @param line
+	 * @return
+	 */
+	public String evaluate(String line) {
+		final Query query = Query.parse(line);
+		if (query == null) {
+			return Query.INVALID_QUERY + " :: " + line;
+		}
+		try {
+			return coalescer.evaluate(query.toString(), () -> query.evaluate(graphService, graph));
+		} catch (RuntimeException ex) {
+			return Query.ERROR + " :: " + ex.getMessage();
+		}
+	}
+
+	private void handleQuery(HttpExchange exchange) throws IOException {
+		if (!QUERY_PATH.equals(exchange.getRequestURI().getPath())) {
+			respond(exchange, NOT_FOUND, "NOT FOUND");
+		} else if ("GET".equals(exchange.getRequestMethod())) {
+			String line;
+			try {
+				line = parameter(exchange.getRequestURI().getRawQuery(), "q");
+			} catch (IllegalArgumentException ex) {
+				// Malformed percent encoding.
+				respond(exchange, BAD_REQUEST, Query.INVALID_QUERY + " :: " + ex.getMessage());
+				return;
+			}
+			String result = line == null ? Query.INVALID_QUERY : evaluate(line);
+			boolean failed = result.startsWith(Query.INVALID_QUERY) || result.startsWith(Query.ERROR + " :: ");
+			respond(exchange, failed ? BAD_REQUEST : OK, result);
+		} else if ("POST".equals(exchange.getRequestMethod())) {
+			StringBuilder results = new StringBuilder();
+			BufferedReader in = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+			String line;
+			while ((line = in.readLine()) != null) {
+				String query = line.trim();
+				if (!query.isEmpty() && !query.startsWith("#")) {
+					results.append(evaluate(query)).append('\n');
+				}
+			}
+			respond(exchange, OK, results.toString());
+		} else {
+			respond(exchange, METHOD_NOT_ALLOWED, "METHOD NOT ALLOWED");
+		}
+	}
+
+	private void handleMetrics(HttpExchange exchange) throws IOException {
+		QueryMetrics metrics = graphService.getQueryMetrics();
+		if (!METRICS_PATH.equals(exchange.getRequestURI().getPath()) || metrics == null) {
+			respond(exchange, NOT_FOUND, "NOT FOUND");
+		} else if ("GET".equals(exchange.getRequestMethod())) {
+			respond(exchange, OK, metrics.dump());
+		} else {
+			respond(exchange, METHOD_NOT_ALLOWED, "METHOD NOT ALLOWED");
+		}
+	}
+
+	private static String parameter(String query, String name) throws UnsupportedEncodingException {
+		if (query == null) {
+			return null;
+		}
+		for (String pair : query.split("&")) {
+			int separator = pair.indexOf('=');
+			if (separator > 0 && name.equals(pair.substring(0, separator))) {
+				return URLDecoder.decode(pair.substring(separator + 1), "UTF-8");
+			}
+		}
+		return null;
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Virtual thread per task executor if the JDK has one, otherwise a fixed pool of given size.
+	 */
+	private static ExecutorService newExecutor(int threads) {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException ex) {
+			return Executors.newFixedThreadPool(threads);
+		}
+	}
+
+	/**
+	 * Admits at most a fixed number of tasks at once, blocking the submitting HttpServer dispatcher while
+	 * full, so excess connections wait in the socket backlog instead of piling up in memory.
+	 */
+	private static final class BoundedExecutor implements Executor {
+		private final Executor delegate;
+		private final Semaphore permits;
+
+		BoundedExecutor(Executor delegate, int limit) {
+			this.delegate = delegate;
+			this.permits = new Semaphore(limit);
+		}
+
+		@Override
+		public void execute(final Runnable task) {
+			permits.acquireUninterruptibly();
+			try {
+				delegate.execute(() -> {
+					try {
+						task.run();
+					} finally {
+						permits.release();
+					}
+				});
+			} catch (RuntimeException ex) {
+				permits.release();
+				throw ex;
+			}
+		}
+	}
+}
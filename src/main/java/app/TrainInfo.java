@@ -1,13 +1,28 @@
 package app;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import domain.CompactGraph;
 import domain.DirectedGraph;
+import domain.IndexedGraph;
+import domain.SnapshotGraph;
 import service.GraphService;
+import service.QueryMetrics;
 
 /**
  * This is a main class, which calls services to get required information. 
@@ -17,11 +32,74 @@ import service.GraphService;
  */
 public class TrainInfo {
 
-    public static void main (String[] args) {
-        DirectedGraph<String> graph = populateGraphfromInput(args);
+    /* Command line option to load the network from a FROM,TO,DISTANCE file, see NetworkLoader */
+    public static final String FILE_OPTION = "-file";
+    /* Command line options to answer a file of queries in parallel, see BatchQueryRunner */
+    public static final String QUERIES_OPTION = "-queries";
+    public static final String THREADS_OPTION = "-threads";
+    /* Command line options to load the network from, or save it to, a binary snapshot, see domain.SnapshotGraph */
+    public static final String SNAPSHOT_OPTION = "-snapshot";
+    public static final String SAVE_OPTION = "-save";
+    /* Command line option to keep running as a query server on given loopback port, see QueryServer */
+    public static final String SERVE_OPTION = "-serve";
+    /* Command line flag to measure query latencies, printed to standard error or served on /metrics, see service.QueryMetrics */
+    public static final String METRICS_OPTION = "-metrics";
+    /* Command line flag to hold the network loaded from a file in direct memory, see domain.OffHeapGraphBuilder */
+    public static final String OFFHEAP_OPTION = "-offheap";
+
+    public static void main (String[] args) throws IOException {
+        Map<String, String> options = new HashMap<String, String>();
+        List<String> input = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if (Arrays.asList(FILE_OPTION, QUERIES_OPTION, THREADS_OPTION, SNAPSHOT_OPTION, SAVE_OPTION, SERVE_OPTION)
+                    .contains(args[i]) && i + 1 < args.length) {
+                options.put(args[i], args[++i]);
+            } else if (METRICS_OPTION.equals(args[i]) || OFFHEAP_OPTION.equals(args[i])) {
+                options.put(args[i], "");
+            } else {
+                input.add(args[i]);
+            }
+        }
+        IndexedGraph<String> graph;
+        if (options.containsKey(SNAPSHOT_OPTION)) {
+            graph = SnapshotGraph.load(Paths.get(options.get(SNAPSHOT_OPTION)));
+        } else if (options.containsKey(FILE_OPTION)) {
+            Path file = Paths.get(options.get(FILE_OPTION));
+            graph = options.containsKey(OFFHEAP_OPTION) ? NetworkLoader.loadOffHeap(file) : NetworkLoader.load(file);
+        } else {
+            graph = new CompactGraph<String>(populateGraphfromInput(input.toArray(new String[input.size()])));
+        }
+        if (options.containsKey(SAVE_OPTION)) {
+            if (graph instanceof SnapshotGraph) {
+                ((SnapshotGraph) graph).save(Paths.get(options.get(SAVE_OPTION)));
+            } else {
+                SnapshotGraph.write(graph, Paths.get(options.get(SAVE_OPTION)));
+            }
+        }
   
         //System.out.println("The current graph: " + graph);
         GraphService graphService = new GraphService();
+        if (options.containsKey(METRICS_OPTION)) {
+            graphService.setQueryMetrics(new QueryMetrics());
+        }
+        int threads = options.containsKey(THREADS_OPTION) ? Integer.parseInt(options.get(THREADS_OPTION))
+                : Runtime.getRuntime().availableProcessors();
+        if (options.containsKey(SERVE_OPTION)) {
+            QueryServer server = new QueryServer(graphService, graph, threads);
+            server.start(Integer.parseInt(options.get(SERVE_OPTION)));
+            System.out.println("Serving queries on http://localhost:" + server.getPort() + QueryServer.QUERY_PATH);
+            return;
+        }
+        if (options.containsKey(QUERIES_OPTION)) {
+            try (BufferedReader in = Files.newBufferedReader(Paths.get(options.get(QUERIES_OPTION)), StandardCharsets.UTF_8)) {
+                Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+                new BatchQueryRunner(graphService, graph, threads).run(in, out);
+            }
+            if (graphService.getQueryMetrics() != null) {
+                System.err.print(graphService.getQueryMetrics().dump());
+            }
+            return;
+        }
         System.out.println("Output #1: " + graphService.getRouteDistance("A-B-C", graph));
         System.out.println("Output #2: " + graphService.getRouteDistance("A-D", graph));
         System.out.println("Output #3: " + graphService.getRouteDistance("A-D-C", graph));
@@ -47,6 +125,11 @@ public class TrainInfo {
     	if(args == null || args.length < 1){
     		System.out.println("No Directed graph input ! Returning Empy graph ....");
     		System.out.println("Usage :: java TrainInfo AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7");
+    		System.out.println("      :: java TrainInfo " + FILE_OPTION + " network.csv [" + OFFHEAP_OPTION + "]");
+    		System.out.println("      :: java TrainInfo <graph> " + QUERIES_OPTION + " queries.txt [" + THREADS_OPTION + " n] [" + METRICS_OPTION + "]");
+    		System.out.println("      :: java TrainInfo " + FILE_OPTION + " network.csv " + SAVE_OPTION + " network.snapshot");
+    		System.out.println("      :: java TrainInfo " + SNAPSHOT_OPTION + " network.snapshot");
+    		System.out.println("      :: java TrainInfo <graph> " + SERVE_OPTION + " 8080 [" + THREADS_OPTION + " n] [" + METRICS_OPTION + "]");
     		return graph;
     	}
     	
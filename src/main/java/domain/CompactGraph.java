@@ -0,0 +1,182 @@
+package domain;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable compressed sparse row (CSR) snapshot of a weighted directed graph.
+ * Edges of vertex v are stored at positions offsets[v]..offsets[v+1]-1 of targets and weights,
+ * so a traversal touches only primitive arrays.
+ *
+ * @author Rushikesh Teli
+ *
+ * @param <V>
+ */
+public final class CompactGraph<V> implements IndexedGraph<V> {
+
+	/* Vertex dictionary, index to vertex and vertex to index */
+	private final Object[] vertices;
+	private final Map<V, Integer> indices;
+
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] weights;
+	private final long fingerprint;
+
+	/**
+	 * Creates snapshot of given graph, later changes to the graph are not reflected.
+	 *
+	 * @param graph
+	 */
+	public CompactGraph(DirectedGraph<V> graph) {
+		Map<V, Set<Edge<V>>> neighbors = graph.getNeighbors();
+		int vertexCount = neighbors.size();
+		this.vertices = new Object[vertexCount];
+		this.indices = new HashMap<V, Integer>(vertexCount * 2);
+		int edgeCount = 0;
+		for (Map.Entry<V, Set<Edge<V>>> entry : neighbors.entrySet()) {
+			vertices[indices.size()] = entry.getKey();
+			indices.put(entry.getKey(), indices.size());
+			edgeCount += entry.getValue().size();
+		}
+		this.offsets = new int[vertexCount + 1];
+		this.targets = new int[edgeCount];
+		this.weights = new int[edgeCount];
+		int position = 0;
+		for (int v = 0; v < vertexCount; v++) {
+			offsets[v] = position;
+			for (Edge<V> edge : neighbors.get(vertices[v])) {
+				targets[position] = indices.get(edge.getVertex());
+				weights[position] = edge.getWeight();
+				position++;
+			}
+		}
+		offsets[vertexCount] = position;
+		this.fingerprint = GraphFingerprint.of(this);
+	}
+
+	/**
+	 * Creates snapshot from an edge list of interned vertices. Edge i goes from from[i] to to[i]
+	 * with weight weight[i], only first edgeCount entries of the arrays are used.
+	 *
+	 * @param vertices
+	 * @param from
+	 * @param to
+	 * @param weight
+	 * @param edgeCount
+	 */
+	public CompactGraph(V[] vertices, int[] from, int[] to, int[] weight, int edgeCount) {
+		int vertexCount = vertices.length;
+		this.vertices = vertices.clone();
+		this.indices = new HashMap<V, Integer>(vertexCount * 2);
+		for (int v = 0; v < vertexCount; v++) {
+			if (indices.put(vertices[v], v) != null) {
+				throw new IllegalArgumentException("Duplicate vertex :: " + vertices[v]);
+			}
+		}
+		// Counting sort of edges by source vertex.
+		this.offsets = new int[vertexCount + 1];
+		for (int i = 0; i < edgeCount; i++) {
+			offsets[from[i] + 1]++;
+		}
+		for (int v = 0; v < vertexCount; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+		this.targets = new int[edgeCount];
+		this.weights = new int[edgeCount];
+		int[] next = new int[vertexCount];
+		System.arraycopy(offsets, 0, next, 0, vertexCount);
+		for (int i = 0; i < edgeCount; i++) {
+			int position = next[from[i]]++;
+			targets[position] = to[i];
+			weights[position] = weight[i];
+		}
+		this.fingerprint = GraphFingerprint.of(this);
+	}
+
+	/**
+	 * Creates graph with the same vertices, at the same indices, as given graph and all its edges reversed.
+	 * Used by searches running backwards from a destination.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V> CompactGraph<V> reverse(IndexedGraph<V> graph) {
+		int vertexCount = graph.getVertexCount();
+		int edgeCount = graph.getEdgeCount();
+		Object[] vertices = new Object[vertexCount];
+		int[] from = new int[edgeCount];
+		int[] to = new int[edgeCount];
+		int[] weight = new int[edgeCount];
+		int edge = 0;
+		for (int v = 0; v < vertexCount; v++) {
+			vertices[v] = graph.getVertex(v);
+			int degree = graph.getDegree(v);
+			for (int i = 0; i < degree; i++) {
+				from[edge] = graph.getTarget(v, i);
+				to[edge] = v;
+				weight[edge] = graph.getWeight(v, i);
+				edge++;
+			}
+		}
+		return new CompactGraph<V>((V[]) vertices, from, to, weight, edgeCount);
+	}
+
+	@Override
+	public int getVertexCount() {
+		return vertices.length;
+	}
+
+	@Override
+	public int getEdgeCount() {
+		return targets.length;
+	}
+
+	@Override
+	public int indexOf(V vertex) {
+		Integer index = indices.get(vertex);
+		return index == null ? -1 : index;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V getVertex(int index) {
+		return (V) vertices[index];
+	}
+
+	@Override
+	public int getDegree(int vertex) {
+		return offsets[vertex + 1] - offsets[vertex];
+	}
+
+	@Override
+	public int getTarget(int vertex, int edge) {
+		return targets[offsets[vertex] + edge];
+	}
+
+	@Override
+	public int getWeight(int vertex, int edge) {
+		return weights[offsets[vertex] + edge];
+	}
+
+	@Override
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * String representation of graph.
+	 */
+	public String toString() {
+		StringBuffer s = new StringBuffer();
+		for (int v = 0; v < vertices.length; v++) {
+			s.append("\n    " + vertices[v] + " ->");
+			for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+				s.append(" " + vertices[targets[i]] + "(" + weights[i] + ")");
+			}
+		}
+		return s.toString();
+	}
+}
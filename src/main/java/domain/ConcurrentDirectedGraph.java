@@ -0,0 +1,383 @@
+package domain;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Weighted directed graph which can be updated while queries are running.
+ * <p>
+ * Readers call {@link #snapshot()} and get an immutable, consistent {@link IndexedGraph} without locking.
+ * Writers apply batches of operations ({@link GraphUpdate}) atomically: a batch builds a new version
+ * which shares everything it did not touch with the previous one (copy on write adjacency per vertex),
+ * and publishes it with a single volatile write. Adjacency is paged, so a batch copies only the pages
+ * of the vertices it changed, never the whole graph.
+ *
+ * @author Rushikesh Teli
+ *
+ * @param <V>
+ */
+public class ConcurrentDirectedGraph<V> {
+
+	/* Vertices per adjacency page */
+	private static final int PAGE_BITS = 10;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	private static final int[] NO_EDGES = new int[0];
+
+	/* Vertex dictionary, append only so it can be shared by all snapshots; only published batches add to it */
+	private final Map<V, Integer> indices = new ConcurrentHashMap<V, Integer>();
+	private Object[] vertices = new Object[16];
+
+	private final Object writeLock = new Object();
+	private volatile Snapshot<V> current;
+
+	/**
+	 * Creates an empty graph.
+	 */
+	public ConcurrentDirectedGraph() {
+		current = new Snapshot<V>(indices, vertices, 0, new int[0][][], 0, 0, 0);
+	}
+
+	/**
+	 * Creates a graph holding all vertices and edges of given graph.
+	 *
+	 * @param graph
+	 */
+	public ConcurrentDirectedGraph(DirectedGraph<V> graph) {
+		this();
+		GraphUpdate<V> update = new GraphUpdate<V>();
+		for (Map.Entry<V, Set<Edge<V>>> entry : graph.getNeighbors().entrySet()) {
+			update.addVertex(entry.getKey());
+			for (Edge<V> edge : entry.getValue()) {
+				update.addEdge(entry.getKey(), edge.getVertex(), edge.getWeight());
+			}
+		}
+		apply(update);
+	}
+
+	/**
+	 * Current version of the graph, lock free. The snapshot never changes, later updates produce new snapshots.
+	 */
+	public Snapshot<V> snapshot() {
+		return current;
+	}
+
+	/**
+	 * Add an edge to the graph; if either vertex does not exist, it's added.
+	 */
+	public void add(V from, V to, int weight) {
+		apply(new GraphUpdate<V>().addEdge(from, to, weight));
+	}
+
+	/**
+	 * Removes all edges from source to target.
+	 */
+	public void remove(V from, V to) {
+		apply(new GraphUpdate<V>().removeEdge(from, to));
+	}
+
+	/**
+	 * Sets weight of all edges from source to target.
+	 */
+	public void setWeight(V from, V to, int weight) {
+		apply(new GraphUpdate<V>().setWeight(from, to, weight));
+	}
+
+	/**
+	 * Applies all operations of the batch atomically, readers see either none or all of them.
+	 * Writers are serialized, readers are never blocked.
+	 *
+	 * @param update
+	 * @return the new snapshot
+	 */
+	public Snapshot<V> apply(GraphUpdate<V> update) {
+		synchronized (writeLock) {
+			Snapshot<V> base = current;
+			Batch batch = new Batch(base);
+			for (GraphUpdate.Operation<V> operation : update.getOperations()) {
+				switch (operation.getType()) {
+				case ADD_VERTEX:
+					batch.vertex(operation.getFrom());
+					break;
+				case ADD_EDGE:
+					batch.addEdge(batch.vertex(operation.getFrom()), batch.vertex(operation.getTo()),
+							operation.getWeight());
+					break;
+				case REMOVE_EDGE:
+					batch.removeEdges(batch.indexOf(operation.getFrom()), batch.indexOf(operation.getTo()));
+					break;
+				default:
+					batch.setWeight(batch.indexOf(operation.getFrom()), batch.indexOf(operation.getTo()),
+							operation.getWeight());
+				}
+			}
+			int[][][] pages = batch.publish();
+			batch.commitVertices();
+			Snapshot<V> next = new Snapshot<V>(indices, vertices, batch.vertexCount, pages, batch.edgeCount,
+					batch.fingerprint, base.version + 1);
+			current = next;
+			return next;
+		}
+	}
+
+	public long getVersion() {
+		return current.version;
+	}
+
+	/**
+	 * Draft of the next version, owned by the writer holding the lock. Adjacency of every vertex touched
+	 * by the batch is edited in a growable buffer and copied into the new pages once, when published.
+	 * Vertices the batch adds are staged and enter the shared dictionary only once the new version is
+	 * built, so a batch which fails part way leaves the dictionary as it was.
+	 */
+	private final class Batch {
+		private int[][][] pages;
+		private final Map<Integer, Draft> drafts = new HashMap<Integer, Draft>();
+		private final int baseVertexCount;
+		private final Map<V, Integer> added = new HashMap<V, Integer>();
+		private Object[] addedVertices = new Object[4];
+		private int vertexCount;
+		private int edgeCount;
+		private long fingerprint;
+
+		Batch(Snapshot<V> base) {
+			this.pages = base.pages;
+			this.baseVertexCount = base.vertexCount;
+			this.vertexCount = base.vertexCount;
+			this.edgeCount = base.edgeCount;
+			this.fingerprint = base.fingerprint;
+		}
+
+		/**
+		 * Returns index of vertex, adding it if it does not exist.
+		 */
+		int vertex(V vertex) {
+			int index = indexOf(vertex);
+			if (index >= 0) {
+				return index;
+			}
+			int id = vertexCount++;
+			int staged = id - baseVertexCount;
+			if (staged == addedVertices.length) {
+				addedVertices = Arrays.copyOf(addedVertices, staged * 2);
+			}
+			addedVertices[staged] = vertex;
+			added.put(vertex, id);
+			fingerprint += GraphFingerprint.vertex(vertex.hashCode());
+			return id;
+		}
+
+		/**
+		 * Returns index of vertex in the draft, -1 if it does not exist.
+		 */
+		int indexOf(V vertex) {
+			Integer index = indices.get(vertex);
+			if (index == null || index >= baseVertexCount) {
+				index = added.get(vertex);
+			}
+			return index == null ? -1 : index;
+		}
+
+		/**
+		 * Adds the staged vertices to the shared dictionary, once the new version is built.
+		 */
+		void commitVertices() {
+			if (vertexCount > vertices.length) {
+				vertices = Arrays.copyOf(vertices, Math.max(vertexCount, vertices.length * 2));
+			}
+			System.arraycopy(addedVertices, 0, vertices, baseVertexCount, vertexCount - baseVertexCount);
+			for (Map.Entry<V, Integer> entry : added.entrySet()) {
+				indices.put(entry.getKey(), entry.getValue());
+			}
+		}
+
+		void addEdge(int from, int to, int weight) {
+			Draft draft = draft(from);
+			if (draft.length == draft.edges.length) {
+				draft.edges = Arrays.copyOf(draft.edges, Math.max(4, draft.length * 2));
+			}
+			draft.edges[draft.length++] = to;
+			draft.edges[draft.length++] = weight;
+			edgeCount++;
+			fingerprint += edgeFingerprint(from, to, weight);
+		}
+
+		void removeEdges(int from, int to) {
+			if (from < 0 || to < 0) {
+				return;
+			}
+			Draft draft = draft(from);
+			int length = 0;
+			for (int i = 0; i < draft.length; i += 2) {
+				if (draft.edges[i] == to) {
+					edgeCount--;
+					fingerprint -= edgeFingerprint(from, to, draft.edges[i + 1]);
+				} else {
+					draft.edges[length++] = draft.edges[i];
+					draft.edges[length++] = draft.edges[i + 1];
+				}
+			}
+			draft.length = length;
+		}
+
+		void setWeight(int from, int to, int weight) {
+			if (from < 0 || to < 0) {
+				return;
+			}
+			Draft draft = draft(from);
+			for (int i = 0; i < draft.length; i += 2) {
+				if (draft.edges[i] == to) {
+					fingerprint += edgeFingerprint(from, to, weight) - edgeFingerprint(from, to, draft.edges[i + 1]);
+					draft.edges[i + 1] = weight;
+				}
+			}
+		}
+
+		/**
+		 * Returns pages of the new version, copying only pages holding a vertex touched by the batch.
+		 */
+		int[][][] publish() {
+			int[][][] published = pages.clone();
+			int pageCount = (vertexCount + PAGE_MASK) >>> PAGE_BITS;
+			if (published.length < pageCount) {
+				published = Arrays.copyOf(published, pageCount);
+			}
+			boolean[] copied = new boolean[published.length];
+			for (Map.Entry<Integer, Draft> entry : drafts.entrySet()) {
+				int vertex = entry.getKey();
+				int page = vertex >>> PAGE_BITS;
+				if (!copied[page]) {
+					published[page] = published[page] == null ? new int[PAGE_SIZE][] : published[page].clone();
+					copied[page] = true;
+				}
+				Draft draft = entry.getValue();
+				published[page][vertex & PAGE_MASK] = draft.length == 0 ? NO_EDGES
+						: Arrays.copyOf(draft.edges, draft.length);
+			}
+			return published;
+		}
+
+		private Draft draft(int vertex) {
+			Draft draft = drafts.get(vertex);
+			if (draft == null) {
+				int[] edges = adjacency(pages, vertex);
+				draft = new Draft(edges.clone());
+				drafts.put(vertex, draft);
+			}
+			return draft;
+		}
+
+		private long edgeFingerprint(int from, int to, int weight) {
+			return GraphFingerprint.edge(vertexAt(from).hashCode(), vertexAt(to).hashCode(), weight);
+		}
+
+		private Object vertexAt(int index) {
+			return index < baseVertexCount ? vertices[index] : addedVertices[index - baseVertexCount];
+		}
+	}
+
+	/**
+	 * Adjacency of a vertex being edited by a batch, edges[0..length) as target, weight pairs.
+	 */
+	private static final class Draft {
+		private int[] edges;
+		private int length;
+
+		Draft(int[] edges) {
+			this.edges = edges;
+			this.length = edges.length;
+		}
+	}
+
+	private static int[] adjacency(int[][][] pages, int vertex) {
+		int page = vertex >>> PAGE_BITS;
+		if (page >= pages.length || pages[page] == null) {
+			return NO_EDGES;
+		}
+		int[] edges = pages[page][vertex & PAGE_MASK];
+		return edges == null ? NO_EDGES : edges;
+	}
+
+	/**
+	 * Immutable version of a concurrent graph. Safe to share between threads.
+	 */
+	public static final class Snapshot<V> implements IndexedGraph<V> {
+		private final Map<V, Integer> indices;
+		private final Object[] vertices;
+		private final int vertexCount;
+		/* Adjacency of vertex v is pages[v / PAGE_SIZE][v % PAGE_SIZE] as target, weight pairs */
+		private final int[][][] pages;
+		private final int edgeCount;
+		private final long fingerprint;
+		private final long version;
+
+		Snapshot(Map<V, Integer> indices, Object[] vertices, int vertexCount, int[][][] pages, int edgeCount,
+				long fingerprint, long version) {
+			this.indices = indices;
+			this.vertices = vertices;
+			this.vertexCount = vertexCount;
+			this.pages = pages;
+			this.edgeCount = edgeCount;
+			this.fingerprint = fingerprint;
+			this.version = version;
+		}
+
+		@Override
+		public int getVertexCount() {
+			return vertexCount;
+		}
+
+		@Override
+		public int getEdgeCount() {
+			return edgeCount;
+		}
+
+		@Override
+		public int indexOf(V vertex) {
+			Integer index = indices.get(vertex);
+			// Vertices added after this snapshot are not part of it.
+			return index == null || index >= vertexCount ? -1 : index;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public V getVertex(int index) {
+			return (V) vertices[index];
+		}
+
+		@Override
+		public int getDegree(int vertex) {
+			return adjacency(vertex).length >>> 1;
+		}
+
+		@Override
+		public int getTarget(int vertex, int edge) {
+			return adjacency(vertex)[edge << 1];
+		}
+
+		@Override
+		public int getWeight(int vertex, int edge) {
+			return adjacency(vertex)[(edge << 1) + 1];
+		}
+
+		@Override
+		public long getFingerprint() {
+			return fingerprint;
+		}
+
+		/**
+		 * Version of the graph, incremented by every applied batch.
+		 */
+		public long getVersion() {
+			return version;
+		}
+
+		private int[] adjacency(int vertex) {
+			return ConcurrentDirectedGraph.adjacency(pages, vertex);
+		}
+	}
+}
@@ -1,8 +1,11 @@
 package domain;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -20,6 +23,28 @@ public class DirectedGraph<V> {
      */   
     private Map<V,Set<Edge<V>>> neighbors = new HashMap<V,Set<Edge<V>>>();
     
+    /**
+     * Modification version, incremented whenever a vertex or an edge is added, removed or reweighted.
+     * Results derived from the graph are valid only as long as the version is unchanged.
+     * Weights changed directly through Edge.setWeight are not tracked.
+     */
+    private long version;
+    
+    /**
+     * Content fingerprint maintained on every modification, see GraphFingerprint.
+     */
+    private long fingerprint;
+    
+    /**
+     * Listeners told about every modification, see GraphListener.
+     */
+    private List<GraphListener<V>> listeners = new ArrayList<GraphListener<V>>();
+    
+    /**
+     * Compact copy of the graph with the version it was taken at, see snapshot().
+     */
+    private volatile Snapshot<V> snapshot;
+    
     /**
      * String representation of graph.
      */
@@ -35,6 +60,9 @@ public class DirectedGraph<V> {
     public void add (V vertex) {
         if (neighbors.containsKey(vertex)) return;
         neighbors.put(vertex, new HashSet<Edge<V>>());
+        fingerprint += GraphFingerprint.vertex(vertex.hashCode());
+        version++;
+        for (GraphListener<V> listener : listeners) listener.vertexAdded(vertex);
     }
     
     /**
@@ -53,17 +81,79 @@ public class DirectedGraph<V> {
         this.add(from); 
         this.add(to);
         neighbors.get(from).add(new Edge<V>(to, weight));
+        fingerprint += GraphFingerprint.edge(from.hashCode(), to.hashCode(), weight);
+        version++;
+        for (GraphListener<V> listener : listeners) listener.edgeAdded(from, to, weight);
+    }
+    
+    /**
+     * Remove all edges from source to target, e.g. a closure.
+     * Returns number of edges removed.
+     */
+    public int remove (V from, V to) {
+        Set<Edge<V>> edges = neighbors.get(from);
+        if (edges == null) return 0;
+        int removed = 0;
+        for (Iterator<Edge<V>> it = edges.iterator(); it.hasNext();) {
+            Edge<V> e = it.next();
+            if (e.getVertex().equals(to)) {
+                it.remove();
+                fingerprint -= GraphFingerprint.edge(from.hashCode(), to.hashCode(), e.getWeight());
+                removed++;
+            }
+        }
+        if (removed == 0) return 0;
+        version++;
+        for (GraphListener<V> listener : listeners) listener.edgesRemoved(from, to);
+        return removed;
+    }
+    
+    /**
+     * Set weight of all edges from source to target, e.g. a speed restriction.
+     * Returns number of edges changed.
+     */
+    public int setWeight (V from, V to, int weight) {
+        Set<Edge<V>> edges = neighbors.get(from);
+        if (edges == null) return 0;
+        int changed = 0;
+        for (Edge<V> e : edges) {
+            if (e.getVertex().equals(to)) {
+                fingerprint += GraphFingerprint.edge(from.hashCode(), to.hashCode(), weight)
+                        - GraphFingerprint.edge(from.hashCode(), to.hashCode(), e.getWeight());
+                e.setWeight(weight);
+                changed++;
+            }
+        }
+        if (changed == 0) return 0;
+        version++;
+        for (GraphListener<V> listener : listeners) listener.weightChanged(from, to, weight);
+        return changed;
+    }
+    
+    /**
+     * Register listener for all later modifications.
+     */
+    public void addListener (GraphListener<V> listener) {
+        listeners.add(listener);
     }
     
+    /**
+     * Unregister listener, nothing happens if it is not registered.
+     */
+    public void removeListener (GraphListener<V> listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Weight of an edge from source to target, -1 if there is no such edge.
+     */
     public int getWeight(V from, V to) {
-    	try{
-	        for(Edge<V> e :  neighbors.get(from)){
-	            if(e.getVertex().equals(to))
-	                return e.getWeight();
-	        }
-    	}catch(Exception ex){
-    		return -1;
-    	}
+        Set<Edge<V>> edges = neighbors.get(from);
+        if (edges == null) return -1;
+        for(Edge<V> e : edges){
+            if(e.getVertex().equals(to))
+                return e.getWeight();
+        }
         return -1;
     }
     
@@ -78,4 +168,38 @@ public class DirectedGraph<V> {
 	public Map<V, Set<Edge<V>>> getNeighbors() {
 		return neighbors;
 	}
+	
+	public long getVersion() {
+		return version;
+	}
+	
+	public long getFingerprint() {
+		return fingerprint;
+	}
+	
+	/**
+	 * Returns an immutable compact copy of the graph, built on the first call after a modification and
+	 * shared by all calls until the next one. Like any result derived from the graph, it does not see
+	 * weights changed directly through Edge.setWeight.
+	 * 
+	 * @return
+	 */
+	public CompactGraph<V> snapshot() {
+		Snapshot<V> current = snapshot;
+		if (current == null || current.version != version) {
+			current = new Snapshot<V>(new CompactGraph<V>(this), version);
+			snapshot = current;
+		}
+		return current.graph;
+	}
+	
+	private static final class Snapshot<V> {
+		private final CompactGraph<V> graph;
+		private final long version;
+		
+		Snapshot(CompactGraph<V> graph, long version) {
+			this.graph = graph;
+			this.version = version;
+		}
+	}
 }
\ No newline at end of file
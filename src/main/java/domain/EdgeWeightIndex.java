@@ -0,0 +1,75 @@
+package domain;
+
+import java.util.Arrays;
+
+/**
+ * Primitive hash index from (from, to) vertex indices to edge weight, giving O(1) weight lookups
+ * without boxing. Keys are packed into a long and stored with open addressing and linear probing.
+ * For multi-edges the weight of the first edge in adjacency order is kept.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class EdgeWeightIndex {
+
+	/* Marks an empty slot, no edge can have it as key since vertex indices are not negative */
+	private static final long EMPTY = -1L;
+
+	private final long[] keys;
+	private final int[] weights;
+	private final int mask;
+
+	/**
+	 * Builds index of all edges of given graph.
+	 *
+	 * @param graph
+	 */
+	public EdgeWeightIndex(IndexedGraph<?> graph) {
+		int capacity = Integer.highestOneBit(Math.max(2, graph.getEdgeCount()) * 2 - 1) << 1;
+		this.keys = new long[capacity];
+		this.weights = new int[capacity];
+		this.mask = capacity - 1;
+		Arrays.fill(keys, EMPTY);
+		int vertexCount = graph.getVertexCount();
+		for (int from = 0; from < vertexCount; from++) {
+			int degree = graph.getDegree(from);
+			for (int i = 0; i < degree; i++) {
+				long key = key(from, graph.getTarget(from, i));
+				int slot = slot(key);
+				while (keys[slot] != EMPTY && keys[slot] != key) {
+					slot = (slot + 1) & mask;
+				}
+				if (keys[slot] == EMPTY) {
+					keys[slot] = key;
+					weights[slot] = graph.getWeight(from, i);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns weight of edge from source to target, -1 if there is no such edge.
+	 *
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	public int getWeight(int from, int to) {
+		long key = key(from, to);
+		for (int slot = slot(key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				return weights[slot];
+			}
+		}
+		return -1;
+	}
+
+	private static long key(int from, int to) {
+		return ((long) from << 32) | (to & 0xFFFFFFFFL);
+	}
+
+	private int slot(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+}
@@ -0,0 +1,60 @@
+package domain;
+
+/**
+ * Order independent 64 bit fingerprint of a graph's vertices and edges. The fingerprint is a sum of
+ * per vertex and per edge hashes, so it can be maintained incrementally while a graph is modified and
+ * structures derived from a graph (indexes, snapshots) can check they still match it in O(1).
+ * Relies on stable hashCode of vertices, as String has, to stay valid across runs.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class GraphFingerprint {
+
+	private GraphFingerprint() {
+	}
+
+	/**
+	 * Fingerprint of an indexed graph, O(V + E).
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public static long of(IndexedGraph<?> graph) {
+		int vertexCount = graph.getVertexCount();
+		int[] hashes = new int[vertexCount];
+		long fingerprint = 0;
+		for (int v = 0; v < vertexCount; v++) {
+			hashes[v] = graph.getVertex(v).hashCode();
+			fingerprint += vertex(hashes[v]);
+		}
+		for (int v = 0; v < vertexCount; v++) {
+			int degree = graph.getDegree(v);
+			for (int i = 0; i < degree; i++) {
+				fingerprint += edge(hashes[v], hashes[graph.getTarget(v, i)], graph.getWeight(v, i));
+			}
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Contribution of a vertex with given hash code.
+	 */
+	public static long vertex(int hash) {
+		return mix(hash * 0x9E3779B97F4A7C15L);
+	}
+
+	/**
+	 * Contribution of an edge between vertices with given hash codes.
+	 */
+	public static long edge(int fromHash, int toHash, int weight) {
+		return mix((((long) fromHash << 32) ^ (toHash & 0xFFFFFFFFL)) + mix(weight + 0x632BE59BD9B4E019L));
+	}
+
+	/* SplitMix64 finalizer */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,33 @@
+package domain;
+
+/**
+ * Receives the modifications of a {@link DirectedGraph} after they have been made, so structures derived
+ * from the graph can be updated instead of rebuilt. Weights changed directly through Edge.setWeight are
+ * not reported.
+ *
+ * @author Rushikesh Teli
+ *
+ * @param <V>
+ */
+public interface GraphListener<V> {
+
+	/**
+	 * A vertex without edges has been added.
+	 */
+	void vertexAdded(V vertex);
+
+	/**
+	 * An edge has been added, both vertices exist.
+	 */
+	void edgeAdded(V from, V to, int weight);
+
+	/**
+	 * All edges from source to target have been removed.
+	 */
+	void edgesRemoved(V from, V to);
+
+	/**
+	 * All edges from source to target have been given weight.
+	 */
+	void weightChanged(V from, V to, int weight);
+}
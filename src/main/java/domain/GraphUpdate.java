@@ -0,0 +1,104 @@
+package domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A batch of edge operations applied atomically by {@link ConcurrentDirectedGraph#apply(GraphUpdate)}.
+ * Operations are applied in the order they were added.
+ *
+ * @author Rushikesh Teli
+ *
+ * @param <V>
+ */
+public class GraphUpdate<V> {
+
+	public enum Type {
+		ADD_VERTEX, ADD_EDGE, REMOVE_EDGE, SET_WEIGHT
+	}
+
+	/**
+	 * Single operation of a batch.
+	 */
+	public static final class Operation<V> {
+		private final Type type;
+		private final V from;
+		private final V to;
+		private final int weight;
+
+		Operation(Type type, V from, V to, int weight) {
+			this.type = type;
+			this.from = from;
+			this.to = to;
+			this.weight = weight;
+		}
+
+		public Type getType() {
+			return type;
+		}
+
+		public V getFrom() {
+			return from;
+		}
+
+		public V getTo() {
+			return to;
+		}
+
+		public int getWeight() {
+			return weight;
+		}
+
+		@Override
+		public String toString() {
+			return "Operation [type=" + type + ", from=" + from + ", to=" + to + ", weight=" + weight + "]";
+		}
+	}
+
+	private final List<Operation<V>> operations = new ArrayList<Operation<V>>();
+
+	/**
+	 * Adds a vertex, nothing happens if vertex is already in graph.
+	 */
+	public GraphUpdate<V> addVertex(V vertex) {
+		return add(Type.ADD_VERTEX, vertex, null, 0);
+	}
+
+	/**
+	 * Adds an edge, if either vertex does not exist it's added.
+	 */
+	public GraphUpdate<V> addEdge(V from, V to, int weight) {
+		return add(Type.ADD_EDGE, from, to, weight);
+	}
+
+	/**
+	 * Removes all edges from source to target, e.g. a closure.
+	 */
+	public GraphUpdate<V> removeEdge(V from, V to) {
+		return add(Type.REMOVE_EDGE, from, to, 0);
+	}
+
+	/**
+	 * Sets weight of all edges from source to target, e.g. a diversion.
+	 */
+	public GraphUpdate<V> setWeight(V from, V to, int weight) {
+		return add(Type.SET_WEIGHT, from, to, weight);
+	}
+
+	public List<Operation<V>> getOperations() {
+		return Collections.unmodifiableList(operations);
+	}
+
+	public int size() {
+		return operations.size();
+	}
+
+	private GraphUpdate<V> add(Type type, V from, V to, int weight) {
+		if (from == null || (type != Type.ADD_VERTEX && to == null)) {
+			throw new IllegalArgumentException("Vertex must not be null :: " + type);
+		}
+		operations.add(new Operation<V>(type, from, to, weight));
+		return this;
+	}
+}
@@ -0,0 +1,53 @@
+package domain;
+
+/**
+ * Read only view of a weighted directed graph where vertices are interned to dense ints
+ * 0..getVertexCount()-1 and outgoing edges of a vertex are addressed by position 0..getDegree(v)-1.
+ * Traversal through this interface does not allocate per edge objects.
+ *
+ * @author Rushikesh Teli
+ *
+ * @param <V>
+ */
+public interface IndexedGraph<V> {
+
+	/**
+	 * Number of vertices in the graph.
+	 */
+	int getVertexCount();
+
+	/**
+	 * Number of edges in the graph.
+	 */
+	int getEdgeCount();
+
+	/**
+	 * Index of the vertex or -1 if graph does not contain it.
+	 */
+	int indexOf(V vertex);
+
+	/**
+	 * Vertex for the given index.
+	 */
+	V getVertex(int index);
+
+	/**
+	 * Number of outgoing edges of vertex.
+	 */
+	int getDegree(int vertex);
+
+	/**
+	 * Target vertex index of the edge at given position of vertex.
+	 */
+	int getTarget(int vertex, int edge);
+
+	/**
+	 * Weight of the edge at given position of vertex.
+	 */
+	int getWeight(int vertex, int edge);
+
+	/**
+	 * Content fingerprint, see {@link GraphFingerprint}.
+	 */
+	long getFingerprint();
+}
@@ -0,0 +1,259 @@
+package domain;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds a graph of any size outside the Java heap. Stations and edges are appended to direct buffers,
+ * and {@link #build()} lays them out as a {@link SnapshotGraph} in direct memory: CSR adjacency, weights
+ * and the station dictionary, which searches traverse without an object per edge or station. The heap
+ * holds a handful of buffer objects however large the network, so garbage collection has nothing to scan
+ * or copy. A built graph can be saved as a snapshot file with {@link SnapshotGraph#save(java.nio.file.Path)}.
+ * <p>
+ * Edges of a station keep the order they were added in. Station names are interned by their UTF-8 bytes,
+ * so adding an edge between ASCII named stations by bytes allocates nothing. Building needs 12 bytes per
+ * edge while adding and the snapshot size once built, in direct memory; the snapshot is limited to 2GB.
+ * Not safe for use by concurrent threads.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class OffHeapGraphBuilder {
+
+	/* Edge list, from, to and weight per edge */
+	private ByteBuffer edges = allocate(12 * 1024);
+	private int edgeCount;
+
+	/* Station dictionary: bytes of station i are names[nameOffsets[i]..nameOffsets[i + 1]) */
+	private ByteBuffer names = allocate(1024);
+	private ByteBuffer nameOffsets = allocate(4 * 65);
+	private ByteBuffer hashCodes = allocate(4 * 64);
+	private int stationCount;
+	/* Open addressing table of station + 1, 0 for an empty slot, probed as in SnapshotGraph */
+	private ByteBuffer table = allocate(4 * 128);
+	private int tableSize = 128;
+
+	private boolean built;
+
+	/**
+	 * Returns index of station with given name, adding it if it is new.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public int addStation(String name) {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		return addStation(bytes, 0, bytes.length, name.hashCode());
+	}
+
+	/**
+	 * Returns index of station named by UTF-8 bytes name[offset..offset + length), adding it if it is new.
+	 *
+	 * @param name
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public int addStation(byte[] name, int offset, int length) {
+		int hashCode = 0;
+		for (int i = offset; i < offset + length; i++) {
+			if (name[i] < 0) {
+				// Not ASCII, String.hashCode is over UTF-16 chars.
+				return addStation(name, offset, length, new String(name, offset, length, StandardCharsets.UTF_8).hashCode());
+			}
+			hashCode = 31 * hashCode + name[i];
+		}
+		return addStation(name, offset, length, hashCode);
+	}
+
+	private int addStation(byte[] name, int offset, int length, int hashCode) {
+		checkNotBuilt();
+		int mask = tableSize - 1;
+		int slot = SnapshotGraph.hash(hashCode) & mask;
+		for (int entry = table.getInt(4 * slot); entry != 0; entry = table.getInt(4 * slot)) {
+			int station = entry - 1;
+			if (hashCodes.getInt(4 * station) == hashCode && sameName(station, name, offset, length)) {
+				return station;
+			}
+			slot = (slot + 1) & mask;
+		}
+		int station = stationCount;
+		int start = nameOffsets.getInt(4 * station);
+		names = ensureCapacity(names, (long) start + length);
+		for (int i = 0; i < length; i++) {
+			names.put(start + i, name[offset + i]);
+		}
+		nameOffsets = ensureCapacity(nameOffsets, 4L * (station + 2));
+		nameOffsets.putInt(4 * (station + 1), start + length);
+		hashCodes = ensureCapacity(hashCodes, 4L * (station + 1));
+		hashCodes.putInt(4 * station, hashCode);
+		table.putInt(4 * slot, station + 1);
+		stationCount++;
+		if (stationCount * 2 > tableSize) {
+			rehash();
+		}
+		return station;
+	}
+
+	/**
+	 * Adds edge between stations with given names, adding stations which are new.
+	 *
+	 * @param from
+	 * @param to
+	 * @param weight
+	 */
+	public void addEdge(String from, String to, int weight) {
+		addEdge(addStation(from), addStation(to), weight);
+	}
+
+	/**
+	 * Adds edge between stations with given indices.
+	 *
+	 * @param from
+	 * @param to
+	 * @param weight
+	 */
+	public void addEdge(int from, int to, int weight) {
+		checkNotBuilt();
+		if (from < 0 || from >= stationCount || to < 0 || to >= stationCount) {
+			throw new IllegalArgumentException("No such station :: " + from + ", " + to);
+		}
+		edges = ensureCapacity(edges, 12L * (edgeCount + 1));
+		int position = 12 * edgeCount;
+		edges.putInt(position, from).putInt(position + 4, to).putInt(position + 8, weight);
+		edgeCount++;
+	}
+
+	public int getStationCount() {
+		return stationCount;
+	}
+
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	/**
+	 * Lays out the graph in direct memory and releases the buffers of the builder, which can not be used
+	 * any more.
+	 *
+	 * @return
+	 * @throws IllegalStateException if the graph is too large for a snapshot
+	 */
+	public SnapshotGraph build() {
+		checkNotBuilt();
+		int n = stationCount;
+		int m = edgeCount;
+		int nameBytes = nameOffsets.getInt(4 * n);
+		int snapshotTableSize = SnapshotGraph.tableSize(n);
+		long size = SnapshotGraph.size(n, m, snapshotTableSize, nameBytes);
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Graph too large for a snapshot :: " + size + " bytes");
+		}
+		ByteBuffer buffer = allocate((int) size);
+		int offsets = SnapshotGraph.HEADER_SIZE;
+		int targets = offsets + 4 * (n + 1);
+		int weights = targets + 4 * m;
+		int snapshotNameOffsets = weights + 4 * m;
+		int snapshotTable = snapshotNameOffsets + 4 * (n + 1);
+		int snapshotNames = snapshotTable + 4 * snapshotTableSize;
+		// Counting sort by source: offsets[v] counts up to the end of v, then edges are placed last to
+		// first, which leaves offsets[v] at the start of v and keeps the edges of v in order.
+		long fingerprint = 0;
+		for (int v = 0; v < n; v++) {
+			fingerprint += GraphFingerprint.vertex(hashCodes.getInt(4 * v));
+		}
+		for (int i = 0; i < m; i++) {
+			int from = edges.getInt(12 * i);
+			buffer.putInt(offsets + 4 * from, buffer.getInt(offsets + 4 * from) + 1);
+			fingerprint += GraphFingerprint.edge(hashCodes.getInt(4 * from), hashCodes.getInt(4 * edges.getInt(12 * i + 4)),
+					edges.getInt(12 * i + 8));
+		}
+		int end = 0;
+		for (int v = 0; v < n; v++) {
+			end += buffer.getInt(offsets + 4 * v);
+			buffer.putInt(offsets + 4 * v, end);
+		}
+		buffer.putInt(offsets + 4 * n, m);
+		for (int i = m - 1; i >= 0; i--) {
+			int from = edges.getInt(12 * i);
+			int position = buffer.getInt(offsets + 4 * from) - 1;
+			buffer.putInt(offsets + 4 * from, position);
+			buffer.putInt(targets + 4 * position, edges.getInt(12 * i + 4));
+			buffer.putInt(weights + 4 * position, edges.getInt(12 * i + 8));
+		}
+		for (int v = 0; v <= n; v++) {
+			buffer.putInt(snapshotNameOffsets + 4 * v, nameOffsets.getInt(4 * v));
+		}
+		int mask = snapshotTableSize - 1;
+		for (int v = 0; v < n; v++) {
+			int slot = SnapshotGraph.hash(hashCodes.getInt(4 * v)) & mask;
+			while (buffer.getInt(snapshotTable + 4 * slot) != 0) {
+				slot = (slot + 1) & mask;
+			}
+			buffer.putInt(snapshotTable + 4 * slot, v + 1);
+		}
+		for (int i = 0; i < nameBytes; i++) {
+			buffer.put(snapshotNames + i, names.get(i));
+		}
+		SnapshotGraph.writeHeader(buffer, fingerprint, n, m, snapshotTableSize, nameBytes);
+		SnapshotGraph.seal(buffer);
+		built = true;
+		edges = names = nameOffsets = hashCodes = table = null;
+		return new SnapshotGraph(buffer);
+	}
+
+	private boolean sameName(int station, byte[] name, int offset, int length) {
+		int start = nameOffsets.getInt(4 * station);
+		if (nameOffsets.getInt(4 * (station + 1)) - start != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (names.get(start + i) != name[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void rehash() {
+		tableSize *= 2;
+		table = allocate(4 * tableSize);
+		int mask = tableSize - 1;
+		for (int station = 0; station < stationCount; station++) {
+			int slot = SnapshotGraph.hash(hashCodes.getInt(4 * station)) & mask;
+			while (table.getInt(4 * slot) != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table.putInt(4 * slot, station + 1);
+		}
+	}
+
+	private void checkNotBuilt() {
+		if (built) {
+			throw new IllegalStateException("Graph already built");
+		}
+	}
+
+	/**
+	 * Returns buffer, or a copy twice as large if it holds less than capacity bytes.
+	 */
+	private static ByteBuffer ensureCapacity(ByteBuffer buffer, long capacity) {
+		if (capacity <= buffer.capacity()) {
+			return buffer;
+		}
+		long grown = Math.max(capacity, 2L * buffer.capacity());
+		if (capacity > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Graph too large for direct buffers :: " + capacity + " bytes");
+		}
+		ByteBuffer copy = allocate((int) Math.min(grown, Integer.MAX_VALUE - 8));
+		buffer.clear();
+		copy.put(buffer);
+		copy.clear();
+		return copy;
+	}
+
+	private static ByteBuffer allocate(int capacity) {
+		return ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+	}
+}
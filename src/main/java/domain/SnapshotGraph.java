@@ -0,0 +1,350 @@
+package domain;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Read only graph served straight from a binary snapshot file. The file is memory mapped and queries read
+ * the CSR arrays and the station dictionary in place, so opening a snapshot costs a checksum pass over
+ * the file instead of parsing text and building per edge objects. {@link OffHeapGraphBuilder} lays out
+ * the same format in direct memory, for networks built in the process.
+ * <p>
+ * Format, little endian, every section 4 byte aligned:
+ * <pre>
+ * int magic, int format version, long graph fingerprint, int n, int m, int table size t,
+ * int name bytes b, long CRC32 of everything after the header,
+ * (n + 1) int offsets, m int targets, m int weights   CSR adjacency as in CompactGraph
+ * (n + 1) int name offsets, t int table, b bytes      station dictionary
+ * </pre>
+ * Station i is named by UTF-8 bytes names[nameOffsets[i]..nameOffsets[i + 1]). The table is an open
+ * addressing hash table of station index + 1, 0 for an empty slot, probed linearly from a slot derived
+ * from String.hashCode of the name. Files are limited to 2GB.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class SnapshotGraph implements IndexedGraph<String> {
+
+	private static final int MAGIC = 0x52524753; // RRGS
+	private static final int FORMAT_VERSION = 1;
+	static final int HEADER_SIZE = 40;
+
+	private final int vertexCount;
+	private final int edgeCount;
+	private final long fingerprint;
+
+	/* Whole snapshot, mapped file or direct memory */
+	private final ByteBuffer buffer;
+
+	private final IntBuffer offsets;
+	private final IntBuffer targets;
+	private final IntBuffer weights;
+	private final IntBuffer nameOffsets;
+	private final IntBuffer table;
+	private final ByteBuffer names;
+	private final int mask;
+
+	/**
+	 * Creates graph reading given snapshot in place, which must be valid.
+	 */
+	SnapshotGraph(ByteBuffer buffer) {
+		this.buffer = buffer;
+		buffer.position(8);
+		this.fingerprint = buffer.getLong();
+		this.vertexCount = buffer.getInt();
+		this.edgeCount = buffer.getInt();
+		int tableSize = buffer.getInt();
+		int nameBytes = buffer.getInt();
+		int position = HEADER_SIZE;
+		this.offsets = ints(buffer, position, vertexCount + 1);
+		position += 4 * (vertexCount + 1);
+		this.targets = ints(buffer, position, edgeCount);
+		position += 4 * edgeCount;
+		this.weights = ints(buffer, position, edgeCount);
+		position += 4 * edgeCount;
+		this.nameOffsets = ints(buffer, position, vertexCount + 1);
+		position += 4 * (vertexCount + 1);
+		this.table = ints(buffer, position, tableSize);
+		position += 4 * tableSize;
+		this.names = slice(buffer, position, nameBytes);
+		this.mask = tableSize - 1;
+	}
+
+	/**
+	 * Writes snapshot of given graph to file, replacing any existing file.
+	 *
+	 * @param graph
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void write(DirectedGraph<String> graph, Path file) throws IOException {
+		write(new CompactGraph<String>(graph), file);
+	}
+
+	/**
+	 * Writes snapshot of given graph to file, replacing any existing file. Vertex indices are kept.
+	 *
+	 * @param graph
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void write(IndexedGraph<String> graph, Path file) throws IOException {
+		int n = graph.getVertexCount();
+		int m = graph.getEdgeCount();
+		byte[][] names = new byte[n][];
+		long nameBytes = 0;
+		for (int v = 0; v < n; v++) {
+			names[v] = graph.getVertex(v).getBytes(StandardCharsets.UTF_8);
+			nameBytes += names[v].length;
+		}
+		int tableSize = tableSize(n);
+		long size = size(n, m, tableSize, nameBytes);
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Graph too large for a snapshot :: " + size + " bytes");
+		}
+		ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+		writeHeader(buffer, graph.getFingerprint(), n, m, tableSize, (int) nameBytes);
+		int edge = 0;
+		for (int v = 0; v < n; v++) {
+			buffer.putInt(edge);
+			edge += graph.getDegree(v);
+		}
+		buffer.putInt(edge);
+		for (int v = 0; v < n; v++) {
+			for (int i = 0; i < graph.getDegree(v); i++) {
+				buffer.putInt(graph.getTarget(v, i));
+			}
+		}
+		for (int v = 0; v < n; v++) {
+			for (int i = 0; i < graph.getDegree(v); i++) {
+				buffer.putInt(graph.getWeight(v, i));
+			}
+		}
+		int nameOffset = 0;
+		for (int v = 0; v < n; v++) {
+			buffer.putInt(nameOffset);
+			nameOffset += names[v].length;
+		}
+		buffer.putInt(nameOffset);
+		int[] slots = new int[tableSize];
+		for (int v = 0; v < n; v++) {
+			int slot = hash(graph.getVertex(v)) & (tableSize - 1);
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & (tableSize - 1);
+			}
+			slots[slot] = v + 1;
+		}
+		for (int slot : slots) {
+			buffer.putInt(slot);
+		}
+		for (byte[] name : names) {
+			buffer.put(name);
+		}
+		seal(buffer);
+		writeFully(buffer, file);
+	}
+
+	/**
+	 * Writes this snapshot to file, replacing any existing file. Copies the snapshot as it is, also when
+	 * it is held in direct memory.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void save(Path file) throws IOException {
+		ByteBuffer duplicate = buffer.duplicate();
+		duplicate.clear();
+		writeFully(duplicate, file);
+	}
+
+	private static void writeFully(ByteBuffer buffer, Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Size of the hash table of a dictionary of n stations, a power of two at least twice n.
+	 */
+	static int tableSize(int n) {
+		return Integer.highestOneBit(Math.max(2, n) * 2 - 1) << 1;
+	}
+
+	/**
+	 * Size in bytes of a snapshot.
+	 */
+	static long size(int n, int m, int tableSize, long nameBytes) {
+		return HEADER_SIZE + 4L * (n + 1) * 2 + 8L * m + 4L * tableSize + ((nameBytes + 3) & ~3);
+	}
+
+	/**
+	 * Writes the header of a snapshot, checksum 0 until sealed, and leaves buffer at the first section.
+	 */
+	static void writeHeader(ByteBuffer buffer, long fingerprint, int n, int m, int tableSize, int nameBytes) {
+		buffer.clear();
+		buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(fingerprint).putInt(n).putInt(m).putInt(tableSize)
+				.putInt(nameBytes).putLong(0);
+	}
+
+	/**
+	 * Stores checksum of a complete snapshot in its header and rewinds buffer.
+	 */
+	static void seal(ByteBuffer buffer) {
+		CRC32 checksum = new CRC32();
+		checksum.update(slice(buffer, HEADER_SIZE, buffer.capacity() - HEADER_SIZE));
+		buffer.putLong(32, checksum.getValue());
+		buffer.clear();
+	}
+
+	/**
+	 * Memory maps a snapshot written by {@link #write(IndexedGraph, Path)} after verifying its checksum.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static SnapshotGraph load(Path file) throws IOException {
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Not a graph snapshot :: " + file);
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a graph snapshot :: " + file);
+		}
+		int version = buffer.getInt(4);
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Unsupported graph snapshot version " + version + " :: " + file);
+		}
+		long n = buffer.getInt(16);
+		long m = buffer.getInt(20);
+		long tableSize = buffer.getInt(24);
+		long nameBytes = buffer.getInt(28);
+		if (n < 0 || m < 0 || Long.bitCount(tableSize) != 1 || nameBytes < 0 || buffer.capacity() != HEADER_SIZE
+				+ 4 * (n + 1) * 2 + 8 * m + 4 * tableSize + ((nameBytes + 3) & ~3)) {
+			throw new IOException("Truncated graph snapshot :: " + file);
+		}
+		ByteBuffer body = slice(buffer, HEADER_SIZE, buffer.capacity() - HEADER_SIZE);
+		CRC32 checksum = new CRC32();
+		checksum.update(body);
+		if (checksum.getValue() != buffer.getLong(32)) {
+			throw new IOException("Corrupt graph snapshot, checksum mismatch :: " + file);
+		}
+		return new SnapshotGraph(buffer);
+	}
+
+	@Override
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	@Override
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	@Override
+	public int indexOf(String vertex) {
+		for (int slot = hash(vertex) & mask;; slot = (slot + 1) & mask) {
+			int entry = table.get(slot);
+			if (entry == 0) {
+				return -1;
+			}
+			if (matches(entry - 1, vertex)) {
+				return entry - 1;
+			}
+		}
+	}
+
+	@Override
+	public String getVertex(int index) {
+		int start = nameOffsets.get(index);
+		byte[] name = new byte[nameOffsets.get(index + 1) - start];
+		for (int i = 0; i < name.length; i++) {
+			name[i] = names.get(start + i);
+		}
+		return new String(name, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public int getDegree(int vertex) {
+		return offsets.get(vertex + 1) - offsets.get(vertex);
+	}
+
+	@Override
+	public int getTarget(int vertex, int edge) {
+		return targets.get(offsets.get(vertex) + edge);
+	}
+
+	@Override
+	public int getWeight(int vertex, int edge) {
+		return weights.get(offsets.get(vertex) + edge);
+	}
+
+	@Override
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * True if station is named vertex, compares ASCII names without decoding them.
+	 */
+	private boolean matches(int station, String vertex) {
+		int start = nameOffsets.get(station);
+		int length = nameOffsets.get(station + 1) - start;
+		if (length != vertex.length()) {
+			// Lengths in bytes and chars differ only for non ASCII names.
+			return length > vertex.length() && getVertex(station).equals(vertex);
+		}
+		for (int i = 0; i < length; i++) {
+			byte b = names.get(start + i);
+			if (b < 0) {
+				return getVertex(station).equals(vertex);
+			}
+			if (b != vertex.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int hash(String vertex) {
+		return hash(vertex.hashCode());
+	}
+
+	/**
+	 * Hash table slot, before masking, of a station whose name has given String.hashCode.
+	 */
+	static int hash(int hashCode) {
+		int hash = hashCode * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private static IntBuffer ints(ByteBuffer buffer, int position, int length) {
+		return slice(buffer, position, 4 * length).asIntBuffer();
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+		ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(position);
+		duplicate.limit(position + length);
+		return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@Override
+	public String toString() {
+		return "SnapshotGraph [vertices=" + vertexCount + ", edges=" + edgeCount + "]";
+	}
+}
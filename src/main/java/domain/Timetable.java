@@ -0,0 +1,129 @@
+package domain;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable timetable of timed connections, built by {@link TimetableBuilder}. A connection is one
+ * vehicle leg between two consecutive stops of a trip: it leaves a station at its departure time and
+ * reaches the next one at its arrival time. Times are seconds after midnight of the service day and may
+ * run past 24 hours for night services.
+ * <p>
+ * Connections are sorted by departure time, then arrival time, and stored column by column in int arrays,
+ * so a scan in time order reads memory sequentially. Stations are numbered like the vertices of the graph
+ * the timetable was built for, if any, and each has a minimum change time for changing between trips.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class Timetable {
+
+	private final String[] stations;
+	private final Map<String, Integer> indices;
+	private final int[] changeTimes;
+	private final int tripCount;
+
+	/* Connection i, sorted by departure time */
+	private final int[] departureStations;
+	private final int[] arrivalStations;
+	private final int[] departureTimes;
+	private final int[] arrivalTimes;
+	private final int[] trips;
+
+	Timetable(String[] stations, int[] changeTimes, int tripCount, int[] departureStations, int[] arrivalStations,
+			int[] departureTimes, int[] arrivalTimes, int[] trips) {
+		this.stations = stations;
+		this.indices = new HashMap<String, Integer>(stations.length * 2);
+		for (int i = 0; i < stations.length; i++) {
+			indices.put(stations[i], i);
+		}
+		this.changeTimes = changeTimes;
+		this.tripCount = tripCount;
+		this.departureStations = departureStations;
+		this.arrivalStations = arrivalStations;
+		this.departureTimes = departureTimes;
+		this.arrivalTimes = arrivalTimes;
+		this.trips = trips;
+	}
+
+	public int getStationCount() {
+		return stations.length;
+	}
+
+	public String getStation(int station) {
+		return stations[station];
+	}
+
+	/**
+	 * Returns index of station, -1 if the timetable has no such station.
+	 *
+	 * @param station
+	 * @return
+	 */
+	public int indexOf(String station) {
+		Integer index = indices.get(station);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Minimum time in seconds to change from one trip to another at station.
+	 */
+	public int getChangeTime(int station) {
+		return changeTimes[station];
+	}
+
+	public int getTripCount() {
+		return tripCount;
+	}
+
+	public int getConnectionCount() {
+		return departureTimes.length;
+	}
+
+	public int getDepartureStation(int connection) {
+		return departureStations[connection];
+	}
+
+	public int getArrivalStation(int connection) {
+		return arrivalStations[connection];
+	}
+
+	public int getDepartureTime(int connection) {
+		return departureTimes[connection];
+	}
+
+	public int getArrivalTime(int connection) {
+		return arrivalTimes[connection];
+	}
+
+	public int getTrip(int connection) {
+		return trips[connection];
+	}
+
+	/**
+	 * Returns index of the first connection departing at time or later, getConnectionCount() if none does.
+	 * O(log C) by binary search.
+	 *
+	 * @param time
+	 * @return
+	 */
+	public int firstDepartingAt(int time) {
+		int low = 0;
+		int high = departureTimes.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (departureTimes[middle] < time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	@Override
+	public String toString() {
+		return "Timetable [stations=" + stations.length + ", trips=" + tripCount + ", connections="
+				+ departureTimes.length + "]";
+	}
+}
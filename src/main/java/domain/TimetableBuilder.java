@@ -0,0 +1,210 @@
+package domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects trips and their connections into a {@link Timetable}. Stations are named like the vertices of
+ * a graph; a builder created for an indexed graph numbers its stations like the graph, so query results
+ * and graph searches refer to the same indices. Stations the graph does not have are numbered after its
+ * vertices.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class TimetableBuilder {
+
+	private final List<String> stations = new ArrayList<String>();
+	private final Map<String, Integer> indices = new HashMap<String, Integer>();
+	private int[] changeTimes = new int[16];
+	private int defaultChangeTime;
+	private int tripCount;
+
+	/* Connection list in order of addition */
+	private int[] departureStations = new int[1024];
+	private int[] arrivalStations = new int[1024];
+	private int[] departureTimes = new int[1024];
+	private int[] arrivalTimes = new int[1024];
+	private int[] trips = new int[1024];
+	private int connectionCount;
+
+	/**
+	 * Creates builder of a timetable with its own stations.
+	 */
+	public TimetableBuilder() {
+	}
+
+	/**
+	 * Creates builder of a timetable whose stations are numbered like the vertices of graph.
+	 *
+	 * @param graph
+	 */
+	public TimetableBuilder(IndexedGraph<String> graph) {
+		for (int v = 0; v < graph.getVertexCount(); v++) {
+			addStation(graph.getVertex(v));
+		}
+	}
+
+	/**
+	 * Returns index of station, adding it with the default change time if it is new.
+	 *
+	 * @param station
+	 * @return
+	 */
+	public int addStation(String station) {
+		Integer index = indices.get(station);
+		if (index != null) {
+			return index;
+		}
+		int added = stations.size();
+		stations.add(station);
+		indices.put(station, added);
+		if (added == changeTimes.length) {
+			changeTimes = Arrays.copyOf(changeTimes, added * 2);
+		}
+		changeTimes[added] = defaultChangeTime;
+		return added;
+	}
+
+	/**
+	 * Sets minimum time in seconds to change trips at stations added from now on.
+	 *
+	 * @param seconds
+	 */
+	public void setDefaultChangeTime(int seconds) {
+		this.defaultChangeTime = checkTime(seconds);
+	}
+
+	/**
+	 * Sets minimum time in seconds to change trips at station, adding the station if it is new.
+	 *
+	 * @param station
+	 * @param seconds
+	 */
+	public void setChangeTime(String station, int seconds) {
+		changeTimes[addStation(station)] = checkTime(seconds);
+	}
+
+	/**
+	 * Starts a new trip and returns its id, to add its connections with.
+	 *
+	 * @return
+	 */
+	public int addTrip() {
+		return tripCount++;
+	}
+
+	/**
+	 * Adds connection of trip from one station to the next, adding stations which are new.
+	 *
+	 * @param trip
+	 * @param from
+	 * @param to
+	 * @param departure
+	 * @param arrival
+	 * @throws IllegalArgumentException if times are negative or arrival is before departure
+	 */
+	public void addConnection(int trip, String from, String to, int departure, int arrival) {
+		if (trip < 0 || trip >= tripCount) {
+			throw new IllegalArgumentException("No such trip :: " + trip);
+		}
+		if (checkTime(departure) > checkTime(arrival)) {
+			throw new IllegalArgumentException("Arrival must not be before departure :: " + from + to + " "
+					+ departure + " " + arrival);
+		}
+		int source = addStation(from);
+		int destination = addStation(to);
+		if (connectionCount == trips.length) {
+			int capacity = connectionCount * 2;
+			departureStations = Arrays.copyOf(departureStations, capacity);
+			arrivalStations = Arrays.copyOf(arrivalStations, capacity);
+			departureTimes = Arrays.copyOf(departureTimes, capacity);
+			arrivalTimes = Arrays.copyOf(arrivalTimes, capacity);
+			trips = Arrays.copyOf(trips, capacity);
+		}
+		departureStations[connectionCount] = source;
+		arrivalStations[connectionCount] = destination;
+		departureTimes[connectionCount] = departure;
+		arrivalTimes[connectionCount] = arrival;
+		trips[connectionCount] = trip;
+		connectionCount++;
+	}
+
+	/**
+	 * Adds a trip through given stations, arriving at stations[i] at arrivals[i] and leaving it at
+	 * departures[i]; the first arrival and last departure are not used. Returns id of the trip.
+	 *
+	 * @param stations
+	 * @param arrivals
+	 * @param departures
+	 * @return
+	 */
+	public int addTrip(String[] stations, int[] arrivals, int[] departures) {
+		if (stations.length != arrivals.length || stations.length != departures.length) {
+			throw new IllegalArgumentException("Stations and times differ in length :: " + stations.length);
+		}
+		int trip = addTrip();
+		for (int i = 0; i + 1 < stations.length; i++) {
+			addConnection(trip, stations[i], stations[i + 1], departures[i], arrivals[i + 1]);
+		}
+		return trip;
+	}
+
+	public int getConnectionCount() {
+		return connectionCount;
+	}
+
+	/**
+	 * Returns timetable of the connections added so far, sorted by departure time, then arrival time,
+	 * then order of addition, so zero duration connections of a trip stay in order.
+	 *
+	 * @return
+	 */
+	public Timetable build() {
+		int m = connectionCount;
+		// Two sorts of primitive keys: rank by arrival first, then by departure and that rank.
+		long[] keys = new long[m];
+		for (int i = 0; i < m; i++) {
+			keys[i] = ((long) arrivalTimes[i] << 32) | i;
+		}
+		Arrays.sort(keys);
+		int[] ranks = new int[m];
+		for (int r = 0; r < m; r++) {
+			ranks[(int) keys[r]] = r;
+		}
+		for (int i = 0; i < m; i++) {
+			keys[i] = ((long) departureTimes[i] << 32) | ranks[i];
+		}
+		Arrays.sort(keys);
+		int[] order = new int[m];
+		for (int i = 0; i < m; i++) {
+			order[ranks[i]] = i;
+		}
+		int[] sortedDepartureStations = new int[m];
+		int[] sortedArrivalStations = new int[m];
+		int[] sortedDepartureTimes = new int[m];
+		int[] sortedArrivalTimes = new int[m];
+		int[] sortedTrips = new int[m];
+		for (int r = 0; r < m; r++) {
+			int i = order[(int) keys[r]];
+			sortedDepartureStations[r] = departureStations[i];
+			sortedArrivalStations[r] = arrivalStations[i];
+			sortedDepartureTimes[r] = departureTimes[i];
+			sortedArrivalTimes[r] = arrivalTimes[i];
+			sortedTrips[r] = trips[i];
+		}
+		return new Timetable(stations.toArray(new String[stations.size()]),
+				Arrays.copyOf(changeTimes, stations.size()), tripCount, sortedDepartureStations,
+				sortedArrivalStations, sortedDepartureTimes, sortedArrivalTimes, sortedTrips);
+	}
+
+	private static int checkTime(int seconds) {
+		if (seconds < 0) {
+			throw new IllegalArgumentException("Time must not be negative :: " + seconds);
+		}
+		return seconds;
+	}
+}
@@ -0,0 +1,300 @@
+package service;
+
+import java.util.Arrays;
+
+import domain.Timetable;
+
+/**
+ * Timetable routing by the Connection Scan Algorithm (Dibbelt, Pajor, Strasser and Wagner). Connections are
+ * scanned in the order they are stored, by departure time, so a query is a single sequential pass over
+ * int arrays without a priority queue.
+ * <ul>
+ * <li>Earliest arrival: from the first connection leaving at the departure time, a connection can be taken
+ * if its trip has been boarded already or its station is reached in time; its arrival station is then
+ * reached at its arrival time. The scan stops at the first connection leaving after the best arrival at
+ * destination.</li>
+ * <li>Profile: all journeys leaving source within a time range which are not dominated, i.e. no other
+ * journey leaves later and arrives earlier. Connections are scanned backwards, keeping for every station
+ * the Pareto set of departure and arrival times to destination.</li>
+ * </ul>
+ * Changing trips at a station takes its change time; staying on a trip and starting at source take none.
+ * Safe for use by concurrent threads, each has its own workspace.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class ConnectionScan {
+
+	/* Arrival returned when destination can not be reached */
+	public static final int UNREACHABLE = Dijkstra.UNREACHABLE;
+
+	private final Timetable timetable;
+
+	/* Scan state per thread, sized to the timetable */
+	private final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>();
+
+	public ConnectionScan(Timetable timetable) {
+		this.timetable = timetable;
+	}
+
+	public Timetable getTimetable() {
+		return timetable;
+	}
+
+	/**
+	 * Returns earliest arrival time at destination leaving source at departure or later, UNREACHABLE if
+	 * there is no journey. Unknown stations have none.
+	 *
+	 * @param source
+	 * @param destination
+	 * @param departure
+	 * @return
+	 */
+	public int earliestArrival(String source, String destination, int departure) {
+		int from = timetable.indexOf(source);
+		int to = timetable.indexOf(destination);
+		return from < 0 || to < 0 ? UNREACHABLE : earliestArrival(from, to, departure);
+	}
+
+	/**
+	 * Same as {@link #earliestArrival(String, String, int)} for station indices. A journey from a station
+	 * to itself arrives when it departs.
+	 *
+	 * @param source
+	 * @param destination
+	 * @param departure
+	 * @return
+	 */
+	public int earliestArrival(int source, int destination, int departure) {
+		if (source == destination) {
+			return departure;
+		}
+		return workspace().earliestArrival(source, destination, departure);
+	}
+
+	/**
+	 * Returns the journeys from source to destination leaving from earliest up to latest which no other
+	 * journey dominates. Empty if there is none, or source is destination.
+	 *
+	 * @param source
+	 * @param destination
+	 * @param earliest
+	 * @param latest
+	 * @return
+	 */
+	public Profile profile(String source, String destination, int earliest, int latest) {
+		int from = timetable.indexOf(source);
+		int to = timetable.indexOf(destination);
+		return from < 0 || to < 0 ? new Profile(new int[0], new int[0]) : profile(from, to, earliest, latest);
+	}
+
+	/**
+	 * Same as {@link #profile(String, String, int, int)} for station indices.
+	 *
+	 * @param source
+	 * @param destination
+	 * @param earliest
+	 * @param latest
+	 * @return
+	 */
+	public Profile profile(int source, int destination, int earliest, int latest) {
+		if (source == destination || earliest > latest) {
+			return new Profile(new int[0], new int[0]);
+		}
+		return workspace().profile(source, destination, earliest, latest);
+	}
+
+	private Workspace workspace() {
+		Workspace workspace = workspaces.get();
+		if (workspace == null) {
+			workspace = new Workspace();
+			workspaces.set(workspace);
+		}
+		return workspace;
+	}
+
+	/**
+	 * Pareto set of journeys, by departure time ascending; arrival times ascend too.
+	 */
+	public static final class Profile {
+		private final int[] departures;
+		private final int[] arrivals;
+
+		Profile(int[] departures, int[] arrivals) {
+			this.departures = departures;
+			this.arrivals = arrivals;
+		}
+
+		public int size() {
+			return departures.length;
+		}
+
+		public int getDeparture(int journey) {
+			return departures[journey];
+		}
+
+		public int getArrival(int journey) {
+			return arrivals[journey];
+		}
+
+		/**
+		 * Earliest arrival leaving at departure or later, UNREACHABLE if no journey of the profile does.
+		 *
+		 * @param departure
+		 * @return
+		 */
+		public int earliestArrival(int departure) {
+			int low = 0;
+			int high = departures.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (departures[middle] < departure) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low < departures.length ? arrivals[low] : UNREACHABLE;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder("[");
+			for (int i = 0; i < departures.length; i++) {
+				sb.append(i > 0 ? ", " : "").append(departures[i]).append("->").append(arrivals[i]);
+			}
+			return sb.append(']').toString();
+		}
+	}
+
+	/**
+	 * Scan state of one thread. Station and trip arrays are reset per query, connections are not copied.
+	 */
+	private final class Workspace {
+		/* Earliest time a trip can be boarded at each station, UNREACHABLE if not reached */
+		private final int[] ready = new int[timetable.getStationCount()];
+		/* Whether trip is boarded */
+		private final boolean[] boarded = new boolean[timetable.getTripCount()];
+		/* Profile: earliest arrival at destination staying on trip */
+		private final int[] tripArrivals = new int[timetable.getTripCount()];
+		/* Profile entries: per station a list, first entry departing earliest */
+		private final int[] heads = new int[timetable.getStationCount()];
+		private int[] entryDepartures = new int[1024];
+		private int[] entryArrivals = new int[1024];
+		private int[] entryNext = new int[1024];
+		private int entryCount;
+
+		int earliestArrival(int source, int destination, int departure) {
+			Arrays.fill(ready, UNREACHABLE);
+			Arrays.fill(boarded, false);
+			ready[source] = departure;
+			int best = UNREACHABLE;
+			int count = timetable.getConnectionCount();
+			int first = timetable.firstDepartingAt(departure);
+			int connection = first;
+			for (; connection < count; connection++) {
+				int time = timetable.getDepartureTime(connection);
+				if (time >= best) {
+					break;
+				}
+				int trip = timetable.getTrip(connection);
+				if (!boarded[trip] && ready[timetable.getDepartureStation(connection)] > time) {
+					continue;
+				}
+				boarded[trip] = true;
+				int station = timetable.getArrivalStation(connection);
+				int arrival = timetable.getArrivalTime(connection);
+				if (station == destination) {
+					best = Math.min(best, arrival);
+				} else {
+					long change = (long) arrival + timetable.getChangeTime(station);
+					if (change < ready[station]) {
+						ready[station] = (int) Math.min(change, UNREACHABLE - 1);
+					}
+				}
+			}
+			QueryProbe.count(connection - first, 0, 0);
+			return best;
+		}
+
+		Profile profile(int source, int destination, int earliest, int latest) {
+			Arrays.fill(heads, -1);
+			Arrays.fill(tripArrivals, UNREACHABLE);
+			entryCount = 0;
+			// Journeys leaving source within range, apart from its profile which also serves journeys
+			// passing through source later.
+			int journeys = -1;
+			int first = timetable.firstDepartingAt(earliest);
+			for (int connection = timetable.getConnectionCount() - 1; connection >= first; connection--) {
+				int station = timetable.getArrivalStation(connection);
+				int arrival = timetable.getArrivalTime(connection);
+				int trip = timetable.getTrip(connection);
+				int best = tripArrivals[trip];
+				if (station == destination) {
+					best = Math.min(best, arrival);
+				} else {
+					best = Math.min(best, evaluate(station, (long) arrival + timetable.getChangeTime(station)));
+				}
+				if (best == UNREACHABLE) {
+					continue;
+				}
+				tripArrivals[trip] = best;
+				int from = timetable.getDepartureStation(connection);
+				int departure = timetable.getDepartureTime(connection);
+				heads[from] = add(heads[from], departure, best);
+				if (from == source && departure <= latest) {
+					journeys = add(journeys, departure, best);
+				}
+			}
+			QueryProbe.count(timetable.getConnectionCount() - first, 0, 0);
+			int size = 0;
+			for (int entry = journeys; entry >= 0; entry = entryNext[entry]) {
+				size++;
+			}
+			int[] departures = new int[size];
+			int[] arrivals = new int[size];
+			int i = 0;
+			for (int entry = journeys; entry >= 0; entry = entryNext[entry]) {
+				departures[i] = entryDepartures[entry];
+				arrivals[i++] = entryArrivals[entry];
+			}
+			return new Profile(departures, arrivals);
+		}
+
+		/**
+		 * Earliest arrival at destination leaving station at time or later, by the profile of station.
+		 */
+		private int evaluate(int station, long time) {
+			for (int entry = heads[station]; entry >= 0; entry = entryNext[entry]) {
+				if (entryDepartures[entry] >= time) {
+					return entryArrivals[entry];
+				}
+			}
+			return UNREACHABLE;
+		}
+
+		/**
+		 * Adds journey to the list starting at head unless dominated, and returns the new head. Connections
+		 * come by departure time descending, so the journey leaves no later than any of the list.
+		 */
+		private int add(int head, int departure, int arrival) {
+			if (head >= 0 && entryArrivals[head] <= arrival) {
+				return head;
+			}
+			if (head >= 0 && entryDepartures[head] == departure) {
+				entryArrivals[head] = arrival;
+				return head;
+			}
+			if (entryCount == entryDepartures.length) {
+				int capacity = entryCount * 2;
+				entryDepartures = Arrays.copyOf(entryDepartures, capacity);
+				entryArrivals = Arrays.copyOf(entryArrivals, capacity);
+				entryNext = Arrays.copyOf(entryNext, capacity);
+			}
+			entryDepartures[entryCount] = departure;
+			entryArrivals[entryCount] = arrival;
+			entryNext[entryCount] = head;
+			return entryCount++;
+		}
+	}
+}
@@ -0,0 +1,336 @@
+package service;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import domain.IndexedGraph;
+
+/**
+ * Preprocessing of a {@link ContractionHierarchy}. Vertices are contracted in rounds, least important
+ * first. Contracting v removes it from the graph and adds a shortcut u -> w for every pair of neighbours
+ * u -> v -> w whose distance would otherwise grow, i.e. for which a witness search from u avoiding v does
+ * not find a route as short. Importance is the edge difference (shortcuts added minus edges removed),
+ * plus the number of contracted neighbours and the level, which spreads contraction evenly over the graph.
+ * <p>
+ * Every round contracts the vertices more important than none of their neighbours. No two of them are
+ * adjacent, so their witness searches run in parallel on the graph of the round, avoiding all of them,
+ * and their shortcuts are then added one vertex after the other. Witness searches give up after
+ * WITNESS_SETTLE_LIMIT vertices, adding a shortcut which may not be needed, never missing one.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+final class ContractionBuilder {
+
+	/* Vertices a witness search settles at most before giving up */
+	private static final int WITNESS_SETTLE_LIMIT = 500;
+
+	private final int n;
+	private final Adjacency[] outgoing;
+	private final Adjacency[] incoming;
+	private final boolean[] contracted;
+	private final boolean[] selected;
+	private final int[] priorities;
+	private final int[] levels;
+	private final int[] contractedNeighbours;
+	private final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>();
+
+	/* Result: rank of every vertex, and the edges of the hierarchy as from, to, weight triples */
+	final int[] ranks;
+	final IntList upward = new IntList();
+	final IntList downward = new IntList();
+
+	ContractionBuilder(IndexedGraph<?> graph) {
+		this.n = graph.getVertexCount();
+		this.outgoing = new Adjacency[n];
+		this.incoming = new Adjacency[n];
+		for (int v = 0; v < n; v++) {
+			outgoing[v] = new Adjacency();
+			incoming[v] = new Adjacency();
+		}
+		for (int v = 0; v < n; v++) {
+			int degree = graph.getDegree(v);
+			for (int i = 0; i < degree; i++) {
+				int target = graph.getTarget(v, i);
+				int weight = graph.getWeight(v, i);
+				if (weight < 0) {
+					throw new IllegalArgumentException("Distance must not be negative :: " + graph.getVertex(v)
+							+ graph.getVertex(target) + weight);
+				}
+				if (target != v) {
+					addEdge(v, target, weight);
+				}
+			}
+		}
+		this.contracted = new boolean[n];
+		this.selected = new boolean[n];
+		this.priorities = new int[n];
+		this.levels = new int[n];
+		this.contractedNeighbours = new int[n];
+		this.ranks = new int[n];
+	}
+
+	/**
+	 * Contracts all vertices, running witness searches on given pool.
+	 */
+	void contract(ForkJoinPool pool) {
+		int[] remaining = IntStream.range(0, n).toArray();
+		run(pool, () -> IntStream.range(0, n).parallel().forEach(v -> priorities[v] = priority(v)));
+		int rank = 0;
+		while (remaining.length > 0) {
+			final int[] round = IntStream.of(remaining).filter(this::isLocalMinimum).toArray();
+			for (int v : round) {
+				selected[v] = true;
+			}
+			final int[][] shortcuts = new int[round.length][];
+			run(pool, () -> IntStream.range(0, round.length).parallel()
+					.forEach(i -> shortcuts[i] = shortcuts(round[i], true)));
+			boolean[] touched = new boolean[n];
+			for (int i = 0; i < round.length; i++) {
+				int v = round[i];
+				ranks[v] = rank++;
+				remove(v, touched);
+				int[] added = shortcuts[i];
+				for (int j = 0; j < added.length; j += 3) {
+					addEdge(added[j], added[j + 1], added[j + 2]);
+				}
+			}
+			for (int v : round) {
+				selected[v] = false;
+			}
+			remaining = IntStream.of(remaining).filter(v -> !contracted[v]).toArray();
+			final int[] update = IntStream.of(remaining).filter(v -> touched[v]).toArray();
+			run(pool, () -> IntStream.of(update).parallel().forEach(v -> priorities[v] = priority(v)));
+		}
+	}
+
+	private static void run(ForkJoinPool pool, Runnable task) {
+		pool.submit(task).join();
+	}
+
+	/**
+	 * True if no neighbour of v comes before v, by priority and then index.
+	 */
+	private boolean isLocalMinimum(int v) {
+		return isLocalMinimum(v, outgoing[v]) && isLocalMinimum(v, incoming[v]);
+	}
+
+	private boolean isLocalMinimum(int v, Adjacency neighbours) {
+		for (int i = 0; i < neighbours.size; i++) {
+			int w = neighbours.vertices[i];
+			if (priorities[w] < priorities[v] || (priorities[w] == priorities[v] && w < v)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int priority(int v) {
+		int edgeDifference = shortcuts(v, false).length / 3 - outgoing[v].size - incoming[v].size;
+		return 2 * edgeDifference + contractedNeighbours[v] + levels[v];
+	}
+
+	/**
+	 * Removes v from the graph, keeping its remaining edges as edges of the hierarchy. All neighbours of
+	 * v are contracted later, so these edges all lead upwards.
+	 */
+	private void remove(int v, boolean[] touched) {
+		contracted[v] = true;
+		Adjacency out = outgoing[v];
+		for (int i = 0; i < out.size; i++) {
+			int w = out.vertices[i];
+			upward.add(v, w, out.weights[i]);
+			incoming[w].remove(v);
+			neighbourContracted(v, w, touched);
+		}
+		Adjacency in = incoming[v];
+		for (int i = 0; i < in.size; i++) {
+			int u = in.vertices[i];
+			downward.add(v, u, in.weights[i]);
+			outgoing[u].remove(v);
+			neighbourContracted(v, u, touched);
+		}
+		outgoing[v] = null;
+		incoming[v] = null;
+	}
+
+	private void neighbourContracted(int v, int w, boolean[] touched) {
+		contractedNeighbours[w]++;
+		levels[w] = Math.max(levels[w], levels[v] + 1);
+		touched[w] = true;
+	}
+
+	/**
+	 * Adds edge u -> w, keeping only the cheapest of parallel edges.
+	 */
+	private void addEdge(int u, int w, int weight) {
+		int current = outgoing[u].weight(w);
+		if (current < 0 || weight < current) {
+			outgoing[u].put(w, weight);
+			incoming[w].put(u, weight);
+		}
+	}
+
+	/**
+	 * Shortcuts contracting v needs, as from, to, weight triples. Witness searches avoid v and, during a
+	 * round, the other vertices contracted in it.
+	 */
+	private int[] shortcuts(int v, boolean avoidSelected) {
+		Adjacency in = incoming[v];
+		Adjacency out = outgoing[v];
+		IntList shortcuts = new IntList();
+		Workspace workspace = workspace();
+		for (int i = 0; i < in.size; i++) {
+			int u = in.vertices[i];
+			long maxOut = -1;
+			for (int j = 0; j < out.size; j++) {
+				if (out.vertices[j] != u) {
+					maxOut = Math.max(maxOut, out.weights[j]);
+				}
+			}
+			if (maxOut < 0) {
+				continue;
+			}
+			workspace.search(u, v, in.weights[i] + maxOut, avoidSelected);
+			for (int j = 0; j < out.size; j++) {
+				int w = out.vertices[j];
+				long via = (long) in.weights[i] + out.weights[j];
+				if (w != u && workspace.distance(w) > via) {
+					shortcuts.add(u, w, (int) Math.min(via, Integer.MAX_VALUE - 1));
+				}
+			}
+		}
+		return shortcuts.toArray();
+	}
+
+	private Workspace workspace() {
+		Workspace workspace = workspaces.get();
+		if (workspace == null) {
+			workspace = new Workspace();
+			workspaces.set(workspace);
+		}
+		return workspace;
+	}
+
+	/**
+	 * Witness search state of one thread; distances[v] is valid only if stamps[v] == search.
+	 */
+	private final class Workspace {
+		private final long[] distances = new long[n];
+		private final int[] stamps = new int[n];
+		private final IndexedMinHeap heap = new IndexedMinHeap(n);
+		private int search;
+
+		/**
+		 * Dijkstra search from source avoiding vertex, up to bound or the settle limit.
+		 */
+		void search(int source, int avoid, long bound, boolean avoidSelected) {
+			search++;
+			heap.clear();
+			stamps[source] = search;
+			distances[source] = 0;
+			heap.offer(source, 0);
+			int settled = 0;
+			while (!heap.isEmpty() && settled++ < WITNESS_SETTLE_LIMIT) {
+				long distance = heap.peekPriority();
+				if (distance > bound) {
+					break;
+				}
+				Adjacency out = outgoing[heap.poll()];
+				for (int i = 0; i < out.size; i++) {
+					int target = out.vertices[i];
+					if (target == avoid || (avoidSelected && selected[target])) {
+						continue;
+					}
+					long candidate = distance + out.weights[i];
+					if (stamps[target] != search || candidate < distances[target]) {
+						stamps[target] = search;
+						distances[target] = candidate;
+						heap.offer(target, candidate);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Distance found by the last search, an upper bound if target was not settled.
+		 */
+		long distance(int target) {
+			return stamps[target] == search ? distances[target] : Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Neighbours of a vertex with the weight of the cheapest edge to each.
+	 */
+	private static final class Adjacency {
+		private int[] vertices = new int[4];
+		private int[] weights = new int[4];
+		private int size;
+
+		int weight(int vertex) {
+			for (int i = 0; i < size; i++) {
+				if (vertices[i] == vertex) {
+					return weights[i];
+				}
+			}
+			return -1;
+		}
+
+		void put(int vertex, int weight) {
+			for (int i = 0; i < size; i++) {
+				if (vertices[i] == vertex) {
+					weights[i] = weight;
+					return;
+				}
+			}
+			if (size == vertices.length) {
+				vertices = Arrays.copyOf(vertices, size * 2);
+				weights = Arrays.copyOf(weights, size * 2);
+			}
+			vertices[size] = vertex;
+			weights[size++] = weight;
+		}
+
+		void remove(int vertex) {
+			for (int i = 0; i < size; i++) {
+				if (vertices[i] == vertex) {
+					size--;
+					vertices[i] = vertices[size];
+					weights[i] = weights[size];
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Growable list of int triples.
+	 */
+	static final class IntList {
+		private int[] values = new int[12];
+		private int size;
+
+		void add(int a, int b, int c) {
+			if (size + 3 > values.length) {
+				values = Arrays.copyOf(values, values.length * 2);
+			}
+			values[size++] = a;
+			values[size++] = b;
+			values[size++] = c;
+		}
+
+		int size() {
+			return size;
+		}
+
+		int get(int index) {
+			return values[index];
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
@@ -0,0 +1,496 @@
+package service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import domain.CompactGraph;
+import domain.DirectedGraph;
+import domain.IndexedGraph;
+
+/**
+ * Point to point shortest routes on a contraction hierarchy. Preprocessing ranks the vertices by
+ * importance and contracts them least important first, adding shortcut edges which keep the distances
+ * between the remaining vertices, see ContractionBuilder. Every shortest route then has a counterpart
+ * which climbs in rank up to its most important vertex and descends from there, so a query is two
+ * Dijkstra searches which only ever go upwards: forward from source over upward edges, backward from
+ * destination over downward edges. On road and rail networks each settles a few hundred vertices at
+ * most, whatever the size of the graph. Searches also stall vertices reached suboptimally through a
+ * more important neighbour.
+ * <p>
+ * Edges are kept in three CSR arrays: upward edges v -> w with rank(w) > rank(v) by v, downward edges
+ * u -> v with rank(u) > rank(v) by v, and the incoming edges of the graph by their target, which answer
+ * round trips like Dijkstra.shortestDistance. A hierarchy belongs to the graph it was built from, with
+ * the same vertex indices, see {@link #matches(IndexedGraph)}, and answers queries on a DirectedGraph
+ * only if built from that graph and the graph was not modified since. It can be saved to a binary file and
+ * memory mapped later:
+ * <pre>
+ * int magic, int format version, long graph fingerprint, int n, int upward, downward and incoming edge
+ * counts, n times (int length, UTF-8 bytes of town name), padding to 4 bytes, n int ranks,
+ * then for upward, downward and incoming edges: n + 1 int offsets, int targets, int weights
+ * </pre>
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class ContractionHierarchy {
+
+	private static final int MAGIC = 0x52524348; // RRCH
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+
+	private final String[] towns;
+	private final long fingerprint;
+	private final IntBuffer ranks;
+	private final Edges upward;
+	private final Edges downward;
+	private final Edges incoming;
+
+	/* DirectedGraph the hierarchy was built from and its version at the time, null if built otherwise */
+	private final DirectedGraph<String> builtFrom;
+	private final long builtVersion;
+
+	/* Graph last found to match, so matches is O(1) for repeated queries on the same graph */
+	private volatile IndexedGraph<String> matched;
+
+	/* Town name to index, built on first query by name */
+	private volatile Map<String, Integer> indices;
+
+	/* Search workspace per thread, sized to the graph */
+	private final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>();
+
+	private ContractionHierarchy(String[] towns, long fingerprint, IntBuffer ranks, Edges upward, Edges downward,
+			Edges incoming, DirectedGraph<String> builtFrom, long builtVersion) {
+		this.towns = towns;
+		this.builtFrom = builtFrom;
+		this.builtVersion = builtVersion;
+		this.fingerprint = fingerprint;
+		this.ranks = ranks;
+		this.upward = upward;
+		this.downward = downward;
+		this.incoming = incoming;
+	}
+
+	/**
+	 * Builds hierarchy of given graph on the common fork join pool.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public static ContractionHierarchy build(DirectedGraph<String> graph) {
+		return build(new CompactGraph<String>(graph), ForkJoinPool.commonPool(), graph, graph.getVersion());
+	}
+
+	/**
+	 * Builds hierarchy of given graph on the common fork join pool.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public static ContractionHierarchy build(IndexedGraph<String> graph) {
+		return build(graph, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Builds hierarchy of given graph, contracting independent vertices in parallel on given pool.
+	 *
+	 * @param graph
+	 * @param pool
+	 * @return
+	 */
+	public static ContractionHierarchy build(IndexedGraph<String> graph, ForkJoinPool pool) {
+		return build(graph, pool, null, 0);
+	}
+
+	private static ContractionHierarchy build(IndexedGraph<String> graph, ForkJoinPool pool,
+			DirectedGraph<String> builtFrom, long builtVersion) {
+		int n = graph.getVertexCount();
+		ContractionBuilder builder = new ContractionBuilder(graph);
+		builder.contract(pool);
+		ContractionBuilder.IntList edges = new ContractionBuilder.IntList();
+		for (int v = 0; v < n; v++) {
+			int degree = graph.getDegree(v);
+			for (int i = 0; i < degree; i++) {
+				edges.add(graph.getTarget(v, i), v, graph.getWeight(v, i));
+			}
+		}
+		String[] towns = new String[n];
+		for (int i = 0; i < n; i++) {
+			towns[i] = graph.getVertex(i);
+		}
+		return new ContractionHierarchy(towns, graph.getFingerprint(), IntBuffer.wrap(builder.ranks),
+				Edges.of(n, builder.upward), Edges.of(n, builder.downward), Edges.of(n, edges), builtFrom, builtVersion);
+	}
+
+	/**
+	 * True if hierarchy was built from given graph and the graph is unchanged since.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public boolean matches(DirectedGraph<String> graph) {
+		return graph == builtFrom && graph.getVersion() == builtVersion;
+	}
+
+	/**
+	 * True if hierarchy was built from given graph: same fingerprint and same town at every index.
+	 * O(V) for a graph not seen before.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public boolean matches(IndexedGraph<String> graph) {
+		if (graph == matched) {
+			return true;
+		}
+		if (graph.getFingerprint() != fingerprint || graph.getVertexCount() != towns.length) {
+			return false;
+		}
+		for (int v = 0; v < towns.length; v++) {
+			if (!towns[v].equals(graph.getVertex(v))) {
+				return false;
+			}
+		}
+		matched = graph;
+		return true;
+	}
+
+	/**
+	 * Returns length of shortest route between towns or Dijkstra.UNREACHABLE, same as
+	 * Dijkstra.shortestDistance including round trips and unknown towns.
+	 *
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public int shortestDistance(String source, String destination) {
+		Map<String, Integer> map = indices;
+		if (map == null) {
+			map = new HashMap<String, Integer>(towns.length * 2);
+			for (int v = 0; v < towns.length; v++) {
+				map.put(towns[v], v);
+			}
+			indices = map;
+		}
+		Integer from = map.get(source);
+		Integer to = map.get(destination);
+		return from == null || to == null ? Dijkstra.UNREACHABLE : shortestDistance(from, to);
+	}
+
+	/**
+	 * Returns length of shortest route between vertices or Dijkstra.UNREACHABLE, same as
+	 * Dijkstra.shortestDistance including round trips.
+	 *
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public int shortestDistance(int source, int destination) {
+		Workspace workspace = workspaces.get();
+		if (workspace == null) {
+			workspace = new Workspace(towns.length);
+			workspaces.set(workspace);
+		}
+		return workspace.search(source, destination);
+	}
+
+	public int getTownCount() {
+		return towns.length;
+	}
+
+	/**
+	 * Position of vertex in the contraction order, 0 for the least important.
+	 */
+	public int getRank(int vertex) {
+		return ranks.get(vertex);
+	}
+
+	/**
+	 * Number of upward and downward edges, shortcuts included.
+	 */
+	public int getEdgeCount() {
+		return upward.size() + downward.size();
+	}
+
+	/**
+	 * Fingerprint of the graph this hierarchy was built from, see domain.GraphFingerprint.
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * Writes hierarchy to file, replacing any existing file.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void save(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			int headerSize = HEADER_SIZE;
+			byte[][] names = new byte[towns.length][];
+			for (int i = 0; i < towns.length; i++) {
+				names[i] = towns[i].getBytes(StandardCharsets.UTF_8);
+				headerSize += 4 + names[i].length;
+			}
+			headerSize = (headerSize + 3) & ~3;
+			ByteBuffer header = ByteBuffer.allocate(headerSize);
+			header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(fingerprint).putInt(towns.length)
+					.putInt(upward.size()).putInt(downward.size()).putInt(incoming.size());
+			for (byte[] name : names) {
+				header.putInt(name.length).put(name);
+			}
+			header.position(headerSize).flip();
+			writeFully(channel, header);
+			ByteBuffer block = ByteBuffer.allocate(1 << 16);
+			block = write(channel, block, ranks);
+			for (Edges edges : new Edges[] { upward, downward, incoming }) {
+				block = write(channel, block, edges.offsets);
+				block = write(channel, block, edges.targets);
+				block = write(channel, block, edges.weights);
+			}
+			block.flip();
+			writeFully(channel, block);
+		}
+	}
+
+	/**
+	 * Memory maps a hierarchy written by {@link #save(Path)}, edges are read from the file on demand.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static ContractionHierarchy load(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+				throw new IOException("Not a contraction hierarchy :: " + file);
+			}
+			int version = buffer.getInt();
+			if (version != FORMAT_VERSION) {
+				throw new IOException("Unsupported contraction hierarchy version " + version + " :: " + file);
+			}
+			long fingerprint = buffer.getLong();
+			int n = buffer.getInt();
+			int[] counts = { buffer.getInt(), buffer.getInt(), buffer.getInt() };
+			String[] towns = new String[n];
+			for (int i = 0; i < n; i++) {
+				byte[] name = new byte[buffer.getInt()];
+				buffer.get(name);
+				towns[i] = new String(name, StandardCharsets.UTF_8);
+			}
+			buffer.position((buffer.position() + 3) & ~3);
+			long expected = n + 3L * (n + 1) + 2L * counts[0] + 2L * counts[1] + 2L * counts[2];
+			if (buffer.remaining() != 4 * expected) {
+				throw new IOException("Truncated contraction hierarchy :: " + file);
+			}
+			IntBuffer tables = buffer.slice().asIntBuffer();
+			IntBuffer ranks = slice(tables, 0, n);
+			int offset = n;
+			Edges[] edges = new Edges[3];
+			for (int i = 0; i < edges.length; i++) {
+				IntBuffer offsets = slice(tables, offset, n + 1);
+				IntBuffer targets = slice(tables, offset + n + 1, counts[i]);
+				IntBuffer weights = slice(tables, offset + n + 1 + counts[i], counts[i]);
+				edges[i] = new Edges(offsets, targets, weights);
+				offset += n + 1 + 2 * counts[i];
+			}
+			return new ContractionHierarchy(towns, fingerprint, ranks, edges[0], edges[1], edges[2], null, 0);
+		}
+	}
+
+	private static IntBuffer slice(IntBuffer buffer, int offset, int length) {
+		IntBuffer duplicate = buffer.duplicate();
+		duplicate.position(offset);
+		duplicate.limit(offset + length);
+		return duplicate.slice();
+	}
+
+	private static ByteBuffer write(FileChannel channel, ByteBuffer block, IntBuffer values) throws IOException {
+		int length = values.limit();
+		for (int i = 0; i < length; i++) {
+			if (!block.hasRemaining()) {
+				block.flip();
+				writeFully(channel, block);
+				block.clear();
+			}
+			block.putInt(values.get(i));
+		}
+		return block;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Edges in CSR layout: the edges of vertex v are offsets[v] until offsets[v + 1].
+	 */
+	private static final class Edges {
+		private final IntBuffer offsets;
+		private final IntBuffer targets;
+		private final IntBuffer weights;
+
+		Edges(IntBuffer offsets, IntBuffer targets, IntBuffer weights) {
+			this.offsets = offsets;
+			this.targets = targets;
+			this.weights = weights;
+		}
+
+		/**
+		 * Sorts from, to, weight triples by from.
+		 */
+		static Edges of(int n, ContractionBuilder.IntList triples) {
+			int m = triples.size() / 3;
+			int[] offsets = new int[n + 1];
+			for (int i = 0; i < triples.size(); i += 3) {
+				offsets[triples.get(i) + 1]++;
+			}
+			for (int v = 0; v < n; v++) {
+				offsets[v + 1] += offsets[v];
+			}
+			int[] next = new int[n];
+			System.arraycopy(offsets, 0, next, 0, n);
+			int[] targets = new int[m];
+			int[] weights = new int[m];
+			for (int i = 0; i < triples.size(); i += 3) {
+				int edge = next[triples.get(i)]++;
+				targets[edge] = triples.get(i + 1);
+				weights[edge] = triples.get(i + 2);
+			}
+			return new Edges(IntBuffer.wrap(offsets), IntBuffer.wrap(targets), IntBuffer.wrap(weights));
+		}
+
+		int size() {
+			return targets.limit();
+		}
+	}
+
+	/**
+	 * Search state of one thread, one half per direction. distances[v] is valid only if stamps[v] == search,
+	 * so nothing is cleared between queries and a query costs only what it explores.
+	 */
+	private final class Workspace {
+		private final Half forward;
+		private final Half backward;
+		private int search;
+		private long expanded;
+		private long relaxed;
+
+		Workspace(int vertexCount) {
+			this.forward = new Half(vertexCount, upward, downward);
+			this.backward = new Half(vertexCount, downward, upward);
+		}
+
+		/**
+		 * Alternates upward searches from source and, backwards, from destination. A vertex settled by
+		 * both joins a route; each search stops once its queue holds nothing shorter than the best route.
+		 * For a round trip the backward search starts from the edges entering source instead.
+		 */
+		int search(int source, int destination) {
+			search++;
+			expanded = 0;
+			relaxed = 0;
+			forward.reset();
+			backward.reset();
+			forward.reach(source, 0);
+			if (source != destination) {
+				backward.reach(destination, 0);
+			} else {
+				int end = incoming.offsets.get(source + 1);
+				for (int i = incoming.offsets.get(source); i < end; i++) {
+					backward.reach(incoming.targets.get(i), incoming.weights.get(i));
+				}
+			}
+			long best = Long.MAX_VALUE;
+			boolean forwardTurn = true;
+			while (true) {
+				boolean forwardDone = forward.heap.isEmpty() || forward.heap.peekPriority() >= best;
+				boolean backwardDone = backward.heap.isEmpty() || backward.heap.peekPriority() >= best;
+				if (forwardDone && backwardDone) {
+					break;
+				}
+				Half half = forwardDone ? backward : backwardDone ? forward : forwardTurn ? forward : backward;
+				Half other = half == forward ? backward : forward;
+				forwardTurn = !forwardTurn;
+				int vertex = half.heap.poll();
+				long distance = half.distances[vertex];
+				if (other.stamps[vertex] == search) {
+					best = Math.min(best, distance + other.distances[vertex]);
+				}
+				if (!half.isStalled(vertex, distance)) {
+					expanded++;
+					relaxed += half.relaxEdges(vertex, distance);
+				}
+			}
+			QueryProbe.count(expanded, relaxed, 0);
+			return best >= Dijkstra.UNREACHABLE ? Dijkstra.UNREACHABLE : (int) best;
+		}
+
+		/**
+		 * Search in one direction over edges leading up, checking edges from above for stalling.
+		 */
+		private final class Half {
+			private final long[] distances;
+			private final int[] stamps;
+			private final IndexedMinHeap heap;
+			private final Edges up;
+			private final Edges above;
+
+			Half(int vertexCount, Edges up, Edges above) {
+				this.distances = new long[vertexCount];
+				this.stamps = new int[vertexCount];
+				this.heap = new IndexedMinHeap(vertexCount);
+				this.up = up;
+				this.above = above;
+			}
+
+			void reset() {
+				heap.clear();
+			}
+
+			void reach(int vertex, long distance) {
+				if (stamps[vertex] != search || distance < distances[vertex]) {
+					stamps[vertex] = search;
+					distances[vertex] = distance;
+					heap.offer(vertex, distance);
+				}
+			}
+
+			/**
+			 * True if a more important vertex already reached offers a shorter route to vertex, so no
+			 * shortest route continues from it.
+			 */
+			boolean isStalled(int vertex, long distance) {
+				int end = above.offsets.get(vertex + 1);
+				for (int i = above.offsets.get(vertex); i < end; i++) {
+					int neighbour = above.targets.get(i);
+					if (stamps[neighbour] == search && distances[neighbour] + above.weights.get(i) < distance) {
+						return true;
+					}
+				}
+				return false;
+			}
+
+			int relaxEdges(int vertex, long distance) {
+				int start = up.offsets.get(vertex);
+				int end = up.offsets.get(vertex + 1);
+				for (int i = start; i < end; i++) {
+					reach(up.targets.get(i), distance + up.weights.get(i));
+				}
+				return end - start;
+			}
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package service;
+
+import java.util.Arrays;
+
+import domain.DirectedGraph;
+import domain.IndexedGraph;
+
+/**
+ * Single source shortest path engine based on Dijkstra's algorithm with an indexed binary heap.
+ * Runs in O(E log V) for non negative distances.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class Dijkstra {
+
+	/* Distance returned when destination can not be reached from source */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private Dijkstra() {
+	}
+
+	/**
+	 * Returns length of shortest route between source and destination or UNREACHABLE.
+	 * When source and destination are same town the shortest round trip is returned,
+	 * i.e. a route with at least one stop which starts and ends at source.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public static <V> int shortestDistance(DirectedGraph<V> graph, V source, V destination) {
+		if (!graph.contains(source) || !graph.contains(destination)) {
+			return UNREACHABLE;
+		}
+		return shortestDistance(graph.snapshot(), source, destination);
+	}
+
+	/**
+	 * Same as {@link #shortestDistance(DirectedGraph, Object, Object)} for an indexed graph.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public static <V> int shortestDistance(IndexedGraph<V> graph, V source, V destination) {
+		int from = graph.indexOf(source);
+		int to = graph.indexOf(destination);
+		if (from < 0 || to < 0) {
+			return UNREACHABLE;
+		}
+		return shortestDistance(graph, from, to);
+	}
+
+	/**
+	 * Same as {@link #shortestDistance(DirectedGraph, Object, Object)} for vertex indices.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public static int shortestDistance(IndexedGraph<?> graph, int source, int destination) {
+		long[] distances = new long[graph.getVertexCount()];
+		long distance = search(graph, source, destination, distances);
+		return distance >= UNREACHABLE ? UNREACHABLE : (int) distance;
+	}
+
+	/**
+	 * Returns shortest distances from source to every vertex, UNREACHABLE for vertices which can not
+	 * be reached. Distance to source itself is the length of the shortest round trip.
+	 *
+	 * @param graph
+	 * @param source
+	 * @return
+	 */
+	public static int[] shortestDistances(IndexedGraph<?> graph, int source) {
+		long[] distances = new long[graph.getVertexCount()];
+		search(graph, source, -1, distances);
+		int[] result = new int[distances.length];
+		for (int v = 0; v < distances.length; v++) {
+			result[v] = distances[v] >= UNREACHABLE ? UNREACHABLE : (int) distances[v];
+		}
+		return result;
+	}
+
+	/**
+	 * Runs the search from source until destination is settled, or over the whole graph when destination
+	 * is -1. Source is not settled upfront, so a route can come back to it as a round trip.
+	 * Returns distance of destination or Long.MAX_VALUE.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param distances
+	 * @return
+	 */
+	private static long search(IndexedGraph<?> graph, int source, int destination, long[] distances) {
+		Arrays.fill(distances, Long.MAX_VALUE);
+		IndexedMinHeap heap = new IndexedMinHeap(graph.getVertexCount());
+		long expanded = 1;
+		long relaxed = relaxEdges(graph, source, 0, distances, heap);
+		while (!heap.isEmpty()) {
+			long distance = heap.peekPriority();
+			int vertex = heap.poll();
+			if (vertex == destination) {
+				QueryProbe.count(expanded, relaxed, 0);
+				return distance;
+			}
+			if (vertex != source) {
+				expanded++;
+				relaxed += relaxEdges(graph, vertex, distance, distances, heap);
+			}
+		}
+		QueryProbe.count(expanded, relaxed, 0);
+		return destination < 0 ? Long.MAX_VALUE : distances[destination];
+	}
+
+	/**
+	 * Helper method to relax all outgoing edges of a settled vertex, returns number of edges.
+	 *
+	 * @param graph
+	 * @param vertex
+	 * @param distance
+	 * @param distances
+	 * @param heap
+	 * @return
+	 */
+	private static int relaxEdges(IndexedGraph<?> graph, int vertex, long distance, long[] distances,
+			IndexedMinHeap heap) {
+		int degree = graph.getDegree(vertex);
+		for (int i = 0; i < degree; i++) {
+			int target = graph.getTarget(vertex, i);
+			long candidate = distance + graph.getWeight(vertex, i);
+			if (candidate < distances[target]) {
+				distances[target] = candidate;
+				heap.offer(target, candidate);
+			}
+		}
+		return degree;
+	}
+}
@@ -0,0 +1,249 @@
+package service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import domain.CompactGraph;
+import domain.DirectedGraph;
+import domain.IndexedGraph;
+
+/**
+ * Precomputed shortest distances between all pairs of towns, answering a shortest route lookup in O(1).
+ * Built by running Dijkstra from every town in parallel into a flat n * n matrix, where entry
+ * (i, i) holds the shortest round trip. Meant for networks of a few thousand towns, the matrix
+ * takes 4 * n * n bytes.
+ * <p>
+ * The index can be saved to a binary file and memory mapped on the next start instead of being rebuilt:
+ * <pre>
+ * int magic, int format version, long graph fingerprint, int n,
+ * n times (int length, UTF-8 bytes of town name), padding to 4 bytes,
+ * n * n int distances, row by row
+ * </pre>
+ * An index answers queries on a DirectedGraph only if it was built from that graph and the graph was not
+ * modified since, and on an indexed graph only if {@link #matches(IndexedGraph)} holds.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class DistanceIndex {
+
+	private static final int MAGIC = 0x52524449; // RRDI
+	private static final int FORMAT_VERSION = 1;
+
+	private final String[] towns;
+	private final Map<String, Integer> indices;
+	private final IntBuffer distances;
+	private final long fingerprint;
+
+	/* DirectedGraph the index was built from and its version at the time, null if built otherwise */
+	private final DirectedGraph<String> builtFrom;
+	private final long builtVersion;
+
+	/* Graph last found to match, so matches is O(1) for repeated queries on the same graph */
+	private volatile IndexedGraph<String> matched;
+
+	private DistanceIndex(String[] towns, IntBuffer distances, long fingerprint, DirectedGraph<String> builtFrom,
+			long builtVersion) {
+		this.towns = towns;
+		this.indices = new HashMap<String, Integer>(towns.length * 2);
+		for (int i = 0; i < towns.length; i++) {
+			indices.put(towns[i], i);
+		}
+		this.distances = distances;
+		this.fingerprint = fingerprint;
+		this.builtFrom = builtFrom;
+		this.builtVersion = builtVersion;
+	}
+
+	/**
+	 * Builds index of given graph.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public static DistanceIndex build(DirectedGraph<String> graph) {
+		return build(new CompactGraph<String>(graph), graph, graph.getVersion());
+	}
+
+	/**
+	 * Builds index of given graph, one Dijkstra run per town on the common fork join pool.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public static DistanceIndex build(IndexedGraph<String> graph) {
+		return build(graph, null, 0);
+	}
+
+	private static DistanceIndex build(final IndexedGraph<String> graph, DirectedGraph<String> builtFrom,
+			long builtVersion) {
+		final int n = graph.getVertexCount();
+		if ((long) n * n > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many towns for a distance index :: " + n);
+		}
+		final int[] matrix = new int[n * n];
+		IntStream.range(0, n).parallel().forEach(source -> {
+			int[] row = Dijkstra.shortestDistances(graph, source);
+			System.arraycopy(row, 0, matrix, source * n, n);
+		});
+		String[] towns = new String[n];
+		for (int i = 0; i < n; i++) {
+			towns[i] = graph.getVertex(i);
+		}
+		return new DistanceIndex(towns, IntBuffer.wrap(matrix), graph.getFingerprint(), builtFrom, builtVersion);
+	}
+
+	/**
+	 * Returns length of shortest route between source and destination or Dijkstra.UNREACHABLE.
+	 *
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public int getDistance(String source, String destination) {
+		Integer from = indices.get(source);
+		Integer to = indices.get(destination);
+		if (from == null || to == null) {
+			return Dijkstra.UNREACHABLE;
+		}
+		return distances.get(from * towns.length + to);
+	}
+
+	/**
+	 * True if index was built from given graph and the graph is unchanged since.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public boolean matches(DirectedGraph<String> graph) {
+		return graph == builtFrom && graph.getVersion() == builtVersion;
+	}
+
+	/**
+	 * True if index was built from given graph: same fingerprint and same town at every index.
+	 * O(V) for a graph not seen before.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public boolean matches(IndexedGraph<String> graph) {
+		if (graph == matched) {
+			return true;
+		}
+		if (graph.getFingerprint() != fingerprint || graph.getVertexCount() != towns.length) {
+			return false;
+		}
+		for (int v = 0; v < towns.length; v++) {
+			if (!towns[v].equals(graph.getVertex(v))) {
+				return false;
+			}
+		}
+		matched = graph;
+		return true;
+	}
+
+	public int getTownCount() {
+		return towns.length;
+	}
+
+	/**
+	 * Fingerprint of the graph this index was built from, see domain.GraphFingerprint.
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * Writes index to file, replacing any existing file.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void save(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			int headerSize = 20;
+			byte[][] names = new byte[towns.length][];
+			for (int i = 0; i < towns.length; i++) {
+				names[i] = towns[i].getBytes(StandardCharsets.UTF_8);
+				headerSize += 4 + names[i].length;
+			}
+			headerSize = (headerSize + 3) & ~3;
+			ByteBuffer header = ByteBuffer.allocate(headerSize);
+			header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(fingerprint).putInt(towns.length);
+			for (byte[] name : names) {
+				header.putInt(name.length).put(name);
+			}
+			header.position(headerSize).flip();
+			writeFully(channel, header);
+			ByteBuffer block = ByteBuffer.allocate(1 << 16);
+			int total = towns.length * towns.length;
+			for (int i = 0; i < total; i++) {
+				if (!block.hasRemaining()) {
+					block.flip();
+					writeFully(channel, block);
+					block.clear();
+				}
+				block.putInt(distances.get(i));
+			}
+			block.flip();
+			writeFully(channel, block);
+		}
+	}
+
+	/**
+	 * Memory maps an index written by {@link #save(Path)}, distances are read from the file on demand.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static DistanceIndex load(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.remaining() < 20 || buffer.getInt() != MAGIC) {
+				throw new IOException("Not a distance index :: " + file);
+			}
+			int version = buffer.getInt();
+			if (version != FORMAT_VERSION) {
+				throw new IOException("Unsupported distance index version " + version + " :: " + file);
+			}
+			long fingerprint = buffer.getLong();
+			int n = buffer.getInt();
+			// Every town takes at least its 4 byte name length, check before allocating.
+			if (n < 0 || n > buffer.remaining() / 4) {
+				throw new IOException("Corrupt distance index, " + n + " towns :: " + file);
+			}
+			String[] towns = new String[n];
+			for (int i = 0; i < n; i++) {
+				int length = buffer.remaining() < 4 ? -1 : buffer.getInt();
+				if (length < 0 || length > buffer.remaining()) {
+					throw new IOException("Truncated distance index at town " + i + " :: " + file);
+				}
+				byte[] name = new byte[length];
+				buffer.get(name);
+				towns[i] = new String(name, StandardCharsets.UTF_8);
+			}
+			int distances = (buffer.position() + 3) & ~3;
+			if (distances > buffer.limit() || buffer.limit() - distances != 4L * n * n) {
+				throw new IOException("Truncated distance index :: " + file);
+			}
+			buffer.position(distances);
+			return new DistanceIndex(towns, buffer.slice().asIntBuffer(), fingerprint, null, 0);
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
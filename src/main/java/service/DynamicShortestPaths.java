@@ -0,0 +1,399 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import domain.DirectedGraph;
+import domain.Edge;
+import domain.GraphListener;
+
+/**
+ * Shortest distances from one source to every vertex of a DirectedGraph, kept up to date while the graph
+ * is modified through it. Every modification repairs only the region whose distances it can change, in
+ * the manner of Ramalingam and Reps:
+ * <ul>
+ * <li>a new or cheaper edge (u, v) which shortens the route to v starts a Dijkstra search at v, which
+ * stops wherever the distances do not improve;</li>
+ * <li>a removed or dearer edge (u, v) on a shortest route to v marks v affected unless another shortest
+ * route reaches it, and so on along the shortest route edges leaving affected vertices. Only the affected
+ * vertices are then searched again, seeded from their unaffected predecessors.</li>
+ * </ul>
+ * Between two vertices only the cheapest of parallel edges counts. While the graph has an edge of weight 0
+ * a dearer edge triggers a full recompute, as shortest routes may then run in circles. Weights must not be
+ * negative. Not safe for use by concurrent threads, like DirectedGraph.
+ *
+ * @author Rushikesh Teli
+ *
+ * @param <V>
+ */
+public final class DynamicShortestPaths<V> implements GraphListener<V> {
+
+	private static final long INFINITY = Long.MAX_VALUE;
+
+	private final DirectedGraph<V> graph;
+	private final V source;
+
+	/* Vertices interned to dense ints, in order of appearance */
+	private final Map<V, Integer> indices = new HashMap<V, Integer>();
+	private final List<V> vertices = new ArrayList<V>();
+
+	/* Cheapest edge weight to every successor and from every predecessor of each vertex */
+	private Adjacency[] successors = new Adjacency[16];
+	private Adjacency[] predecessors = new Adjacency[16];
+	private int zeroWeightEdges;
+
+	/* Distance from source, INFINITY if unreachable; source is vertex 0 at distance 0 */
+	private long[] distances = new long[16];
+
+	/* Repair workspace; a vertex is affected by the current repair if stamps[v] == repair */
+	private int[] stamps = new int[16];
+	private int repair;
+	private int[] affected = new int[16];
+	private IndexedMinHeap heap = new IndexedMinHeap(16);
+
+	/* Statistics */
+	private long verticesRepaired;
+	private long fullRecomputes;
+
+	/**
+	 * Computes shortest distances from source and keeps them up to date with every later modification
+	 * of graph, until detached.
+	 *
+	 * @param graph
+	 * @param source
+	 */
+	public DynamicShortestPaths(DirectedGraph<V> graph, V source) {
+		if (!graph.contains(source)) {
+			throw new IllegalArgumentException("No such vertex :: " + source);
+		}
+		this.graph = graph;
+		this.source = source;
+		vertexAdded(source);
+		for (V vertex : graph.getNeighbors().keySet()) {
+			vertexAdded(vertex);
+		}
+		for (Map.Entry<V, Set<Edge<V>>> entry : graph.getNeighbors().entrySet()) {
+			int from = indices.get(entry.getKey());
+			for (Edge<V> edge : entry.getValue()) {
+				int to = indices.get(edge.getVertex());
+				int weight = successors[from].weight(to);
+				if (weight < 0 || edge.getWeight() < weight) {
+					setWeight(from, to, edge.getWeight());
+				}
+			}
+		}
+		recompute();
+		graph.addListener(this);
+	}
+
+	/**
+	 * Stops following modifications of the graph, distances are no longer updated.
+	 */
+	public void detach() {
+		graph.removeListener(this);
+	}
+
+	public DirectedGraph<V> getGraph() {
+		return graph;
+	}
+
+	public V getSource() {
+		return source;
+	}
+
+	/**
+	 * Returns length of shortest route from source to destination, Dijkstra.UNREACHABLE if there is none.
+	 * When destination is source the shortest round trip is returned, as by Dijkstra.shortestDistance.
+	 *
+	 * @param destination
+	 * @return
+	 */
+	public int getDistance(V destination) {
+		Integer index = indices.get(destination);
+		if (index == null) {
+			return Dijkstra.UNREACHABLE;
+		}
+		long distance = distances[index];
+		if (index == 0) {
+			distance = INFINITY;
+			Adjacency incoming = predecessors[0];
+			for (int i = 0; i < incoming.size; i++) {
+				distance = Math.min(distance, add(distances[incoming.vertices[i]], incoming.weights[i]));
+			}
+		}
+		return distance >= Dijkstra.UNREACHABLE ? Dijkstra.UNREACHABLE : (int) distance;
+	}
+
+	/**
+	 * Number of vertices whose distance has been searched again by modifications, full recomputes
+	 * not included.
+	 */
+	public long getVerticesRepaired() {
+		return verticesRepaired;
+	}
+
+	/**
+	 * Number of modifications answered by recomputing all distances.
+	 */
+	public long getFullRecomputes() {
+		return fullRecomputes;
+	}
+
+	@Override
+	public void vertexAdded(V vertex) {
+		if (indices.containsKey(vertex)) {
+			return;
+		}
+		int index = vertices.size();
+		if (index == distances.length) {
+			int capacity = index * 2;
+			successors = Arrays.copyOf(successors, capacity);
+			predecessors = Arrays.copyOf(predecessors, capacity);
+			distances = Arrays.copyOf(distances, capacity);
+			stamps = Arrays.copyOf(stamps, capacity);
+			affected = Arrays.copyOf(affected, capacity);
+			heap = new IndexedMinHeap(capacity);
+		}
+		indices.put(vertex, index);
+		vertices.add(vertex);
+		successors[index] = new Adjacency();
+		predecessors[index] = new Adjacency();
+		distances[index] = index == 0 ? 0 : INFINITY;
+	}
+
+	@Override
+	public void edgeAdded(V from, V to, int weight) {
+		int u = indices.get(from);
+		int v = indices.get(to);
+		int previous = successors[u].weight(v);
+		if (previous < 0 || weight < previous) {
+			setWeight(u, v, weight);
+			decreased(u, v, weight);
+		}
+	}
+
+	@Override
+	public void edgesRemoved(V from, V to) {
+		int u = indices.get(from);
+		int v = indices.get(to);
+		int previous = successors[u].weight(v);
+		if (previous >= 0) {
+			removeEdge(u, v);
+			increased(u, v, previous);
+		}
+	}
+
+	@Override
+	public void weightChanged(V from, V to, int weight) {
+		int u = indices.get(from);
+		int v = indices.get(to);
+		int previous = successors[u].weight(v);
+		setWeight(u, v, weight);
+		if (weight < previous) {
+			decreased(u, v, weight);
+		} else if (weight > previous) {
+			increased(u, v, previous);
+		}
+	}
+
+	/**
+	 * Sets weight of the edge from u to v, adding it if there is none.
+	 */
+	private void setWeight(int u, int v, int weight) {
+		if (weight < 0) {
+			throw new IllegalArgumentException("Distance must not be negative :: " + vertices.get(u)
+					+ vertices.get(v) + weight);
+		}
+		removeEdge(u, v);
+		zeroWeightEdges += weight == 0 ? 1 : 0;
+		successors[u].put(v, weight);
+		predecessors[v].put(u, weight);
+	}
+
+	private void removeEdge(int u, int v) {
+		zeroWeightEdges -= successors[u].weight(v) == 0 ? 1 : 0;
+		successors[u].put(v, -1);
+		predecessors[v].put(u, -1);
+	}
+
+	/**
+	 * Edge (u, v) has been added or made cheaper: if it shortens the route to v, the shorter distances
+	 * spread from v as far as they improve anything.
+	 */
+	private void decreased(int u, int v, int weight) {
+		long candidate = add(distances[u], weight);
+		if (v == 0 || candidate >= distances[v]) {
+			return;
+		}
+		distances[v] = candidate;
+		heap.clear();
+		heap.offer(v, candidate);
+		while (!heap.isEmpty()) {
+			int vertex = heap.poll();
+			verticesRepaired++;
+			Adjacency outgoing = successors[vertex];
+			for (int i = 0; i < outgoing.size; i++) {
+				int target = outgoing.vertices[i];
+				long distance = distances[vertex] + outgoing.weights[i];
+				if (target != 0 && distance < distances[target]) {
+					distances[target] = distance;
+					heap.offer(target, distance);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Edge (u, v) of given previous weight has been removed or made dearer. Nothing changes unless it was
+	 * on a shortest route to v. Otherwise finds the vertices left without a shortest route through
+	 * unaffected vertices, and searches their distances again.
+	 */
+	private void increased(int u, int v, int previous) {
+		if (v == 0 || distances[u] == INFINITY || distances[u] + previous != distances[v]) {
+			return;
+		}
+		if (zeroWeightEdges > 0) {
+			fullRecomputes++;
+			recompute();
+			return;
+		}
+		repair++;
+		int count = 0;
+		if (!hasShortestRoute(v)) {
+			stamps[v] = repair;
+			affected[count++] = v;
+		}
+		for (int i = 0; i < count; i++) {
+			int vertex = affected[i];
+			Adjacency outgoing = successors[vertex];
+			for (int j = 0; j < outgoing.size; j++) {
+				int target = outgoing.vertices[j];
+				// The distance of vertex is still the old one, so this finds the shortest route edges.
+				if (target != 0 && stamps[target] != repair && distances[vertex] + outgoing.weights[j] == distances[target]
+						&& !hasShortestRoute(target)) {
+					stamps[target] = repair;
+					affected[count++] = target;
+				}
+			}
+		}
+		heap.clear();
+		for (int i = 0; i < count; i++) {
+			int vertex = affected[i];
+			long distance = INFINITY;
+			Adjacency incoming = predecessors[vertex];
+			for (int j = 0; j < incoming.size; j++) {
+				if (stamps[incoming.vertices[j]] != repair) {
+					distance = Math.min(distance, add(distances[incoming.vertices[j]], incoming.weights[j]));
+				}
+			}
+			distances[vertex] = distance;
+			if (distance != INFINITY) {
+				heap.offer(vertex, distance);
+			}
+		}
+		verticesRepaired += count;
+		while (!heap.isEmpty()) {
+			int vertex = heap.poll();
+			Adjacency outgoing = successors[vertex];
+			for (int i = 0; i < outgoing.size; i++) {
+				int target = outgoing.vertices[i];
+				long distance = distances[vertex] + outgoing.weights[i];
+				if (stamps[target] == repair && distance < distances[target]) {
+					distances[target] = distance;
+					heap.offer(target, distance);
+				}
+			}
+		}
+	}
+
+	/**
+	 * True if vertex keeps its distance through an edge from a vertex not affected by the current repair.
+	 */
+	private boolean hasShortestRoute(int vertex) {
+		Adjacency incoming = predecessors[vertex];
+		for (int i = 0; i < incoming.size; i++) {
+			int predecessor = incoming.vertices[i];
+			if (stamps[predecessor] != repair && add(distances[predecessor], incoming.weights[i]) == distances[vertex]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Computes all distances from scratch by Dijkstra's algorithm.
+	 */
+	private void recompute() {
+		Arrays.fill(distances, 0, vertices.size(), INFINITY);
+		distances[0] = 0;
+		heap.clear();
+		heap.offer(0, 0);
+		while (!heap.isEmpty()) {
+			int vertex = heap.poll();
+			Adjacency outgoing = successors[vertex];
+			for (int i = 0; i < outgoing.size; i++) {
+				int target = outgoing.vertices[i];
+				long distance = distances[vertex] + outgoing.weights[i];
+				if (distance < distances[target]) {
+					distances[target] = distance;
+					heap.offer(target, distance);
+				}
+			}
+		}
+	}
+
+	private static long add(long distance, int weight) {
+		return distance == INFINITY ? INFINITY : distance + weight;
+	}
+
+	/**
+	 * Neighbours of a vertex with the weight of the cheapest edge to each, in no particular order.
+	 */
+	private static final class Adjacency {
+		private int[] vertices = new int[2];
+		private int[] weights = new int[2];
+		private int size;
+
+		/**
+		 * Weight of the edge to vertex, -1 if there is none.
+		 */
+		int weight(int vertex) {
+			for (int i = 0; i < size; i++) {
+				if (vertices[i] == vertex) {
+					return weights[i];
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Sets weight of the edge to vertex, -1 removes it.
+		 */
+		void put(int vertex, int weight) {
+			for (int i = 0; i < size; i++) {
+				if (vertices[i] == vertex) {
+					if (weight < 0) {
+						size--;
+						vertices[i] = vertices[size];
+						weights[i] = weights[size];
+					} else {
+						weights[i] = weight;
+					}
+					return;
+				}
+			}
+			if (weight >= 0) {
+				if (size == vertices.length) {
+					vertices = Arrays.copyOf(vertices, size * 2);
+					weights = Arrays.copyOf(weights, size * 2);
+				}
+				vertices[size] = vertex;
+				weights[size++] = weight;
+			}
+		}
+	}
+}
@@ -4,9 +4,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
+import domain.CompactGraph;
 import domain.DirectedGraph;
 import domain.Edge;
+import domain.IndexedGraph;
 /**
  * This class serves as a service for all functionality required for railroad company.
  * @author Rushikesh Teli
@@ -18,6 +22,31 @@ public class GraphService {
 	public static final String SEPARATOR = "-";
 	public static final String NO_SUCH_ROUTE = "NO SUCH ROUTE";
 	
+	/* Optional cache for route distance and shortest route results, null when caching is off */
+	private RouteCache routeCache;
+	
+	/* Optional all pairs distance index, used only for the graph it was built from, see DistanceIndex.matches */
+	private DistanceIndex distanceIndex;
+	
+	/* Optional landmark index for A* shortest routes, used for the graph it was built from */
+	private LandmarkIndex landmarkIndex;
+	
+	/* Optional contraction hierarchy for shortest routes, used for the graph it was built from */
+	private ContractionHierarchy contractionHierarchy;
+	
+	/* Optional reachability index, answers queries between towns without a route before any search */
+	private ReachabilityIndex reachabilityIndex;
+	
+	/* Optional shortest distances from one town, kept up to date with modifications of its graph */
+	private DynamicShortestPaths<String> shortestPaths;
+	
+	/* Optional latency and search effort metrics of the public query methods, null when metrics are off */
+	private volatile QueryMetrics queryMetrics;
+	
+	/* Route evaluators of the indexed graphs queried last, most recent first, matched by graph identity */
+	private static final int ROUTE_EVALUATORS = 8;
+	private volatile RouteEvaluator[] routeEvaluators = new RouteEvaluator[0];
+	
 	/**
 	 * Get all pairs (edges) for a given route journey.
 	 * Example: A-B-C-D will have 3 pairs A-B, B-C & C-D
@@ -47,38 +76,106 @@ public class GraphService {
 	 * @return
 	 */
 	public String getRouteDistance(String journey, DirectedGraph<String> graph){
-		int totalDistance = getDistance(journey, graph);
-		return totalDistance == -1 ? NO_SUCH_ROUTE:String.valueOf(totalDistance);
+		QueryProbe probe = startProbe(QueryMetrics.QueryType.ROUTE_DISTANCE, journey, null);
+		try{
+			long version = graph.getVersion();
+			String cached = getCached(graph, version, RouteCache.QueryType.ROUTE_DISTANCE, journey, null);
+			if(cached != null) return cached;
+			int totalDistance = getDistance(journey, graph);
+			return putCached(graph, version, RouteCache.QueryType.ROUTE_DISTANCE, journey, null,
+					totalDistance == -1 ? NO_SUCH_ROUTE:String.valueOf(totalDistance));
+		}finally{
+			stopProbe(probe);
+		}
+	}
+
+	/**
+	 * Same as getRouteDistance for an indexed graph snapshot.
+	 * 
+	 * @param journey
+	 * @param graph
+	 * @return
+	 */
+	public String getRouteDistance(String journey, IndexedGraph<String> graph){
+		QueryProbe probe = startProbe(QueryMetrics.QueryType.ROUTE_DISTANCE, journey, null);
+		try{
+			String cached = getCached(graph, 0, RouteCache.QueryType.ROUTE_DISTANCE, journey, null);
+			if(cached != null) return cached;
+			int totalDistance = getRouteEvaluator(graph).getDistance(journey);
+			return putCached(graph, 0, RouteCache.QueryType.ROUTE_DISTANCE, journey, null,
+					totalDistance == -1 ? NO_SUCH_ROUTE:String.valueOf(totalDistance));
+		}finally{
+			stopProbe(probe);
+		}
 	}
 	
 	/**
-	 * Returns distance for given journey.
+	 * Returns distance for given journey, -1 if no such route exists. Towns may have names of any length.
 	 * 
 	 * @param journey
 	 * @param graph
 	 * @return
 	 */
 	public static int getDistance(String journey, DirectedGraph<String> graph){
-		int totalDistance=0;
-		List<String> paths = getPairs(journey);
-		if(paths == null) return -1;
-		int distance;
-		for(String path : paths){
-			distance = graph.getWeight(path.substring(0, 1), path.substring(1,2));
+		String[] towns = journey.split(SEPARATOR);
+		if(towns.length < 2) return -1;
+		int totalDistance = 0;
+		for(int i=1;i<towns.length;i++){
+			int distance = graph.getWeight(towns[i - 1], towns[i]);
 			if(distance == -1){
-				totalDistance = -1;
-				break;
-			}else{
-				totalDistance+=distance;
+				return -1;
+			}
+			totalDistance+=distance;
+		}
+		return totalDistance;
+	}
+
+	/**
+	 * Returns distance for given journey on an indexed graph snapshot, -1 if no such route exists.
+	 * 
+	 * @param journey
+	 * @param graph
+	 * @return
+	 */
+	public static int getDistance(String journey, IndexedGraph<String> graph){
+		String[] towns = journey.split(SEPARATOR);
+		if(towns.length < 2) return -1;
+		int totalDistance = 0;
+		int from = graph.indexOf(towns[0]);
+		for(int i=1;i<towns.length;i++){
+			int to = graph.indexOf(towns[i]);
+			int distance = from < 0 || to < 0 ? -1 : getWeight(graph, from, to);
+			if(distance == -1){
+				return -1;
 			}
+			totalDistance+=distance;
+			from = to;
 		}
 		return totalDistance;
 	}
+
+	/**
+	 * Returns weight of the first edge from source to target, -1 if there is no such edge.
+	 * 
+	 * @param graph
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	private static int getWeight(IndexedGraph<?> graph, int from, int to){
+		int degree = graph.getDegree(from);
+		for(int i=0;i<degree;i++){
+			if(graph.getTarget(from, i) == to){
+				return graph.getWeight(from, i);
+			}
+		}
+		return -1;
+	}
 	
 	/**
 	 * This method is a wrapper around depthfirst search implementation.
 	 * It accepted graph, source and destination and will return all
-	 * distinct paths.
+	 * distinct paths, in the order of depthFirst. Routes share their prefixes, see PathList.
 	 * 
 	 * @param graph
 	 * @param source
@@ -86,12 +183,313 @@ public class GraphService {
 	 * @return
 	 */
 	public static List<String> findDistinctPaths(DirectedGraph<String> graph, String source, String destination){
-		LinkedList<String> visited = new LinkedList<String>();
-		ArrayList<String> uniquePaths = new ArrayList<>();
-		uniquePaths = (ArrayList<String>) depthFirst(graph,uniquePaths, visited, source, destination);
+		return findDistinctPaths(graph, source, destination, null);
+	}
+
+	/**
+	 * Same as findDistinctPaths, taking the towns which reach destination from index when it belongs to
+	 * graph instead of searching the reversed graph.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param index reachability index, may be null
+	 * @return
+	 */
+	public static List<String> findDistinctPaths(DirectedGraph<String> graph, String source, String destination, ReachabilityIndex index){
+		CompactGraph<String> compact = graph.snapshot();
+		PathList uniquePaths = new PathList(compact);
+		int from = compact.indexOf(source);
+		if(from < 0 || !graph.contains(destination)){
+			return uniquePaths;
+		}
+		int to = compact.indexOf(destination);
+		// Built from the same unchanged graph, so the index has the vertex indices of compact.
+		boolean[] reaching = index != null && index.matches(graph) ? index.verticesReaching(to)
+				: ReachabilityIndex.verticesReaching(compact, to);
+		if(!reaching[from]){
+			return uniquePaths;
+		}
+		int[] path = new int[compact.getVertexCount() + 2];
+		path[0] = from;
+		depthFirst(compact, path, 1, new boolean[compact.getVertexCount()], to, reaching, uniquePaths);
+		return uniquePaths;
+	}
+
+	/**
+	 * Returns all distinct paths between source and destination of an indexed graph snapshot.
+	 * A path visits every town at most once, except source which is also the destination of a round trip.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public static List<String> findDistinctPaths(IndexedGraph<String> graph, String source, String destination){
+		return findDistinctPaths(graph, source, destination, null);
+	}
+
+	/**
+	 * Same as findDistinctPaths, never entering towns which can not reach destination when index belongs
+	 * to graph.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param index reachability index, may be null
+	 * @return
+	 */
+	public static List<String> findDistinctPaths(IndexedGraph<String> graph, String source, String destination, ReachabilityIndex index){
+		PathList uniquePaths = new PathList(graph);
+		int from = graph.indexOf(source);
+		int to = graph.indexOf(destination);
+		if(from < 0 || to < 0 || isUnreachable(graph, from, to, index)){
+			return uniquePaths;
+		}
+		new PathEnumerator(graph, from, to, verticesReaching(graph, to, index)).collect(uniquePaths);
+		return uniquePaths;
+	}
+
+	/**
+	 * Lazy version of findDistinctPaths, routes are found one at a time as the stream is consumed, so
+	 * e.g. limit(20) stops the search after the 20th route. Closing the stream cancels the search.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public static Stream<String> streamDistinctPaths(IndexedGraph<String> graph, String source, String destination){
+		return streamDistinctPaths(graph, source, destination, null);
+	}
+
+	/**
+	 * Same as streamDistinctPaths, never entering towns which can not reach destination when index belongs
+	 * to graph.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param index reachability index, may be null
+	 * @return
+	 */
+	public static Stream<String> streamDistinctPaths(IndexedGraph<String> graph, String source, String destination, ReachabilityIndex index){
+		int from = graph.indexOf(source);
+		int to = graph.indexOf(destination);
+		if(from < 0 || to < 0 || isUnreachable(graph, from, to, index)){
+			return Stream.empty();
+		}
+		return new PathEnumerator(graph, from, to, verticesReaching(graph, to, index)).stream()
+				.map(path -> toRoute(graph, path, path.length));
+	}
+
+	/**
+	 * Parallel version of findDistinctPaths for large graphs, same routes in the same order.
+	 * Runs on the common fork/join pool.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public static List<String> findDistinctPathsInParallel(IndexedGraph<String> graph, String source, String destination){
+		return findDistinctPathsInParallel(graph, source, destination, null);
+	}
+
+	/**
+	 * Same as findDistinctPathsInParallel, never entering towns which can not reach destination when index
+	 * belongs to graph.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param index reachability index, may be null
+	 * @return
+	 */
+	public static List<String> findDistinctPathsInParallel(IndexedGraph<String> graph, String source, String destination, ReachabilityIndex index){
+		PathList uniquePaths = new PathList(graph);
+		int from = graph.indexOf(source);
+		int to = graph.indexOf(destination);
+		if(from < 0 || to < 0 || isUnreachable(graph, from, to, index)){
+			return uniquePaths;
+		}
+		boolean[] reaching = verticesReaching(graph, to, index);
+		for(int[] path : ParallelPathEnumerator.findPaths(graph, from, to, ForkJoinPool.commonPool(), reaching)){
+			uniquePaths.add(path, path.length);
+		}
 		return uniquePaths;
 	}
 
+	/**
+	 * Returns all trips between source and destination having at most stops stops, in depth first order.
+	 * Trips may visit a town any number of times. Same trips as counted by findTripsWithMaxNStops,
+	 * sharing their prefixes, see PathList.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param stops
+	 * @return
+	 */
+	public static List<String> findRoutesWithMaxNStops(IndexedGraph<String> graph, String source, String destination, int stops){
+		return findRoutesWithMaxNStops(graph, source, destination, stops, null);
+	}
+
+	/**
+	 * Same as findRoutesWithMaxNStops, taking the towns which reach destination from index when it belongs
+	 * to graph instead of searching the reversed graph.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param stops
+	 * @param index reachability index, may be null
+	 * @return
+	 */
+	public static List<String> findRoutesWithMaxNStops(IndexedGraph<String> graph, String source, String destination, int stops, ReachabilityIndex index){
+		return findTrips(graph, source, destination, stops, Long.MAX_VALUE, index);
+	}
+
+	/**
+	 * Returns all trips between source and destination having distance less than weight, in depth first
+	 * order. Same trips as counted by findTripsWithMaxWeight, sharing their prefixes, see PathList.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param weight
+	 * @return
+	 * @throws IllegalArgumentException if a trip has an edge with a distance less than 1
+	 */
+	public static List<String> findRoutesWithMaxWeight(IndexedGraph<String> graph, String source, String destination, int weight){
+		return findRoutesWithMaxWeight(graph, source, destination, weight, null);
+	}
+
+	/**
+	 * Same as findRoutesWithMaxWeight, taking the towns which reach destination from index when it belongs
+	 * to graph instead of searching the reversed graph.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param weight
+	 * @param index reachability index, may be null
+	 * @return
+	 * @throws IllegalArgumentException if a trip has an edge with a distance less than 1
+	 */
+	public static List<String> findRoutesWithMaxWeight(IndexedGraph<String> graph, String source, String destination, int weight, ReachabilityIndex index){
+		return findTrips(graph, source, destination, Math.max(weight - 1, 0), weight, index);
+	}
+
+	/**
+	 * Depth first search over trips with an explicit stack, a trip is added whenever it arrives at
+	 * destination and extended as long as it has less than stops stops and distance below weight.
+	 * Towns which can not reach destination are never entered.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param stops
+	 * @param weight
+	 * @param index reachability index, may be null
+	 * @return
+	 */
+	private static PathList findTrips(IndexedGraph<String> graph, String source, String destination, int stops, long weight, ReachabilityIndex index){
+		PathList trips = new PathList(graph);
+		int from = graph.indexOf(source);
+		int to = graph.indexOf(destination);
+		if(from < 0 || to < 0 || stops < 1){
+			return trips;
+		}
+		boolean[] reaching = verticesReaching(graph, to, index);
+		if(reaching == null){
+			reaching = ReachabilityIndex.verticesReaching(graph, to);
+		}
+		if(!reaching[from]){
+			return trips;
+		}
+		int[] path = new int[stops + 1];
+		int[] cursors = new int[stops + 1];
+		long[] distances = new long[stops + 1];
+		path[0] = from;
+		int depth = 1;
+		while(depth > 0){
+			int top = depth - 1;
+			int vertex = path[top];
+			if(top == stops || cursors[top] == graph.getDegree(vertex)){
+				depth--;
+				continue;
+			}
+			int edge = cursors[top]++;
+			int edgeWeight = graph.getWeight(vertex, edge);
+			if(weight != Long.MAX_VALUE && edgeWeight < 1){
+				throw new IllegalArgumentException("Distance must be positive :: " + graph.getVertex(vertex)
+						+ graph.getVertex(graph.getTarget(vertex, edge)) + edgeWeight);
+			}
+			long distance = distances[top] + edgeWeight;
+			int target = graph.getTarget(vertex, edge);
+			if(distance >= weight || (target != to && !reaching[target])){
+				continue;
+			}
+			path[depth] = target;
+			distances[depth] = distance;
+			cursors[depth] = 0;
+			depth++;
+			if(path[top + 1] == to){
+				trips.add(path, depth);
+			}
+		}
+		return trips;
+	}
+
+	/**
+	 * Returns number of distinct paths between source and destination, counted in parallel without building them.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public static long countDistinctPaths(IndexedGraph<String> graph, String source, String destination){
+		return countDistinctPaths(graph, source, destination, null);
+	}
+
+	/**
+	 * Same as countDistinctPaths, never entering towns which can not reach destination when index belongs
+	 * to graph.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param index reachability index, may be null
+	 * @return
+	 */
+	public static long countDistinctPaths(IndexedGraph<String> graph, String source, String destination, ReachabilityIndex index){
+		int from = graph.indexOf(source);
+		int to = graph.indexOf(destination);
+		if(from < 0 || to < 0 || isUnreachable(graph, from, to, index)){
+			return 0;
+		}
+		return ParallelPathEnumerator.countPaths(graph, from, to, ForkJoinPool.commonPool(), verticesReaching(graph, to, index));
+	}
+
+	/**
+	 * Helper method to build route text like A-B-C from vertex indices.
+	 * 
+	 * @param graph
+	 * @param path
+	 * @param length
+	 * @return
+	 */
+	public static String toRoute(IndexedGraph<String> graph, int[] path, int length){
+		StringBuilder sb = new StringBuilder();
+		for(int i=0;i<length;i++){
+			if(i > 0) sb.append(SEPARATOR);
+			sb.append(graph.getVertex(path[i]));
+		}
+		return sb.toString();
+	}
+
 	/**
 	 * The depth first search implementation for directed graph.
 	 * 
@@ -126,6 +524,41 @@ public class GraphService {
 		return uniquePaths;
 	}
 
+	/**
+	 * Same search as depthFirst on vertex indices: source is not marked visited, so a path may pass it
+	 * once more, and destination is added at most once per level, before deeper paths. Towns which can
+	 * not reach destination are not searched, they add no path.
+	 * 
+	 * @param graph
+	 * @param path
+	 * @param length
+	 * @param visited
+	 * @param destination
+	 * @param reaching
+	 * @param uniquePaths
+	 */
+	private static void depthFirst(IndexedGraph<String> graph, int[] path, int length, boolean[] visited, int destination, boolean[] reaching, PathList uniquePaths){
+		int vertex = path[length - 1];
+		int degree = graph.getDegree(vertex);
+		for(int i=0;i<degree;i++){
+			int target = graph.getTarget(vertex, i);
+			if(visited[target]) continue;
+			if(target == destination){
+				path[length] = target;
+				uniquePaths.add(path, length + 1);
+				break;
+			}
+		}
+		for(int i=0;i<degree;i++){
+			int target = graph.getTarget(vertex, i);
+			if(visited[target] || target == destination || !reaching[target]) continue;
+			visited[target] = true;
+			path[length] = target;
+			depthFirst(graph, path, length + 1, visited, destination, reaching, uniquePaths);
+			visited[target] = false;
+		}
+	}
+
 	/**
 	 * Helper method for depth first search to build path 
 	 * 
@@ -161,7 +594,9 @@ public class GraphService {
 	 * @param destinationLoops
 	 * @param length
 	 * @return
+	 * @deprecated copies the whole route for every extension, use findRoutesWithMaxNStops
 	 */
+	@Deprecated
 	public static List<String> addAllPossiblePathsByLength(List<String> allPossiblePathsByLength, List<String> allPaths, List<String> destinationLoops, int length){
 		for(String path : allPaths){
 			int numOfstops = getNumberOfStopsOnPath(path);
@@ -184,7 +619,9 @@ public class GraphService {
 	 * @param destinationLoops
 	 * @param weight
 	 * @return
+	 * @deprecated copies the whole route for every extension, use findRoutesWithMaxWeight
 	 */
+	@Deprecated
 	public static List<String> addAllPossiblePathsByWeight(DirectedGraph<String> graph, List<String> allPossiblePathsByWeight, List<String> allPaths, List<String> destinationLoops, int weight){
 		for(String path : allPaths){
 			int distance = getDistance(path, graph);
@@ -203,7 +640,9 @@ public class GraphService {
 	 * @param path
 	 * @param destinationLoops
 	 * @return
+	 * @deprecated copies the whole route for every loop, use findRoutesWithMaxNStops or findRoutesWithMaxWeight
 	 */
+	@Deprecated
 	public static List<String> appendDestinationLoops(String path, List<String> destinationLoops){
 		List<String> appendedPaths = new ArrayList<>();
 		for(String destinationLoop : destinationLoops){
@@ -211,9 +650,10 @@ public class GraphService {
 		}
 		return appendedPaths;
 	}
-
+	
 	/**
-	 * This method will return all paths/routes lesser than or equal to given length.
+	 * This method will return trips between source and destination having maximum stops passed in argument stops.
+	 * Counts which do not fit in a long are TripCounter.MAX_COUNT.
 	 * 
 	 * @param graph
 	 * @param source
@@ -221,35 +661,42 @@ public class GraphService {
 	 * @param stops
 	 * @return
 	 */
-	private static List<String> getAllPathsByLength(DirectedGraph<String> graph, String source, String destination,
-			int stops) {
-		List<String> allPossiblePathsByLength = new ArrayList<>();
-		List<String> distinctPaths = findDistinctPaths(graph, source, destination);
-		List<String> destinationLoops = findDistinctPaths(graph, destination, destination);
-		allPossiblePathsByLength = addAllPossiblePathsByLength(allPossiblePathsByLength, distinctPaths, destinationLoops, stops);
-		return allPossiblePathsByLength;
+	public long findTripsWithMaxNStops(DirectedGraph<String> graph, String source, String destination, int stops){
+		QueryProbe probe = startProbe(QueryMetrics.QueryType.TRIPS_MAX_STOPS, source, destination);
+		try{
+			if(!graph.contains(source) || !graph.contains(destination) || isUnreachable(graph, source, destination)) return 0;
+			CompactGraph<String> compact = graph.snapshot();
+			int to = compact.indexOf(destination);
+			return TripCounter.countTripsWithMaxNStops(compact, compact.indexOf(source), to, stops, verticesReaching(graph, to));
+		}finally{
+			stopProbe(probe);
+		}
 	}
-	
+
 	/**
-	 * This method will return all paths/routes having distance lesser than or equal to given weight.
+	 * Same as findTripsWithMaxNStops for an indexed graph snapshot.
 	 * 
 	 * @param graph
 	 * @param source
 	 * @param destination
-	 * @param weight
+	 * @param stops
 	 * @return
 	 */
-	private static List<String> getAllPathsByWeight(DirectedGraph<String> graph, String source, String destination,
-			int weight) {
-		List<String> allPossiblePathsByWeight = new ArrayList<>();
-		List<String> distinctPaths = findDistinctPaths(graph, source, destination);
-		List<String> destinationLoops = findDistinctPaths(graph, destination, destination);
-		allPossiblePathsByWeight = addAllPossiblePathsByWeight(graph, allPossiblePathsByWeight, distinctPaths, destinationLoops, weight);
-		return allPossiblePathsByWeight;
-	}	
+	public long findTripsWithMaxNStops(IndexedGraph<String> graph, String source, String destination, int stops){
+		QueryProbe probe = startProbe(QueryMetrics.QueryType.TRIPS_MAX_STOPS, source, destination);
+		try{
+			int from = graph.indexOf(source);
+			int to = graph.indexOf(destination);
+			if(from < 0 || to < 0 || isUnreachable(graph, from, to)) return 0;
+			return TripCounter.countTripsWithMaxNStops(graph, from, to, stops, verticesReaching(graph, to, reachabilityIndex));
+		}finally{
+			stopProbe(probe);
+		}
+	}
 	
 	/**
-	 * This method will return trips between source and destination having maximum stops passed in argument stops.
+	 * This method will return trips between source and destination having exact stops passed in argument stops.
+	 * Counts which do not fit in a long are TripCounter.MAX_COUNT.
 	 * 
 	 * @param graph
 	 * @param source
@@ -257,20 +704,20 @@ public class GraphService {
 	 * @param stops
 	 * @return
 	 */
-	public int findTripsWithMaxNStops(DirectedGraph<String> graph, String source, String destination, int stops){
-		List<String> allPaths = getAllPathsByLength(graph, source, destination, stops);
-		int tripsWithMaxNStops = 0;
-		for(String path : allPaths){
-			int numOfstops = getNumberOfStopsOnPath(path);
-				if( numOfstops <= stops){
-					tripsWithMaxNStops++;
-				}
+	public long findTripsWithExactlyNStops(DirectedGraph<String> graph, String source, String destination, int stops){
+		QueryProbe probe = startProbe(QueryMetrics.QueryType.TRIPS_EXACT_STOPS, source, destination);
+		try{
+			if(!graph.contains(source) || !graph.contains(destination) || isUnreachable(graph, source, destination)) return 0;
+			CompactGraph<String> compact = graph.snapshot();
+			int to = compact.indexOf(destination);
+			return TripCounter.countTripsWithExactlyNStops(compact, compact.indexOf(source), to, stops, verticesReaching(graph, to));
+		}finally{
+			stopProbe(probe);
 		}
-		return tripsWithMaxNStops;
 	}
-	
+
 	/**
-	 * This method will return trips between source and destination having exact stops passed in argument stops.
+	 * Same as findTripsWithExactlyNStops for an indexed graph snapshot.
 	 * 
 	 * @param graph
 	 * @param source
@@ -278,36 +725,81 @@ public class GraphService {
 	 * @param stops
 	 * @return
 	 */
-	public int findTripsWithExactlyNStops(DirectedGraph<String> graph, String source, String destination, int stops){
-		List<String> allPaths = getAllPathsByLength(graph, source, destination, stops);
-		int tripsWithExactlyNStops = 0;
-		for(String path : allPaths){
-			int numOfstops = getNumberOfStopsOnPath(path);
-				if( numOfstops == stops){
-					tripsWithExactlyNStops++;
-				}
+	public long findTripsWithExactlyNStops(IndexedGraph<String> graph, String source, String destination, int stops){
+		QueryProbe probe = startProbe(QueryMetrics.QueryType.TRIPS_EXACT_STOPS, source, destination);
+		try{
+			int from = graph.indexOf(source);
+			int to = graph.indexOf(destination);
+			if(from < 0 || to < 0 || isUnreachable(graph, from, to)) return 0;
+			return TripCounter.countTripsWithExactlyNStops(graph, from, to, stops, verticesReaching(graph, to, reachabilityIndex));
+		}finally{
+			stopProbe(probe);
 		}
-		return tripsWithExactlyNStops;
 	}
 	
 	/**
-	 * This method will return length of shortest route between source and destination.
-	 * 
+	 * This method will return length of shortest route between source and destination,
+	 * Integer.MAX_VALUE if no such route exists.
+	 *
 	 * @param graph
 	 * @param source
 	 * @param destination
 	 * @return
 	 */
 	public int getLengthOfShortestRoute(DirectedGraph<String> graph, String source, String destination){
-		int shortestRouteDistance = Integer.MAX_VALUE;
-		List<String> distinctPaths = findDistinctPaths(graph, source, destination);
-		for(String path: distinctPaths){
-			int distance = getDistance(path, graph);
-			if(distance < shortestRouteDistance){
-				shortestRouteDistance = distance;
+		QueryProbe probe = startProbe(QueryMetrics.QueryType.SHORTEST_DISTANCE, source, destination);
+		try{
+			if(isUnreachable(graph, source, destination)) return Dijkstra.UNREACHABLE;
+			DistanceIndex index = distanceIndex;
+			if(index != null && index.matches(graph)){
+				return index.getDistance(source, destination);
+			}
+			DynamicShortestPaths<String> paths = shortestPaths;
+			if(paths != null && paths.getGraph() == graph && paths.getSource().equals(source)){
+				return paths.getDistance(destination);
+			}
+			ContractionHierarchy hierarchy = contractionHierarchy;
+			if(hierarchy != null && hierarchy.matches(graph)){
+				return hierarchy.shortestDistance(source, destination);
+			}
+			return Dijkstra.shortestDistance(graph, source, destination);
+		}finally{
+			stopProbe(probe);
+		}
+	}
+
+	/**
+	 * Same as getLengthOfShortestRoute for an indexed graph snapshot.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public int getLengthOfShortestRoute(IndexedGraph<String> graph, String source, String destination){
+		QueryProbe probe = startProbe(QueryMetrics.QueryType.SHORTEST_DISTANCE, source, destination);
+		try{
+			if(isUnreachable(graph, source, destination)) return Dijkstra.UNREACHABLE;
+			DistanceIndex index = distanceIndex;
+			if(index != null && index.matches(graph)){
+				return index.getDistance(source, destination);
+			}
+			ContractionHierarchy hierarchy = contractionHierarchy;
+			if(hierarchy != null && hierarchy.matches(graph)){
+				int from = graph.indexOf(source);
+				int to = graph.indexOf(destination);
+				return from < 0 || to < 0 ? Dijkstra.UNREACHABLE : hierarchy.shortestDistance(from, to);
+			}
+			LandmarkIndex landmarks = landmarkIndex;
+			if(landmarks != null && landmarks.matches(graph)){
+				int from = graph.indexOf(source);
+				int to = graph.indexOf(destination);
+				return from < 0 || to < 0 ? Dijkstra.UNREACHABLE : landmarks.shortestDistance(graph, from, to);
 			}
+			return Dijkstra.shortestDistance(graph, source, destination);
+		}finally{
+			stopProbe(probe);
 		}
-		return shortestRouteDistance;
 	}
 	
 	/**
@@ -319,12 +811,92 @@ public class GraphService {
 	 * @return
 	 */
 	public String getShortestRoute(DirectedGraph<String> graph, String source, String destination){
-		int shortestDistance = getLengthOfShortestRoute(graph, source, destination);
-		return shortestDistance == Integer.MAX_VALUE ? NO_SUCH_ROUTE:String.valueOf(shortestDistance);
+		QueryProbe probe = startProbe(QueryMetrics.QueryType.SHORTEST_ROUTE, source, destination);
+		try{
+			long version = graph.getVersion();
+			String cached = getCached(graph, version, RouteCache.QueryType.SHORTEST_ROUTE, source, destination);
+			if(cached != null) return cached;
+			int shortestDistance = getLengthOfShortestRoute(graph, source, destination);
+			return putCached(graph, version, RouteCache.QueryType.SHORTEST_ROUTE, source, destination,
+					shortestDistance == Integer.MAX_VALUE ? NO_SUCH_ROUTE:String.valueOf(shortestDistance));
+		}finally{
+			stopProbe(probe);
+		}
+	}
+
+	/**
+	 * Same as getShortestRoute for an indexed graph snapshot.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public String getShortestRoute(IndexedGraph<String> graph, String source, String destination){
+		QueryProbe probe = startProbe(QueryMetrics.QueryType.SHORTEST_ROUTE, source, destination);
+		try{
+			String cached = getCached(graph, 0, RouteCache.QueryType.SHORTEST_ROUTE, source, destination);
+			if(cached != null) return cached;
+			int shortestDistance = getLengthOfShortestRoute(graph, source, destination);
+			return putCached(graph, 0, RouteCache.QueryType.SHORTEST_ROUTE, source, destination,
+					shortestDistance == Integer.MAX_VALUE ? NO_SUCH_ROUTE:String.valueOf(shortestDistance));
+		}finally{
+			stopProbe(probe);
+		}
 	}
 	
+	/**
+	 * Returns up to k shortest routes between source and destination with their distances, shortest first.
+	 * A route visits every town at most once, except source which is also the destination of a round trip.
+	 * Vertices of the routes are indices of the graph, see Route.toString(IndexedGraph).
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param k
+	 * @return
+	 */
+	public List<Route> findShortestRoutes(IndexedGraph<String> graph, String source, String destination, int k){
+		QueryProbe probe = startProbe(QueryMetrics.QueryType.SHORTEST_ROUTES, source, destination);
+		try{
+			int from = graph.indexOf(source);
+			int to = graph.indexOf(destination);
+			if(from < 0 || to < 0 || isUnreachable(graph, from, to)){
+				return new ArrayList<Route>();
+			}
+			return KShortestPaths.find(graph, from, to, k);
+		}finally{
+			stopProbe(probe);
+		}
+	}
+
+	/**
+	 * Returns the routes between source and destination trading distance against number of stops, fewest
+	 * stops first: each is shorter than every route with fewer stops, the last is a shortest route.
+	 * Vertices of the routes are indices of the graph, see Route.toString(IndexedGraph).
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public List<Route> findParetoRoutes(IndexedGraph<String> graph, String source, String destination){
+		QueryProbe probe = startProbe(QueryMetrics.QueryType.PARETO_ROUTES, source, destination);
+		try{
+			int from = graph.indexOf(source);
+			int to = graph.indexOf(destination);
+			if(from < 0 || to < 0 || isUnreachable(graph, from, to)){
+				return new ArrayList<Route>();
+			}
+			return ParetoRoutes.find(graph, from, to);
+		}finally{
+			stopProbe(probe);
+		}
+	}
+
 	/**
 	 * This method will return number of routes having weight/distance less than maximum weight specified in weight argument.
+	 * Counts which do not fit in a long are TripCounter.MAX_COUNT.
 	 * 
 	 * @param graph
 	 * @param source
@@ -332,15 +904,256 @@ public class GraphService {
 	 * @param weight
 	 * @return
 	 */
-	public int findTripsWithMaxWeight(DirectedGraph<String> graph, String source, String destination, int weight){
-		List<String> allPaths = getAllPathsByWeight(graph, source, destination, weight);
-		int tripsWithMaxWeight = 0;
-		for(String path : allPaths){
-			int routeDistance = getDistance(path, graph);
-				if( routeDistance < weight){
-					tripsWithMaxWeight++;
+	public long findTripsWithMaxWeight(DirectedGraph<String> graph, String source, String destination, int weight){
+		QueryProbe probe = startProbe(QueryMetrics.QueryType.TRIPS_MAX_WEIGHT, source, destination);
+		try{
+			if(!graph.contains(source) || !graph.contains(destination) || isUnreachable(graph, source, destination)) return 0;
+			CompactGraph<String> compact = graph.snapshot();
+			int to = compact.indexOf(destination);
+			return TripCounter.countTripsWithMaxWeight(compact, compact.indexOf(source), to, weight, verticesReaching(graph, to));
+		}finally{
+			stopProbe(probe);
+		}
+	}
+
+	/**
+	 * Same as findTripsWithMaxWeight for an indexed graph snapshot.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param weight
+	 * @return
+	 */
+	public long findTripsWithMaxWeight(IndexedGraph<String> graph, String source, String destination, int weight){
+		QueryProbe probe = startProbe(QueryMetrics.QueryType.TRIPS_MAX_WEIGHT, source, destination);
+		try{
+			int from = graph.indexOf(source);
+			int to = graph.indexOf(destination);
+			if(from < 0 || to < 0 || isUnreachable(graph, from, to)) return 0;
+			return TripCounter.countTripsWithMaxWeight(graph, from, to, weight, verticesReaching(graph, to, reachabilityIndex));
+		}finally{
+			stopProbe(probe);
+		}
+	}
+
+	/**
+	 * Helper method which is true if the reachability index belongs to graph and has no route from source
+	 * to destination.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	private boolean isUnreachable(DirectedGraph<String> graph, String source, String destination){
+		ReachabilityIndex index = reachabilityIndex;
+		return index != null && index.matches(graph) && !index.canReach(source, destination);
+	}
+
+	/**
+	 * Helper method which returns for every town of the graph, by its index in a CompactGraph of it,
+	 * whether it reaches destination, from the reachability index if built from the unchanged graph, else null.
+	 * 
+	 * @param graph
+	 * @param to
+	 * @return
+	 */
+	private boolean[] verticesReaching(DirectedGraph<String> graph, int to){
+		ReachabilityIndex index = reachabilityIndex;
+		return index != null && index.matches(graph) ? index.verticesReaching(to) : null;
+	}
+
+	/**
+	 * Same as isUnreachable for an indexed graph snapshot, by name.
+	 * 
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	private boolean isUnreachable(IndexedGraph<String> graph, String source, String destination){
+		if(reachabilityIndex == null) return false;
+		int from = graph.indexOf(source);
+		int to = graph.indexOf(destination);
+		return from >= 0 && to >= 0 && isUnreachable(graph, from, to);
+	}
+
+	/**
+	 * Same as isUnreachable for an indexed graph snapshot, by vertex index.
+	 * 
+	 * @param graph
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	private boolean isUnreachable(IndexedGraph<String> graph, int from, int to){
+		return isUnreachable(graph, from, to, reachabilityIndex);
+	}
+
+	/**
+	 * Same as isUnreachable for a given reachability index, which may be null.
+	 * 
+	 * @param graph
+	 * @param from
+	 * @param to
+	 * @param index
+	 * @return
+	 */
+	private static boolean isUnreachable(IndexedGraph<String> graph, int from, int to, ReachabilityIndex index){
+		return index != null && index.matches(graph) && !index.canReach(from, to);
+	}
+
+	/**
+	 * Helper method which returns for every town whether it reaches destination, from the reachability
+	 * index if it belongs to graph, else null.
+	 * 
+	 * @param graph
+	 * @param to
+	 * @param index
+	 * @return
+	 */
+	private static boolean[] verticesReaching(IndexedGraph<String> graph, int to, ReachabilityIndex index){
+		return index != null && index.matches(graph) ? index.verticesReaching(to) : null;
+	}
+
+	/**
+	 * Helper method to look up a cached result, indexed graph snapshots are immutable and use version 0.
+	 * 
+	 * @param graph
+	 * @param version
+	 * @param type
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	private String getCached(Object graph, long version, RouteCache.QueryType type, String source, String destination){
+		RouteCache cache = routeCache;
+		return cache == null ? null : cache.get(graph, version, type, source, destination);
+	}
+
+	/**
+	 * Helper method to cache a result, returns the result.
+	 * 
+	 * @param graph
+	 * @param version
+	 * @param type
+	 * @param source
+	 * @param destination
+	 * @param result
+	 * @return
+	 */
+	private String putCached(Object graph, long version, RouteCache.QueryType type, String source, String destination, String result){
+		RouteCache cache = routeCache;
+		if(cache != null) cache.put(graph, version, type, source, destination, result);
+		return result;
+	}
+
+	/**
+	 * Helper method to start measuring a query, returns null if query metrics are off.
+	 * 
+	 * @param type
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	private QueryProbe startProbe(QueryMetrics.QueryType type, String source, String destination){
+		QueryMetrics metrics = queryMetrics;
+		return metrics == null ? null : metrics.start(type, source, destination);
+	}
+
+	/**
+	 * Helper method to record a measured query.
+	 * 
+	 * @param probe
+	 */
+	private static void stopProbe(QueryProbe probe){
+		if(probe != null) probe.stop();
+	}
+
+	/**
+	 * Returns route evaluator for given graph, reusing the one built for the same graph while it is one
+	 * of the last few graphs queried, so switching between graphs does not rebuild it.
+	 * 
+	 * @param graph
+	 * @return
+	 */
+	public RouteEvaluator getRouteEvaluator(IndexedGraph<String> graph){
+		RouteEvaluator[] evaluators = routeEvaluators;
+		for(RouteEvaluator evaluator : evaluators){
+			if(evaluator.getGraph() == graph){
+				return evaluator;
+			}
+		}
+		synchronized(this){
+			evaluators = routeEvaluators;
+			for(RouteEvaluator evaluator : evaluators){
+				if(evaluator.getGraph() == graph){
+					return evaluator;
 				}
+			}
+			RouteEvaluator evaluator = new RouteEvaluator(graph);
+			RouteEvaluator[] updated = new RouteEvaluator[Math.min(evaluators.length + 1, ROUTE_EVALUATORS)];
+			updated[0] = evaluator;
+			System.arraycopy(evaluators, 0, updated, 1, updated.length - 1);
+			routeEvaluators = updated;
+			return evaluator;
 		}
-		return tripsWithMaxWeight;
+	}
+
+	public RouteCache getRouteCache() {
+		return routeCache;
+	}
+
+	public void setRouteCache(RouteCache routeCache) {
+		this.routeCache = routeCache;
+	}
+
+	public DistanceIndex getDistanceIndex() {
+		return distanceIndex;
+	}
+
+	public void setDistanceIndex(DistanceIndex distanceIndex) {
+		this.distanceIndex = distanceIndex;
+	}
+
+	public LandmarkIndex getLandmarkIndex() {
+		return landmarkIndex;
+	}
+
+	public void setLandmarkIndex(LandmarkIndex landmarkIndex) {
+		this.landmarkIndex = landmarkIndex;
+	}
+
+	public ContractionHierarchy getContractionHierarchy() {
+		return contractionHierarchy;
+	}
+
+	public void setContractionHierarchy(ContractionHierarchy contractionHierarchy) {
+		this.contractionHierarchy = contractionHierarchy;
+	}
+
+	public ReachabilityIndex getReachabilityIndex() {
+		return reachabilityIndex;
+	}
+
+	public void setReachabilityIndex(ReachabilityIndex reachabilityIndex) {
+		this.reachabilityIndex = reachabilityIndex;
+	}
+
+	public DynamicShortestPaths<String> getShortestPaths() {
+		return shortestPaths;
+	}
+
+	public void setShortestPaths(DynamicShortestPaths<String> shortestPaths) {
+		this.shortestPaths = shortestPaths;
+	}
+
+	public QueryMetrics getQueryMetrics() {
+		return queryMetrics;
+	}
+
+	public void setQueryMetrics(QueryMetrics queryMetrics) {
+		this.queryMetrics = queryMetrics;
 	}
 }
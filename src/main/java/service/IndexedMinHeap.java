@@ -0,0 +1,114 @@
+package service;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary min heap over int keys 0..capacity-1 with long priorities.
+ * Supports decrease key in O(log n), so each vertex is held at most once.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+final class IndexedMinHeap {
+
+	private final int[] heap;
+	private final int[] positions;
+	private final long[] priorities;
+	private int size;
+
+	IndexedMinHeap(int capacity) {
+		this.heap = new int[capacity];
+		this.positions = new int[capacity];
+		this.priorities = new long[capacity];
+		Arrays.fill(positions, -1);
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	boolean contains(int key) {
+		return positions[key] >= 0;
+	}
+
+	long peekPriority() {
+		return priorities[heap[0]];
+	}
+
+	/**
+	 * Inserts key or lowers its priority, a higher priority for a queued key is ignored.
+	 */
+	void offer(int key, long priority) {
+		int position = positions[key];
+		if (position < 0) {
+			position = size++;
+			heap[position] = key;
+			positions[key] = position;
+		} else if (priority >= priorities[key]) {
+			return;
+		}
+		priorities[key] = priority;
+		siftUp(position);
+	}
+
+	/**
+	 * Removes and returns key with lowest priority.
+	 */
+	int poll() {
+		int key = heap[0];
+		positions[key] = -1;
+		size--;
+		if (size > 0) {
+			heap[0] = heap[size];
+			positions[heap[0]] = 0;
+			siftDown(0);
+		}
+		return key;
+	}
+
+	/**
+	 * Empties the heap so it can be reused for another search.
+	 */
+	void clear() {
+		for (int i = 0; i < size; i++) {
+			positions[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+	private void siftUp(int position) {
+		int key = heap[position];
+		long priority = priorities[key];
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			if (priorities[heap[parent]] <= priority) {
+				break;
+			}
+			heap[position] = heap[parent];
+			positions[heap[position]] = position;
+			position = parent;
+		}
+		heap[position] = key;
+		positions[key] = position;
+	}
+
+	private void siftDown(int position) {
+		int key = heap[position];
+		long priority = priorities[key];
+		int half = size >>> 1;
+		while (position < half) {
+			int child = 2 * position + 1;
+			if (child + 1 < size && priorities[heap[child + 1]] < priorities[heap[child]]) {
+				child++;
+			}
+			if (priority <= priorities[heap[child]]) {
+				break;
+			}
+			heap[position] = heap[child];
+			positions[heap[position]] = position;
+			position = child;
+		}
+		heap[position] = key;
+		positions[key] = position;
+	}
+}
@@ -0,0 +1,244 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import domain.CompactGraph;
+import domain.IndexedGraph;
+
+/**
+ * The k shortest loopless routes between two vertices, by Yen's algorithm. Every next route is the best
+ * deviation from the previous one: for each vertex of it (spur), a Dijkstra search with the root path
+ * before the spur and the already used continuations blocked.
+ * <p>
+ * Spur searches are A* searches guided by the exact distances to destination of the unrestricted graph,
+ * found once by a Dijkstra search backwards from destination. Blocking only makes routes longer, so these
+ * stay admissible, and vertices which can not reach destination are never entered. Memory stays bounded
+ * by k: at most k - found candidates are kept, as no worse candidate can ever be returned, and a spur
+ * search stops as soon as it can no longer beat the worst kept candidate.
+ * A route visits every vertex at most once, except source which is also the destination of a round trip.
+ * Routes are vertex sequences, between consecutive vertices the shortest edge is taken.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class KShortestPaths {
+
+	private final IndexedGraph<?> graph;
+	private final int destination;
+
+	/* Distance of every vertex to destination, Long.MAX_VALUE if it can not reach it */
+	private final long[] remaining;
+
+	/* Search workspace, reused by all spur searches; distances[v] is valid only if stamps[v] == search */
+	private final long[] distances;
+	private final int[] stamps;
+	private int search;
+	private final int[] predecessors;
+	private long expanded;
+	private long relaxed;
+	private long materialized;
+	private final IndexedMinHeap heap;
+	private final boolean[] blockedVertices;
+	private final boolean[] blockedTargets;
+
+	private KShortestPaths(IndexedGraph<?> graph, int destination) {
+		int vertexCount = graph.getVertexCount();
+		this.graph = graph;
+		this.destination = destination;
+		this.remaining = new long[vertexCount];
+		this.distances = new long[vertexCount];
+		this.stamps = new int[vertexCount];
+		this.predecessors = new int[vertexCount];
+		this.heap = new IndexedMinHeap(vertexCount);
+		this.blockedVertices = new boolean[vertexCount];
+		this.blockedTargets = new boolean[vertexCount];
+	}
+
+	/**
+	 * Returns up to k shortest routes from source to destination, shortest first.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param k
+	 * @return
+	 */
+	public static List<Route> find(IndexedGraph<?> graph, int source, int destination, int k) {
+		int vertexCount = graph.getVertexCount();
+		if (source < 0 || source >= vertexCount || destination < 0 || destination >= vertexCount) {
+			throw new IllegalArgumentException("No such vertex :: " + source + ", " + destination);
+		}
+		if (k < 1) {
+			return Collections.emptyList();
+		}
+		return new KShortestPaths(graph, destination).find(source, k);
+	}
+
+	private List<Route> find(int source, int k) {
+		List<Route> routes = find(source, k, new ArrayList<Route>(k));
+		QueryProbe.count(expanded, relaxed, materialized);
+		return routes;
+	}
+
+	private List<Route> find(int source, int k, List<Route> routes) {
+		searchBackwards();
+		int[] first = search(source, Long.MAX_VALUE);
+		if (first == null) {
+			return routes;
+		}
+		routes.add(new Route(first, (int) distances[destination]));
+		TreeSet<Route> candidates = new TreeSet<Route>();
+		while (routes.size() < k) {
+			Route previous = routes.get(routes.size() - 1);
+			int maxCandidates = k - routes.size();
+			long rootDistance = 0;
+			for (int spur = 0; spur < previous.getStops(); spur++) {
+				long bound = Long.MAX_VALUE;
+				if (candidates.size() == maxCandidates) {
+					bound = candidates.last().getDistance() - rootDistance;
+					if (bound < 0) {
+						break; // every later spur has a longer root
+					}
+				}
+				Route candidate = spurRoute(routes, previous, spur, rootDistance, bound);
+				if (candidate != null && candidates.add(candidate) && candidates.size() > maxCandidates) {
+					candidates.pollLast();
+				}
+				rootDistance += weight(previous.getVertex(spur), previous.getVertex(spur + 1));
+			}
+			if (candidates.isEmpty()) {
+				break;
+			}
+			routes.add(candidates.pollFirst());
+		}
+		return routes;
+	}
+
+	/**
+	 * Returns best route which follows previous route up to its spur vertex and then deviates from all
+	 * found routes sharing that root, null if there is none within bound of the spur.
+	 */
+	private Route spurRoute(List<Route> routes, Route previous, int spur, long rootDistance, long bound) {
+		for (int i = 0; i < spur; i++) {
+			blockedVertices[previous.getVertex(i)] = true;
+		}
+		List<Integer> blocked = new ArrayList<Integer>();
+		for (Route route : routes) {
+			if (route.getStops() > spur && sharesRoot(route, previous, spur)) {
+				int target = route.getVertex(spur + 1);
+				blockedTargets[target] = true;
+				blocked.add(target);
+			}
+		}
+		int[] spurPath = search(previous.getVertex(spur), bound);
+		for (int i = 0; i < spur; i++) {
+			blockedVertices[previous.getVertex(i)] = false;
+		}
+		for (int target : blocked) {
+			blockedTargets[target] = false;
+		}
+		if (spurPath == null) {
+			return null;
+		}
+		int[] vertices = new int[spur + spurPath.length];
+		for (int i = 0; i < spur; i++) {
+			vertices[i] = previous.getVertex(i);
+		}
+		System.arraycopy(spurPath, 0, vertices, spur, spurPath.length);
+		return new Route(vertices, (int) (rootDistance + distances[destination]));
+	}
+
+	private static boolean sharesRoot(Route route, Route previous, int spur) {
+		for (int i = 0; i <= spur; i++) {
+			if (route.getVertex(i) != previous.getVertex(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Computes distance to destination of every vertex, by Dijkstra's algorithm on the reversed edges.
+	 */
+	private void searchBackwards() {
+		int[] distances = Dijkstra.shortestDistances(CompactGraph.reverse(graph), destination);
+		for (int v = 0; v < distances.length; v++) {
+			remaining[v] = distances[v] == Dijkstra.UNREACHABLE ? Long.MAX_VALUE : distances[v];
+		}
+		remaining[destination] = 0;
+	}
+
+	/**
+	 * Shortest path from start to destination avoiding blocked vertices, and blocked targets on the first
+	 * edge. Start is not entered again unless it is the destination. Returns null if destination can not
+	 * be reached within bound.
+	 */
+	private int[] search(int start, long bound) {
+		search++;
+		heap.clear();
+		relaxEdges(start, start, 0, bound);
+		while (!heap.isEmpty()) {
+			int vertex = heap.poll();
+			if (vertex == destination) {
+				return path(start);
+			}
+			expanded++;
+			relaxEdges(start, vertex, distances[vertex], bound);
+		}
+		return null;
+	}
+
+	private void relaxEdges(int start, int vertex, long distance, long bound) {
+		int degree = graph.getDegree(vertex);
+		relaxed += degree;
+		for (int i = 0; i < degree; i++) {
+			int target = graph.getTarget(vertex, i);
+			if (target != destination && (target == start || blockedVertices[target])) {
+				continue;
+			}
+			if (vertex == start && blockedTargets[target]) {
+				continue;
+			}
+			if (remaining[target] == Long.MAX_VALUE) {
+				continue;
+			}
+			long candidate = distance + graph.getWeight(vertex, i);
+			long estimate = candidate + remaining[target];
+			if (estimate <= bound && (stamps[target] != search || candidate < distances[target])) {
+				stamps[target] = search;
+				distances[target] = candidate;
+				predecessors[target] = vertex;
+				heap.offer(target, estimate);
+			}
+		}
+	}
+
+	private int[] path(int start) {
+		materialized++;
+		int length = 2;
+		for (int v = predecessors[destination]; v != start; v = predecessors[v]) {
+			length++;
+		}
+		int[] path = new int[length];
+		path[0] = start;
+		path[length - 1] = destination;
+		for (int i = length - 2, v = predecessors[destination]; v != start; v = predecessors[v]) {
+			path[i--] = v;
+		}
+		return path;
+	}
+
+	private int weight(int from, int to) {
+		int weight = Integer.MAX_VALUE;
+		int degree = graph.getDegree(from);
+		for (int i = 0; i < degree; i++) {
+			if (graph.getTarget(from, i) == to) {
+				weight = Math.min(weight, graph.getWeight(from, i));
+			}
+		}
+		return weight;
+	}
+}
@@ -0,0 +1,389 @@
+package service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import domain.CompactGraph;
+import domain.IndexedGraph;
+
+/**
+ * Point to point shortest routes by A* with landmarks and the triangle inequality (ALT). Preprocessing
+ * picks a few landmarks L and stores d(L, v) and d(v, L) for every vertex v. For any L,
+ * d(v, t) >= d(L, t) - d(L, v) and d(v, t) >= d(v, L) - d(t, L), which gives A* a lower bound to
+ * steer the search towards destination, so far fewer vertices are settled than by Dijkstra.
+ * The bounds are exact lower bounds, so distances stay identical to Dijkstra's. Landmarks also prune
+ * vertices which provably can not reach destination.
+ * <p>
+ * Landmarks are picked one by one, each the vertex farthest from the ones already picked. The distance
+ * tables of all landmarks are then computed in parallel. An index belongs to the graph it was built from,
+ * with the same vertex indices, see {@link #matches(IndexedGraph)}. It can be saved to a binary file and
+ * memory mapped later:
+ * <pre>
+ * int magic, int format version, long graph fingerprint, int n, int landmark count k,
+ * n times (int length, UTF-8 bytes of town name), padding to 4 bytes,
+ * k int landmarks, n * k int distances from landmarks, n * k int distances to landmarks, vertex by vertex
+ * </pre>
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class LandmarkIndex {
+
+	private static final int MAGIC = 0x52524c4d; // RRLM
+	private static final int FORMAT_VERSION = 1;
+
+	/* Landmarks used when none is given, a handful is enough for most networks */
+	public static final int DEFAULT_LANDMARKS = 8;
+
+	private final String[] towns;
+	private final int[] landmarks;
+	/* d(L, v) and d(v, L) at v * k + L, Dijkstra.UNREACHABLE if there is no route */
+	private final IntBuffer fromLandmarks;
+	private final IntBuffer toLandmarks;
+	private final long fingerprint;
+
+	/* Graph last found to match, so matches is O(1) for repeated queries on the same graph */
+	private volatile IndexedGraph<String> matched;
+
+	/* Search workspace per thread, sized to the graph */
+	private final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>();
+
+	private LandmarkIndex(String[] towns, int[] landmarks, IntBuffer fromLandmarks, IntBuffer toLandmarks,
+			long fingerprint) {
+		this.towns = towns;
+		this.landmarks = landmarks;
+		this.fromLandmarks = fromLandmarks;
+		this.toLandmarks = toLandmarks;
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * Builds index of given graph with DEFAULT_LANDMARKS landmarks.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public static LandmarkIndex build(IndexedGraph<String> graph) {
+		return build(graph, DEFAULT_LANDMARKS);
+	}
+
+	/**
+	 * Builds index of given graph with up to count landmarks, distance tables on the common fork join pool.
+	 *
+	 * @param graph
+	 * @param count
+	 * @return
+	 */
+	public static LandmarkIndex build(final IndexedGraph<String> graph, int count) {
+		final int n = graph.getVertexCount();
+		final int k = Math.min(count, n);
+		if ((long) n * k > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many landmarks :: " + count);
+		}
+		final int[] landmarks = selectLandmarks(graph, k);
+		final CompactGraph<String> reverse = CompactGraph.reverse(graph);
+		final int[] from = new int[n * k];
+		final int[] to = new int[n * k];
+		IntStream.range(0, 2 * k).parallel().forEach(task -> {
+			int landmark = task % k;
+			boolean forward = task < k;
+			int[] distances = Dijkstra.shortestDistances(forward ? graph : reverse, landmarks[landmark]);
+			distances[landmarks[landmark]] = 0;
+			int[] table = forward ? from : to;
+			for (int v = 0; v < n; v++) {
+				table[v * k + landmark] = distances[v];
+			}
+		});
+		String[] towns = new String[n];
+		for (int i = 0; i < n; i++) {
+			towns[i] = graph.getVertex(i);
+		}
+		return new LandmarkIndex(towns, landmarks, IntBuffer.wrap(from), IntBuffer.wrap(to), graph.getFingerprint());
+	}
+
+	/**
+	 * Farthest point selection: the first landmark is the vertex farthest from vertex 0, every next one the
+	 * vertex farthest from its nearest landmark. A vertex no landmark reaches is the farthest of all.
+	 */
+	private static int[] selectLandmarks(IndexedGraph<String> graph, int k) {
+		int[] landmarks = new int[k];
+		if (k == 0) {
+			return landmarks;
+		}
+		int[] nearest = Dijkstra.shortestDistances(graph, 0);
+		landmarks[0] = farthest(nearest);
+		Arrays.fill(nearest, Dijkstra.UNREACHABLE);
+		for (int i = 1; i < k; i++) {
+			int[] distances = Dijkstra.shortestDistances(graph, landmarks[i - 1]);
+			distances[landmarks[i - 1]] = 0;
+			for (int v = 0; v < nearest.length; v++) {
+				nearest[v] = Math.min(nearest[v], distances[v]);
+			}
+			landmarks[i] = farthest(nearest);
+		}
+		return landmarks;
+	}
+
+	private static int farthest(int[] distances) {
+		int farthest = 0;
+		for (int v = 1; v < distances.length; v++) {
+			if (distances[v] > distances[farthest]) {
+				farthest = v;
+			}
+		}
+		return farthest;
+	}
+
+	/**
+	 * True if index was built from given graph: same fingerprint and same town at every index.
+	 * O(V) for a graph not seen before.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public boolean matches(IndexedGraph<String> graph) {
+		if (graph == matched) {
+			return true;
+		}
+		if (graph.getFingerprint() != fingerprint || graph.getVertexCount() != towns.length) {
+			return false;
+		}
+		for (int v = 0; v < towns.length; v++) {
+			if (!towns[v].equals(graph.getVertex(v))) {
+				return false;
+			}
+		}
+		matched = graph;
+		return true;
+	}
+
+	/**
+	 * Returns length of shortest route between source and destination or Dijkstra.UNREACHABLE, same as
+	 * Dijkstra.shortestDistance including round trips. Graph must be the one index was built from.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public int shortestDistance(IndexedGraph<?> graph, int source, int destination) {
+		Workspace workspace = workspaces.get();
+		if (workspace == null || workspace.stamps.length != graph.getVertexCount()) {
+			workspace = new Workspace(graph.getVertexCount());
+			workspaces.set(workspace);
+		}
+		return workspace.search(graph, source, destination);
+	}
+
+	public int getTownCount() {
+		return towns.length;
+	}
+
+	public int getLandmarkCount() {
+		return landmarks.length;
+	}
+
+	public int getLandmark(int index) {
+		return landmarks[index];
+	}
+
+	/**
+	 * Fingerprint of the graph this index was built from, see domain.GraphFingerprint.
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * Lower bound of the distance from vertex to destination, Long.MAX_VALUE if vertex can not reach it.
+	 */
+	long lowerBound(int vertex, int destination) {
+		int k = landmarks.length;
+		long bound = 0;
+		for (int i = 0; i < k; i++) {
+			int fromToVertex = fromLandmarks.get(vertex * k + i);
+			int fromToDestination = fromLandmarks.get(destination * k + i);
+			if (fromToVertex != Dijkstra.UNREACHABLE) {
+				if (fromToDestination == Dijkstra.UNREACHABLE) {
+					return Long.MAX_VALUE; // L reaches vertex but not destination
+				}
+				bound = Math.max(bound, (long) fromToDestination - fromToVertex);
+			}
+			int vertexToLandmark = toLandmarks.get(vertex * k + i);
+			int destinationToLandmark = toLandmarks.get(destination * k + i);
+			if (destinationToLandmark != Dijkstra.UNREACHABLE) {
+				if (vertexToLandmark == Dijkstra.UNREACHABLE) {
+					return Long.MAX_VALUE; // destination reaches L but vertex does not
+				}
+				bound = Math.max(bound, (long) vertexToLandmark - destinationToLandmark);
+			}
+		}
+		return bound;
+	}
+
+	/**
+	 * Writes index to file, replacing any existing file.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void save(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			int headerSize = 24;
+			byte[][] names = new byte[towns.length][];
+			for (int i = 0; i < towns.length; i++) {
+				names[i] = towns[i].getBytes(StandardCharsets.UTF_8);
+				headerSize += 4 + names[i].length;
+			}
+			headerSize = (headerSize + 3) & ~3;
+			ByteBuffer header = ByteBuffer.allocate(headerSize);
+			header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(fingerprint).putInt(towns.length)
+					.putInt(landmarks.length);
+			for (byte[] name : names) {
+				header.putInt(name.length).put(name);
+			}
+			header.position(headerSize).flip();
+			writeFully(channel, header);
+			ByteBuffer block = ByteBuffer.allocate(1 << 16);
+			block = write(channel, block, IntBuffer.wrap(landmarks));
+			block = write(channel, block, fromLandmarks);
+			block = write(channel, block, toLandmarks);
+			block.flip();
+			writeFully(channel, block);
+		}
+	}
+
+	/**
+	 * Memory maps an index written by {@link #save(Path)}, distances are read from the file on demand.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static LandmarkIndex load(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.remaining() < 24 || buffer.getInt() != MAGIC) {
+				throw new IOException("Not a landmark index :: " + file);
+			}
+			int version = buffer.getInt();
+			if (version != FORMAT_VERSION) {
+				throw new IOException("Unsupported landmark index version " + version + " :: " + file);
+			}
+			long fingerprint = buffer.getLong();
+			int n = buffer.getInt();
+			int k = buffer.getInt();
+			String[] towns = new String[n];
+			for (int i = 0; i < n; i++) {
+				byte[] name = new byte[buffer.getInt()];
+				buffer.get(name);
+				towns[i] = new String(name, StandardCharsets.UTF_8);
+			}
+			buffer.position((buffer.position() + 3) & ~3);
+			if (buffer.remaining() != 4L * k * (1 + 2L * n)) {
+				throw new IOException("Truncated landmark index :: " + file);
+			}
+			IntBuffer tables = buffer.slice().asIntBuffer();
+			int[] landmarks = new int[k];
+			tables.get(landmarks);
+			IntBuffer from = slice(tables, k, n * k);
+			IntBuffer to = slice(tables, k + n * k, n * k);
+			return new LandmarkIndex(towns, landmarks, from, to, fingerprint);
+		}
+	}
+
+	private static IntBuffer slice(IntBuffer buffer, int offset, int length) {
+		IntBuffer duplicate = buffer.duplicate();
+		duplicate.position(offset);
+		duplicate.limit(offset + length);
+		return duplicate.slice();
+	}
+
+	private static ByteBuffer write(FileChannel channel, ByteBuffer block, IntBuffer values) throws IOException {
+		int length = values.limit();
+		for (int i = 0; i < length; i++) {
+			if (!block.hasRemaining()) {
+				block.flip();
+				writeFully(channel, block);
+				block.clear();
+			}
+			block.putInt(values.get(i));
+		}
+		return block;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * A* search state of one thread. distances[v] is valid only if stamps[v] == search, so nothing is
+	 * cleared between queries and a query costs only what it explores.
+	 */
+	private final class Workspace {
+		private final long[] distances;
+		private final int[] stamps;
+		private final IndexedMinHeap heap;
+		private int search;
+
+		Workspace(int vertexCount) {
+			this.distances = new long[vertexCount];
+			this.stamps = new int[vertexCount];
+			this.heap = new IndexedMinHeap(vertexCount);
+		}
+
+		/**
+		 * Same search as Dijkstra's, with priority distance + lower bound. Source is not settled upfront,
+		 * so a route can come back to it as a round trip.
+		 */
+		int search(IndexedGraph<?> graph, int source, int destination) {
+			search++;
+			heap.clear();
+			long expanded = 1;
+			long relaxed = relaxEdges(graph, source, 0, destination);
+			while (!heap.isEmpty()) {
+				int vertex = heap.poll();
+				if (vertex == destination) {
+					QueryProbe.count(expanded, relaxed, 0);
+					long distance = distances[vertex];
+					return distance >= Dijkstra.UNREACHABLE ? Dijkstra.UNREACHABLE : (int) distance;
+				}
+				if (vertex != source) {
+					expanded++;
+					relaxed += relaxEdges(graph, vertex, distances[vertex], destination);
+				}
+			}
+			QueryProbe.count(expanded, relaxed, 0);
+			return Dijkstra.UNREACHABLE;
+		}
+
+		private int relaxEdges(IndexedGraph<?> graph, int vertex, long distance, int destination) {
+			int degree = graph.getDegree(vertex);
+			for (int i = 0; i < degree; i++) {
+				int target = graph.getTarget(vertex, i);
+				long candidate = distance + graph.getWeight(vertex, i);
+				if (stamps[target] == search && candidate >= distances[target]) {
+					continue;
+				}
+				long bound = target == destination ? 0 : lowerBound(target, destination);
+				if (bound == Long.MAX_VALUE) {
+					continue;
+				}
+				stamps[target] = search;
+				distances[target] = candidate;
+				heap.offer(target, candidate + bound);
+			}
+			return degree;
+		}
+	}
+}
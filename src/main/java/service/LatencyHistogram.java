@@ -0,0 +1,105 @@
+package service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log linear histogram of latencies in nanoseconds, in the style of HdrHistogram. Values below 256 have a
+ * bucket each, above that every power of two range is split in 128 buckets, so a recorded value is off by
+ * less than 1%. Recording is a few atomic increments with no allocation, safe for concurrent threads.
+ * Values above MAX_VALUE, about 36 minutes, are recorded as MAX_VALUE.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class LatencyHistogram {
+
+	public static final long MAX_VALUE = (1L << 41) - 1;
+
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(index(MAX_VALUE) + 1);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records one value, negative values are recorded as 0.
+	 *
+	 * @param value
+	 */
+	public void record(long value) {
+		long clamped = Math.min(Math.max(value, 0), MAX_VALUE);
+		counts.incrementAndGet(index(clamped));
+		count.incrementAndGet();
+		total.addAndGet(clamped);
+		long current;
+		while (clamped > (current = max.get()) && !max.compareAndSet(current, clamped)) {
+			// retry, another thread raised the maximum
+		}
+	}
+
+	/**
+	 * Number of recorded values.
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Largest recorded value, 0 if there is none.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Mean of the recorded values, 0 if there is none.
+	 */
+	public double getMean() {
+		long n = count.get();
+		return n == 0 ? 0 : (double) total.get() / n;
+	}
+
+	/**
+	 * Returns value below or at which given percentage of the recorded values are, 0 if there is none.
+	 * The value is the upper end of its bucket, but never above the largest recorded value.
+	 *
+	 * @param percentile between 0 and 100
+	 * @return
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100 :: " + percentile);
+		}
+		long n = count.get();
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+		long seen = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(highestValue(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * Bucket of value: values below 2 * SUB_BUCKETS map to themselves, larger values are shifted right
+	 * until they have SUB_BUCKET_BITS + 1 bits, each shift adding SUB_BUCKETS buckets.
+	 */
+	static int index(long value) {
+		int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS - 1);
+		return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+	}
+
+	/**
+	 * Largest value of bucket.
+	 */
+	static long highestValue(int index) {
+		int shift = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+		long lowest = (long) (index - (shift << SUB_BUCKET_BITS)) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
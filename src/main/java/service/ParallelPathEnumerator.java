@@ -0,0 +1,217 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import domain.IndexedGraph;
+
+/**
+ * Enumerates all distinct paths between two vertices on a fork/join pool. The search tree is split at
+ * its first levels, one task per branch, and every subtree below is searched by a {@link PathEnumerator}
+ * with its own path, visited bitset and result buffer, so workers share nothing but the graph.
+ * Collected paths are merged in the order of the sequential search; counting skips the merge and
+ * never materializes a path.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class ParallelPathEnumerator {
+
+	/* Levels of the search tree split into separate tasks */
+	public static final int DEFAULT_SPLIT_DEPTH = 3;
+
+	private ParallelPathEnumerator() {
+	}
+
+	/**
+	 * Returns all paths from source to destination, same paths in the same order as {@link PathEnumerator}.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param pool
+	 * @return
+	 */
+	public static List<int[]> findPaths(IndexedGraph<?> graph, int source, int destination, ForkJoinPool pool) {
+		return findPaths(graph, source, destination, pool, null);
+	}
+
+	/**
+	 * Same as {@link #findPaths(IndexedGraph, int, int, ForkJoinPool)} entering only the vertices marked in
+	 * reaching, null to search all vertices.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param pool
+	 * @param reaching
+	 * @return
+	 */
+	public static List<int[]> findPaths(IndexedGraph<?> graph, int source, int destination, ForkJoinPool pool,
+			boolean[] reaching) {
+		PathTask task = new PathTask(graph, root(graph, source, destination), 1, destination, reaching,
+				DEFAULT_SPLIT_DEPTH, true);
+		pool.invoke(task);
+		return task.paths;
+	}
+
+	/**
+	 * Returns number of paths from source to destination.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param pool
+	 * @return
+	 */
+	public static long countPaths(IndexedGraph<?> graph, int source, int destination, ForkJoinPool pool) {
+		return countPaths(graph, source, destination, pool, DEFAULT_SPLIT_DEPTH);
+	}
+
+	/**
+	 * Same as {@link #countPaths(IndexedGraph, int, int, ForkJoinPool)} entering only the vertices marked
+	 * in reaching, null to search all vertices.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param pool
+	 * @param reaching
+	 * @return
+	 */
+	public static long countPaths(IndexedGraph<?> graph, int source, int destination, ForkJoinPool pool,
+			boolean[] reaching) {
+		return pool.invoke(new PathTask(graph, root(graph, source, destination), 1, destination, reaching,
+				DEFAULT_SPLIT_DEPTH, false));
+	}
+
+	/**
+	 * Returns number of paths from source to destination, splitting the first splitDepth levels into tasks.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param pool
+	 * @param splitDepth
+	 * @return
+	 */
+	public static long countPaths(IndexedGraph<?> graph, int source, int destination, ForkJoinPool pool,
+			int splitDepth) {
+		return pool.invoke(new PathTask(graph, root(graph, source, destination), 1, destination, null, splitDepth,
+				false));
+	}
+
+	private static int[] root(IndexedGraph<?> graph, int source, int destination) {
+		int vertexCount = graph.getVertexCount();
+		if (source < 0 || source >= vertexCount || destination < 0 || destination >= vertexCount) {
+			throw new IllegalArgumentException("No such vertex :: " + source + ", " + destination);
+		}
+		return new int[] { source };
+	}
+
+	/**
+	 * Paths below a prefix of the search tree. Returns their count and, when collecting, the paths themselves.
+	 */
+	private static final class PathTask extends RecursiveTask<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final IndexedGraph<?> graph;
+		private final int[] prefix;
+		private final int length;
+		private final int destination;
+		private final boolean[] reaching;
+		private final int splitDepth;
+		private final boolean collect;
+		private List<int[]> paths = Collections.emptyList();
+
+		PathTask(IndexedGraph<?> graph, int[] prefix, int length, int destination, boolean[] reaching,
+				int splitDepth, boolean collect) {
+			this.graph = graph;
+			this.prefix = prefix;
+			this.length = length;
+			this.destination = destination;
+			this.reaching = reaching;
+			this.splitDepth = splitDepth;
+			this.collect = collect;
+		}
+
+		@Override
+		protected Long compute() {
+			if (length > splitDepth) {
+				return search();
+			}
+			int vertex = prefix[length - 1];
+			int degree = graph.getDegree(vertex);
+			// One task per branch, null standing for the path which ends at destination right here, first.
+			List<PathTask> branches = new ArrayList<PathTask>(degree + 1);
+			List<PathTask> forked = new ArrayList<PathTask>(degree);
+			for (int i = 0; i < degree; i++) {
+				if (graph.getTarget(vertex, i) == destination) {
+					branches.add(null);
+					break;
+				}
+			}
+			for (int i = 0; i < degree; i++) {
+				int target = graph.getTarget(vertex, i);
+				if (target != destination && (reaching == null || reaching[target]) && !contains(target)) {
+					int[] next = Arrays.copyOf(prefix, length + 1);
+					next[length] = target;
+					PathTask branch = new PathTask(graph, next, length + 1, destination, reaching, splitDepth,
+							collect);
+					branches.add(branch);
+					forked.add(branch);
+				}
+			}
+			invokeAll(forked);
+			long count = 0;
+			if (collect) {
+				paths = new ArrayList<int[]>();
+			}
+			for (PathTask branch : branches) {
+				if (branch == null) {
+					count++;
+					if (collect) {
+						int[] path = Arrays.copyOf(prefix, length + 1);
+						path[length] = destination;
+						paths.add(path);
+					}
+				} else {
+					count += branch.getRawResult();
+					if (collect) {
+						paths.addAll(branch.paths);
+					}
+				}
+			}
+			return count;
+		}
+
+		private long search() {
+			PathEnumerator enumerator = new PathEnumerator(graph, prefix, length, destination, reaching);
+			if (!collect) {
+				return enumerator.count();
+			}
+			paths = new ArrayList<int[]>();
+			while (enumerator.hasNext()) {
+				paths.add(enumerator.next());
+			}
+			return paths.size();
+		}
+
+		/**
+		 * Whether vertex is visited, source only once it is passed again.
+		 */
+		private boolean contains(int vertex) {
+			for (int i = 1; i < length; i++) {
+				if (prefix[i] == vertex) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
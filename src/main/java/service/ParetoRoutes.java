@@ -0,0 +1,167 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import domain.IndexedGraph;
+
+/**
+ * Routes between two vertices which trade distance against number of stops: for every number of stops,
+ * the shortest route with at most that many stops if it is shorter than every route with fewer. Together
+ * they are the Pareto frontier, no route is both shorter and has fewer stops than one of them.
+ * <p>
+ * Found in rounds like RAPTOR: round k extends the routes of round k - 1 by one edge, but only from
+ * vertices whose distance improved in round k - 1. A route to a vertex is kept only if it is shorter than
+ * every route to that vertex with fewer stops and than the best route to destination so far, so each
+ * vertex carries a single distance and the frontier costs a few Bellman-Ford rounds over the improved
+ * part of the graph. Labels of every round are kept in primitive arrays to trace the routes back.
+ * Distances must not be negative.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class ParetoRoutes {
+
+	private final IndexedGraph<?> graph;
+
+	/* Shortest distance of every vertex by routes of the rounds so far */
+	private final long[] distances;
+
+	/* Label of vertex in the current round, valid only if rounds[v] == round */
+	private final int[] labels;
+	private final int[] rounds;
+
+	/* Labels of all rounds: vertex, distance and label of the previous vertex, -1 for source */
+	private int[] labelVertices = new int[256];
+	private long[] labelDistances = new long[256];
+	private int[] labelParents = new int[256];
+	private int labelCount;
+
+	private long expanded;
+	private long relaxed;
+
+	private ParetoRoutes(IndexedGraph<?> graph) {
+		int vertexCount = graph.getVertexCount();
+		this.graph = graph;
+		this.distances = new long[vertexCount];
+		this.labels = new int[vertexCount];
+		this.rounds = new int[vertexCount];
+	}
+
+	/**
+	 * Returns the Pareto frontier of routes from source to destination, fewest stops first, so distances
+	 * decrease. The last route is a shortest route. When source is destination the routes are round trips.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public static List<Route> find(IndexedGraph<?> graph, int source, int destination) {
+		return find(graph, source, destination, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Same as {@link #find(IndexedGraph, int, int)} for routes of at most maxStops stops.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param maxStops
+	 * @return
+	 */
+	public static List<Route> find(IndexedGraph<?> graph, int source, int destination, int maxStops) {
+		int vertexCount = graph.getVertexCount();
+		if (source < 0 || source >= vertexCount || destination < 0 || destination >= vertexCount) {
+			throw new IllegalArgumentException("No such vertex :: " + source + ", " + destination);
+		}
+		if (maxStops < 1) {
+			return Collections.emptyList();
+		}
+		return new ParetoRoutes(graph).find(source, destination, maxStops);
+	}
+
+	private List<Route> find(int source, int destination, int maxStops) {
+		List<Route> routes = new ArrayList<Route>();
+		Arrays.fill(distances, Long.MAX_VALUE);
+		Arrays.fill(rounds, -1);
+		// Source has distance 0 but is not a route to itself, round trips are kept apart from it.
+		distances[source] = 0;
+		addLabel(source, 0, -1);
+		int first = 0;
+		int end = labelCount;
+		long arrival = Long.MAX_VALUE;
+		int destinationLabel = -1;
+		for (int round = 1; round <= maxStops && first < end; round++) {
+			int previousDestinationLabel = destinationLabel;
+			destinationLabel = -1;
+			for (int label = first; label < end; label++) {
+				int vertex = labelVertices[label];
+				long distance = labelDistances[label];
+				if (label == previousDestinationLabel || distance >= arrival) {
+					// Routes on from destination, or no shorter than to destination, have more stops and are longer.
+					continue;
+				}
+				expanded++;
+				for (int edge = 0; edge < graph.getDegree(vertex); edge++) {
+					relaxed++;
+					int target = graph.getTarget(vertex, edge);
+					long extended = distance + graph.getWeight(vertex, edge);
+					if (extended >= arrival) {
+						continue;
+					}
+					if (target == destination) {
+						arrival = extended;
+						if (destinationLabel < 0) {
+							destinationLabel = addLabel(target, extended, label);
+						} else {
+							labelDistances[destinationLabel] = extended;
+							labelParents[destinationLabel] = label;
+						}
+					} else if (extended < distances[target]) {
+						distances[target] = extended;
+						if (rounds[target] == round) {
+							labelDistances[labels[target]] = extended;
+							labelParents[labels[target]] = label;
+						} else {
+							rounds[target] = round;
+							labels[target] = addLabel(target, extended, label);
+						}
+					}
+				}
+			}
+			if (destinationLabel >= 0) {
+				routes.add(route(destinationLabel, round));
+			}
+			first = end;
+			end = labelCount;
+		}
+		QueryProbe.count(expanded, relaxed, routes.size());
+		return routes;
+	}
+
+	private int addLabel(int vertex, long distance, int parent) {
+		if (labelCount == labelVertices.length) {
+			int capacity = labelCount * 2;
+			labelVertices = Arrays.copyOf(labelVertices, capacity);
+			labelDistances = Arrays.copyOf(labelDistances, capacity);
+			labelParents = Arrays.copyOf(labelParents, capacity);
+		}
+		labelVertices[labelCount] = vertex;
+		labelDistances[labelCount] = distance;
+		labelParents[labelCount] = parent;
+		return labelCount++;
+	}
+
+	private Route route(int label, int stops) {
+		int[] vertices = new int[stops + 1];
+		int distance = (int) labelDistances[label];
+		for (int i = stops; i >= 0; i--) {
+			vertices[i] = labelVertices[label];
+			label = labelParents[label];
+		}
+		return new Route(vertices, distance);
+	}
+}
@@ -0,0 +1,240 @@
+package service;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import domain.IndexedGraph;
+
+/**
+ * Lazy enumeration of the distinct paths between two vertices, the same paths in the same order as
+ * {@link GraphService#depthFirst(domain.DirectedGraph, java.util.ArrayList, java.util.LinkedList, String, String)}.
+ * Source is not marked visited, so a path may pass it once more, every other vertex is visited at most
+ * once. A path ends at the first arrival at destination, and at every vertex the path going straight to
+ * destination comes before the deeper ones.
+ * <p>
+ * Paths are produced one at a time as vertex indices, by a depth first search with an explicit stack
+ * and a bitset of visited vertices, so taking the first few paths costs only the search up to them.
+ * Use {@link #stream()} for limit and filter; {@link #cancel()} stops the search from any thread, also
+ * in the middle of a long search between two paths. Not safe for use by concurrent consumers.
+ * <p>
+ * Given the vertices which reach destination, e.g. from {@link ReachabilityIndex#verticesReaching(int)},
+ * the search never enters the others, which add no path.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class PathEnumerator implements Iterator<int[]> {
+
+	private final IndexedGraph<?> graph;
+	private final int destination;
+	/* Whether each vertex reaches destination, null to search all vertices */
+	private final boolean[] reaching;
+
+	/* Search stack: vertex, next edge to try and whether the edge to destination was tried, per depth */
+	private final int[] path;
+	private final int[] cursors;
+	private final boolean[] arrived;
+	private int depth;
+	/* Stack depth below which the search does not backtrack, 0 unless resuming from a prefix */
+	private final int floor;
+
+	private final long[] visited;
+	private volatile boolean cancelled;
+
+	/* Path found by hasNext and not yet returned by next */
+	private int[] next;
+
+	/**
+	 * Creates enumerator of paths from source to destination, both given as vertex indices.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 */
+	public PathEnumerator(IndexedGraph<?> graph, int source, int destination) {
+		this(graph, source, destination, null);
+	}
+
+	/**
+	 * Creates enumerator of paths from source to destination which enters only the vertices marked in
+	 * reaching, null to search all vertices.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param reaching
+	 */
+	public PathEnumerator(IndexedGraph<?> graph, int source, int destination, boolean[] reaching) {
+		int vertexCount = graph.getVertexCount();
+		if (source < 0 || source >= vertexCount || destination < 0 || destination >= vertexCount) {
+			throw new IllegalArgumentException("No such vertex :: " + source + ", " + destination);
+		}
+		this.graph = graph;
+		this.destination = destination;
+		this.reaching = reaching;
+		this.path = new int[vertexCount + 1];
+		this.cursors = new int[vertexCount + 1];
+		this.arrived = new boolean[vertexCount + 1];
+		this.visited = new long[(vertexCount + 63) >>> 6];
+		this.floor = 0;
+		path[0] = source;
+		depth = 1;
+	}
+
+	/**
+	 * Creates enumerator of the paths starting with prefix[0..length), which must be a valid partial path
+	 * not yet at destination. Only the subtree below the last vertex of prefix is searched.
+	 *
+	 * @param graph
+	 * @param prefix
+	 * @param length
+	 * @param destination
+	 * @param reaching
+	 */
+	PathEnumerator(IndexedGraph<?> graph, int[] prefix, int length, int destination, boolean[] reaching) {
+		int vertexCount = graph.getVertexCount();
+		this.graph = graph;
+		this.destination = destination;
+		this.reaching = reaching;
+		this.path = Arrays.copyOf(prefix, vertexCount + 1);
+		this.cursors = new int[vertexCount + 1];
+		this.arrived = new boolean[vertexCount + 1];
+		this.visited = new long[(vertexCount + 63) >>> 6];
+		this.floor = length - 1;
+		depth = length;
+		for (int i = 1; i < length; i++) {
+			if (prefix[i] != destination) {
+				visit(prefix[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns stream of the paths, closing it cancels the search.
+	 */
+	public Stream<int[]> stream() {
+		Spliterator<int[]> spliterator = Spliterators.spliteratorUnknownSize(this,
+				Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(this::cancel);
+	}
+
+	/**
+	 * Stops the search, no more paths are returned afterwards.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null) {
+			int length = advance();
+			if (length > 0) {
+				next = Arrays.copyOf(path, length);
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public int[] next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		int[] path = next;
+		next = null;
+		return path;
+	}
+
+	/**
+	 * Counts the remaining paths without materializing them.
+	 */
+	long count() {
+		long count = next == null ? 0 : 1;
+		next = null;
+		while (advance() > 0) {
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Adds the remaining paths to routes, without an array per path.
+	 */
+	void collect(PathList routes) {
+		if (next != null) {
+			routes.add(next, next.length);
+			next = null;
+		}
+		int length;
+		while ((length = advance()) > 0) {
+			routes.add(path, length);
+		}
+	}
+
+	/**
+	 * Continues the search up to the next path, which is then held in path[0..length). Returns length of
+	 * the path, 0 when there is none or the search was cancelled.
+	 */
+	private int advance() {
+		while (depth > floor && !cancelled) {
+			int top = depth - 1;
+			int vertex = path[top];
+			if (!arrived[top]) {
+				arrived[top] = true;
+				if (hasEdgeTo(vertex, destination)) {
+					path[depth] = destination;
+					return depth + 1;
+				}
+				continue;
+			}
+			if (cursors[top] == graph.getDegree(vertex)) {
+				depth--;
+				if (top > 0) {
+					unvisit(vertex);
+				}
+				continue;
+			}
+			int target = graph.getTarget(vertex, cursors[top]++);
+			if (target != destination && (reaching == null || reaching[target]) && !isVisited(target)) {
+				visit(target);
+				path[depth] = target;
+				cursors[depth] = 0;
+				arrived[depth] = false;
+				depth++;
+			}
+		}
+		return 0;
+	}
+
+	private boolean hasEdgeTo(int vertex, int target) {
+		int degree = graph.getDegree(vertex);
+		for (int edge = 0; edge < degree; edge++) {
+			if (graph.getTarget(vertex, edge) == target) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isVisited(int vertex) {
+		return (visited[vertex >>> 6] & (1L << vertex)) != 0;
+	}
+
+	private void visit(int vertex) {
+		visited[vertex >>> 6] |= 1L << vertex;
+	}
+
+	private void unvisit(int vertex) {
+		visited[vertex >>> 6] &= ~(1L << vertex);
+	}
+}
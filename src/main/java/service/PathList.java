@@ -0,0 +1,99 @@
+package service;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import domain.IndexedGraph;
+
+/**
+ * Read only list of routes held as nodes of a {@link PathTrie}, so routes share their prefixes. A route is
+ * turned into text like A-B-C only when it is read with {@link #get(int)}.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class PathList extends AbstractList<String> implements RandomAccess {
+
+	private final IndexedGraph<String> graph;
+	private final PathTrie trie;
+	private int[] nodes = new int[16];
+	private int size;
+
+	/**
+	 * Creates empty list of routes over vertices of graph.
+	 *
+	 * @param graph
+	 */
+	public PathList(IndexedGraph<String> graph) {
+		this.graph = graph;
+		this.trie = new PathTrie();
+	}
+
+	/**
+	 * Route i as text like A-B-C.
+	 */
+	@Override
+	public String get(int index) {
+		int[] path = getPath(index);
+		return GraphService.toRoute(graph, path, path.length);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Vertex indices of route i.
+	 *
+	 * @param index
+	 * @return
+	 */
+	public int[] getPath(int index) {
+		return trie.toArray(getNode(index));
+	}
+
+	/**
+	 * Number of vertices of route i.
+	 *
+	 * @param index
+	 * @return
+	 */
+	public int getLength(int index) {
+		return trie.getLength(getNode(index));
+	}
+
+	/**
+	 * Node of route i in the trie.
+	 *
+	 * @param index
+	 * @return
+	 */
+	public int getNode(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return nodes[index];
+	}
+
+	public PathTrie getTrie() {
+		return trie;
+	}
+
+	public IndexedGraph<String> getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Adds route path[0..length), sharing its prefix with the route added before.
+	 */
+	void add(int[] path, int length) {
+		int node = trie.append(path, length);
+		if (size == nodes.length) {
+			nodes = Arrays.copyOf(nodes, size * 2);
+		}
+		nodes[size++] = node;
+		modCount++;
+	}
+}
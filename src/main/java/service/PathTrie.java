@@ -0,0 +1,119 @@
+package service;
+
+import java.util.Arrays;
+
+/**
+ * Arena of routes sharing their prefixes. A node is a route: its last vertex and a pointer to the node of
+ * the route one stop shorter, -1 for a route of a single vertex. Extending a route by one stop costs one
+ * node, 8 bytes, however long the route is, so the millions of near identical routes of an enumeration
+ * take a fraction of the memory of as many strings or arrays.
+ * <p>
+ * Routes appended in depth first order, as enumerations produce them, share every prefix with the route
+ * appended before them automatically. Not safe for use by concurrent writers.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class PathTrie {
+
+	private int[] parents = new int[16];
+	private int[] vertices = new int[16];
+	private int size;
+
+	/* Route appended last and its nodes, per position */
+	private int[] lastPath = new int[16];
+	private int[] lastNodes = new int[16];
+	private int lastLength;
+
+	/**
+	 * Adds the route extending parent by vertex, parent -1 for a route of vertex alone. Returns its node.
+	 *
+	 * @param parent
+	 * @param vertex
+	 * @return
+	 */
+	public int add(int parent, int vertex) {
+		if (parent < -1 || parent >= size) {
+			throw new IllegalArgumentException("No such node :: " + parent);
+		}
+		if (size == parents.length) {
+			parents = Arrays.copyOf(parents, size * 2);
+			vertices = Arrays.copyOf(vertices, size * 2);
+		}
+		parents[size] = parent;
+		vertices[size] = vertex;
+		return size++;
+	}
+
+	/**
+	 * Adds route path[0..length), reusing the nodes of the longest prefix it shares with the route appended
+	 * before. Returns its node.
+	 *
+	 * @param path
+	 * @param length
+	 * @return
+	 */
+	public int append(int[] path, int length) {
+		if (length < 1) {
+			throw new IllegalArgumentException("Route must have a vertex :: " + length);
+		}
+		if (length > lastPath.length) {
+			lastPath = Arrays.copyOf(lastPath, Math.max(length, lastPath.length * 2));
+			lastNodes = Arrays.copyOf(lastNodes, lastPath.length);
+		}
+		int shared = 0;
+		int limit = Math.min(length, lastLength);
+		while (shared < limit && lastPath[shared] == path[shared]) {
+			shared++;
+		}
+		for (int i = shared; i < length; i++) {
+			lastPath[i] = path[i];
+			lastNodes[i] = add(i == 0 ? -1 : lastNodes[i - 1], path[i]);
+		}
+		lastLength = length;
+		return lastNodes[length - 1];
+	}
+
+	/**
+	 * Number of nodes.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getVertex(int node) {
+		return vertices[node];
+	}
+
+	public int getParent(int node) {
+		return parents[node];
+	}
+
+	/**
+	 * Number of vertices of the route of node.
+	 *
+	 * @param node
+	 * @return
+	 */
+	public int getLength(int node) {
+		int length = 0;
+		for (int n = node; n >= 0; n = parents[n]) {
+			length++;
+		}
+		return length;
+	}
+
+	/**
+	 * Vertices of the route of node, first to last.
+	 *
+	 * @param node
+	 * @return
+	 */
+	public int[] toArray(int node) {
+		int[] path = new int[getLength(node)];
+		for (int n = node, i = path.length - 1; n >= 0; n = parents[n]) {
+			path[i--] = vertices[n];
+		}
+		return path;
+	}
+}
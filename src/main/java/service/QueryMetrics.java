@@ -0,0 +1,199 @@
+package service;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per query type latency histograms and search effort counters of a GraphService, see
+ * {@link GraphService#setQueryMetrics(QueryMetrics)}. Effort is counted as vertices expanded, edges relaxed
+ * and paths materialized by the searches answering the queries; a query answered from a cache or an index
+ * lookup has none. Queries slower than the threshold are counted, and reported as a railroad.SlowQuery
+ * JFR event when the JVM has Flight Recorder.
+ * Safe for use by concurrent threads.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class QueryMetrics {
+
+	public enum QueryType {
+		ROUTE_DISTANCE, SHORTEST_ROUTE, SHORTEST_DISTANCE, SHORTEST_ROUTES, TRIPS_MAX_STOPS, TRIPS_EXACT_STOPS,
+		TRIPS_MAX_WEIGHT, PARETO_ROUTES
+	}
+
+	public enum Counter {
+		VERTICES_EXPANDED, EDGES_RELAXED, PATHS_MATERIALIZED
+	}
+
+	public static final long DEFAULT_SLOW_QUERY_THRESHOLD = TimeUnit.MILLISECONDS.toNanos(10);
+
+	/* Receiver of slow queries, null if the JVM has no Flight Recorder */
+	private static final SlowQueryListener FLIGHT_RECORDER = loadFlightRecorder();
+
+	private final long slowQueryThreshold;
+	private final Map<QueryType, Statistics> statistics = new EnumMap<QueryType, Statistics>(QueryType.class);
+
+	/**
+	 * Creates metrics reporting queries slower than DEFAULT_SLOW_QUERY_THRESHOLD.
+	 */
+	public QueryMetrics() {
+		this(DEFAULT_SLOW_QUERY_THRESHOLD);
+	}
+
+	/**
+	 * Creates metrics reporting queries slower than given threshold in nanoseconds.
+	 *
+	 * @param slowQueryThreshold
+	 */
+	public QueryMetrics(long slowQueryThreshold) {
+		if (slowQueryThreshold < 0) {
+			throw new IllegalArgumentException("Threshold must not be negative :: " + slowQueryThreshold);
+		}
+		this.slowQueryThreshold = slowQueryThreshold;
+		for (QueryType type : QueryType.values()) {
+			statistics.put(type, new Statistics());
+		}
+	}
+
+	/**
+	 * Latencies in nanoseconds of the queries of given type.
+	 *
+	 * @param type
+	 * @return
+	 */
+	public LatencyHistogram getHistogram(QueryType type) {
+		return statistics.get(type).latencies;
+	}
+
+	/**
+	 * Number of queries of given type.
+	 *
+	 * @param type
+	 * @return
+	 */
+	public long getQueryCount(QueryType type) {
+		return statistics.get(type).latencies.getCount();
+	}
+
+	/**
+	 * Total of counter over the queries of given type.
+	 *
+	 * @param type
+	 * @param counter
+	 * @return
+	 */
+	public long getCount(QueryType type, Counter counter) {
+		return statistics.get(type).counters[counter.ordinal()].sum();
+	}
+
+	/**
+	 * Number of queries of given type slower than the threshold.
+	 *
+	 * @param type
+	 * @return
+	 */
+	public long getSlowQueryCount(QueryType type) {
+		return statistics.get(type).slowQueries.sum();
+	}
+
+	public long getSlowQueryThreshold() {
+		return slowQueryThreshold;
+	}
+
+	/**
+	 * Returns one line per query type which has been queried, latencies in microseconds.
+	 *
+	 * @return
+	 */
+	public String dump() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.ROOT, "%-18s %10s %10s %10s %10s %10s %10s %10s %14s %14s %12s %8s%n",
+				"query", "count", "mean_us", "p50_us", "p90_us", "p99_us", "p999_us", "max_us",
+				"expanded", "relaxed", "paths", "slow"));
+		for (QueryType type : QueryType.values()) {
+			Statistics stats = statistics.get(type);
+			LatencyHistogram latencies = stats.latencies;
+			if (latencies.getCount() == 0) {
+				continue;
+			}
+			sb.append(String.format(Locale.ROOT, "%-18s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %14d %14d %12d %8d%n",
+					type.name().toLowerCase(Locale.ROOT), latencies.getCount(), latencies.getMean() / 1000,
+					micros(latencies.getValueAtPercentile(50)), micros(latencies.getValueAtPercentile(90)),
+					micros(latencies.getValueAtPercentile(99)), micros(latencies.getValueAtPercentile(99.9)),
+					micros(latencies.getMax()), getCount(type, Counter.VERTICES_EXPANDED),
+					getCount(type, Counter.EDGES_RELAXED), getCount(type, Counter.PATHS_MATERIALIZED),
+					stats.slowQueries.sum()));
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return dump();
+	}
+
+	/**
+	 * Starts measuring a query on the current thread, null if one is measured already.
+	 */
+	QueryProbe start(QueryType type, String source, String destination) {
+		return QueryProbe.start(this, type, source, destination);
+	}
+
+	/**
+	 * Records a finished query.
+	 */
+	void record(QueryType type, long latency, QueryProbe probe) {
+		Statistics stats = statistics.get(type);
+		stats.latencies.record(latency);
+		stats.counters[Counter.VERTICES_EXPANDED.ordinal()].add(probe.verticesExpanded);
+		stats.counters[Counter.EDGES_RELAXED.ordinal()].add(probe.edgesRelaxed);
+		stats.counters[Counter.PATHS_MATERIALIZED.ordinal()].add(probe.pathsMaterialized);
+		if (latency >= slowQueryThreshold) {
+			stats.slowQueries.increment();
+			if (FLIGHT_RECORDER != null) {
+				FLIGHT_RECORDER.slowQuery(type.name(), probe.getSource(), probe.getDestination(), latency,
+						probe.verticesExpanded, probe.edgesRelaxed, probe.pathsMaterialized);
+			}
+		}
+	}
+
+	private static double micros(long nanos) {
+		return nanos / 1000.0;
+	}
+
+	/**
+	 * Loads the JFR event emitter by name, so this class also runs on JVMs without jdk.jfr.
+	 */
+	private static SlowQueryListener loadFlightRecorder() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			Class<?> emitter = Class.forName("service.SlowQueryEvent$Emitter");
+			return (SlowQueryListener) emitter.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Receiver of queries slower than the threshold.
+	 */
+	interface SlowQueryListener {
+		void slowQuery(String type, String source, String destination, long latency, long verticesExpanded,
+				long edgesRelaxed, long pathsMaterialized);
+	}
+
+	private static final class Statistics {
+		private final LatencyHistogram latencies = new LatencyHistogram();
+		private final LongAdder[] counters = new LongAdder[Counter.values().length];
+		private final LongAdder slowQueries = new LongAdder();
+
+		Statistics() {
+			for (int i = 0; i < counters.length; i++) {
+				counters[i] = new LongAdder();
+			}
+		}
+	}
+}
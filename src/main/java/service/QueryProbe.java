@@ -0,0 +1,97 @@
+package service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measurement of one query in progress on the current thread. Search algorithms report their effort
+ * through {@link #count(long, long, long)}, which costs a single volatile read while no query is being
+ * measured on any thread, and a thread local lookup per search otherwise.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+final class QueryProbe {
+
+	private static final ThreadLocal<QueryProbe> CURRENT = new ThreadLocal<QueryProbe>();
+
+	/* Number of queries being measured on all threads */
+	private static final AtomicInteger ACTIVE = new AtomicInteger();
+
+	private final QueryMetrics metrics;
+	private final QueryMetrics.QueryType type;
+	private final String source;
+	private final String destination;
+	private final long start;
+
+	long verticesExpanded;
+	long edgesRelaxed;
+	long pathsMaterialized;
+
+	private QueryProbe(QueryMetrics metrics, QueryMetrics.QueryType type, String source, String destination) {
+		this.metrics = metrics;
+		this.type = type;
+		this.source = source;
+		this.destination = destination;
+		this.start = System.nanoTime();
+	}
+
+	/**
+	 * Starts measuring a query on the current thread, returns null if a query is measured already, so a
+	 * query answered by another public query method is measured once, as the outer one.
+	 */
+	static QueryProbe start(QueryMetrics metrics, QueryMetrics.QueryType type, String source, String destination) {
+		if (CURRENT.get() != null) {
+			return null;
+		}
+		QueryProbe probe = new QueryProbe(metrics, type, source, destination);
+		CURRENT.set(probe);
+		ACTIVE.incrementAndGet();
+		return probe;
+	}
+
+	/**
+	 * Adds effort of a search to the query measured on the current thread, if any.
+	 *
+	 * @param verticesExpanded
+	 * @param edgesRelaxed
+	 * @param pathsMaterialized
+	 */
+	static void count(long verticesExpanded, long edgesRelaxed, long pathsMaterialized) {
+		if (isMeasuring()) {
+			QueryProbe probe = CURRENT.get();
+			if (probe != null) {
+				probe.verticesExpanded += verticesExpanded;
+				probe.edgesRelaxed += edgesRelaxed;
+				probe.pathsMaterialized += pathsMaterialized;
+			}
+		}
+	}
+
+	/**
+	 * Returns whether a query is being measured on any thread.
+	 */
+	static boolean isMeasuring() {
+		return ACTIVE.get() != 0;
+	}
+
+	/**
+	 * Ends the measurement and records it.
+	 */
+	void stop() {
+		CURRENT.remove();
+		ACTIVE.decrementAndGet();
+		metrics.record(type, System.nanoTime() - start, this);
+	}
+
+	QueryMetrics.QueryType getType() {
+		return type;
+	}
+
+	String getSource() {
+		return source;
+	}
+
+	String getDestination() {
+		return destination;
+	}
+}
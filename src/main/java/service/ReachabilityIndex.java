@@ -0,0 +1,361 @@
+package service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import domain.CompactGraph;
+import domain.DirectedGraph;
+import domain.IndexedGraph;
+
+/**
+ * Answers in O(1) whether a route exists between two towns. Preprocessing condenses the strongly connected
+ * components of the graph (Tarjan) into a DAG, and stores for every component the set of components it
+ * reaches as a bitset. Tarjan numbers components in reverse topological order, so a component only reaches
+ * components numbered below its own, and its bitset is stored only from the lowest one it reaches: a row is
+ * an interval of the topological order, which on networks with one large component and few trees hanging
+ * off it is tiny. Memory is at most C^2 / 8 bytes for C components.
+ * <p>
+ * A route has at least one stop, as for Dijkstra.shortestDistance: a town reaches itself only on a cycle.
+ * An index belongs to the graph it was built from, with the same vertex indices, see
+ * {@link #matches(IndexedGraph)}, and answers queries on a DirectedGraph only if built from that graph
+ * and the graph was not modified since. Safe for use by concurrent threads.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class ReachabilityIndex {
+
+	private final String[] towns;
+	private final long fingerprint;
+
+	/* Component of every vertex, and whether a component has a cycle, i.e. more than one vertex or a loop */
+	private final int[] components;
+	private final boolean[] cyclic;
+
+	/* Row of component c is words[rowStarts[c] ..] covering bits from word rowLows[c] up to c */
+	private final long[] words;
+	private final int[] rowStarts;
+	private final int[] rowLows;
+
+	/* DirectedGraph the index was built from and its version at the time, null if built otherwise */
+	private final DirectedGraph<String> builtFrom;
+	private final long builtVersion;
+
+	/* Graph last found to match, so matches is O(1) for repeated queries on the same graph */
+	private volatile IndexedGraph<String> matched;
+
+	/* Town name to index, built on first query by name */
+	private volatile Map<String, Integer> indices;
+
+	private ReachabilityIndex(String[] towns, long fingerprint, int[] components, boolean[] cyclic, long[] words,
+			int[] rowStarts, int[] rowLows, DirectedGraph<String> builtFrom, long builtVersion) {
+		this.towns = towns;
+		this.builtFrom = builtFrom;
+		this.builtVersion = builtVersion;
+		this.fingerprint = fingerprint;
+		this.components = components;
+		this.cyclic = cyclic;
+		this.words = words;
+		this.rowStarts = rowStarts;
+		this.rowLows = rowLows;
+	}
+
+	/**
+	 * Builds index of given graph.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public static ReachabilityIndex build(DirectedGraph<String> graph) {
+		return build(new CompactGraph<String>(graph), graph, graph.getVersion());
+	}
+
+	/**
+	 * Builds index of given graph in O(V + E + C^2 / 64) time.
+	 *
+	 * @param graph
+	 * @return
+	 * @throws IllegalArgumentException if the bitsets would not fit in an array
+	 */
+	public static ReachabilityIndex build(IndexedGraph<String> graph) {
+		return build(graph, null, 0);
+	}
+
+	private static ReachabilityIndex build(IndexedGraph<String> graph, DirectedGraph<String> builtFrom,
+			long builtVersion) {
+		int n = graph.getVertexCount();
+		int[] components = new int[n];
+		int count = condense(graph, components);
+		// Successor components of each component, in CSR layout.
+		int[] offsets = new int[count + 1];
+		boolean[] cyclic = new boolean[count];
+		int[] sizes = new int[count];
+		for (int v = 0; v < n; v++) {
+			sizes[components[v]]++;
+			int degree = graph.getDegree(v);
+			for (int i = 0; i < degree; i++) {
+				int target = graph.getTarget(v, i);
+				if (components[target] != components[v]) {
+					offsets[components[v] + 1]++;
+				} else if (target == v) {
+					cyclic[components[v]] = true;
+				}
+			}
+		}
+		for (int c = 0; c < count; c++) {
+			offsets[c + 1] += offsets[c];
+			cyclic[c] |= sizes[c] > 1;
+		}
+		int[] successors = new int[offsets[count]];
+		int[] next = Arrays.copyOf(offsets, count);
+		for (int v = 0; v < n; v++) {
+			int degree = graph.getDegree(v);
+			for (int i = 0; i < degree; i++) {
+				int target = graph.getTarget(v, i);
+				if (components[target] != components[v]) {
+					successors[next[components[v]]++] = components[target];
+				}
+			}
+		}
+		// Successors are numbered below, so rows can be filled in component order.
+		int[] rowLows = new int[count];
+		int[] rowStarts = new int[count + 1];
+		for (int c = 0; c < count; c++) {
+			int low = c;
+			for (int i = offsets[c]; i < offsets[c + 1]; i++) {
+				low = Math.min(low, rowLows[successors[i]] << 6);
+			}
+			rowLows[c] = low >>> 6;
+			long end = (long) rowStarts[c] + (c >>> 6) - rowLows[c] + 1;
+			if (end > Integer.MAX_VALUE - 8) {
+				throw new IllegalArgumentException("Too many components for a reachability index :: " + count);
+			}
+			rowStarts[c + 1] = (int) end;
+		}
+		long[] words = new long[rowStarts[count]];
+		for (int c = 0; c < count; c++) {
+			int start = rowStarts[c] - rowLows[c];
+			words[start + (c >>> 6)] |= 1L << c;
+			for (int i = offsets[c]; i < offsets[c + 1]; i++) {
+				int successor = successors[i];
+				int from = rowStarts[successor];
+				int length = rowStarts[successor + 1] - from;
+				int at = start + rowLows[successor];
+				for (int w = 0; w < length; w++) {
+					words[at + w] |= words[from + w];
+				}
+			}
+		}
+		String[] towns = new String[n];
+		for (int i = 0; i < n; i++) {
+			towns[i] = graph.getVertex(i);
+		}
+		return new ReachabilityIndex(towns, graph.getFingerprint(), components, cyclic, words,
+				Arrays.copyOf(rowStarts, count), rowLows, builtFrom, builtVersion);
+	}
+
+	/**
+	 * Tarjan's strongly connected components with an explicit stack. Components are numbered in the order
+	 * they are completed, which is a reverse topological order of the condensation. Returns their number.
+	 */
+	private static int condense(IndexedGraph<?> graph, int[] components) {
+		int n = graph.getVertexCount();
+		int[] order = new int[n];
+		int[] low = new int[n];
+		int[] cursors = new int[n];
+		int[] callStack = new int[n];
+		int[] stack = new int[n];
+		boolean[] onStack = new boolean[n];
+		int visited = 0;
+		int stackSize = 0;
+		int count = 0;
+		Arrays.fill(order, -1);
+		for (int root = 0; root < n; root++) {
+			if (order[root] >= 0) {
+				continue;
+			}
+			int depth = 0;
+			callStack[depth++] = root;
+			order[root] = low[root] = visited++;
+			stack[stackSize++] = root;
+			onStack[root] = true;
+			while (depth > 0) {
+				int vertex = callStack[depth - 1];
+				if (cursors[vertex] < graph.getDegree(vertex)) {
+					int target = graph.getTarget(vertex, cursors[vertex]++);
+					if (order[target] < 0) {
+						order[target] = low[target] = visited++;
+						stack[stackSize++] = target;
+						onStack[target] = true;
+						callStack[depth++] = target;
+					} else if (onStack[target]) {
+						low[vertex] = Math.min(low[vertex], order[target]);
+					}
+					continue;
+				}
+				depth--;
+				if (depth > 0) {
+					int parent = callStack[depth - 1];
+					low[parent] = Math.min(low[parent], low[vertex]);
+				}
+				if (low[vertex] == order[vertex]) {
+					int member;
+					do {
+						member = stack[--stackSize];
+						onStack[member] = false;
+						components[member] = count;
+					} while (member != vertex);
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns for every vertex whether it reaches destination by a route of at least one stop, by a
+	 * breadth first search over the edges reversed. O(V + E), for one off queries without an index.
+	 *
+	 * @param graph
+	 * @param destination
+	 * @return
+	 */
+	public static boolean[] verticesReaching(IndexedGraph<?> graph, int destination) {
+		CompactGraph<?> reverse = CompactGraph.reverse(graph);
+		boolean[] reaching = new boolean[graph.getVertexCount()];
+		int[] queue = new int[graph.getVertexCount()];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = destination;
+		while (head < tail) {
+			int vertex = queue[head++];
+			int degree = reverse.getDegree(vertex);
+			for (int i = 0; i < degree; i++) {
+				int predecessor = reverse.getTarget(vertex, i);
+				if (!reaching[predecessor]) {
+					reaching[predecessor] = true;
+					if (predecessor != destination) {
+						queue[tail++] = predecessor;
+					}
+				}
+			}
+		}
+		return reaching;
+	}
+
+	/**
+	 * Same as {@link #verticesReaching(IndexedGraph, int)} from the index in O(V).
+	 *
+	 * @param destination
+	 * @return
+	 */
+	public boolean[] verticesReaching(int destination) {
+		boolean[] reaching = new boolean[towns.length];
+		for (int v = 0; v < reaching.length; v++) {
+			reaching[v] = canReach(v, destination);
+		}
+		return reaching;
+	}
+
+	/**
+	 * True if index was built from given graph and the graph is unchanged since.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public boolean matches(DirectedGraph<String> graph) {
+		return graph == builtFrom && graph.getVersion() == builtVersion;
+	}
+
+	/**
+	 * True if index was built from given graph: same fingerprint and same town at every index.
+	 * O(V) for a graph not seen before.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public boolean matches(IndexedGraph<String> graph) {
+		if (graph == matched) {
+			return true;
+		}
+		if (graph.getFingerprint() != fingerprint || graph.getVertexCount() != towns.length) {
+			return false;
+		}
+		for (int v = 0; v < towns.length; v++) {
+			if (!towns[v].equals(graph.getVertex(v))) {
+				return false;
+			}
+		}
+		matched = graph;
+		return true;
+	}
+
+	/**
+	 * True if a route of at least one stop leads from source to destination.
+	 *
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public boolean canReach(int source, int destination) {
+		int from = components[source];
+		int to = components[destination];
+		if (from == to) {
+			return cyclic[from];
+		}
+		int word = to >>> 6;
+		return to < from && word >= rowLows[from]
+				&& (words[rowStarts[from] - rowLows[from] + word] & (1L << to)) != 0;
+	}
+
+	/**
+	 * Same as {@link #canReach(int, int)} by town name, false for unknown towns.
+	 *
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public boolean canReach(String source, String destination) {
+		Map<String, Integer> map = indices;
+		if (map == null) {
+			map = new HashMap<String, Integer>(towns.length * 2);
+			for (int v = 0; v < towns.length; v++) {
+				map.put(towns[v], v);
+			}
+			indices = map;
+		}
+		Integer from = map.get(source);
+		Integer to = map.get(destination);
+		return from != null && to != null && canReach(from, to);
+	}
+
+	public int getTownCount() {
+		return towns.length;
+	}
+
+	public int getComponentCount() {
+		return cyclic.length;
+	}
+
+	/**
+	 * Strongly connected component of vertex, components are numbered in reverse topological order.
+	 */
+	public int getComponent(int vertex) {
+		return components[vertex];
+	}
+
+	/**
+	 * Number of 64 bit words of all bitsets.
+	 */
+	public int getWordCount() {
+		return words.length;
+	}
+
+	/**
+	 * Fingerprint of the graph this index was built from, see domain.GraphFingerprint.
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+}
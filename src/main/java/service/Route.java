@@ -0,0 +1,87 @@
+package service;
+
+import java.util.Arrays;
+
+import domain.IndexedGraph;
+
+/**
+ * A route found by a query: the vertex indices it passes through, in order, and its total distance.
+ * Immutable. Routes are ordered by distance, then by number of stops, then by their vertices.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class Route implements Comparable<Route> {
+
+	private final int[] vertices;
+	private final int distance;
+
+	/**
+	 * Creates route through given vertices, which are not copied.
+	 *
+	 * @param vertices
+	 * @param distance
+	 */
+	Route(int[] vertices, int distance) {
+		this.vertices = vertices;
+		this.distance = distance;
+	}
+
+	public int getDistance() {
+		return distance;
+	}
+
+	public int getStops() {
+		return vertices.length - 1;
+	}
+
+	public int getVertex(int index) {
+		return vertices[index];
+	}
+
+	public int[] getVertices() {
+		return vertices.clone();
+	}
+
+	/**
+	 * Returns route text like A-B-C.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public String toString(IndexedGraph<String> graph) {
+		return GraphService.toRoute(graph, vertices, vertices.length);
+	}
+
+	@Override
+	public int compareTo(Route other) {
+		if (distance != other.distance) {
+			return distance < other.distance ? -1 : 1;
+		}
+		if (vertices.length != other.vertices.length) {
+			return vertices.length < other.vertices.length ? -1 : 1;
+		}
+		for (int i = 0; i < vertices.length; i++) {
+			if (vertices[i] != other.vertices[i]) {
+				return vertices[i] < other.vertices[i] ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof Route && distance == ((Route) other).distance
+				&& Arrays.equals(vertices, ((Route) other).vertices);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Arrays.hashCode(vertices) + distance;
+	}
+
+	@Override
+	public String toString() {
+		return "Route [vertices=" + Arrays.toString(vertices) + ", distance=" + distance + "]";
+	}
+}
@@ -0,0 +1,198 @@
+package service;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded least recently used cache of query results keyed by (graph, query type, source, destination).
+ * Every entry remembers the graph version it was computed for, an entry is never served once the
+ * graph has been modified since. Graphs are held weakly, entries of a graph no longer in use are
+ * dropped once it is collected. Safe for use by concurrent threads.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public class RouteCache {
+
+	public enum QueryType {
+		ROUTE_DISTANCE, SHORTEST_ROUTE
+	}
+
+	private final int capacity;
+	private final LinkedHashMap<Key, CachedResult> entries;
+
+	/* Keys whose graph was collected */
+	private final ReferenceQueue<Object> collected = new ReferenceQueue<Object>();
+
+	/* Statistics */
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Creates cache holding at most capacity results.
+	 *
+	 * @param capacity
+	 */
+	public RouteCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive :: " + capacity);
+		}
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<Key, CachedResult>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+				if (size() > RouteCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns cached result or null if there is none for the current version of graph.
+	 *
+	 * @param graph
+	 * @param version
+	 * @param type
+	 * @param source
+	 * @param destination
+	 * @return
+	 */
+	public synchronized String get(Object graph, long version, QueryType type, String source, String destination) {
+		expunge();
+		Key key = new Key(graph, type, source, destination, null);
+		CachedResult entry = entries.get(key);
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		if (entry.version != version) {
+			entries.remove(key);
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.result;
+	}
+
+	/**
+	 * Caches result computed for given version of graph. The version must be read before computing
+	 * the result, so a result racing with a modification is stored as stale.
+	 *
+	 * @param graph
+	 * @param version
+	 * @param type
+	 * @param source
+	 * @param destination
+	 * @param result
+	 */
+	public synchronized void put(Object graph, long version, QueryType type, String source, String destination,
+			String result) {
+		expunge();
+		entries.put(new Key(graph, type, source, destination, collected), new CachedResult(version, result));
+	}
+
+	/**
+	 * Removes entries of collected graphs.
+	 */
+	private void expunge() {
+		for (Reference<?> key = collected.poll(); key != null; key = collected.poll()) {
+			entries.remove(key);
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		expunge();
+		return entries.size();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	public synchronized double getHitRate() {
+		long requests = hits + misses;
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "RouteCache [size=" + entries.size() + ", capacity=" + capacity + ", hits=" + hits + ", misses="
+				+ misses + ", evictions=" + evictions + "]";
+	}
+
+	/**
+	 * Cache key, graphs are compared by identity and referenced weakly so cached results do not keep a
+	 * graph alive. A key whose graph was collected only equals itself.
+	 */
+	private static final class Key extends WeakReference<Object> {
+		private final QueryType type;
+		private final String source;
+		private final String destination;
+		private final int hash;
+
+		Key(Object graph, QueryType type, String source, String destination, ReferenceQueue<Object> queue) {
+			super(graph, queue);
+			this.type = type;
+			this.source = source;
+			this.destination = destination;
+			int hash = System.identityHashCode(graph);
+			hash = 31 * hash + type.hashCode();
+			hash = 31 * hash + source.hashCode();
+			this.hash = 31 * hash + (destination == null ? 0 : destination.hashCode());
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			Object graph = get();
+			return graph != null && graph == key.get() && type == key.type && source.equals(key.source)
+					&& (destination == null ? key.destination == null : destination.equals(key.destination));
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	private static final class CachedResult {
+		private final long version;
+		private final String result;
+
+		CachedResult(long version, String result) {
+			this.version = version;
+			this.result = result;
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package service;
+
+import domain.EdgeWeightIndex;
+import domain.IndexedGraph;
+
+/**
+ * Evaluates route distances on one graph without intermediate allocation. A route is given either as
+ * vertex indices or as text like A-B-C, which is scanned in place and matched against a station
+ * dictionary keyed by characters, and every hop is an O(1) lookup in an {@link EdgeWeightIndex}.
+ * Building takes O(V + E), evaluation is then safe from any number of threads.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class RouteEvaluator {
+
+	private static final char SEPARATOR = GraphService.SEPARATOR.charAt(0);
+
+	private final IndexedGraph<String> graph;
+	private final EdgeWeightIndex weights;
+
+	/* Station dictionary, open addressing table of vertex index + 1, 0 for an empty slot */
+	private final String[] stations;
+	private final int[] table;
+	private final int mask;
+
+	/**
+	 * Builds evaluator for given graph.
+	 *
+	 * @param graph
+	 */
+	public RouteEvaluator(IndexedGraph<String> graph) {
+		this.graph = graph;
+		this.weights = new EdgeWeightIndex(graph);
+		int vertexCount = graph.getVertexCount();
+		this.stations = new String[vertexCount];
+		this.table = new int[Integer.highestOneBit(Math.max(2, vertexCount) * 2 - 1) << 1];
+		this.mask = table.length - 1;
+		for (int v = 0; v < vertexCount; v++) {
+			stations[v] = graph.getVertex(v);
+			int slot = hash(stations[v], 0, stations[v].length()) & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = v + 1;
+		}
+	}
+
+	public IndexedGraph<String> getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Returns distance of the route through given vertices, -1 if no such route exists.
+	 *
+	 * @param route
+	 * @return
+	 */
+	public int getDistance(int[] route) {
+		return getDistance(route, 0, route.length);
+	}
+
+	/**
+	 * Returns distance of the route through vertices route[offset..offset+length), -1 if no such route exists.
+	 *
+	 * @param route
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public int getDistance(int[] route, int offset, int length) {
+		if (length < 2) {
+			return -1;
+		}
+		int totalDistance = 0;
+		for (int i = offset + 1; i < offset + length; i++) {
+			int distance = weights.getWeight(route[i - 1], route[i]);
+			if (distance == -1) {
+				return -1;
+			}
+			totalDistance += distance;
+		}
+		return totalDistance;
+	}
+
+	/**
+	 * Returns distance of a route given as text like A-B-C, -1 if no such route exists.
+	 * Gives the same answer as GraphService.getDistance.
+	 *
+	 * @param journey
+	 * @return
+	 */
+	public int getDistance(CharSequence journey) {
+		int end = journey.length();
+		while (end > 0 && journey.charAt(end - 1) == SEPARATOR) {
+			end--; // trailing separators are ignored, as String.split does
+		}
+		int totalDistance = 0;
+		int hops = 0;
+		int previous = -1;
+		int start = 0;
+		while (start <= end) {
+			int stop = start;
+			while (stop < end && journey.charAt(stop) != SEPARATOR) {
+				stop++;
+			}
+			int station = indexOf(journey, start, stop);
+			if (station < 0) {
+				return -1;
+			}
+			if (previous >= 0) {
+				int distance = weights.getWeight(previous, station);
+				if (distance == -1) {
+					return -1;
+				}
+				totalDistance += distance;
+				hops++;
+			}
+			previous = station;
+			start = stop + 1;
+		}
+		return hops == 0 ? -1 : totalDistance;
+	}
+
+	/**
+	 * Returns index of the station named by journey[start..end), -1 if there is no such station.
+	 *
+	 * @param journey
+	 * @param start
+	 * @param end
+	 * @return
+	 */
+	public int indexOf(CharSequence journey, int start, int end) {
+		for (int slot = hash(journey, start, end) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+			String station = stations[table[slot] - 1];
+			if (matches(station, journey, start, end)) {
+				return table[slot] - 1;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean matches(String station, CharSequence journey, int start, int end) {
+		if (station.length() != end - start) {
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			if (station.charAt(i - start) != journey.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int hash(CharSequence text, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + text.charAt(i);
+		}
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,306 @@
+package service;
+
+import java.util.Arrays;
+
+import domain.IndexedGraph;
+
+/**
+ * Counts trips between two towns by number of stops without building any route.
+ * Uses dynamic programming over (vertex, stops): the number of trips of k stops ending at a town
+ * is the sum of trips of k-1 stops ending at its predecessors. Only towns reached in the previous round
+ * are expanded, so a round costs the edges of its frontier. Trips bounded by distance are counted the
+ * same way over (vertex, distance), keeping only the towns reached at the pending distances.
+ * A trip may pass the same town more than once and has at least one stop. Counts saturate at
+ * {@link #MAX_COUNT} instead of overflowing. Given the towns which reach destination, e.g. from
+ * {@link ReachabilityIndex#verticesReaching(int)}, trips entering any other town are dropped at once.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+public final class TripCounter {
+
+	/* Count returned when the number of trips does not fit in a long */
+	public static final long MAX_COUNT = Long.MAX_VALUE;
+
+	private TripCounter() {
+	}
+
+	/**
+	 * Returns number of trips from source to destination with exactly given stops, MAX_COUNT if it does
+	 * not fit in a long.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param stops
+	 * @return
+	 */
+	public static long countTripsWithExactlyNStops(IndexedGraph<?> graph, int source, int destination, int stops) {
+		return countTrips(graph, source, destination, stops, true, null);
+	}
+
+	/**
+	 * Same as countTripsWithExactlyNStops, extending trips only through the towns marked in reaching.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param stops
+	 * @param reaching
+	 * @return
+	 */
+	public static long countTripsWithExactlyNStops(IndexedGraph<?> graph, int source, int destination, int stops,
+			boolean[] reaching) {
+		return countTrips(graph, source, destination, stops, true, reaching);
+	}
+
+	/**
+	 * Returns number of trips from source to destination with one up to given stops, MAX_COUNT if it does
+	 * not fit in a long.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param stops
+	 * @return
+	 */
+	public static long countTripsWithMaxNStops(IndexedGraph<?> graph, int source, int destination, int stops) {
+		return countTrips(graph, source, destination, stops, false, null);
+	}
+
+	/**
+	 * Same as countTripsWithMaxNStops, extending trips only through the towns marked in reaching.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param stops
+	 * @param reaching
+	 * @return
+	 */
+	public static long countTripsWithMaxNStops(IndexedGraph<?> graph, int source, int destination, int stops,
+			boolean[] reaching) {
+		return countTrips(graph, source, destination, stops, false, reaching);
+	}
+
+	/**
+	 * Helper method which runs stops rounds of the recurrence, keeping only previous and current round
+	 * and the towns each of them reached.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param stops
+	 * @param exactly
+	 * @param reaching towns which reach destination, null for all
+	 * @return
+	 */
+	private static long countTrips(IndexedGraph<?> graph, int source, int destination, int stops, boolean exactly,
+			boolean[] reaching) {
+		int vertexCount = graph.getVertexCount();
+		long[] previous = new long[vertexCount];
+		long[] current = new long[vertexCount];
+		int[] previousReached = new int[vertexCount];
+		int[] currentReached = new int[vertexCount];
+		previous[source] = 1;
+		previousReached[0] = source;
+		int previousCount = 1;
+		long trips = 0;
+		long expanded = 0;
+		long relaxed = 0;
+		for (int stop = 1; stop <= stops && previousCount > 0; stop++) {
+			int currentCount = 0;
+			for (int i = 0; i < previousCount; i++) {
+				int vertex = previousReached[i];
+				long count = previous[vertex];
+				previous[vertex] = 0;
+				int degree = graph.getDegree(vertex);
+				expanded++;
+				relaxed += degree;
+				for (int edge = 0; edge < degree; edge++) {
+					int target = graph.getTarget(vertex, edge);
+					if (reaching != null && !reaching[target] && target != destination) {
+						continue;
+					}
+					if (current[target] == 0) {
+						currentReached[currentCount++] = target;
+					}
+					current[target] = add(current[target], count);
+				}
+			}
+			if (!exactly || stop == stops) {
+				trips = add(trips, current[destination]);
+			}
+			long[] swap = previous;
+			previous = current;
+			current = swap;
+			int[] swapReached = previousReached;
+			previousReached = currentReached;
+			currentReached = swapReached;
+			previousCount = currentCount;
+		}
+		QueryProbe.count(expanded, relaxed, 0);
+		return trips;
+	}
+
+	/**
+	 * Returns number of trips from source to destination having total distance less than weight,
+	 * MAX_COUNT if it does not fit in a long. Runs in O(weight + reached (vertex, distance) pairs * degree)
+	 * time. Pending distances are kept in a ring of rows as long as the longest edge met so far, and every
+	 * row holds only the towns reached at its distance.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param weight
+	 * @return
+	 * @throws IllegalArgumentException if a trip reaches an edge with a distance less than 1
+	 */
+	public static long countTripsWithMaxWeight(IndexedGraph<?> graph, int source, int destination, int weight) {
+		return countTripsWithMaxWeight(graph, source, destination, weight, null);
+	}
+
+	/**
+	 * Same as countTripsWithMaxWeight, extending trips only through the towns marked in reaching.
+	 *
+	 * @param graph
+	 * @param source
+	 * @param destination
+	 * @param weight
+	 * @param reaching
+	 * @return
+	 * @throws IllegalArgumentException if a trip reaches an edge with a distance less than 1
+	 */
+	public static long countTripsWithMaxWeight(IndexedGraph<?> graph, int source, int destination, int weight,
+			boolean[] reaching) {
+		if (weight <= 0) {
+			return 0;
+		}
+		Rows rows = new Rows(Math.min(weight, 16));
+		rows.add(0, source, 1);
+		// Trips of the row being expanded, summed per town.
+		long[] routes = new long[graph.getVertexCount()];
+		int[] reached = new int[graph.getVertexCount()];
+		long count = 0;
+		long expanded = 0;
+		long relaxed = 0;
+		for (int distance = 0; distance < weight && rows.pending > 0; distance++) {
+			int reachedCount = rows.drain(distance, routes, reached);
+			for (int i = 0; i < reachedCount; i++) {
+				int vertex = reached[i];
+				long trips = routes[vertex];
+				routes[vertex] = 0;
+				if (vertex == destination && distance > 0) {
+					count = add(count, trips);
+				}
+				int degree = graph.getDegree(vertex);
+				expanded++;
+				relaxed += degree;
+				for (int edge = 0; edge < degree; edge++) {
+					int edgeWeight = graph.getWeight(vertex, edge);
+					if (edgeWeight < 1) {
+						throw new IllegalArgumentException("Distance must be positive :: " + graph.getVertex(vertex)
+								+ graph.getVertex(graph.getTarget(vertex, edge)) + edgeWeight);
+					}
+					int target = graph.getTarget(vertex, edge);
+					if (edgeWeight < weight - distance && (reaching == null || reaching[target] || target == destination)) {
+						rows.ensureLength(distance, edgeWeight + 1);
+						rows.add(distance + edgeWeight, target, trips);
+					}
+				}
+			}
+		}
+		QueryProbe.count(expanded, relaxed, 0);
+		return count;
+	}
+
+	private static long add(long count, long trips) {
+		long sum = count + trips;
+		return sum < 0 ? MAX_COUNT : sum;
+	}
+
+	/**
+	 * Ring of pending distances, row distance % length holds (town, trips) pairs of trips of exactly that
+	 * distance, a town possibly more than once.
+	 */
+	private static final class Rows {
+		private int[][] vertices;
+		private long[][] trips;
+		private int[] sizes;
+		/* Number of rows holding pairs */
+		int pending;
+
+		Rows(int length) {
+			vertices = new int[length][];
+			trips = new long[length][];
+			sizes = new int[length];
+		}
+
+		void add(int distance, int vertex, long count) {
+			int row = distance % sizes.length;
+			int size = sizes[row];
+			if (size == 0) {
+				pending++;
+				if (vertices[row] == null) {
+					vertices[row] = new int[8];
+					trips[row] = new long[8];
+				}
+			}
+			if (size == vertices[row].length) {
+				vertices[row] = Arrays.copyOf(vertices[row], size * 2);
+				trips[row] = Arrays.copyOf(trips[row], size * 2);
+			}
+			vertices[row][size] = vertex;
+			trips[row][size] = count;
+			sizes[row] = size + 1;
+		}
+
+		/**
+		 * Empties the row of distance into routes, summing the trips per town, and returns the number of
+		 * towns listed in reached.
+		 */
+		int drain(int distance, long[] routes, int[] reached) {
+			int row = distance % sizes.length;
+			int size = sizes[row];
+			if (size == 0) {
+				return 0;
+			}
+			int count = 0;
+			for (int i = 0; i < size; i++) {
+				int vertex = vertices[row][i];
+				if (routes[vertex] == 0) {
+					reached[count++] = vertex;
+				}
+				routes[vertex] = TripCounter.add(routes[vertex], trips[row][i]);
+			}
+			sizes[row] = 0;
+			pending--;
+			return count;
+		}
+
+		/**
+		 * Grows the ring to at least length rows while the row of distance is being expanded, moving the
+		 * pending rows, which hold distances after it, to their new positions.
+		 */
+		void ensureLength(int distance, int length) {
+			int oldLength = sizes.length;
+			if (length <= oldLength) {
+				return;
+			}
+			int newLength = Math.max(length, oldLength * 2);
+			int[][] newVertices = new int[newLength][];
+			long[][] newTrips = new long[newLength][];
+			int[] newSizes = new int[newLength];
+			for (int offset = 0; offset < oldLength; offset++) {
+				int row = (distance + offset) % oldLength;
+				int newRow = (distance + offset) % newLength;
+				newVertices[newRow] = vertices[row];
+				newTrips[newRow] = trips[row];
+				newSizes[newRow] = sizes[row];
+			}
+			vertices = newVertices;
+			trips = newTrips;
+			sizes = newSizes;
+		}
+	}
+}
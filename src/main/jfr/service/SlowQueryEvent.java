@@ -0,0 +1,69 @@
+package service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for a query slower than the threshold of its QueryMetrics. Only loaded by name
+ * when the JVM has jdk.jfr, see QueryMetrics. Recorded when a recording enables railroad.SlowQuery, e.g.
+ * java -XX:StartFlightRecording:settings=default,filename=queries.jfr.
+ * <p>
+ * Kept out of src/main/java, which compiles for Java 8: the jfr profile compiles it for Java 11 when the
+ * build runs on JDK 11 or later, and builds on older JDKs leave it out.
+ *
+ * @author Rushikesh Teli
+ *
+ */
+@Name("railroad.SlowQuery")
+@Label("Slow Query")
+@Category("Railroad")
+@Description("Query slower than the slow query threshold of the query metrics")
+@StackTrace(false)
+final class SlowQueryEvent extends Event {
+
+	@Label("Query Type")
+	String queryType;
+
+	@Label("Source")
+	String source;
+
+	@Label("Destination")
+	String destination;
+
+	@Label("Latency")
+	@Timespan(Timespan.NANOSECONDS)
+	long latency;
+
+	@Label("Vertices Expanded")
+	long verticesExpanded;
+
+	@Label("Edges Relaxed")
+	long edgesRelaxed;
+
+	@Label("Paths Materialized")
+	long pathsMaterialized;
+
+	static final class Emitter implements QueryMetrics.SlowQueryListener {
+
+		@Override
+		public void slowQuery(String type, String source, String destination, long latency, long verticesExpanded,
+				long edgesRelaxed, long pathsMaterialized) {
+			SlowQueryEvent event = new SlowQueryEvent();
+			if (event.shouldCommit()) {
+				event.queryType = type;
+				event.source = source;
+				event.destination = destination;
+				event.latency = latency;
+				event.verticesExpanded = verticesExpanded;
+				event.edgesRelaxed = edgesRelaxed;
+				event.pathsMaterialized = pathsMaterialized;
+				event.commit();
+			}
+		}
+	}
+}
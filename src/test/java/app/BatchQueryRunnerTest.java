@@ -0,0 +1,116 @@
+package app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import domain.CompactGraph;
+import junit.framework.TestCase;
+import service.GraphService;
+import service.GraphServiceTest;
+
+/**
+ * Unit test for BatchQueryRunner.
+ */
+public class BatchQueryRunnerTest extends TestCase{
+
+	private CompactGraph<String> graph;
+	private GraphService graphService;
+
+	@Before
+	public void setUp() {
+		graph = new CompactGraph<>(TrainInfo.populateGraphfromInput(GraphServiceTest.input));
+		graphService = new GraphService();
+	}
+
+	@Test
+	public void testRunMatchesSequentialCalls(){
+		List<String> lines = new ArrayList<>();
+		List<String> expected = new ArrayList<>();
+		String[] towns = {"A", "B", "C", "D", "E"};
+		Random random = new Random(7);
+		for(int i=0;i<2000;i++){
+			String from = towns[random.nextInt(towns.length)];
+			String to = towns[random.nextInt(towns.length)];
+			int limit = random.nextInt(40);
+			switch(i % 5){
+			case 0:
+				lines.add("distance " + from + "-" + to + "-" + from);
+				expected.add(graphService.getRouteDistance(from + "-" + to + "-" + from, graph));
+				break;
+			case 1:
+				lines.add("shortest " + from + " " + to);
+				expected.add(graphService.getShortestRoute(graph, from, to));
+				break;
+			case 2:
+				lines.add("maxstops " + from + " " + to + " " + limit % 8);
+				expected.add(String.valueOf(graphService.findTripsWithMaxNStops(graph, from, to, limit % 8)));
+				break;
+			case 3:
+				lines.add("exactstops " + from + " " + to + " " + limit % 8);
+				expected.add(String.valueOf(graphService.findTripsWithExactlyNStops(graph, from, to, limit % 8)));
+				break;
+			default:
+				lines.add("maxdistance " + from + " " + to + " " + limit);
+				expected.add(String.valueOf(graphService.findTripsWithMaxWeight(graph, from, to, limit)));
+			}
+		}
+		String[] results = new BatchQueryRunner(graphService, graph, 4).run(lines);
+		for(int i=0;i<results.length;i++){
+			assertEquals(lines.get(i), expected.get(i), results[i]);
+		}
+	}
+
+	@Test
+	public void testRunStreamsResultsInOrder() throws IOException{
+		StringBuilder queries = new StringBuilder("# Kiwiland\n\n");
+		StringBuilder expected = new StringBuilder();
+		for(int i=0;i<40000;i++){
+			queries.append("maxstops C C ").append(i % 5).append('\n');
+			expected.append(graphService.findTripsWithMaxNStops(graph, "C", "C", i % 5)).append('\n');
+		}
+		StringWriter out = new StringWriter();
+		new BatchQueryRunner(graphService, graph, 3).run(new BufferedReader(new StringReader(queries.toString())), out);
+		assertEquals(expected.toString(), out.toString());
+	}
+
+	@Test
+	public void testInvalidQuery(){
+		BatchQueryRunner runner = new BatchQueryRunner(graphService, graph, 1);
+		assertEquals("9", runner.evaluate("distance A-B-C"));
+		assertEquals("NO SUCH ROUTE", runner.evaluate("distance A-E-D"));
+		assertTrue(runner.evaluate("shortest A").startsWith(Query.INVALID_QUERY));
+		assertTrue(runner.evaluate("maxstops C C three").startsWith(Query.INVALID_QUERY));
+		assertTrue(runner.evaluate("fly A B").startsWith(Query.INVALID_QUERY));
+		assertEquals("A-B-C 9, A-D-C 13, A-E-B-C 14", runner.evaluate("routes A C 3"));
+		assertEquals("NO SUCH ROUTE", runner.evaluate("routes A X 3"));
+	}
+
+	@Test
+	public void testQueryStationNamesWithSpaces() throws IOException{
+		Path file = Files.createTempFile("network", ".csv");
+		file.toFile().deleteOnExit();
+		Files.write(file, "New Plymouth,Wellington,350\nWellington,Picton,92\nPicton,New Plymouth,500\n"
+				.getBytes(StandardCharsets.UTF_8));
+		BatchQueryRunner runner = new BatchQueryRunner(graphService, NetworkLoader.load(file), 1);
+		assertEquals("442", runner.evaluate("distance New Plymouth-Wellington-Picton"));
+		assertEquals("442", runner.evaluate("shortest New Plymouth,Picton"));
+		assertEquals("442", runner.evaluate("shortest  New Plymouth , Picton "));
+		assertEquals("1", runner.evaluate("maxstops New Plymouth,New Plymouth,3"));
+		assertEquals("New Plymouth-Wellington-Picton 442", runner.evaluate("routes New Plymouth,Picton,1"));
+		assertTrue(runner.evaluate("shortest New Plymouth Picton").startsWith(Query.INVALID_QUERY));
+		assertTrue(runner.evaluate("shortest New Plymouth,").startsWith(Query.INVALID_QUERY));
+		assertEquals("shortest New Plymouth,Picton", Query.parse("shortest New Plymouth , Picton").toString());
+		assertEquals("maxstops A C 3", Query.parse("maxstops A,C,3").toString());
+	}
+}
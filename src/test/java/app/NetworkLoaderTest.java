@@ -0,0 +1,93 @@
+package app;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import domain.CompactGraph;
+import domain.DirectedGraph;
+import domain.SnapshotGraph;
+import junit.framework.TestCase;
+import service.GraphService;
+
+/**
+ * Unit test for NetworkLoader.
+ */
+public class NetworkLoaderTest extends TestCase{
+
+	private static Path write(String content) throws IOException {
+		Path file = Files.createTempFile("network", ".csv");
+		file.toFile().deleteOnExit();
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	@Test
+	public void testLoadCompactGraph() throws IOException{
+		Path file = write("# Kiwiland\nA,B,5\nB,C,4\r\nC,D,8\nD,C,8\nD,E,6\n\nA,D,5\nC,E,2\nE,B,3\nA,E,7");
+		CompactGraph<String> graph = NetworkLoader.load(file);
+		assertEquals(5, graph.getVertexCount());
+		assertEquals(9, graph.getEdgeCount());
+		GraphService graphService = new GraphService();
+		assertEquals("22", graphService.getRouteDistance("A-E-B-C-D", graph));
+		assertEquals("9", graphService.getShortestRoute(graph, "B", "B"));
+		assertEquals(7, graphService.findTripsWithMaxWeight(graph, "C", "C", 30));
+	}
+
+	@Test
+	public void testLoadOffHeap() throws IOException{
+		Path file = write("# Kiwiland\nA,B,5\nB,C,4\r\nC,D,8\nD,C,8\nD,E,6\n\nA,D,5\nC,E,2\nE,B,3\nA,E,7");
+		CompactGraph<String> graph = NetworkLoader.load(file);
+		SnapshotGraph offHeap = NetworkLoader.loadOffHeap(file);
+		assertEquals(graph.getVertexCount(), offHeap.getVertexCount());
+		assertEquals(graph.getEdgeCount(), offHeap.getEdgeCount());
+		assertEquals(graph.getFingerprint(), offHeap.getFingerprint());
+		for(int v=0;v<graph.getVertexCount();v++){
+			assertEquals(graph.getVertex(v), offHeap.getVertex(v));
+			assertEquals(graph.getDegree(v), offHeap.getDegree(v));
+		}
+		GraphService graphService = new GraphService();
+		assertEquals("22", graphService.getRouteDistance("A-E-B-C-D", offHeap));
+		assertEquals("9", graphService.getShortestRoute(offHeap, "B", "B"));
+		assertEquals(7, graphService.findTripsWithMaxWeight(offHeap, "C", "C", 30));
+	}
+
+	@Test
+	public void testLoadLongStationNames() throws IOException{
+		Path file = write("Kaitaia, Invercargill ,1250\nInvercargill,Dunedin, 205\n");
+		DirectedGraph<String> graph = NetworkLoader.load(file, new DirectedGraph<String>());
+		assertEquals(1250, graph.getWeight("Kaitaia", "Invercargill"));
+		assertEquals(205, graph.getWeight("Invercargill", "Dunedin"));
+		assertEquals(3, graph.getNeighbors().size());
+		// Route distances split journeys into towns, whatever the length of their names.
+		GraphService graphService = new GraphService();
+		CompactGraph<String> compact = NetworkLoader.load(file);
+		assertEquals("1250", graphService.getRouteDistance("Kaitaia-Invercargill", graph));
+		assertEquals("1455", graphService.getRouteDistance("Kaitaia-Invercargill-Dunedin", graph));
+		assertEquals(graphService.getRouteDistance("Kaitaia-Invercargill-Dunedin", compact),
+				graphService.getRouteDistance("Kaitaia-Invercargill-Dunedin", graph));
+		assertEquals(GraphService.NO_SUCH_ROUTE, graphService.getRouteDistance("Kaitaia-Dunedin", graph));
+		assertEquals(GraphService.NO_SUCH_ROUTE, graphService.getRouteDistance("Kaitaia", graph));
+	}
+
+	@Test
+	public void testLoadInvalidRecord() throws IOException{
+		assertInvalid("A,B,5\nA,C\n");
+		assertInvalid("A,A,5\n");
+		assertInvalid("A,B,x\n");
+		assertInvalid("A,B,5,6\n");
+		assertInvalid("A,B,99999999999\n");
+	}
+
+	private static void assertInvalid(String content) throws IOException {
+		try{
+			NetworkLoader.load(write(content));
+			fail("Expected invalid input :: " + content);
+		}catch(IllegalArgumentException ex){
+			// expected
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package app;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for QueryCoalescer.
+ */
+public class QueryCoalescerTest extends TestCase{
+
+	@Test
+	public void testConcurrentIdenticalQueriesComputedOnce() throws Exception{
+		final QueryCoalescer coalescer = new QueryCoalescer();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger computations = new AtomicInteger();
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		try{
+			Future<String> first = threads.submit(() -> coalescer.evaluate("shortest A C", () -> {
+				computations.incrementAndGet();
+				started.countDown();
+				await(release);
+				return "9";
+			}));
+			started.await();
+			Future<String> second = threads.submit(() -> coalescer.evaluate("shortest A C", () -> {
+				computations.incrementAndGet();
+				return "other";
+			}));
+			while(coalescer.getCoalescedCount() == 0){
+				Thread.sleep(1);
+			}
+			assertEquals("B", coalescer.evaluate("shortest A B", () -> "B"));
+			release.countDown();
+			assertEquals("9", first.get());
+			assertEquals("9", second.get());
+			assertEquals(1, computations.get());
+			assertEquals(2, coalescer.getComputedCount());
+			assertEquals(1, coalescer.getCoalescedCount());
+			// Nothing is cached once the computation is done.
+			assertEquals("again", coalescer.evaluate("shortest A C", () -> "again"));
+		}finally{
+			threads.shutdown();
+		}
+	}
+
+	@Test
+	public void testFailureIsSharedAndForgotten(){
+		QueryCoalescer coalescer = new QueryCoalescer();
+		try{
+			coalescer.evaluate("maxstops C C 3", () -> {
+				throw new IllegalArgumentException("boom");
+			});
+			fail();
+		}catch(IllegalArgumentException e){
+			assertEquals("boom", e.getMessage());
+		}
+		assertEquals("2", coalescer.evaluate("maxstops C C 3", () -> "2"));
+	}
+
+	private static void await(CountDownLatch latch){
+		try{
+			latch.await();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import domain.CompactGraph;
+import junit.framework.TestCase;
+import service.GraphService;
+import service.QueryMetrics;
+import service.GraphServiceTest;
+
+/**
+ * Unit test for QueryServer, through a loopback client.
+ */
+public class QueryServerTest extends TestCase{
+
+	private GraphService graphService;
+	private QueryServer server;
+
+	@Before
+	public void setUp() throws IOException {
+		CompactGraph<String> graph = new CompactGraph<>(TrainInfo.populateGraphfromInput(GraphServiceTest.input));
+		graphService = new GraphService();
+		server = new QueryServer(graphService, graph, 2);
+		server.start(0);
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	public void testGetQuery() throws IOException{
+		assertEquals("9", get("/query?q=" + URLEncoder.encode("distance A-B-C", "UTF-8")));
+		assertEquals("9", get("/query?q=shortest+A+C"));
+		assertEquals("NO SUCH ROUTE", get("/query?q=distance+A-E-D"));
+		assertEquals("2", get("/query?q=maxstops+C+C+3"));
+		assertEquals("3", get("/query?q=exactstops+A+C+4"));
+		assertEquals("7", get("/query?q=maxdistance+C+C+30"));
+		assertEquals("OK", get("/health"));
+	}
+
+	@Test
+	public void testBadRequests() throws IOException{
+		assertEquals(400, status("/query?q=fly+A+B"));
+		assertEquals(400, status("/query"));
+		assertEquals(404, status("/queries"));
+		assertEquals(400, status("/query?q=%zz"));
+		assertEquals(400, status("/query?q=shortest+A+%C"));
+	}
+
+	@Test
+	public void testRejectedQueryIsBadRequest() throws IOException{
+		QueryServer zeroEdge = new QueryServer(graphService,
+				new CompactGraph<>(TrainInfo.populateGraphfromInput(new String[]{"AB0,BA1"})), 2);
+		zeroEdge.start(0);
+		try{
+			HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + zeroEdge.getPort()
+					+ "/query?q=maxdistance+A+A+5").openConnection();
+			assertEquals(400, connection.getResponseCode());
+			assertTrue(read(connection.getErrorStream()).startsWith(Query.ERROR + " :: "));
+		}finally{
+			zeroEdge.stop(0);
+		}
+	}
+
+	@Test
+	public void testMetrics() throws IOException{
+		assertEquals(404, status("/metrics"));
+		graphService.setQueryMetrics(new QueryMetrics());
+		assertEquals("9", get("/query?q=shortest+A+C"));
+		String metrics = get("/metrics");
+		assertTrue(metrics, metrics.startsWith("query "));
+		assertTrue(metrics, metrics.contains("\nshortest_route "));
+		assertFalse(metrics, metrics.contains("route_distance"));
+	}
+
+	@Test
+	public void testPostBatch() throws IOException{
+		String body = "# Kiwiland\ndistance A-D\n\nshortest B B\nfly A B\n";
+		HttpURLConnection connection = open("/query");
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		try(OutputStream out = connection.getOutputStream()){
+			out.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+		assertEquals(200, connection.getResponseCode());
+		assertEquals("5\n9\n" + Query.INVALID_QUERY + " :: fly A B\n", read(connection.getInputStream()));
+	}
+
+	@Test
+	public void testConcurrentClients() throws Exception{
+		ExecutorService clients = Executors.newFixedThreadPool(8);
+		try{
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			for(int i=0;i<64;i++){
+				results.add(clients.submit(() -> get("/query?q=SHORTEST+A+C")));
+			}
+			for(Future<String> result : results){
+				assertEquals("9", result.get());
+			}
+		}finally{
+			clients.shutdown();
+		}
+		QueryCoalescer coalescer = server.getCoalescer();
+		assertEquals(64, coalescer.getComputedCount() + coalescer.getCoalescedCount());
+	}
+
+	private String get(String path) throws IOException{
+		HttpURLConnection connection = open(path);
+		assertEquals(200, connection.getResponseCode());
+		return read(connection.getInputStream());
+	}
+
+	private int status(String path) throws IOException{
+		HttpURLConnection connection = open(path);
+		int status = connection.getResponseCode();
+		read(connection.getErrorStream());
+		return status;
+	}
+
+	private HttpURLConnection open(String path) throws IOException{
+		return (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+	}
+
+	private static String read(InputStream in) throws IOException{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(InputStream stream = in){
+			byte[] buffer = new byte[4096];
+			int length;
+			while((length = stream.read(buffer)) > 0){
+				bytes.write(buffer, 0, length);
+			}
+		}
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,62 @@
+package domain;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class CompactGraphTest extends TestCase{
+
+	@Test
+	public void testCompactGraphFromDirectedGraph(){
+		DirectedGraph<String> graph = new DirectedGraph<>();
+		graph.add("A", "B", 7);
+		graph.add("A", "C", 3);
+		graph.add("C", "B", 2);
+		CompactGraph<String> compact = new CompactGraph<>(graph);
+		assertEquals(3, compact.getVertexCount());
+		assertEquals(3, compact.getEdgeCount());
+		int a = compact.indexOf("A");
+		assertEquals("A", compact.getVertex(a));
+		assertEquals(2, compact.getDegree(a));
+		assertEquals(0, compact.getDegree(compact.indexOf("B")));
+		assertEquals(-1, compact.indexOf("X"));
+		int weights = 0;
+		for(int i=0;i<compact.getDegree(a);i++){
+			weights += compact.getWeight(a, i);
+		}
+		assertEquals(10, weights);
+	}
+
+	@Test
+	public void testCompactGraphFromEdgeList(){
+		String[] vertices = {"A", "B", "C"};
+		int[] from = {2, 0, 0};
+		int[] to = {1, 1, 2};
+		int[] weight = {2, 7, 3};
+		CompactGraph<String> compact = new CompactGraph<>(vertices, from, to, weight, 3);
+		assertEquals(2, compact.getDegree(0));
+		assertEquals(0, compact.getDegree(1));
+		assertEquals(1, compact.getDegree(2));
+		assertEquals(1, compact.getTarget(2, 0));
+		assertEquals(2, compact.getWeight(2, 0));
+	}
+
+	@Test
+	public void testReverse(){
+		DirectedGraph<String> graph = new DirectedGraph<>();
+		graph.add("A", "B", 7);
+		graph.add("A", "C", 3);
+		graph.add("C", "B", 2);
+		CompactGraph<String> compact = new CompactGraph<>(graph);
+		CompactGraph<String> reverse = CompactGraph.reverse(compact);
+		assertEquals(3, reverse.getEdgeCount());
+		for(int v=0;v<compact.getVertexCount();v++){
+			assertEquals(compact.getVertex(v), reverse.getVertex(v));
+		}
+		int b = reverse.indexOf("B");
+		assertEquals(2, reverse.getDegree(b));
+		assertEquals(0, reverse.getDegree(reverse.indexOf("A")));
+		assertEquals(reverse.indexOf("A"), reverse.getTarget(reverse.indexOf("C"), 0));
+		assertEquals(3, reverse.getWeight(reverse.indexOf("C"), 0));
+	}
+}
@@ -0,0 +1,116 @@
+package domain;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class ConcurrentDirectedGraphTest extends TestCase{
+
+	@Test
+	public void testSnapshotIsolation(){
+		ConcurrentDirectedGraph<String> graph = new ConcurrentDirectedGraph<>();
+		graph.add("A", "B", 5);
+		ConcurrentDirectedGraph.Snapshot<String> before = graph.snapshot();
+		graph.apply(new GraphUpdate<String>().addEdge("B", "C", 4).setWeight("A", "B", 7));
+		ConcurrentDirectedGraph.Snapshot<String> after = graph.snapshot();
+		assertEquals(2, before.getVertexCount());
+		assertEquals(1, before.getEdgeCount());
+		assertEquals(-1, before.indexOf("C"));
+		assertEquals(5, before.getWeight(before.indexOf("A"), 0));
+		assertEquals(3, after.getVertexCount());
+		assertEquals(2, after.getEdgeCount());
+		assertEquals(7, after.getWeight(after.indexOf("A"), 0));
+		assertEquals(before.getVersion() + 1, after.getVersion());
+	}
+
+	@Test
+	public void testRemoveEdgeAndFingerprint(){
+		DirectedGraph<String> directed = new DirectedGraph<>();
+		directed.add("A", "B", 5);
+		directed.add("B", "C", 4);
+		ConcurrentDirectedGraph<String> graph = new ConcurrentDirectedGraph<>(directed);
+		assertEquals(directed.getFingerprint(), graph.snapshot().getFingerprint());
+		graph.apply(new GraphUpdate<String>().removeEdge("A", "B").setWeight("B", "C", 9).removeEdge("X", "Y"));
+		ConcurrentDirectedGraph.Snapshot<String> snapshot = graph.snapshot();
+		assertEquals(0, snapshot.getDegree(snapshot.indexOf("A")));
+		assertEquals(1, snapshot.getEdgeCount());
+		assertEquals(GraphFingerprint.of(snapshot), snapshot.getFingerprint());
+		assertEquals(new CompactGraph<>(new String[]{"A", "B", "C"}, new int[]{1}, new int[]{2}, new int[]{9}, 1).getFingerprint(),
+				snapshot.getFingerprint());
+	}
+
+	@Test
+	public void testManyVerticesAcrossPages(){
+		ConcurrentDirectedGraph<Integer> graph = new ConcurrentDirectedGraph<>();
+		GraphUpdate<Integer> update = new GraphUpdate<>();
+		for(int i=0;i<5000;i++){
+			update.addEdge(i, i + 1, 1);
+		}
+		graph.apply(update);
+		ConcurrentDirectedGraph.Snapshot<Integer> snapshot = graph.snapshot();
+		assertEquals(5001, snapshot.getVertexCount());
+		assertEquals(5000, snapshot.getEdgeCount());
+		int v = snapshot.indexOf(4321);
+		assertEquals(4322, (int) snapshot.getVertex(snapshot.getTarget(v, 0)));
+	}
+
+	@Test
+	public void testReadersSeeAtomicBatches() throws InterruptedException{
+		// Every batch moves one unit of weight between the two edges, readers must always see a sum of 10.
+		final ConcurrentDirectedGraph<String> graph = new ConcurrentDirectedGraph<>();
+		graph.apply(new GraphUpdate<String>().addEdge("A", "B", 5).addEdge("B", "A", 5));
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicReference<String> failure = new AtomicReference<>();
+		Thread reader = new Thread(new Runnable() {
+			public void run() {
+				while(running.get()){
+					ConcurrentDirectedGraph.Snapshot<String> snapshot = graph.snapshot();
+					int sum = snapshot.getWeight(snapshot.indexOf("A"), 0) + snapshot.getWeight(snapshot.indexOf("B"), 0);
+					if(sum != 10){
+						failure.set("Inconsistent snapshot " + snapshot.getVersion());
+					}
+				}
+			}
+		});
+		reader.start();
+		for(int i=0;i<20000;i++){
+			int a = i % 10;
+			graph.apply(new GraphUpdate<String>().setWeight("A", "B", a).setWeight("B", "A", 10 - a));
+		}
+		running.set(false);
+		reader.join();
+		assertNull(failure.get());
+	}
+
+	@Test
+	public void testFailedBatchLeavesDictionaryUnchanged(){
+		ConcurrentDirectedGraph<Object> graph = new ConcurrentDirectedGraph<>();
+		graph.add("A", "B", 5);
+		Object broken = new Object(){
+			@Override
+			public int hashCode(){
+				throw new IllegalStateException("broken");
+			}
+		};
+		try{
+			graph.apply(new GraphUpdate<Object>().addEdge("B", "X", 1).addEdge("X", broken, 1));
+			fail();
+		}catch(IllegalStateException e){
+			assertEquals("broken", e.getMessage());
+		}
+		ConcurrentDirectedGraph.Snapshot<Object> failed = graph.snapshot();
+		assertEquals(2, failed.getVertexCount());
+		assertEquals(-1, failed.indexOf("X"));
+		graph.apply(new GraphUpdate<Object>().addEdge("B", "Y", 2).addEdge("Y", "X", 3));
+		ConcurrentDirectedGraph.Snapshot<Object> snapshot = graph.snapshot();
+		assertEquals(4, snapshot.getVertexCount());
+		assertEquals("Y", snapshot.getVertex(snapshot.indexOf("Y")));
+		assertEquals("X", snapshot.getVertex(snapshot.indexOf("X")));
+		assertEquals(snapshot.indexOf("X"), snapshot.getTarget(snapshot.indexOf("Y"), 0));
+		assertEquals(-1, failed.indexOf("Y"));
+		assertEquals(GraphFingerprint.of(snapshot), snapshot.getFingerprint());
+	}
+}
@@ -15,6 +15,71 @@ public class DirectedGraphTest extends TestCase{
 		assertEquals(0, graph.getNeighbors().get("B").size());
 		assertEquals(1, graph.getEdges("A").size());
 		assertEquals(7, graph.getWeight("A", "B"));
+		assertEquals(3, graph.getVersion());
 	}
 
+	@Test
+	public void testRemoveAndSetWeight(){
+		DirectedGraph<String> graph = new DirectedGraph<>();
+		graph.add("A", "B", 7);
+		graph.add("A", "B", 9);
+		graph.add("A", "C", 2);
+		long fingerprint = graph.getFingerprint();
+		assertEquals(2, graph.setWeight("A", "B", 4));
+		assertEquals(4, graph.getWeight("A", "B"));
+		assertEquals(0, graph.setWeight("B", "A", 4));
+		assertEquals(2, graph.remove("A", "B"));
+		assertEquals(-1, graph.getWeight("A", "B"));
+		assertEquals(0, graph.remove("A", "B"));
+		assertEquals(8, graph.getVersion());
+		graph.add("A", "B", 7);
+		graph.add("A", "B", 9);
+		assertEquals(fingerprint, graph.getFingerprint());
+	}
+
+	@Test
+	public void testListeners(){
+		final StringBuilder events = new StringBuilder();
+		GraphListener<String> listener = new GraphListener<String>() {
+			public void vertexAdded(String vertex) {
+				events.append("+").append(vertex).append(' ');
+			}
+			public void edgeAdded(String from, String to, int weight) {
+				events.append("+").append(from).append(to).append(weight).append(' ');
+			}
+			public void edgesRemoved(String from, String to) {
+				events.append("-").append(from).append(to).append(' ');
+			}
+			public void weightChanged(String from, String to, int weight) {
+				events.append("=").append(from).append(to).append(weight).append(' ');
+			}
+		};
+		DirectedGraph<String> graph = new DirectedGraph<>();
+		graph.addListener(listener);
+		graph.add("A", "B", 7);
+		graph.setWeight("A", "B", 3);
+		graph.setWeight("A", "C", 3);
+		graph.remove("A", "B");
+		graph.remove("A", "B");
+		graph.removeListener(listener);
+		graph.add("B", "C", 1);
+		assertEquals("+A +B +AB7 =AB3 -AB ", events.toString());
+	}
+
+
+	@Test
+	public void testSnapshotIsSharedUntilModified(){
+		DirectedGraph<String> graph = new DirectedGraph<>();
+		graph.add("A", "B", 5);
+		CompactGraph<String> snapshot = graph.snapshot();
+		assertSame(snapshot, graph.snapshot());
+		assertEquals(graph.getFingerprint(), snapshot.getFingerprint());
+		graph.add("B", "C", 4);
+		CompactGraph<String> next = graph.snapshot();
+		assertNotSame(snapshot, next);
+		assertEquals(2, snapshot.getVertexCount());
+		assertEquals(3, next.getVertexCount());
+		graph.setWeight("A", "B", 7);
+		assertEquals(7, graph.snapshot().getWeight(graph.snapshot().indexOf("A"), 0));
+	}
 }
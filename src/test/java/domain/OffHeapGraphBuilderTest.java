@@ -0,0 +1,119 @@
+package domain;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class OffHeapGraphBuilderTest extends TestCase{
+
+	/**
+	 * Adds stations and edges of graph to builder in index order, so the built graph has the same indices.
+	 */
+	private static SnapshotGraph copy(IndexedGraph<String> graph){
+		OffHeapGraphBuilder builder = new OffHeapGraphBuilder();
+		for(int v=0;v<graph.getVertexCount();v++){
+			assertEquals(v, builder.addStation(graph.getVertex(v)));
+		}
+		for(int v=0;v<graph.getVertexCount();v++){
+			for(int i=0;i<graph.getDegree(v);i++){
+				builder.addEdge(v, graph.getTarget(v, i), graph.getWeight(v, i));
+			}
+		}
+		assertEquals(graph.getEdgeCount(), builder.getEdgeCount());
+		return builder.build();
+	}
+
+	@Test
+	public void testBuildsSameGraph(){
+		DirectedGraph<String> graph = new DirectedGraph<>();
+		graph.add("A", "B", 5);
+		graph.add("B", "C", 4);
+		graph.add("A", "Z\u00fcrich", 7);
+		graph.add("Z\u00fcrich", "A", 2);
+		graph.add("D");
+		CompactGraph<String> compact = new CompactGraph<>(graph);
+		SnapshotGraph offHeap = copy(compact);
+		SnapshotGraphTest.assertSameGraph(compact, offHeap);
+		assertEquals(graph.getFingerprint(), offHeap.getFingerprint());
+		assertEquals(-1, offHeap.indexOf("Zurich"));
+	}
+
+	@Test
+	public void testLargeGraph() throws IOException{
+		Random random = new Random(5);
+		DirectedGraph<String> graph = new DirectedGraph<>();
+		for(int i=0;i<20000;i++){
+			graph.add("Station" + random.nextInt(5000), "Station" + random.nextInt(5000), 1 + random.nextInt(50));
+		}
+		CompactGraph<String> compact = new CompactGraph<>(graph);
+		SnapshotGraph offHeap = copy(compact);
+		SnapshotGraphTest.assertSameGraph(compact, offHeap);
+		Path file = SnapshotGraphTest.tempFile();
+		offHeap.save(file);
+		SnapshotGraphTest.assertSameGraph(compact, SnapshotGraph.load(file));
+	}
+
+	@Test
+	public void testEdgesKeepInsertionOrder(){
+		OffHeapGraphBuilder builder = new OffHeapGraphBuilder();
+		builder.addEdge("B", "C", 4);
+		builder.addEdge("A", "B", 5);
+		builder.addEdge("B", "A", 1);
+		builder.addEdge("B", "C", 4);
+		SnapshotGraph graph = builder.build();
+		assertEquals(3, graph.getVertexCount());
+		assertEquals(4, graph.getEdgeCount());
+		int b = graph.indexOf("B");
+		assertEquals(0, b);
+		assertEquals(3, graph.getDegree(b));
+		assertEquals("C", graph.getVertex(graph.getTarget(b, 0)));
+		assertEquals("A", graph.getVertex(graph.getTarget(b, 1)));
+		assertEquals(1, graph.getWeight(b, 1));
+		assertEquals(GraphFingerprint.of(graph), graph.getFingerprint());
+	}
+
+	@Test
+	public void testStationsByBytes(){
+		OffHeapGraphBuilder builder = new OffHeapGraphBuilder();
+		int zurich = builder.addStation("Z\u00fcrich");
+		byte[] bytes = "xxZ\u00fcrich".getBytes(StandardCharsets.UTF_8);
+		assertEquals(zurich, builder.addStation(bytes, 2, bytes.length - 2));
+		byte[] ascii = "Bern".getBytes(StandardCharsets.UTF_8);
+		int bern = builder.addStation(ascii, 0, ascii.length);
+		assertEquals(bern, builder.addStation("Bern"));
+		builder.addEdge(zurich, bern, 120);
+		SnapshotGraph graph = builder.build();
+		assertEquals(zurich, graph.indexOf("Z\u00fcrich"));
+		assertEquals(bern, graph.indexOf("Bern"));
+		try{
+			builder.addStation("Basel");
+			fail();
+		}catch(IllegalStateException e){
+			assertEquals("Graph already built", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testEmptyGraph(){
+		SnapshotGraph graph = new OffHeapGraphBuilder().build();
+		assertEquals(0, graph.getVertexCount());
+		assertEquals(-1, graph.indexOf("A"));
+	}
+
+	@Test
+	public void testUnknownStation(){
+		OffHeapGraphBuilder builder = new OffHeapGraphBuilder();
+		builder.addStation("A");
+		try{
+			builder.addEdge(0, 1, 5);
+			fail();
+		}catch(IllegalArgumentException e){
+			assertTrue(e.getMessage().startsWith("No such station"));
+		}
+	}
+}
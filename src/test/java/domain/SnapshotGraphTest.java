@@ -0,0 +1,105 @@
+package domain;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class SnapshotGraphTest extends TestCase{
+
+	@Test
+	public void testWriteAndLoad() throws IOException{
+		DirectedGraph<String> graph = new DirectedGraph<>();
+		graph.add("A", "B", 5);
+		graph.add("B", "C", 4);
+		graph.add("A", "Z\u00fcrich", 7);
+		graph.add("Z\u00fcrich", "A", 2);
+		graph.add("D");
+		CompactGraph<String> compact = new CompactGraph<>(graph);
+		Path file = tempFile();
+		SnapshotGraph.write(compact, file);
+		SnapshotGraph snapshot = SnapshotGraph.load(file);
+		assertSameGraph(compact, snapshot);
+		assertEquals(graph.getFingerprint(), snapshot.getFingerprint());
+		assertEquals(snapshot.getFingerprint(), GraphFingerprint.of(snapshot));
+		assertEquals(-1, snapshot.indexOf("X"));
+		assertEquals(-1, snapshot.indexOf("Zurich"));
+		assertEquals(-1, snapshot.indexOf(""));
+		assertEquals(compact.indexOf("Z\u00fcrich"), snapshot.indexOf("Z\u00fcrich"));
+	}
+
+	@Test
+	public void testLargeGraph() throws IOException{
+		Random random = new Random(3);
+		DirectedGraph<String> graph = new DirectedGraph<>();
+		for(int i=0;i<5000;i++){
+			graph.add("Station" + random.nextInt(2000), "Station" + random.nextInt(2000), 1 + random.nextInt(50));
+		}
+		CompactGraph<String> compact = new CompactGraph<>(graph);
+		Path file = tempFile();
+		SnapshotGraph.write(graph, file);
+		assertSameGraph(compact, SnapshotGraph.load(file));
+	}
+
+	@Test
+	public void testEmptyGraph() throws IOException{
+		Path file = tempFile();
+		SnapshotGraph.write(new DirectedGraph<String>(), file);
+		SnapshotGraph snapshot = SnapshotGraph.load(file);
+		assertEquals(0, snapshot.getVertexCount());
+		assertEquals(-1, snapshot.indexOf("A"));
+	}
+
+	@Test
+	public void testCorruptFile() throws IOException{
+		DirectedGraph<String> graph = new DirectedGraph<>();
+		graph.add("A", "B", 5);
+		Path file = tempFile();
+		SnapshotGraph.write(graph, file);
+		try(RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")){
+			raf.seek(raf.length() - 5);
+			int b = raf.read();
+			raf.seek(raf.length() - 5);
+			raf.write(b ^ 1);
+		}
+		try{
+			SnapshotGraph.load(file);
+			fail();
+		}catch(IOException e){
+			assertTrue(e.getMessage().contains("checksum"));
+		}
+		Files.write(file, new byte[] {1, 2, 3});
+		try{
+			SnapshotGraph.load(file);
+			fail();
+		}catch(IOException e){
+			assertTrue(e.getMessage().startsWith("Not a graph snapshot"));
+		}
+	}
+
+	static void assertSameGraph(IndexedGraph<String> expected, IndexedGraph<String> actual){
+		assertEquals(expected.getVertexCount(), actual.getVertexCount());
+		assertEquals(expected.getEdgeCount(), actual.getEdgeCount());
+		assertEquals(expected.getFingerprint(), actual.getFingerprint());
+		for(int v=0;v<expected.getVertexCount();v++){
+			assertEquals(expected.getVertex(v), actual.getVertex(v));
+			assertEquals(v, actual.indexOf(expected.getVertex(v)));
+			assertEquals(expected.getDegree(v), actual.getDegree(v));
+			for(int i=0;i<expected.getDegree(v);i++){
+				assertEquals(expected.getTarget(v, i), actual.getTarget(v, i));
+				assertEquals(expected.getWeight(v, i), actual.getWeight(v, i));
+			}
+		}
+	}
+
+	static Path tempFile() throws IOException{
+		Path file = Files.createTempFile("graph", ".snapshot");
+		file.toFile().deleteOnExit();
+		return file;
+	}
+}
@@ -0,0 +1,101 @@
+package domain;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class TimetableTest extends TestCase{
+
+	@Test
+	public void testConnectionsSortedByDepartureThenArrival(){
+		TimetableBuilder builder = new TimetableBuilder();
+		int slow = builder.addTrip();
+		int fast = builder.addTrip();
+		builder.addConnection(slow, "B", "C", 200, 300);
+		builder.addConnection(slow, "A", "B", 100, 200);
+		builder.addConnection(fast, "A", "C", 100, 150);
+		// Zero duration connections of a trip stay in order of addition.
+		builder.addConnection(fast, "C", "D", 150, 150);
+		builder.addConnection(fast, "D", "E", 150, 150);
+		Timetable timetable = builder.build();
+		assertEquals(5, timetable.getStationCount());
+		assertEquals(2, timetable.getTripCount());
+		assertEquals(5, timetable.getConnectionCount());
+		int[] departures = {100, 100, 150, 150, 200};
+		int[] arrivals = {150, 200, 150, 150, 300};
+		String[] from = {"A", "A", "C", "D", "B"};
+		for(int i=0;i<departures.length;i++){
+			assertEquals(departures[i], timetable.getDepartureTime(i));
+			assertEquals(arrivals[i], timetable.getArrivalTime(i));
+			assertEquals(from[i], timetable.getStation(timetable.getDepartureStation(i)));
+		}
+		assertEquals(fast, timetable.getTrip(0));
+		assertEquals(slow, timetable.getTrip(4));
+		assertEquals("C", timetable.getStation(timetable.getArrivalStation(4)));
+	}
+
+	@Test
+	public void testFirstDepartingAt(){
+		TimetableBuilder builder = new TimetableBuilder();
+		builder.addTrip(new String[]{"A", "B", "C", "D"}, new int[]{0, 60, 180, 300}, new int[]{0, 120, 240, 0});
+		Timetable timetable = builder.build();
+		assertEquals(0, timetable.firstDepartingAt(-5));
+		assertEquals(0, timetable.firstDepartingAt(0));
+		assertEquals(1, timetable.firstDepartingAt(1));
+		assertEquals(1, timetable.firstDepartingAt(120));
+		assertEquals(2, timetable.firstDepartingAt(121));
+		assertEquals(3, timetable.firstDepartingAt(241));
+	}
+
+	@Test
+	public void testStationsNumberedLikeGraph(){
+		DirectedGraph<String> graph = new DirectedGraph<>();
+		graph.add("A", "B", 5);
+		graph.add("B", "C", 4);
+		CompactGraph<String> compact = new CompactGraph<>(graph);
+		TimetableBuilder builder = new TimetableBuilder(compact);
+		builder.setDefaultChangeTime(30);
+		builder.setChangeTime("B", 90);
+		builder.addTrip(new String[]{"C", "X"}, new int[]{0, 10}, new int[]{5, 0});
+		Timetable timetable = builder.build();
+		for(int v=0;v<compact.getVertexCount();v++){
+			assertEquals(v, timetable.indexOf(compact.getVertex(v)));
+		}
+		assertEquals(3, timetable.indexOf("X"));
+		assertEquals(-1, timetable.indexOf("Y"));
+		assertEquals(90, timetable.getChangeTime(timetable.indexOf("B")));
+		assertEquals(30, timetable.getChangeTime(timetable.indexOf("X")));
+		assertEquals(0, timetable.getChangeTime(timetable.indexOf("A")));
+	}
+
+	@Test
+	public void testInvalidConnections(){
+		TimetableBuilder builder = new TimetableBuilder();
+		int trip = builder.addTrip();
+		try{
+			builder.addConnection(trip + 1, "A", "B", 0, 10);
+			fail();
+		}catch(IllegalArgumentException e){
+			assertTrue(e.getMessage().startsWith("No such trip"));
+		}
+		try{
+			builder.addConnection(trip, "A", "B", 10, 5);
+			fail();
+		}catch(IllegalArgumentException e){
+			assertTrue(e.getMessage().startsWith("Arrival must not be before departure"));
+		}
+		try{
+			builder.setChangeTime("A", -1);
+			fail();
+		}catch(IllegalArgumentException e){
+			assertTrue(e.getMessage().startsWith("Time must not be negative"));
+		}
+		try{
+			builder.addTrip(new String[]{"A", "B"}, new int[]{0}, new int[]{0, 0});
+			fail();
+		}catch(IllegalArgumentException e){
+			assertTrue(e.getMessage().startsWith("Stations and times differ in length"));
+		}
+		assertEquals(0, builder.build().getConnectionCount());
+	}
+}
@@ -0,0 +1,211 @@
+package service;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import app.TrainInfo;
+import domain.CompactGraph;
+import domain.Timetable;
+import domain.TimetableBuilder;
+import junit.framework.TestCase;
+
+public class ConnectionScanTest extends TestCase{
+
+	/**
+	 * Two lines meeting at C: A to E via C leaving every hour, and B to D via C leaving every half hour.
+	 */
+	private static Timetable kiwilandTimetable(){
+		TimetableBuilder builder = new TimetableBuilder(new CompactGraph<>(TrainInfo.populateGraphfromInput(GraphServiceTest.input)));
+		builder.setChangeTime("C", 300);
+		for(int hour=6;hour<9;hour++){
+			int start = hour * 3600;
+			builder.addTrip(new String[]{"A", "C", "E"}, new int[]{start, start + 1200, start + 2400},
+					new int[]{start, start + 1260, 0});
+		}
+		for(int start=6*3600;start<9*3600;start+=1800){
+			builder.addTrip(new String[]{"B", "C", "D"}, new int[]{start, start + 600, start + 1500},
+					new int[]{start, start + 660, 0});
+		}
+		return builder.build();
+	}
+
+	@Test
+	public void testEarliestArrivalWithChangeTime(){
+		ConnectionScan scan = new ConnectionScan(kiwilandTimetable());
+		// 6:00 from A reaches C at 6:20, the 6:00 from B leaves C at 6:11, the 6:30 at 6:41.
+		assertEquals(6 * 3600 + 1200, scan.earliestArrival("A", "C", 6 * 3600));
+		assertEquals(6 * 3600 + 1800 + 1500, scan.earliestArrival("A", "D", 6 * 3600));
+		assertEquals(6 * 3600 + 2400, scan.earliestArrival("A", "E", 6 * 3600));
+		// Just missing the train waits for the next one.
+		assertEquals(7 * 3600 + 2400, scan.earliestArrival("A", "E", 6 * 3600 + 1));
+		assertEquals(ConnectionScan.UNREACHABLE, scan.earliestArrival("A", "E", 8 * 3600 + 1));
+		assertEquals(ConnectionScan.UNREACHABLE, scan.earliestArrival("E", "A", 0));
+		assertEquals(ConnectionScan.UNREACHABLE, scan.earliestArrival("A", "X", 0));
+		assertEquals(100, scan.earliestArrival("A", "A", 100));
+	}
+
+	@Test
+	public void testChangeTimeMissesConnection(){
+		TimetableBuilder builder = new TimetableBuilder();
+		builder.setChangeTime("B", 120);
+		builder.addTrip(new String[]{"A", "B"}, new int[]{0, 100}, new int[]{0, 0});
+		builder.addTrip(new String[]{"B", "C"}, new int[]{0, 300}, new int[]{200, 0});
+		builder.addTrip(new String[]{"B", "C"}, new int[]{0, 500}, new int[]{220, 0});
+		// Staying on a trip takes no change time.
+		builder.addTrip(new String[]{"A", "B", "D"}, new int[]{0, 100, 150}, new int[]{0, 100, 0});
+		ConnectionScan scan = new ConnectionScan(builder.build());
+		assertEquals(500, scan.earliestArrival("A", "C", 0));
+		assertEquals(150, scan.earliestArrival("A", "D", 0));
+		// The change time does not apply at the origin.
+		assertEquals(300, scan.earliestArrival("B", "C", 200));
+	}
+
+	@Test
+	public void testProfile(){
+		ConnectionScan scan = new ConnectionScan(kiwilandTimetable());
+		ConnectionScan.Profile profile = scan.profile("A", "D", 0, 24 * 3600);
+		// Every A train makes the B train leaving C 41 minutes past.
+		assertEquals(3, profile.size());
+		assertEquals(6 * 3600, profile.getDeparture(0));
+		assertEquals(6 * 3600 + 3300, profile.getArrival(0));
+		assertEquals(7 * 3600, profile.getDeparture(1));
+		assertEquals(7 * 3600 + 3300, profile.getArrival(1));
+		assertEquals(7 * 3600 + 3300, profile.earliestArrival(6 * 3600 + 1));
+		assertEquals(8 * 3600 + 3300, profile.earliestArrival(7 * 3600 + 1));
+		assertEquals(ConnectionScan.UNREACHABLE, profile.earliestArrival(8 * 3600 + 1));
+		assertEquals("[21600->24900, 25200->28500, 28800->32100]", profile.toString());
+		assertEquals(2, scan.profile("A", "D", 6 * 3600 + 1, 24 * 3600).size());
+		assertEquals(1, scan.profile("A", "D", 0, 6 * 3600).size());
+		assertEquals(0, scan.profile("A", "A", 0, 24 * 3600).size());
+		assertEquals(0, scan.profile("D", "A", 0, 24 * 3600).size());
+		assertEquals(0, scan.profile("X", "A", 0, 24 * 3600).size());
+	}
+
+	@Test
+	public void testMatchesBruteForceOnRandomTimetables(){
+		for(int seed=0;seed<8;seed++){
+			Timetable timetable = randomTimetable(12, 40, seed);
+			ConnectionScan scan = new ConnectionScan(timetable);
+			Random random = new Random(seed);
+			for(int query=0;query<60;query++){
+				int source = random.nextInt(12);
+				int destination = random.nextInt(12);
+				int departure = random.nextInt(3600);
+				assertEquals(bruteForce(timetable, source, destination, departure),
+						scan.earliestArrival(source, destination, departure));
+			}
+		}
+	}
+
+	@Test
+	public void testProfileMatchesEarliestArrivals(){
+		for(int seed=0;seed<8;seed++){
+			Timetable timetable = randomTimetable(12, 40, seed);
+			ConnectionScan scan = new ConnectionScan(timetable);
+			for(int source=0;source<12;source+=3){
+				for(int destination=0;destination<12;destination++){
+					if(source == destination){
+						continue;
+					}
+					ConnectionScan.Profile profile = scan.profile(source, destination, 0, 24 * 3600);
+					for(int i=0;i<profile.size();i++){
+						if(i > 0){
+							assertTrue(profile.getDeparture(i - 1) < profile.getDeparture(i));
+							assertTrue(profile.getArrival(i - 1) < profile.getArrival(i));
+						}
+						assertEquals(scan.earliestArrival(source, destination, profile.getDeparture(i)), profile.getArrival(i));
+					}
+					for(int departure=0;departure<=5000;departure+=37){
+						assertEquals(scan.earliestArrival(source, destination, departure), profile.earliestArrival(departure));
+					}
+					// A range keeps the journeys leaving within it, also those dominated by one leaving later.
+					ConnectionScan.Profile range = scan.profile(source, destination, 600, 2400);
+					int journey = 0;
+					for(int i=0;i<profile.size();i++){
+						if(profile.getDeparture(i) >= 600 && profile.getDeparture(i) <= 2400){
+							while(range.getDeparture(journey) != profile.getDeparture(i)){
+								journey++;
+							}
+							assertEquals(profile.getArrival(i), range.getArrival(journey));
+						}
+					}
+					for(int i=0;i<range.size();i++){
+						assertTrue(range.getDeparture(i) >= 600 && range.getDeparture(i) <= 2400);
+						assertTrue(i == 0 || range.getArrival(i - 1) < range.getArrival(i));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Trips of 2 to 6 stops among given stations, leaving within an hour, with change times up to 2 minutes.
+	 */
+	static Timetable randomTimetable(int stations, int trips, long seed){
+		Random random = new Random(seed);
+		TimetableBuilder builder = new TimetableBuilder();
+		for(int s=0;s<stations;s++){
+			builder.setChangeTime("S" + s, random.nextInt(120));
+		}
+		for(int t=0;t<trips;t++){
+			int stops = 2 + random.nextInt(5);
+			String[] names = new String[stops];
+			int[] arrivals = new int[stops];
+			int[] departures = new int[stops];
+			int time = random.nextInt(3600);
+			for(int i=0;i<stops;i++){
+				names[i] = "S" + random.nextInt(stations);
+				arrivals[i] = time;
+				time += random.nextInt(60);
+				departures[i] = time;
+				time += 1 + random.nextInt(600);
+			}
+			builder.addTrip(names, arrivals, departures);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Earliest arrival by fixpoint over connections: a connection is taken if it leaves source in time,
+	 * follows a taken connection of its trip, or leaves after the change time from one arriving at its station.
+	 */
+	private static int bruteForce(Timetable timetable, int source, int destination, int departure){
+		if(source == destination){
+			return departure;
+		}
+		int m = timetable.getConnectionCount();
+		boolean[] taken = new boolean[m];
+		boolean changed = true;
+		while(changed){
+			changed = false;
+			for(int c=0;c<m;c++){
+				if(taken[c]){
+					continue;
+				}
+				int station = timetable.getDepartureStation(c);
+				int time = timetable.getDepartureTime(c);
+				boolean possible = station == source && time >= departure;
+				for(int p=0;p<m && !possible;p++){
+					if(!taken[p] || timetable.getArrivalStation(p) != station || timetable.getArrivalStation(p) == destination){
+						continue;
+					}
+					int arrival = timetable.getArrivalTime(p);
+					possible = timetable.getTrip(p) == timetable.getTrip(c) ? arrival <= time
+							: arrival + timetable.getChangeTime(station) <= time;
+				}
+				if(possible){
+					taken[c] = true;
+					changed = true;
+				}
+			}
+		}
+		int best = ConnectionScan.UNREACHABLE;
+		for(int c=0;c<m;c++){
+			if(taken[c] && timetable.getArrivalStation(c) == destination){
+				best = Math.min(best, timetable.getArrivalTime(c));
+			}
+		}
+		return best;
+	}
+}
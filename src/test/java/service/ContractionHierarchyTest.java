@@ -0,0 +1,174 @@
+package service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import app.TrainInfo;
+import domain.CompactGraph;
+import domain.DirectedGraph;
+import junit.framework.TestCase;
+
+public class ContractionHierarchyTest extends TestCase{
+
+	public static CompactGraph<String> graph;
+
+	@Before
+	public void setUp() {
+		graph = new CompactGraph<>(TrainInfo.populateGraphfromInput(GraphServiceTest.input));
+	}
+
+	/**
+	 * Grid of size x size towns with roads of random length both ways between neighbours.
+	 */
+	public static DirectedGraph<String> grid(int size, long seed){
+		Random random = new Random(seed);
+		DirectedGraph<String> grid = new DirectedGraph<>();
+		for(int row=0;row<size;row++){
+			for(int column=0;column<size;column++){
+				String town = "G" + (row * size + column);
+				if(column + 1 < size){
+					int weight = 1 + random.nextInt(9);
+					grid.add(town, "G" + (row * size + column + 1), weight);
+					grid.add("G" + (row * size + column + 1), town, weight);
+				}
+				if(row + 1 < size){
+					int weight = 1 + random.nextInt(9);
+					grid.add(town, "G" + ((row + 1) * size + column), weight);
+					grid.add("G" + ((row + 1) * size + column), town, weight);
+				}
+			}
+		}
+		return grid;
+	}
+
+	@Test
+	public void testDistancesOnKiwiland(){
+		ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+		assertEquals(5, hierarchy.getTownCount());
+		assertEquals(9, hierarchy.shortestDistance(graph.indexOf("A"), graph.indexOf("C")));
+		assertEquals(9, hierarchy.shortestDistance("B", "B"));
+		assertEquals(Dijkstra.UNREACHABLE, hierarchy.shortestDistance("C", "A"));
+		assertEquals(Dijkstra.UNREACHABLE, hierarchy.shortestDistance("A", "X"));
+	}
+
+	@Test
+	public void testMatchesDijkstraOnRandomGraphs(){
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try{
+			for(int seed = 0; seed < 6; seed++){
+				// Sparse to dense graphs, so some towns can not reach others.
+				CompactGraph<String> random = new CompactGraph<>(DistanceIndexTest.randomGraph(80, 100 + 80 * seed, seed));
+				ContractionHierarchy hierarchy = ContractionHierarchy.build(random, pool);
+				for(int s=0;s<random.getVertexCount();s++){
+					for(int t=0;t<random.getVertexCount();t++){
+						assertEquals(Dijkstra.shortestDistance(random, s, t), hierarchy.shortestDistance(s, t));
+					}
+				}
+			}
+		}finally{
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testRanksArePermutation(){
+		CompactGraph<String> random = new CompactGraph<>(DistanceIndexTest.randomGraph(50, 200, 3));
+		ContractionHierarchy hierarchy = ContractionHierarchy.build(random);
+		boolean[] seen = new boolean[random.getVertexCount()];
+		for(int v=0;v<seen.length;v++){
+			assertFalse(seen[hierarchy.getRank(v)]);
+			seen[hierarchy.getRank(v)] = true;
+		}
+	}
+
+	@Test
+	public void testSearchSpaceOnGrid(){
+		CompactGraph<String> compact = new CompactGraph<>(grid(40, 1));
+		ContractionHierarchy hierarchy = ContractionHierarchy.build(compact);
+		GraphService graphService = new GraphService();
+		graphService.setContractionHierarchy(hierarchy);
+		QueryMetrics metrics = new QueryMetrics();
+		graphService.setQueryMetrics(metrics);
+		Random random = new Random(2);
+		int queries = 200;
+		for(int i=0;i<queries;i++){
+			String source = compact.getVertex(random.nextInt(compact.getVertexCount()));
+			String destination = compact.getVertex(random.nextInt(compact.getVertexCount()));
+			assertEquals(Dijkstra.shortestDistance(compact, source, destination),
+					graphService.getLengthOfShortestRoute(compact, source, destination));
+		}
+		long expanded = metrics.getCount(QueryMetrics.QueryType.SHORTEST_DISTANCE, QueryMetrics.Counter.VERTICES_EXPANDED);
+		// Dijkstra settles about half of the 1600 towns on average.
+		assertTrue("expanded " + expanded, expanded / queries < 400);
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException{
+		CompactGraph<String> random = new CompactGraph<>(DistanceIndexTest.randomGraph(40, 200, 5));
+		ContractionHierarchy hierarchy = ContractionHierarchy.build(random);
+		Path file = Files.createTempFile("hierarchy", ".ch");
+		file.toFile().deleteOnExit();
+		hierarchy.save(file);
+		ContractionHierarchy loaded = ContractionHierarchy.load(file);
+		assertEquals(hierarchy.getFingerprint(), loaded.getFingerprint());
+		assertEquals(hierarchy.getEdgeCount(), loaded.getEdgeCount());
+		assertTrue(loaded.matches(random));
+		for(int s=0;s<random.getVertexCount();s++){
+			assertEquals(hierarchy.getRank(s), loaded.getRank(s));
+			for(int t=0;t<random.getVertexCount();t++){
+				assertEquals(hierarchy.shortestDistance(s, t), loaded.shortestDistance(s, t));
+			}
+		}
+	}
+
+	@Test
+	public void testLoadRejectsOtherFiles() throws IOException{
+		Path file = Files.createTempFile("hierarchy", ".ch");
+		file.toFile().deleteOnExit();
+		LandmarkIndex.build(graph, 2).save(file);
+		try{
+			ContractionHierarchy.load(file);
+			fail();
+		}catch(IOException ex){
+			assertTrue(ex.getMessage().startsWith("Not a contraction hierarchy"));
+		}
+	}
+
+	@Test
+	public void testGraphServiceUsesMatchingHierarchyOnly(){
+		GraphService graphService = new GraphService();
+		DirectedGraph<String> kiwiland = TrainInfo.populateGraphfromInput(GraphServiceTest.input);
+		graphService.setContractionHierarchy(ContractionHierarchy.build(kiwiland));
+		assertEquals("9", graphService.getShortestRoute(graph, "A", "C"));
+		assertEquals(9, graphService.getLengthOfShortestRoute(kiwiland, "B", "B"));
+		assertEquals(Dijkstra.UNREACHABLE, graphService.getLengthOfShortestRoute(graph, "A", "X"));
+		kiwiland.add("A", "C", 1);
+		assertEquals(1, graphService.getLengthOfShortestRoute(kiwiland, "A", "C"));
+		CompactGraph<String> other = new CompactGraph<>(kiwiland);
+		assertFalse(graphService.getContractionHierarchy().matches(other));
+		assertEquals(1, graphService.getLengthOfShortestRoute(other, "A", "C"));
+	}
+
+	@Test
+	public void testHierarchyIsNotTrustedOnFingerprintAlone(){
+		// "Aa" and "BB" have the same hash code, so reversing the edge keeps the fingerprint.
+		DirectedGraph<String> colliding = new DirectedGraph<>();
+		colliding.add("Aa", "BB", 5);
+		GraphService graphService = new GraphService();
+		graphService.setContractionHierarchy(ContractionHierarchy.build(colliding));
+		assertEquals(5, graphService.getLengthOfShortestRoute(colliding, "Aa", "BB"));
+		long fingerprint = colliding.getFingerprint();
+		colliding.remove("Aa", "BB");
+		colliding.add("BB", "Aa", 5);
+		assertEquals(fingerprint, colliding.getFingerprint());
+		assertFalse(graphService.getContractionHierarchy().matches(colliding));
+		assertEquals(Dijkstra.UNREACHABLE, graphService.getLengthOfShortestRoute(colliding, "Aa", "BB"));
+		assertEquals(5, graphService.getLengthOfShortestRoute(colliding, "BB", "Aa"));
+	}
+}
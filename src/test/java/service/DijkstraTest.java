@@ -0,0 +1,38 @@
+package service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import app.TrainInfo;
+import domain.DirectedGraph;
+import junit.framework.TestCase;
+
+public class DijkstraTest extends TestCase{
+
+	public static DirectedGraph<String> graph = new DirectedGraph<>();
+
+	@Before
+	public void setUp() {
+		graph = TrainInfo.populateGraphfromInput(GraphServiceTest.input);
+	}
+
+	@Test
+	public void testShortestDistance(){
+		assertEquals(9, Dijkstra.shortestDistance(graph, "A", "C"));
+		assertEquals(5, Dijkstra.shortestDistance(graph, "A", "D"));
+		assertEquals(5, Dijkstra.shortestDistance(graph, "C", "B"));
+	}
+
+	@Test
+	public void testShortestRoundTrip(){
+		assertEquals(9, Dijkstra.shortestDistance(graph, "B", "B"));
+		assertEquals(9, Dijkstra.shortestDistance(graph, "C", "C"));
+		assertEquals(Dijkstra.UNREACHABLE, Dijkstra.shortestDistance(graph, "A", "A"));
+	}
+
+	@Test
+	public void testUnreachable(){
+		assertEquals(Dijkstra.UNREACHABLE, Dijkstra.shortestDistance(graph, "C", "A"));
+		assertEquals(Dijkstra.UNREACHABLE, Dijkstra.shortestDistance(graph, "A", "X"));
+	}
+}
@@ -0,0 +1,142 @@
+package service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import app.TrainInfo;
+import domain.CompactGraph;
+import domain.DirectedGraph;
+import junit.framework.TestCase;
+
+public class DistanceIndexTest extends TestCase{
+
+	public static DirectedGraph<String> graph = new DirectedGraph<>();
+
+	@Before
+	public void setUp() {
+		graph = TrainInfo.populateGraphfromInput(GraphServiceTest.input);
+	}
+
+	@Test
+	public void testDistances(){
+		DistanceIndex index = DistanceIndex.build(graph);
+		assertEquals(5, index.getTownCount());
+		assertEquals(9, index.getDistance("A", "C"));
+		assertEquals(9, index.getDistance("B", "B"));
+		assertEquals(Dijkstra.UNREACHABLE, index.getDistance("C", "A"));
+		assertEquals(Dijkstra.UNREACHABLE, index.getDistance("A", "X"));
+		assertEquals(graph.getFingerprint(), index.getFingerprint());
+	}
+
+	@Test
+	public void testMatchesDijkstraOnRandomGraph(){
+		DirectedGraph<String> random = randomGraph(60, 300, 11);
+		CompactGraph<String> compact = new CompactGraph<>(random);
+		DistanceIndex index = DistanceIndex.build(compact);
+		for(int s=0;s<compact.getVertexCount();s++){
+			for(int t=0;t<compact.getVertexCount();t++){
+				assertEquals(Dijkstra.shortestDistance(compact, s, t),
+						index.getDistance(compact.getVertex(s), compact.getVertex(t)));
+			}
+		}
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException{
+		DirectedGraph<String> random = randomGraph(40, 200, 5);
+		DistanceIndex index = DistanceIndex.build(random);
+		Path file = Files.createTempFile("distances", ".idx");
+		file.toFile().deleteOnExit();
+		index.save(file);
+		DistanceIndex loaded = DistanceIndex.load(file);
+		assertEquals(index.getFingerprint(), loaded.getFingerprint());
+		for(String s : random.getNeighbors().keySet()){
+			for(String t : random.getNeighbors().keySet()){
+				assertEquals(index.getDistance(s, t), loaded.getDistance(s, t));
+			}
+		}
+	}
+
+	@Test
+	public void testLoadRejectsTruncatedOrCorruptFile() throws IOException{
+		Path file = Files.createTempFile("distances", ".idx");
+		file.toFile().deleteOnExit();
+		DistanceIndex.build(graph).save(file);
+		byte[] bytes = Files.readAllBytes(file);
+		for(int length=0;length<bytes.length;length++){
+			Files.write(file, Arrays.copyOf(bytes, length));
+			assertLoadFails(file);
+		}
+		for(int town=16;town<24;town+=4){
+			for(int value : new int[]{-1, Integer.MAX_VALUE, 1 << 20}){
+				byte[] corrupt = bytes.clone();
+				ByteBuffer.wrap(corrupt).putInt(town, value);
+				Files.write(file, corrupt);
+				assertLoadFails(file);
+			}
+		}
+	}
+
+	private static void assertLoadFails(Path file){
+		try{
+			DistanceIndex.load(file);
+			fail("Loaded corrupt index");
+		}catch(IOException ex){
+			assertTrue(ex.getMessage().endsWith(file.toString()));
+		}
+	}
+
+	@Test
+	public void testGraphServiceUsesMatchingIndexOnly(){
+		GraphService graphService = new GraphService();
+		graphService.setDistanceIndex(DistanceIndex.build(graph));
+		assertEquals("9", graphService.getShortestRoute(graph, "A", "C"));
+		assertEquals("9", graphService.getShortestRoute(new CompactGraph<>(graph), "B", "B"));
+		graph.add("A", "C", 1);
+		assertEquals("1", graphService.getShortestRoute(graph, "A", "C"));
+	}
+
+	@Test
+	public void testIndexIsNotTrustedOnFingerprintAlone(){
+		// "Aa" and "BB" have the same hash code, so reversing the edge keeps the fingerprint.
+		DirectedGraph<String> colliding = new DirectedGraph<>();
+		colliding.add("Aa", "BB", 5);
+		GraphService graphService = new GraphService();
+		graphService.setDistanceIndex(DistanceIndex.build(colliding));
+		assertEquals("5", graphService.getShortestRoute(colliding, "Aa", "BB"));
+		long fingerprint = colliding.getFingerprint();
+		colliding.remove("Aa", "BB");
+		colliding.add("BB", "Aa", 5);
+		assertEquals(fingerprint, colliding.getFingerprint());
+		assertEquals(GraphService.NO_SUCH_ROUTE, graphService.getShortestRoute(colliding, "Aa", "BB"));
+		assertEquals("5", graphService.getShortestRoute(colliding, "BB", "Aa"));
+		// Another graph with the same content is not the graph the index was built from.
+		DirectedGraph<String> copy = new DirectedGraph<>();
+		copy.add("Aa", "BB", 5);
+		assertFalse(DistanceIndex.build(colliding).matches(copy));
+		assertTrue(DistanceIndex.build(copy).matches(new CompactGraph<>(copy)));
+	}
+
+	static DirectedGraph<String> randomGraph(int vertices, int edges, long seed){
+		Random random = new Random(seed);
+		DirectedGraph<String> graph = new DirectedGraph<>();
+		for(int i=0;i<vertices;i++){
+			graph.add("T" + i);
+		}
+		for(int i=0;i<edges;i++){
+			int from = random.nextInt(vertices);
+			int to = random.nextInt(vertices);
+			if(from != to){
+				graph.add("T" + from, "T" + to, 1 + random.nextInt(20));
+			}
+		}
+		return graph;
+	}
+}
@@ -0,0 +1,129 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import app.TrainInfo;
+import domain.CompactGraph;
+import domain.DirectedGraph;
+import domain.Edge;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for DynamicShortestPaths, against Dijkstra's algorithm after every modification.
+ */
+public class DynamicShortestPathsTest extends TestCase{
+
+	@Test
+	public void testKiwiland(){
+		DirectedGraph<String> graph = TrainInfo.populateGraphfromInput(GraphServiceTest.input);
+		DynamicShortestPaths<String> paths = new DynamicShortestPaths<>(graph, "A");
+		assertEquals(9, paths.getDistance("C"));
+		assertEquals(Dijkstra.UNREACHABLE, paths.getDistance("A"));
+		assertEquals(Dijkstra.UNREACHABLE, paths.getDistance("X"));
+		graph.remove("B", "C");
+		assertEquals(13, paths.getDistance("C"));
+		graph.setWeight("A", "D", 1);
+		assertEquals(9, paths.getDistance("C"));
+		graph.add("C", "A", 1);
+		assertEquals(10, paths.getDistance("A"));
+		paths.detach();
+		graph.remove("C", "A");
+		assertEquals(10, paths.getDistance("A"));
+	}
+
+	@Test
+	public void testRandomModifications(){
+		Random random = new Random(19);
+		for(int round = 0; round < 20; round++){
+			DirectedGraph<String> graph = DistanceIndexTest.randomGraph(40, 120, round);
+			String source = graph.getNeighbors().keySet().iterator().next();
+			DynamicShortestPaths<String> paths = new DynamicShortestPaths<>(graph, source);
+			assertDistances(graph, paths);
+			for(int step = 0; step < 200; step++){
+				List<String> vertices = new ArrayList<>(graph.getNeighbors().keySet());
+				String from = vertices.get(random.nextInt(vertices.size()));
+				String to = vertices.get(random.nextInt(vertices.size()));
+				// Weight 0 only now and then, so both repairs and full recomputes are exercised.
+				int weight = random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(9);
+				switch(random.nextInt(4)){
+				case 0:
+					graph.add(from, to, weight);
+					break;
+				case 1:
+					graph.add(from, "N" + step, weight);
+					break;
+				case 2:
+					List<Edge<String>> edges = graph.getEdges(from);
+					if(!edges.isEmpty()) graph.remove(from, edges.get(random.nextInt(edges.size())).getVertex());
+					break;
+				default:
+					edges = graph.getEdges(from);
+					if(!edges.isEmpty()) graph.setWeight(from, edges.get(random.nextInt(edges.size())).getVertex(), weight);
+				}
+				assertDistances(graph, paths);
+			}
+		}
+	}
+
+	@Test
+	public void testRepairIsLocal(){
+		DirectedGraph<String> graph = new DirectedGraph<>();
+		int size = 100;
+		for(int row = 0; row < size; row++){
+			for(int column = 0; column < size; column++){
+				if(column + 1 < size){
+					graph.add(row + "." + column, row + "." + (column + 1), 2);
+					graph.add(row + "." + (column + 1), row + "." + column, 2);
+				}
+				if(row + 1 < size){
+					graph.add(row + "." + column, (row + 1) + "." + column, 3);
+					graph.add((row + 1) + "." + column, row + "." + column, 3);
+				}
+			}
+		}
+		DynamicShortestPaths<String> paths = new DynamicShortestPaths<>(graph, "0.0");
+		// A speed restriction near the far corner only touches the few towns behind it.
+		graph.setWeight("98.99", "99.99", 20);
+		graph.remove("99.98", "99.99");
+		graph.add("99.98", "99.99", 1);
+		assertEquals(0, paths.getFullRecomputes());
+		assertTrue(String.valueOf(paths.getVerticesRepaired()), paths.getVerticesRepaired() < 10);
+		assertEquals(Dijkstra.shortestDistance(graph, "0.0", "99.99"), paths.getDistance("99.99"));
+		assertEquals(98 * 2 + 99 * 3 + 1, paths.getDistance("99.99"));
+	}
+
+	@Test
+	public void testGraphServiceUsesShortestPathsOfItsSource(){
+		DirectedGraph<String> graph = TrainInfo.populateGraphfromInput(GraphServiceTest.input);
+		GraphService graphService = new GraphService();
+		graphService.setShortestPaths(new DynamicShortestPaths<>(graph, "A"));
+		graph.setWeight("A", "B", 1);
+		assertEquals(5, graphService.getLengthOfShortestRoute(graph, "A", "C"));
+		assertEquals(9, graphService.getLengthOfShortestRoute(graph, "B", "B"));
+		assertEquals("NO SUCH ROUTE", graphService.getShortestRoute(graph, "A", "A"));
+	}
+
+	@Test
+	public void testNegativeWeightRejected(){
+		DirectedGraph<String> graph = TrainInfo.populateGraphfromInput(GraphServiceTest.input);
+		graph.add("A", "F", -1);
+		try{
+			new DynamicShortestPaths<>(graph, "A");
+			fail("Negative weight accepted");
+		}catch(IllegalArgumentException ex){
+			// expected
+		}
+	}
+
+	private static void assertDistances(DirectedGraph<String> graph, DynamicShortestPaths<String> paths){
+		CompactGraph<String> compact = new CompactGraph<>(graph);
+		int[] expected = Dijkstra.shortestDistances(compact, compact.indexOf(paths.getSource()));
+		for(int v = 0; v < compact.getVertexCount(); v++){
+			assertEquals(compact.getVertex(v), expected[v], paths.getDistance(compact.getVertex(v)));
+		}
+	}
+}
@@ -1,9 +1,16 @@
 package service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 
 import app.TrainInfo;
+import domain.CompactGraph;
+import domain.ConcurrentDirectedGraph;
 import domain.DirectedGraph;
 import junit.framework.TestCase;
 
@@ -47,6 +54,8 @@ public class GraphServiceTest extends TestCase{
 	public void testGetShortestRoute(){
 		GraphService graphService = new GraphService();
 		assertEquals("9",graphService.getShortestRoute(graph, "B", "B"));
+		assertEquals("9",graphService.getShortestRoute(graph, "A", "C"));
+		assertEquals("NO SUCH ROUTE",graphService.getShortestRoute(graph, "C", "A"));
 	}
 	
 	@Test
@@ -55,4 +64,91 @@ public class GraphServiceTest extends TestCase{
 		assertEquals(7, graphService.findTripsWithMaxWeight(graph, "C", "C", 30));
 	}
 	
+	@Test
+	public void testQueriesOnCompactGraph(){
+		GraphService graphService = new GraphService();
+		CompactGraph<String> compact = new CompactGraph<>(graph);
+		assertEquals("9", graphService.getRouteDistance("A-B-C", compact));
+		assertEquals("22", graphService.getRouteDistance("A-E-B-C-D", compact));
+		assertEquals("NO SUCH ROUTE", graphService.getRouteDistance("A-E-D", compact));
+		assertEquals(2, graphService.findTripsWithMaxNStops(compact, "C", "C", 3));
+		assertEquals(3, graphService.findTripsWithExactlyNStops(compact, "A", "C", 4));
+		assertEquals("9", graphService.getShortestRoute(compact, "A", "C"));
+		assertEquals("9", graphService.getShortestRoute(compact, "B", "B"));
+		assertEquals(7, graphService.findTripsWithMaxWeight(compact, "C", "C", 30));
+	}
+
+	@Test
+	public void testQueriesOnConcurrentSnapshot(){
+		GraphService graphService = new GraphService();
+		ConcurrentDirectedGraph<String> concurrent = new ConcurrentDirectedGraph<>(graph);
+		ConcurrentDirectedGraph.Snapshot<String> before = concurrent.snapshot();
+		concurrent.remove("E", "B");
+		assertEquals("9", graphService.getShortestRoute(before, "B", "B"));
+		assertEquals("16", graphService.getShortestRoute(concurrent.snapshot(), "C", "C"));
+		assertEquals("NO SUCH ROUTE", graphService.getShortestRoute(concurrent.snapshot(), "B", "B"));
+	}
+
+	@Test
+	public void testFindDistinctPathsKeepsDepthFirstOrder(){
+		for(int seed = 0; seed < 5; seed++){
+			DirectedGraph<String> random = DistanceIndexTest.randomGraph(9, 25, seed);
+			for(String source : random.getNeighbors().keySet()){
+				for(String destination : random.getNeighbors().keySet()){
+					List<String> expected = GraphService.depthFirst(random, new ArrayList<String>(), new LinkedList<String>(), source, destination);
+					assertEquals(expected, GraphService.findDistinctPaths(random, source, destination));
+				}
+			}
+		}
+		assertEquals(3, GraphService.findDistinctPaths(graph, "C", "C").size());
+		assertTrue(GraphService.findDistinctPaths(graph, "A", "X").isEmpty());
+	}
+
+	@Test
+	public void testCompactGraphPathsPassBackThroughSource(){
+		CompactGraph<String> compact = new CompactGraph<>(graph);
+		assertEquals(Arrays.asList("C-E", "C-D-E", "C-D-C-E"), GraphService.findDistinctPaths(graph, "C", "E"));
+		for(String source : graph.getNeighbors().keySet()){
+			for(String destination : graph.getNeighbors().keySet()){
+				List<String> expected = GraphService.depthFirst(graph, new ArrayList<String>(), new LinkedList<String>(), source, destination);
+				assertEquals(source + destination, expected, GraphService.findDistinctPaths(compact, source, destination));
+			}
+		}
+		for(int seed = 0; seed < 5; seed++){
+			DirectedGraph<String> random = DistanceIndexTest.randomGraph(9, 25, seed);
+			CompactGraph<String> randomCompact = new CompactGraph<>(random);
+			for(String source : random.getNeighbors().keySet()){
+				for(String destination : random.getNeighbors().keySet()){
+					List<String> expected = GraphService.depthFirst(random, new ArrayList<String>(), new LinkedList<String>(), source, destination);
+					assertEquals(expected, GraphService.findDistinctPaths(randomCompact, source, destination));
+					assertEquals(expected, GraphService.findDistinctPathsInParallel(randomCompact, source, destination));
+					assertEquals(expected.size(), GraphService.countDistinctPaths(randomCompact, source, destination));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testFindRoutes(){
+		CompactGraph<String> compact = new CompactGraph<>(graph);
+		List<String> trips = GraphService.findRoutesWithMaxNStops(compact, "C", "C", 3);
+		assertEquals(2, trips.size());
+		assertTrue(trips.containsAll(Arrays.asList("C-D-C", "C-E-B-C")));
+		assertEquals(7, GraphService.findRoutesWithMaxWeight(compact, "C", "C", 30).size());
+		assertTrue(GraphService.findRoutesWithMaxWeight(compact, "C", "C", 30).contains("C-E-B-C-E-B-C-E-B-C"));
+		assertTrue(GraphService.findRoutesWithMaxNStops(compact, "C", "X", 3).isEmpty());
+		assertTrue(GraphService.findRoutesWithMaxNStops(compact, "C", "C", 0).isEmpty());
+		for(int seed = 0; seed < 5; seed++){
+			CompactGraph<String> random = new CompactGraph<>(DistanceIndexTest.randomGraph(8, 30, seed));
+			for(int s = 0; s < random.getVertexCount(); s++){
+				for(int t = 0; t < random.getVertexCount(); t++){
+					trips = GraphService.findRoutesWithMaxNStops(random, random.getVertex(s), random.getVertex(t), 4);
+					assertEquals(TripCounter.countTripsWithMaxNStops(random, s, t, 4), trips.size());
+					trips = GraphService.findRoutesWithMaxWeight(random, random.getVertex(s), random.getVertex(t), 15);
+					assertEquals(TripCounter.countTripsWithMaxWeight(random, s, t, 15), trips.size());
+				}
+			}
+		}
+	}
+
 }
@@ -0,0 +1,115 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import app.TrainInfo;
+import domain.CompactGraph;
+import domain.IndexedGraph;
+import junit.framework.TestCase;
+
+public class KShortestPathsTest extends TestCase{
+
+	public static CompactGraph<String> graph;
+
+	@Before
+	public void setUp() {
+		graph = new CompactGraph<>(TrainInfo.populateGraphfromInput(GraphServiceTest.input));
+	}
+
+	@Test
+	public void testShortestRoutesOnKiwiland(){
+		GraphService graphService = new GraphService();
+		List<Route> routes = graphService.findShortestRoutes(graph, "A", "C", 5);
+		assertEquals(4, routes.size());
+		assertEquals("A-B-C", routes.get(0).toString(graph));
+		assertEquals(9, routes.get(0).getDistance());
+		assertEquals("A-D-C", routes.get(1).toString(graph));
+		assertEquals(13, routes.get(1).getDistance());
+		assertEquals("A-E-B-C", routes.get(2).toString(graph));
+		assertEquals(14, routes.get(2).getDistance());
+		assertEquals("A-D-E-B-C", routes.get(3).toString(graph));
+		assertEquals(18, routes.get(3).getDistance());
+		assertEquals(2, routes.get(1).getStops());
+	}
+
+	@Test
+	public void testRoundTrips(){
+		GraphService graphService = new GraphService();
+		List<Route> routes = graphService.findShortestRoutes(graph, "C", "C", 2);
+		assertEquals(2, routes.size());
+		assertEquals("C-E-B-C", routes.get(0).toString(graph));
+		assertEquals(9, routes.get(0).getDistance());
+		assertEquals("C-D-C", routes.get(1).toString(graph));
+		assertEquals(16, routes.get(1).getDistance());
+		assertEquals(graphService.getLengthOfShortestRoute(graph, "B", "B"),
+				graphService.findShortestRoutes(graph, "B", "B", 1).get(0).getDistance());
+	}
+
+	@Test
+	public void testNoRoute(){
+		GraphService graphService = new GraphService();
+		assertTrue(graphService.findShortestRoutes(graph, "A", "X", 3).isEmpty());
+		assertTrue(graphService.findShortestRoutes(graph, "B", "A", 3).isEmpty());
+		assertTrue(graphService.findShortestRoutes(graph, "A", "C", 0).isEmpty());
+	}
+
+	@Test
+	public void testMatchesAllDistinctPathsSorted(){
+		for(int seed = 0; seed < 5; seed++){
+			CompactGraph<String> random = new CompactGraph<>(DistanceIndexTest.randomGraph(10, 35, seed));
+			for(int source = 0; source < random.getVertexCount(); source++){
+				for(int destination = 0; destination < random.getVertexCount(); destination += 3){
+					// Parallel lines give the same vertex sequence more than once, a route counts once.
+					Set<String> seen = new HashSet<String>();
+					List<Integer> expected = new ArrayList<Integer>();
+					PathEnumerator paths = new PathEnumerator(random, source, destination);
+					while(paths.hasNext()){
+						int[] path = paths.next();
+						// Routes are loopless, the enumerator may also pass back through source.
+						if(!passesSource(path) && seen.add(Arrays.toString(path))){
+							expected.add(distance(random, path));
+						}
+					}
+					Collections.sort(expected);
+					List<Route> routes = KShortestPaths.find(random, source, destination, 6);
+					assertEquals(Math.min(6, expected.size()), routes.size());
+					for(int i = 0; i < routes.size(); i++){
+						assertEquals((int) expected.get(i), routes.get(i).getDistance());
+						assertEquals(routes.get(i).getDistance(), distance(random, routes.get(i).getVertices()));
+					}
+				}
+			}
+		}
+	}
+
+	private static boolean passesSource(int[] path){
+		for(int i = 1; i < path.length - 1; i++){
+			if(path[i] == path[0]){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int distance(IndexedGraph<?> graph, int[] path){
+		int distance = 0;
+		for(int i = 1; i < path.length; i++){
+			int weight = Integer.MAX_VALUE;
+			for(int e = 0; e < graph.getDegree(path[i - 1]); e++){
+				if(graph.getTarget(path[i - 1], e) == path[i]){
+					weight = Math.min(weight, graph.getWeight(path[i - 1], e));
+				}
+			}
+			distance += weight;
+		}
+		return distance;
+	}
+}
@@ -0,0 +1,98 @@
+package service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import app.TrainInfo;
+import domain.CompactGraph;
+import domain.DirectedGraph;
+import junit.framework.TestCase;
+
+public class LandmarkIndexTest extends TestCase{
+
+	public static CompactGraph<String> graph;
+
+	@Before
+	public void setUp() {
+		graph = new CompactGraph<>(TrainInfo.populateGraphfromInput(GraphServiceTest.input));
+	}
+
+	@Test
+	public void testDistancesOnKiwiland(){
+		LandmarkIndex index = LandmarkIndex.build(graph, 2);
+		assertEquals(2, index.getLandmarkCount());
+		assertEquals(5, index.getTownCount());
+		assertEquals(9, index.shortestDistance(graph, graph.indexOf("A"), graph.indexOf("C")));
+		assertEquals(9, index.shortestDistance(graph, graph.indexOf("B"), graph.indexOf("B")));
+		assertEquals(Dijkstra.UNREACHABLE, index.shortestDistance(graph, graph.indexOf("C"), graph.indexOf("A")));
+		assertEquals(5, LandmarkIndex.build(graph, 10).getLandmarkCount());
+	}
+
+	@Test
+	public void testMatchesDijkstraOnRandomGraphs(){
+		for(int seed = 0; seed < 4; seed++){
+			// Sparse graphs, so some towns can not reach others.
+			CompactGraph<String> random = new CompactGraph<>(DistanceIndexTest.randomGraph(80, 120 + 60 * seed, seed));
+			for(int landmarks = 0; landmarks <= 6; landmarks += 3){
+				LandmarkIndex index = LandmarkIndex.build(random, landmarks);
+				for(int s=0;s<random.getVertexCount();s++){
+					for(int t=0;t<random.getVertexCount();t++){
+						assertEquals(Dijkstra.shortestDistance(random, s, t), index.shortestDistance(random, s, t));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLowerBounds(){
+		CompactGraph<String> random = new CompactGraph<>(DistanceIndexTest.randomGraph(50, 200, 7));
+		LandmarkIndex index = LandmarkIndex.build(random, 4);
+		for(int s=0;s<random.getVertexCount();s++){
+			for(int t=0;t<random.getVertexCount();t++){
+				int distance = Dijkstra.shortestDistance(random, s, t);
+				if(s != t && distance != Dijkstra.UNREACHABLE){
+					assertTrue(index.lowerBound(s, t) <= distance);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException{
+		CompactGraph<String> random = new CompactGraph<>(DistanceIndexTest.randomGraph(40, 200, 5));
+		LandmarkIndex index = LandmarkIndex.build(random, 3);
+		Path file = Files.createTempFile("landmarks", ".idx");
+		file.toFile().deleteOnExit();
+		index.save(file);
+		LandmarkIndex loaded = LandmarkIndex.load(file);
+		assertEquals(index.getFingerprint(), loaded.getFingerprint());
+		assertEquals(3, loaded.getLandmarkCount());
+		assertTrue(loaded.matches(random));
+		for(int s=0;s<random.getVertexCount();s++){
+			assertEquals(index.getLandmark(s % 3), loaded.getLandmark(s % 3));
+			for(int t=0;t<random.getVertexCount();t++){
+				assertEquals(index.lowerBound(s, t), loaded.lowerBound(s, t));
+				assertEquals(index.shortestDistance(random, s, t), loaded.shortestDistance(random, s, t));
+			}
+		}
+	}
+
+	@Test
+	public void testGraphServiceUsesMatchingIndexOnly(){
+		GraphService graphService = new GraphService();
+		graphService.setLandmarkIndex(LandmarkIndex.build(graph, 2));
+		assertEquals("9", graphService.getShortestRoute(graph, "A", "C"));
+		assertEquals(9, graphService.getLengthOfShortestRoute(graph, "B", "B"));
+		assertEquals(Dijkstra.UNREACHABLE, graphService.getLengthOfShortestRoute(graph, "A", "X"));
+		DirectedGraph<String> changed = TrainInfo.populateGraphfromInput(GraphServiceTest.input);
+		changed.add("A", "C", 1);
+		CompactGraph<String> other = new CompactGraph<>(changed);
+		assertFalse(graphService.getLandmarkIndex().matches(other));
+		assertEquals(1, graphService.getLengthOfShortestRoute(other, "A", "C"));
+	}
+}
@@ -0,0 +1,60 @@
+package service;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for LatencyHistogram.
+ */
+public class LatencyHistogramTest extends TestCase{
+
+	@Test
+	public void testBucketsAreContiguousAndPrecise(){
+		long previous = -1;
+		for(int index = 0; index <= LatencyHistogram.index(LatencyHistogram.MAX_VALUE); index++){
+			long highest = LatencyHistogram.highestValue(index);
+			assertEquals(index, LatencyHistogram.index(previous + 1));
+			assertEquals(index, LatencyHistogram.index(highest));
+			assertTrue(highest - previous - 1 <= Math.max(0, (previous + 1) / 128));
+			previous = highest;
+		}
+		assertEquals(LatencyHistogram.MAX_VALUE, previous);
+	}
+
+	@Test
+	public void testPercentiles(){
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getValueAtPercentile(99));
+		for(long value = 1; value <= 10000; value++){
+			histogram.record(value * 1000);
+		}
+		assertEquals(10000, histogram.getCount());
+		assertEquals(10000000, histogram.getMax());
+		assertEquals(5000500.0, histogram.getMean());
+		assertNear(5000000, histogram.getValueAtPercentile(50));
+		assertNear(9900000, histogram.getValueAtPercentile(99));
+		assertNear(9990000, histogram.getValueAtPercentile(99.9));
+		assertEquals(10000000, histogram.getValueAtPercentile(100));
+		assertNear(1000, histogram.getValueAtPercentile(0));
+	}
+
+	@Test
+	public void testOutOfRangeValues(){
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(0, histogram.getValueAtPercentile(50));
+		assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMax());
+		try{
+			histogram.getValueAtPercentile(101);
+			fail("Percentile above 100 accepted");
+		}catch(IllegalArgumentException ex){
+			// expected
+		}
+	}
+
+	private static void assertNear(long expected, long actual){
+		assertTrue(expected + " ~ " + actual, Math.abs(expected - actual) <= expected / 100);
+	}
+}
@@ -0,0 +1,57 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import app.TrainInfo;
+import domain.CompactGraph;
+import junit.framework.TestCase;
+
+public class ParallelPathEnumeratorTest extends TestCase{
+
+	@Test
+	public void testMatchesSequentialOnKiwiland(){
+		CompactGraph<String> graph = new CompactGraph<>(TrainInfo.populateGraphfromInput(GraphServiceTest.input));
+		String[] towns = {"A", "B", "C", "D", "E"};
+		for(String source : towns){
+			for(String destination : towns){
+				List<String> sequential = GraphService.findDistinctPaths(graph, source, destination);
+				assertEquals(source + destination, sequential, GraphService.findDistinctPathsInParallel(graph, source, destination));
+				assertEquals(source + destination, sequential.size(), GraphService.countDistinctPaths(graph, source, destination));
+			}
+		}
+	}
+
+	@Test
+	public void testMatchesSequentialOnRandomGraphs(){
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try{
+			for(int seed = 0; seed < 5; seed++){
+				CompactGraph<String> graph = new CompactGraph<>(DistanceIndexTest.randomGraph(12, 40, seed));
+				for(int source = 0; source < graph.getVertexCount(); source += 3){
+					for(int destination = 0; destination < graph.getVertexCount(); destination += 2){
+						List<int[]> sequential = new ArrayList<int[]>();
+						PathEnumerator paths = new PathEnumerator(graph, source, destination);
+						while(paths.hasNext()){
+							sequential.add(paths.next());
+						}
+						List<int[]> parallel = ParallelPathEnumerator.findPaths(graph, source, destination, pool);
+						assertEquals(sequential.size(), parallel.size());
+						for(int i = 0; i < sequential.size(); i++){
+							assertTrue(Arrays.equals(sequential.get(i), parallel.get(i)));
+						}
+						for(int split = 0; split < 5; split++){
+							assertEquals(sequential.size(), ParallelPathEnumerator.countPaths(graph, source, destination, pool, split));
+						}
+					}
+				}
+			}
+		}finally{
+			pool.shutdown();
+		}
+	}
+}
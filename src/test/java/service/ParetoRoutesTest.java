@@ -0,0 +1,138 @@
+package service;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import app.TrainInfo;
+import domain.CompactGraph;
+import domain.IndexedGraph;
+import junit.framework.TestCase;
+
+public class ParetoRoutesTest extends TestCase{
+
+	public static CompactGraph<String> graph;
+
+	@Before
+	public void setUp() {
+		graph = new CompactGraph<>(TrainInfo.populateGraphfromInput(GraphServiceTest.input));
+	}
+
+	@Test
+	public void testParetoRoutesOnKiwiland(){
+		GraphService graphService = new GraphService();
+		List<Route> routes = graphService.findParetoRoutes(graph, "C", "C");
+		// Two stops for 16, or three for 9.
+		assertEquals(2, routes.size());
+		assertEquals("C-D-C", routes.get(0).toString(graph));
+		assertEquals(16, routes.get(0).getDistance());
+		assertEquals("C-E-B-C", routes.get(1).toString(graph));
+		assertEquals(9, routes.get(1).getDistance());
+		routes = graphService.findParetoRoutes(graph, "A", "C");
+		assertEquals(1, routes.size());
+		assertEquals("A-B-C", routes.get(0).toString(graph));
+		assertEquals("E-B-C-D", graphService.findParetoRoutes(graph, "E", "D").get(0).toString(graph));
+		assertTrue(graphService.findParetoRoutes(graph, "C", "A").isEmpty());
+		assertTrue(graphService.findParetoRoutes(graph, "A", "X").isEmpty());
+	}
+
+	@Test
+	public void testMaxStops(){
+		int c = graph.indexOf("C");
+		assertEquals(2, ParetoRoutes.find(graph, c, c, 3).size());
+		List<Route> routes = ParetoRoutes.find(graph, c, c, 2);
+		assertEquals(1, routes.size());
+		assertEquals(16, routes.get(0).getDistance());
+		assertTrue(ParetoRoutes.find(graph, c, c, 1).isEmpty());
+		assertTrue(ParetoRoutes.find(graph, c, c, 0).isEmpty());
+		try{
+			ParetoRoutes.find(graph, c, graph.getVertexCount(), 2);
+			fail();
+		}catch(IllegalArgumentException e){
+			assertTrue(e.getMessage().startsWith("No such vertex"));
+		}
+	}
+
+	@Test
+	public void testMatchesBellmanFordOnRandomGraphs(){
+		for(int seed=0;seed<6;seed++){
+			CompactGraph<String> random = new CompactGraph<>(DistanceIndexTest.randomGraph(40, 60 + 40 * seed, seed));
+			int n = random.getVertexCount();
+			for(int source=0;source<n;source+=3){
+				long[][] distances = shortestByStops(random, source);
+				for(int destination=0;destination<n;destination++){
+					List<Route> routes = ParetoRoutes.find(random, source, destination);
+					int route = 0;
+					long best = Long.MAX_VALUE;
+					for(int stops=1;stops<n;stops++){
+						if(distances[stops][destination] < best){
+							best = distances[stops][destination];
+							Route found = routes.get(route++);
+							assertEquals(stops, found.getStops());
+							assertEquals(best, found.getDistance());
+							assertEquals(best, distanceOf(random, found));
+							assertEquals(source, found.getVertex(0));
+							assertEquals(destination, found.getVertex(stops));
+						}
+					}
+					assertEquals(route, routes.size());
+					if(!routes.isEmpty()){
+						assertEquals(Dijkstra.shortestDistance(random, source, destination), routes.get(route - 1).getDistance());
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testQueryMetrics(){
+		GraphService graphService = new GraphService();
+		QueryMetrics metrics = new QueryMetrics();
+		graphService.setQueryMetrics(metrics);
+		graphService.findParetoRoutes(graph, "C", "C");
+		assertEquals(1, metrics.getQueryCount(QueryMetrics.QueryType.PARETO_ROUTES));
+		assertEquals(2, metrics.getCount(QueryMetrics.QueryType.PARETO_ROUTES, QueryMetrics.Counter.PATHS_MATERIALIZED));
+		assertTrue(metrics.getCount(QueryMetrics.QueryType.PARETO_ROUTES, QueryMetrics.Counter.VERTICES_EXPANDED) > 0);
+	}
+
+	/**
+	 * Shortest distance from source to every vertex by routes of at most k stops, by k rounds of Bellman-Ford.
+	 */
+	private static long[][] shortestByStops(IndexedGraph<?> graph, int source){
+		int n = graph.getVertexCount();
+		long[][] distances = new long[n][n];
+		java.util.Arrays.fill(distances[0], Long.MAX_VALUE);
+		distances[0][source] = 0;
+		for(int k=1;k<n;k++){
+			long[] next = new long[n];
+			java.util.Arrays.fill(next, Long.MAX_VALUE);
+			for(int v=0;v<n;v++){
+				if(distances[k - 1][v] == Long.MAX_VALUE) continue;
+				for(int e=0;e<graph.getDegree(v);e++){
+					int t = graph.getTarget(v, e);
+					next[t] = Math.min(next[t], distances[k - 1][v] + graph.getWeight(v, e));
+				}
+			}
+			for(int v=0;v<n;v++){
+				distances[k][v] = k > 1 ? Math.min(next[v], distances[k - 1][v]) : next[v];
+			}
+		}
+		return distances;
+	}
+
+	private static long distanceOf(IndexedGraph<?> graph, Route route){
+		long distance = 0;
+		for(int i=0;i<route.getStops();i++){
+			int v = route.getVertex(i);
+			long weight = Long.MAX_VALUE;
+			for(int e=0;e<graph.getDegree(v);e++){
+				if(graph.getTarget(v, e) == route.getVertex(i + 1)){
+					weight = Math.min(weight, graph.getWeight(v, e));
+				}
+			}
+			distance += weight;
+		}
+		return distance;
+	}
+}
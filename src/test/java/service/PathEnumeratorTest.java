@@ -0,0 +1,95 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import app.TrainInfo;
+import domain.CompactGraph;
+import domain.DirectedGraph;
+import junit.framework.TestCase;
+
+public class PathEnumeratorTest extends TestCase{
+
+	public static CompactGraph<String> graph;
+
+	@Before
+	public void setUp() {
+		graph = new CompactGraph<>(TrainInfo.populateGraphfromInput(GraphServiceTest.input));
+	}
+
+	@Test
+	public void testMatchesFindDistinctPaths(){
+		String[] towns = {"A", "B", "C", "D", "E"};
+		for(String source : towns){
+			for(String destination : towns){
+				List<String> streamed = GraphService.streamDistinctPaths(graph, source, destination).collect(Collectors.toList());
+				assertEquals(source + destination, GraphService.findDistinctPaths(graph, source, destination), streamed);
+			}
+		}
+	}
+
+	@Test
+	public void testPathsAsVertexIndices(){
+		PathEnumerator paths = new PathEnumerator(graph, graph.indexOf("C"), graph.indexOf("C"));
+		List<String> routes = new ArrayList<String>();
+		while(paths.hasNext()){
+			int[] path = paths.next();
+			assertEquals(graph.indexOf("C"), path[0]);
+			assertEquals(graph.indexOf("C"), path[path.length - 1]);
+			routes.add(GraphService.toRoute(graph, path, path.length));
+		}
+		assertTrue(routes.contains("C-D-C"));
+		assertTrue(routes.contains("C-E-B-C"));
+		assertTrue(routes.contains("C-D-E-B-C"));
+		assertFalse(paths.hasNext());
+	}
+
+	@Test
+	public void testLimitAndFilter(){
+		DirectedGraph<String> random = DistanceIndexTest.randomGraph(200, 2000, 3);
+		CompactGraph<String> large = new CompactGraph<>(random);
+		List<String> first = GraphService.streamDistinctPaths(large, "T0", "T1").limit(20).collect(Collectors.toList());
+		assertEquals(20, first.size());
+		List<String> short3 = GraphService.streamDistinctPaths(large, "T0", "T1")
+				.filter(route -> GraphService.getNumberOfStopsOnPath(route) > 3).limit(5).collect(Collectors.toList());
+		assertEquals(5, short3.size());
+		for(String route : short3){
+			assertTrue(GraphService.getNumberOfStopsOnPath(route) > 3);
+		}
+	}
+
+	@Test
+	public void testCancel(){
+		DirectedGraph<String> random = DistanceIndexTest.randomGraph(200, 2000, 3);
+		CompactGraph<String> large = new CompactGraph<>(random);
+		PathEnumerator paths = new PathEnumerator(large, large.indexOf("T0"), large.indexOf("T1"));
+		Iterator<int[]> iterator = paths;
+		assertTrue(iterator.hasNext());
+		iterator.next();
+		paths.cancel();
+		assertTrue(paths.isCancelled());
+		assertFalse(iterator.hasNext());
+
+		PathEnumerator closed = new PathEnumerator(large, large.indexOf("T0"), large.indexOf("T1"));
+		Stream<int[]> stream = closed.stream();
+		stream.close();
+		assertTrue(closed.isCancelled());
+	}
+
+	@Test
+	public void testNoSuchTown(){
+		assertEquals(0, GraphService.streamDistinctPaths(graph, "A", "X").count());
+		try{
+			new PathEnumerator(graph, 0, graph.getVertexCount());
+			fail();
+		}catch(IllegalArgumentException e){
+			// expected
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package service;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import app.TrainInfo;
+import domain.CompactGraph;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PathTrie and PathList.
+ */
+public class PathTrieTest extends TestCase{
+
+	@Test
+	public void testAppendSharesPrefixes(){
+		PathTrie trie = new PathTrie();
+		int first = trie.append(new int[] {0, 1, 2, 3}, 4);
+		assertEquals(4, trie.size());
+		int second = trie.append(new int[] {0, 1, 4, 9}, 3);
+		assertEquals(5, trie.size());
+		int third = trie.append(new int[] {0, 1, 4, 5}, 4);
+		assertEquals(6, trie.size());
+		assertEquals(second, trie.getParent(third));
+		int again = trie.append(new int[] {0, 1, 4}, 3);
+		assertEquals(second, again);
+		int other = trie.append(new int[] {7}, 1);
+		assertEquals(-1, trie.getParent(other));
+		assertEquals(7, trie.size());
+		assertTrue(Arrays.equals(new int[] {0, 1, 2, 3}, trie.toArray(first)));
+		assertTrue(Arrays.equals(new int[] {0, 1, 4, 5}, trie.toArray(third)));
+		assertEquals(3, trie.getLength(second));
+		assertEquals(7, trie.getVertex(other));
+	}
+
+	@Test
+	public void testAdd(){
+		PathTrie trie = new PathTrie();
+		int node = -1;
+		for(int v = 0; v < 100; v++){
+			node = trie.add(node, v);
+		}
+		assertEquals(100, trie.getLength(node));
+		assertEquals(99, trie.toArray(node)[99]);
+		try{
+			trie.add(100, 0);
+			fail("Unknown parent accepted");
+		}catch(IllegalArgumentException ex){
+			// expected
+		}
+	}
+
+	@Test
+	public void testPathList(){
+		CompactGraph<String> graph = new CompactGraph<>(TrainInfo.populateGraphfromInput(GraphServiceTest.input));
+		PathList routes = new PathList(graph);
+		int a = graph.indexOf("A");
+		int b = graph.indexOf("B");
+		int c = graph.indexOf("C");
+		routes.add(new int[] {a, b, c}, 3);
+		routes.add(new int[] {a, b}, 2);
+		assertEquals(Arrays.asList("A-B-C", "A-B"), routes);
+		assertEquals(3, routes.getTrie().size());
+		assertEquals(2, routes.getLength(1));
+		assertTrue(Arrays.equals(new int[] {a, b, c}, routes.getPath(0)));
+		try{
+			routes.get(2);
+			fail("Index out of bounds accepted");
+		}catch(IndexOutOfBoundsException ex){
+			// expected
+		}
+		try{
+			routes.add("A-E");
+			fail("List is not read only");
+		}catch(UnsupportedOperationException ex){
+			// expected
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package service;
+
+import org.junit.Test;
+
+import app.TrainInfo;
+import domain.CompactGraph;
+import domain.DirectedGraph;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for QueryMetrics, through GraphService.
+ */
+public class QueryMetricsTest extends TestCase{
+
+	@Test
+	public void testQueriesAreMeasuredOnce(){
+		DirectedGraph<String> graph = TrainInfo.populateGraphfromInput(GraphServiceTest.input);
+		GraphService graphService = new GraphService();
+		QueryMetrics metrics = new QueryMetrics();
+		graphService.setQueryMetrics(metrics);
+		assertEquals("9", graphService.getRouteDistance("A-B-C", graph));
+		assertEquals("9", graphService.getShortestRoute(graph, "A", "C"));
+		assertEquals(2, graphService.findTripsWithMaxNStops(graph, "C", "C", 3));
+		assertEquals(3, graphService.findTripsWithExactlyNStops(new CompactGraph<String>(graph), "A", "C", 4));
+		assertEquals(7, graphService.findTripsWithMaxWeight(graph, "C", "C", 30));
+		assertEquals(3, graphService.findShortestRoutes(new CompactGraph<String>(graph), "A", "C", 3).size());
+
+		assertEquals(1, metrics.getQueryCount(QueryMetrics.QueryType.ROUTE_DISTANCE));
+		// Answered through getLengthOfShortestRoute and the indexed overload, measured as the outer query.
+		assertEquals(1, metrics.getQueryCount(QueryMetrics.QueryType.SHORTEST_ROUTE));
+		assertEquals(0, metrics.getQueryCount(QueryMetrics.QueryType.SHORTEST_DISTANCE));
+		assertEquals(1, metrics.getQueryCount(QueryMetrics.QueryType.TRIPS_MAX_STOPS));
+		assertEquals(1, metrics.getQueryCount(QueryMetrics.QueryType.TRIPS_EXACT_STOPS));
+		assertEquals(1, metrics.getQueryCount(QueryMetrics.QueryType.TRIPS_MAX_WEIGHT));
+		assertEquals(1, metrics.getQueryCount(QueryMetrics.QueryType.SHORTEST_ROUTES));
+
+		assertEquals(0, metrics.getCount(QueryMetrics.QueryType.ROUTE_DISTANCE, QueryMetrics.Counter.EDGES_RELAXED));
+		assertTrue(metrics.getCount(QueryMetrics.QueryType.SHORTEST_ROUTE, QueryMetrics.Counter.VERTICES_EXPANDED) >= 2);
+		assertTrue(metrics.getCount(QueryMetrics.QueryType.SHORTEST_ROUTE, QueryMetrics.Counter.EDGES_RELAXED) >= 2);
+		assertTrue(metrics.getCount(QueryMetrics.QueryType.TRIPS_MAX_STOPS, QueryMetrics.Counter.EDGES_RELAXED) > 0);
+		assertTrue(metrics.getCount(QueryMetrics.QueryType.SHORTEST_ROUTES, QueryMetrics.Counter.PATHS_MATERIALIZED) >= 3);
+		assertTrue(metrics.getHistogram(QueryMetrics.QueryType.SHORTEST_ROUTE).getMax() > 0);
+
+		String dump = metrics.dump();
+		assertEquals(7, dump.split("\n").length);
+		assertTrue(dump, dump.contains("\ntrips_max_weight "));
+		assertFalse(dump, dump.contains("shortest_distance"));
+	}
+
+	@Test
+	public void testNothingIsMeasuredWithoutMetrics(){
+		DirectedGraph<String> graph = TrainInfo.populateGraphfromInput(GraphServiceTest.input);
+		GraphService graphService = new GraphService();
+		QueryMetrics metrics = new QueryMetrics();
+		graphService.setQueryMetrics(metrics);
+		graphService.setQueryMetrics(null);
+		assertEquals("9", graphService.getShortestRoute(graph, "A", "C"));
+		assertEquals(0, metrics.getQueryCount(QueryMetrics.QueryType.SHORTEST_ROUTE));
+		// Searches outside of a measured query are not counted anywhere.
+		assertEquals(9, Dijkstra.shortestDistance(graph, "B", "B"));
+		assertFalse(QueryProbe.isMeasuring());
+	}
+}
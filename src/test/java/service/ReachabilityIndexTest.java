@@ -0,0 +1,177 @@
+package service;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import app.TrainInfo;
+import domain.CompactGraph;
+import domain.DirectedGraph;
+import junit.framework.TestCase;
+
+public class ReachabilityIndexTest extends TestCase{
+
+	public static CompactGraph<String> graph;
+
+	@Before
+	public void setUp() {
+		graph = new CompactGraph<>(TrainInfo.populateGraphfromInput(GraphServiceTest.input));
+	}
+
+	@Test
+	public void testReachabilityOnKiwiland(){
+		ReachabilityIndex index = ReachabilityIndex.build(graph);
+		assertEquals(5, index.getTownCount());
+		// A is on no cycle, B, C, D and E are one component.
+		assertEquals(2, index.getComponentCount());
+		assertTrue(index.canReach("A", "C"));
+		assertTrue(index.canReach("B", "B"));
+		assertFalse(index.canReach("A", "A"));
+		assertFalse(index.canReach("C", "A"));
+		assertFalse(index.canReach("A", "X"));
+		assertEquals(index.getComponent(graph.indexOf("B")), index.getComponent(graph.indexOf("E")));
+	}
+
+	@Test
+	public void testMatchesDijkstraOnRandomGraphs(){
+		for(int seed = 0; seed < 6; seed++){
+			// Sparse graphs have many components, dense ones a few large ones.
+			CompactGraph<String> random = new CompactGraph<>(DistanceIndexTest.randomGraph(150, 60 + 50 * seed, seed));
+			ReachabilityIndex index = ReachabilityIndex.build(random);
+			for(int t=0;t<random.getVertexCount();t++){
+				boolean[] reaching = ReachabilityIndex.verticesReaching(random, t);
+				boolean[] indexed = index.verticesReaching(t);
+				for(int s=0;s<random.getVertexCount();s++){
+					boolean expected = Dijkstra.shortestDistance(random, s, t) != Dijkstra.UNREACHABLE;
+					assertEquals(expected, index.canReach(s, t));
+					assertEquals(expected, reaching[s]);
+					assertEquals(expected, indexed[s]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testChainHasOneComponentPerTown(){
+		DirectedGraph<String> chain = new DirectedGraph<>();
+		for(int i=0;i<200;i++){
+			chain.add("T" + i, "T" + (i + 1), 1);
+		}
+		ReachabilityIndex index = ReachabilityIndex.build(chain);
+		assertEquals(201, index.getComponentCount());
+		assertTrue(index.canReach("T0", "T200"));
+		assertTrue(index.canReach("T64", "T65"));
+		assertFalse(index.canReach("T65", "T64"));
+		assertFalse(index.canReach("T7", "T7"));
+	}
+
+	@Test
+	public void testGraphServiceRejectsUnreachablePairsWithoutSearch(){
+		GraphService graphService = new GraphService();
+		DirectedGraph<String> kiwiland = TrainInfo.populateGraphfromInput(GraphServiceTest.input);
+		graphService.setReachabilityIndex(ReachabilityIndex.build(kiwiland));
+		QueryMetrics metrics = new QueryMetrics();
+		graphService.setQueryMetrics(metrics);
+		assertEquals(GraphService.NO_SUCH_ROUTE, graphService.getShortestRoute(kiwiland, "C", "A"));
+		assertEquals(GraphService.NO_SUCH_ROUTE, graphService.getShortestRoute(graph, "A", "A"));
+		assertEquals(0, graphService.findTripsWithMaxNStops(kiwiland, "E", "A", 10));
+		assertEquals(0, graphService.findTripsWithExactlyNStops(graph, "B", "A", 4));
+		assertEquals(0, graphService.findTripsWithMaxWeight(graph, "D", "A", 30));
+		assertTrue(graphService.findShortestRoutes(graph, "E", "A", 3).isEmpty());
+		for(QueryMetrics.QueryType type : QueryMetrics.QueryType.values()){
+			assertEquals(0, metrics.getCount(type, QueryMetrics.Counter.VERTICES_EXPANDED));
+		}
+		assertEquals("9", graphService.getShortestRoute(graph, "A", "C"));
+		assertEquals(2, graphService.findTripsWithMaxNStops(kiwiland, "C", "C", 3));
+		// A graph the index was not built from is searched.
+		kiwiland.add("C", "A", 1);
+		assertEquals(1, graphService.getLengthOfShortestRoute(kiwiland, "C", "A"));
+	}
+
+	@Test
+	public void testSearchesPruneTownsNotReachingDestination(){
+		DirectedGraph<String> kiwiland = TrainInfo.populateGraphfromInput(GraphServiceTest.input);
+		// A dead end branch which can not reach C.
+		kiwiland.add("A", "X1", 1);
+		kiwiland.add("X1", "X2", 1);
+		kiwiland.add("X2", "X1", 1);
+		CompactGraph<String> compact = new CompactGraph<>(kiwiland);
+		List<String> paths = GraphService.findDistinctPaths(kiwiland, "A", "C");
+		List<String> expected = GraphService.findDistinctPaths(graph, "A", "C");
+		assertEquals(expected.size(), paths.size());
+		assertTrue(paths.containsAll(expected));
+		assertEquals(2, GraphService.findRoutesWithMaxNStops(compact, "C", "C", 3).size());
+		assertEquals(7, GraphService.findRoutesWithMaxWeight(compact, "C", "C", 30).size());
+		assertTrue(GraphService.findRoutesWithMaxNStops(compact, "X1", "C", 10).isEmpty());
+	}
+
+	@Test
+	public void testEnumerationsUseIndex(){
+		for(int seed = 0; seed < 5; seed++){
+			// Sparse graphs, so many towns do not reach the destination.
+			DirectedGraph<String> random = DistanceIndexTest.randomGraph(9, 14, seed);
+			CompactGraph<String> compact = new CompactGraph<>(random);
+			ReachabilityIndex index = ReachabilityIndex.build(compact);
+			ReachabilityIndex directedIndex = ReachabilityIndex.build(random);
+			for(String source : random.getNeighbors().keySet()){
+				for(String destination : random.getNeighbors().keySet()){
+					List<String> expected = GraphService.findDistinctPaths(compact, source, destination);
+					assertEquals(expected, GraphService.findDistinctPaths(compact, source, destination, index));
+					assertEquals(expected, GraphService.findDistinctPaths(random, source, destination, directedIndex));
+					assertEquals(expected, GraphService.findDistinctPathsInParallel(compact, source, destination, index));
+					assertEquals(expected.size(), GraphService.countDistinctPaths(compact, source, destination, index));
+					assertEquals(expected.size(), GraphService.streamDistinctPaths(compact, source, destination, index).count());
+					assertEquals(GraphService.findRoutesWithMaxNStops(compact, source, destination, 5),
+							GraphService.findRoutesWithMaxNStops(compact, source, destination, 5, index));
+					assertEquals(GraphService.findRoutesWithMaxWeight(compact, source, destination, 20),
+							GraphService.findRoutesWithMaxWeight(compact, source, destination, 20, index));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testIndexIsNotTrustedOnFingerprintAlone(){
+		// "Aa" and "BB" have the same hash code, so reversing the edge keeps the fingerprint.
+		DirectedGraph<String> colliding = new DirectedGraph<>();
+		colliding.add("Aa", "BB", 5);
+		GraphService graphService = new GraphService();
+		graphService.setReachabilityIndex(ReachabilityIndex.build(colliding));
+		assertEquals(0, graphService.findTripsWithMaxNStops(colliding, "BB", "Aa", 3));
+		long fingerprint = colliding.getFingerprint();
+		colliding.remove("Aa", "BB");
+		colliding.add("BB", "Aa", 5);
+		assertEquals(fingerprint, colliding.getFingerprint());
+		assertFalse(graphService.getReachabilityIndex().matches(colliding));
+		assertEquals(1, graphService.findTripsWithMaxNStops(colliding, "BB", "Aa", 3));
+		assertEquals("5", graphService.getShortestRoute(colliding, "BB", "Aa"));
+		assertEquals(Arrays.asList("BB-Aa"), GraphService.findDistinctPaths(colliding, "BB", "Aa", graphService.getReachabilityIndex()));
+	}
+
+	@Test
+	public void testTripCountsPruneTownsNotReachingDestination(){
+		DirectedGraph<String> kiwiland = TrainInfo.populateGraphfromInput(GraphServiceTest.input);
+		// A dead end branch which can not reach C.
+		kiwiland.add("C", "X1", 1);
+		kiwiland.add("X1", "X2", 1);
+		kiwiland.add("X2", "X1", 1);
+		CompactGraph<String> compact = new CompactGraph<>(kiwiland);
+		GraphService graphService = new GraphService();
+		QueryMetrics metrics = new QueryMetrics();
+		graphService.setQueryMetrics(metrics);
+		assertEquals(2, graphService.findTripsWithMaxNStops(compact, "C", "C", 3));
+		assertEquals(7, graphService.findTripsWithMaxWeight(compact, "C", "C", 30));
+		long stopsExpanded = metrics.getCount(QueryMetrics.QueryType.TRIPS_MAX_STOPS, QueryMetrics.Counter.VERTICES_EXPANDED);
+		long weightExpanded = metrics.getCount(QueryMetrics.QueryType.TRIPS_MAX_WEIGHT, QueryMetrics.Counter.VERTICES_EXPANDED);
+
+		graphService.setReachabilityIndex(ReachabilityIndex.build(compact));
+		metrics = new QueryMetrics();
+		graphService.setQueryMetrics(metrics);
+		assertEquals(2, graphService.findTripsWithMaxNStops(compact, "C", "C", 3));
+		assertEquals(7, graphService.findTripsWithMaxWeight(compact, "C", "C", 30));
+		assertTrue(metrics.getCount(QueryMetrics.QueryType.TRIPS_MAX_STOPS, QueryMetrics.Counter.VERTICES_EXPANDED) < stopsExpanded);
+		assertTrue(metrics.getCount(QueryMetrics.QueryType.TRIPS_MAX_WEIGHT, QueryMetrics.Counter.VERTICES_EXPANDED) < weightExpanded);
+	}
+}
@@ -0,0 +1,93 @@
+package service;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import app.TrainInfo;
+import domain.CompactGraph;
+import domain.DirectedGraph;
+import junit.framework.TestCase;
+
+public class RouteCacheTest extends TestCase{
+
+	public static DirectedGraph<String> graph = new DirectedGraph<>();
+
+	@Before
+	public void setUp() {
+		graph = TrainInfo.populateGraphfromInput(GraphServiceTest.input);
+	}
+
+	@Test
+	public void testCachedShortestRoute(){
+		GraphService graphService = new GraphService();
+		RouteCache cache = new RouteCache(10);
+		graphService.setRouteCache(cache);
+		assertEquals("9", graphService.getShortestRoute(graph, "A", "C"));
+		assertEquals("9", graphService.getShortestRoute(graph, "A", "C"));
+		assertEquals("9", graphService.getRouteDistance("A-B-C", graph));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testInvalidationOnAdd(){
+		GraphService graphService = new GraphService();
+		RouteCache cache = new RouteCache(10);
+		graphService.setRouteCache(cache);
+		assertEquals("NO SUCH ROUTE", graphService.getShortestRoute(graph, "C", "A"));
+		assertEquals("NO SUCH ROUTE", graphService.getRouteDistance("C-A", graph));
+		graph.add("C", "A", 1);
+		assertEquals("1", graphService.getShortestRoute(graph, "C", "A"));
+		assertEquals("1", graphService.getRouteDistance("C-A", graph));
+		assertEquals(0, cache.getHitCount());
+		graph.add("F");
+		assertEquals("1", graphService.getShortestRoute(graph, "C", "A"));
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void testGraphsDoNotShareEntries(){
+		GraphService graphService = new GraphService();
+		graphService.setRouteCache(new RouteCache(10));
+		DirectedGraph<String> other = TrainInfo.populateGraphfromInput(new String[]{"AB1,BC1"});
+		assertEquals("9", graphService.getShortestRoute(graph, "A", "C"));
+		assertEquals("2", graphService.getShortestRoute(other, "A", "C"));
+		CompactGraph<String> compact = new CompactGraph<>(graph);
+		assertEquals("9", graphService.getShortestRoute(compact, "A", "C"));
+		assertEquals("9", graphService.getShortestRoute(compact, "A", "C"));
+		assertEquals(1, graphService.getRouteCache().getHitCount());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEviction(){
+		RouteCache cache = new RouteCache(2);
+		cache.put(graph, 0, RouteCache.QueryType.SHORTEST_ROUTE, "A", "B", "5");
+		cache.put(graph, 0, RouteCache.QueryType.SHORTEST_ROUTE, "A", "C", "9");
+		assertEquals("5", cache.get(graph, 0, RouteCache.QueryType.SHORTEST_ROUTE, "A", "B"));
+		cache.put(graph, 0, RouteCache.QueryType.SHORTEST_ROUTE, "A", "D", "5");
+		assertNull(cache.get(graph, 0, RouteCache.QueryType.SHORTEST_ROUTE, "A", "C"));
+		assertEquals("5", cache.get(graph, 0, RouteCache.QueryType.SHORTEST_ROUTE, "A", "B"));
+		assertEquals(1, cache.getEvictionCount());
+		assertNull(cache.get(graph, 0, RouteCache.QueryType.ROUTE_DISTANCE, "A", "B"));
+	}
+
+	@Test
+	public void testCacheDoesNotKeepGraphAlive() throws InterruptedException{
+		RouteCache cache = new RouteCache(10);
+		DirectedGraph<String> superseded = TrainInfo.populateGraphfromInput(new String[]{"AB1,BC1"});
+		cache.put(superseded, superseded.getVersion(), RouteCache.QueryType.SHORTEST_ROUTE, "A", "C", "2");
+		cache.put(graph, graph.getVersion(), RouteCache.QueryType.SHORTEST_ROUTE, "A", "C", "9");
+		WeakReference<DirectedGraph<String>> reference = new WeakReference<>(superseded);
+		superseded = null;
+		for(int i=0;i<100 && (reference.get() != null || cache.size() > 1);i++){
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(reference.get());
+		assertEquals(1, cache.size());
+		assertEquals("9", cache.get(graph, graph.getVersion(), RouteCache.QueryType.SHORTEST_ROUTE, "A", "C"));
+	}
+}
@@ -0,0 +1,65 @@
+package service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import app.TrainInfo;
+import domain.CompactGraph;
+import junit.framework.TestCase;
+
+public class RouteEvaluatorTest extends TestCase{
+
+	public static CompactGraph<String> graph;
+
+	@Before
+	public void setUp() {
+		graph = new CompactGraph<>(TrainInfo.populateGraphfromInput(GraphServiceTest.input));
+	}
+
+	@Test
+	public void testDistanceOfText(){
+		RouteEvaluator evaluator = new RouteEvaluator(graph);
+		assertEquals(9, evaluator.getDistance("A-B-C"));
+		assertEquals(5, evaluator.getDistance("A-D"));
+		assertEquals(13, evaluator.getDistance(new StringBuilder("A-D-C")));
+		assertEquals(22, evaluator.getDistance("A-E-B-C-D"));
+		assertEquals(-1, evaluator.getDistance("A-E-D"));
+		assertEquals(-1, evaluator.getDistance("A"));
+		assertEquals(-1, evaluator.getDistance(""));
+		assertEquals(-1, evaluator.getDistance("A--B"));
+		assertEquals(-1, evaluator.getDistance("A-X"));
+	}
+
+	@Test
+	public void testMatchesGraphService(){
+		RouteEvaluator evaluator = new RouteEvaluator(graph);
+		String[] journeys = {"A-B-C", "A-B-C-", "B-C-E-B", "C-D-C-D-E", "E-A", "-A-B", "A-B-A"};
+		for(String journey : journeys){
+			assertEquals(journey, GraphService.getDistance(journey, graph), evaluator.getDistance(journey));
+		}
+	}
+
+	@Test
+	public void testDistanceOfVertexIndices(){
+		RouteEvaluator evaluator = new RouteEvaluator(graph);
+		int[] route = {graph.indexOf("A"), graph.indexOf("E"), graph.indexOf("B"), graph.indexOf("C"), graph.indexOf("D")};
+		assertEquals(22, evaluator.getDistance(route));
+		assertEquals(7, evaluator.getDistance(route, 1, 3));
+		assertEquals(-1, evaluator.getDistance(route, 0, 1));
+		assertEquals(graph.indexOf("C"), evaluator.indexOf("xCx", 1, 2));
+	}
+
+	@Test
+	public void testEvaluatorsKeptPerGraph(){
+		GraphService graphService = new GraphService();
+		CompactGraph<String> other = new CompactGraph<>(TrainInfo.populateGraphfromInput(new String[]{"AB1,BC2"}));
+		RouteEvaluator evaluator = graphService.getRouteEvaluator(graph);
+		RouteEvaluator otherEvaluator = graphService.getRouteEvaluator(other);
+		assertNotSame(evaluator, otherEvaluator);
+		assertSame(evaluator, graphService.getRouteEvaluator(graph));
+		assertSame(otherEvaluator, graphService.getRouteEvaluator(other));
+		assertEquals("9", graphService.getRouteDistance("A-B-C", graph));
+		assertEquals("3", graphService.getRouteDistance("A-B-C", other));
+		assertSame(evaluator, graphService.getRouteEvaluator(graph));
+	}
+}
@@ -0,0 +1,110 @@
+package service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import app.TrainInfo;
+import domain.CompactGraph;
+import domain.DirectedGraph;
+import junit.framework.TestCase;
+
+public class TripCounterTest extends TestCase{
+
+	public static CompactGraph<String> graph;
+
+	@Before
+	public void setUp() {
+		graph = new CompactGraph<>(TrainInfo.populateGraphfromInput(GraphServiceTest.input));
+	}
+
+	@Test
+	public void testCountTripsWithMaxNStops(){
+		assertEquals(2, TripCounter.countTripsWithMaxNStops(graph, graph.indexOf("C"), graph.indexOf("C"), 3));
+		assertEquals(0, TripCounter.countTripsWithMaxNStops(graph, graph.indexOf("C"), graph.indexOf("A"), 10));
+	}
+
+	@Test
+	public void testCountTripsWithExactlyNStops(){
+		assertEquals(3, TripCounter.countTripsWithExactlyNStops(graph, graph.indexOf("A"), graph.indexOf("C"), 4));
+		assertEquals(0, TripCounter.countTripsWithExactlyNStops(graph, graph.indexOf("A"), graph.indexOf("C"), 0));
+	}
+
+	@Test
+	public void testCountTripsWithManyStops(){
+		// Two towns with a double track in each direction double the trips at every stop.
+		DirectedGraph<String> loop = new DirectedGraph<>();
+		loop.add("A", "B", 1);
+		loop.add("A", "B", 2);
+		loop.add("B", "A", 1);
+		loop.add("B", "A", 2);
+		CompactGraph<String> compact = new CompactGraph<>(loop);
+		int a = compact.indexOf("A");
+		assertEquals(1L << 62, TripCounter.countTripsWithExactlyNStops(compact, a, a, 62));
+		assertEquals(TripCounter.MAX_COUNT, TripCounter.countTripsWithExactlyNStops(compact, a, a, 200));
+		assertEquals(TripCounter.MAX_COUNT, TripCounter.countTripsWithMaxNStops(compact, a, a, 200));
+		assertEquals(TripCounter.MAX_COUNT, TripCounter.countTripsWithMaxWeight(compact, a, a, 10000));
+	}
+
+	@Test
+	public void testLongCountsThroughGraphService(){
+		GraphService graphService = new GraphService();
+		// More trips than an int holds, fewer than a long.
+		long trips = graphService.findTripsWithMaxNStops(graph, "C", "C", 100);
+		assertTrue(trips > Integer.MAX_VALUE && trips < TripCounter.MAX_COUNT);
+		assertEquals(trips, TripCounter.countTripsWithExactlyNStops(graph, graph.indexOf("C"), graph.indexOf("C"), 100)
+				+ graphService.findTripsWithMaxNStops(graph, "C", "C", 99));
+		assertEquals(TripCounter.MAX_COUNT, graphService.findTripsWithMaxWeight(graph, "C", "C", 10000));
+		assertEquals(TripCounter.MAX_COUNT, graphService.findTripsWithExactlyNStops(graph, "C", "C", 1000));
+	}
+
+	@Test
+	public void testCountTripsWithMaxWeight(){
+		int c = graph.indexOf("C");
+		assertEquals(7, TripCounter.countTripsWithMaxWeight(graph, c, c, 30));
+		assertEquals(0, TripCounter.countTripsWithMaxWeight(graph, c, c, 9));
+		assertEquals(1, TripCounter.countTripsWithMaxWeight(graph, c, c, 10));
+		assertEquals(2, TripCounter.countTripsWithMaxWeight(graph, c, c, 17));
+		assertEquals(0, TripCounter.countTripsWithMaxWeight(graph, c, graph.indexOf("A"), 100));
+		assertTrue(TripCounter.countTripsWithMaxWeight(graph, c, c, 250) > 0);
+	}
+
+	@Test
+	public void testCountTripsWithMaxWeightRejectsZeroDistance(){
+		DirectedGraph<String> loop = new DirectedGraph<>();
+		loop.add("A", "B", 0);
+		loop.add("B", "A", 1);
+		CompactGraph<String> compact = new CompactGraph<>(loop);
+		try{
+			TripCounter.countTripsWithMaxWeight(compact, 0, 0, 10);
+			fail("Expected invalid distance");
+		}catch(IllegalArgumentException ex){
+			// expected
+		}		// A zero distance edge no trip reaches is no problem.
+		DirectedGraph<String> branches = new DirectedGraph<>();
+		branches.add("B", "A", 1);
+		branches.add("C", "D", 0);
+		branches.add("D", "C", 1);
+		compact = new CompactGraph<>(branches);
+		int c = compact.indexOf("C");
+		assertEquals(1, TripCounter.countTripsWithMaxWeight(compact, compact.indexOf("B"), compact.indexOf("A"), 10));
+		try{
+			TripCounter.countTripsWithMaxWeight(compact, c, c, 10);
+			fail("Expected invalid distance");
+		}catch(IllegalArgumentException ex){
+			// expected
+		}
+	}
+
+	@Test
+	public void testCountTripsWithMaxWeightMatchesEnumeration(){
+		for(int seed = 0; seed < 4; seed++){
+			CompactGraph<String> random = new CompactGraph<>(DistanceIndexTest.randomGraph(8, 20, seed));
+			for(int source = 0; source < random.getVertexCount(); source++){
+				for(int destination = 0; destination < random.getVertexCount(); destination++){
+					assertEquals(GraphService.findRoutesWithMaxWeight(random, random.getVertex(source), random.getVertex(destination), 45).size(),
+							TripCounter.countTripsWithMaxWeight(random, source, destination, 45));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Test;
+
+import app.TrainInfo;
+import domain.DirectedGraph;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for SlowQueryEvent, compiled and run only by the jfr profile.
+ */
+public class SlowQueryEventTest extends TestCase{
+
+	@Test
+	public void testSlowQueriesAreRecordedByFlightRecorder() throws Exception{
+		DirectedGraph<String> graph = TrainInfo.populateGraphfromInput(GraphServiceTest.input);
+		GraphService graphService = new GraphService();
+		QueryMetrics metrics = new QueryMetrics(0);
+		graphService.setQueryMetrics(metrics);
+		Path file = Files.createTempFile("queries", ".jfr");
+		try(Recording recording = new Recording()){
+			recording.enable("railroad.SlowQuery");
+			recording.start();
+			assertEquals("9", graphService.getShortestRoute(graph, "B", "B"));
+			recording.stop();
+			recording.dump(file);
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+			assertEquals(1, events.size());
+			RecordedEvent event = events.get(0);
+			assertEquals("SHORTEST_ROUTE", event.getString("queryType"));
+			assertEquals("B", event.getString("source"));
+			assertEquals("B", event.getString("destination"));
+			assertTrue(event.getLong("edgesRelaxed") > 0);
+		}finally{
+			Files.deleteIfExists(file);
+		}
+		assertEquals(1, metrics.getSlowQueryCount(QueryMetrics.QueryType.SHORTEST_ROUTE));
+	}
+}